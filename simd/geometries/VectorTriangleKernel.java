@@ -0,0 +1,100 @@
+package geometries;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class VectorTriangleKernel intersects a ray with several triangles in one pass on the SIMD lanes of the processor,
+ * by the Java Vector API (the incubator module jdk.incubator.vector).
+ * The operations are the same as in the scalar kernel and in the same order (without fused multiply-add), so every
+ * lane calculates exactly the distance of {@link Triangle} - the results don't depend on the kernel.
+ * The class is loaded only by {@link Simd}, by its name, so the rest of the code runs when the module is absent - and
+ * it is in the source root {@code simd}, which is compiled with the module after the code of {@code src}.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class VectorTriangleKernel extends TriangleKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // The smallest absolute value that isn't zero by primitives.Util.isZero (an exponent of -40)
+    private static final double ZERO = 0x1p-40;
+
+    /**
+     * Constructor
+     *
+     * @throws UnsupportedOperationException if the processor has no SIMD lanes for doubles
+     */
+    VectorTriangleKernel() {
+        if (SPECIES.length() < 2)
+            throw new UnsupportedOperationException("No SIMD lanes for doubles");
+    }
+
+    @Override
+    int closest(TriangleArrays arrays, int from, int to, double ox, double oy, double oz,
+                double dx, double dy, double dz, double maxDistance) {
+        DoubleVector hx = DoubleVector.broadcast(SPECIES, ox);
+        DoubleVector hy = DoubleVector.broadcast(SPECIES, oy);
+        DoubleVector hz = DoubleVector.broadcast(SPECIES, oz);
+        int closest = -1;
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector e1x = DoubleVector.fromArray(SPECIES, arrays.e1x, i);
+            DoubleVector e1y = DoubleVector.fromArray(SPECIES, arrays.e1y, i);
+            DoubleVector e1z = DoubleVector.fromArray(SPECIES, arrays.e1z, i);
+            DoubleVector e2x = DoubleVector.fromArray(SPECIES, arrays.e2x, i);
+            DoubleVector e2y = DoubleVector.fromArray(SPECIES, arrays.e2y, i);
+            DoubleVector e2z = DoubleVector.fromArray(SPECIES, arrays.e2z, i);
+
+            // p = d X e2, det = e1 * p
+            DoubleVector px = e2z.mul(dy).sub(e2y.mul(dz));
+            DoubleVector py = e2x.mul(dz).sub(e2z.mul(dx));
+            DoubleVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+            DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+
+            // s = o - a, u = s * p, q = s X e1, w = d * q
+            DoubleVector sx = hx.sub(DoubleVector.fromArray(SPECIES, arrays.ax, i));
+            DoubleVector sy = hy.sub(DoubleVector.fromArray(SPECIES, arrays.ay, i));
+            DoubleVector sz = hz.sub(DoubleVector.fromArray(SPECIES, arrays.az, i));
+            DoubleVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz));
+            DoubleVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            DoubleVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            DoubleVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            DoubleVector w = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz));
+            DoubleVector rest = det.sub(u).sub(w);
+            DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).div(det);
+
+            // The point is inside when det isn't zero and the barycentric coordinates aren't zero and have its sign
+            VectorMask<Double> positive = det.compare(VectorOperators.GT, 0);
+            VectorMask<Double> inside = positive.and(u.compare(VectorOperators.GT, 0))
+                    .and(w.compare(VectorOperators.GT, 0)).and(rest.compare(VectorOperators.GT, 0))
+                    .or(positive.not().and(u.compare(VectorOperators.LT, 0))
+                            .and(w.compare(VectorOperators.LT, 0)).and(rest.compare(VectorOperators.LT, 0)));
+            VectorMask<Double> hit = inside
+                    .and(det.abs().compare(VectorOperators.GE, ZERO))
+                    .and(u.abs().compare(VectorOperators.GE, ZERO))
+                    .and(w.abs().compare(VectorOperators.GE, ZERO))
+                    .and(rest.abs().compare(VectorOperators.GE, ZERO))
+                    .and(t.compare(VectorOperators.GE, ZERO))
+                    .and(t.compare(VectorOperators.LT, maxDistance));
+            if (!hit.anyTrue())
+                continue;
+
+            // The nearest lane - the first one of the equal distances, like the scalar order
+            DoubleVector hits = t.blend(Double.POSITIVE_INFINITY, hit.not());
+            double nearest = hits.reduceLanes(VectorOperators.MIN);
+            closest = i + hits.compare(VectorOperators.EQ, nearest).firstTrue();
+            maxDistance = nearest;
+        }
+
+        // The rest of the triangles (less than the lanes) one by one
+        for (; i < to; ++i) {
+            double t = distance(arrays, i, ox, oy, oz, dx, dy, dz);
+            if (t > 0 && t < maxDistance) {
+                maxDistance = t;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+}
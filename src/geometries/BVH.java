@@ -0,0 +1,651 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.security.MessageDigest;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class BVH is a bounding volume hierarchy over a group of intersectables.
+ * The tree is built with the surface area heuristic (SAH): every node is split where the expected cost
+ * of tracing a ray through its two children is the lowest, so a ray visits only the nodes whose boxes it hits.
+ * Unbounded intersectables (like planes) can't be placed in the tree, so they are kept aside and tested for every ray.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class BVH extends Intersectable {
+    private static final int BINS = 12; // The number of SAH buckets on each axis
+    private static final int MAX_LEAF_SIZE = 4; // Nodes with this many intersectables or less are never split
+    private static final double TRAVERSAL_COST = 0.5; // The cost of visiting a node relative to intersecting a geometry
+    private static final double REBUILD_THRESHOLD = 1.5; // The growth of the cost by refitting that needs a new tree
+
+    private final Node root; // The root of the tree, null if there are no bounded intersectables
+    private final Intersectable[] unbounded; // The intersectables without a bounding box
+    private int depth = 0; // The depth of the tree (the size of the traversal stack)
+    private final double buildCost; // The cost of the tree when it was built
+
+    /**
+     * Class that represents a node of the tree - an inner node has two children and a leaf has intersectables
+     */
+    static class Node {
+        BoundingBox box; // The box of all the intersectables under the node
+        Node left; // The left child (null in a leaf)
+        Node right; // The right child (null in a leaf)
+        Intersectable[] items; // The intersectables of a leaf (null in an inner node)
+        TriangleArrays triangles; // The triangles of a leaf as arrays for the SIMD kernel, made on the first use
+
+        /**
+         * Checks whether the node is a leaf
+         *
+         * @return true if the node is a leaf
+         */
+        boolean isLeaf() {
+            return items != null;
+        }
+
+        /**
+         * Returns the triangles of a leaf as arrays, made on the first call (the triangles never change)
+         *
+         * @return the triangles with the other intersectables of the leaf
+         */
+        TriangleArrays getTriangles() {
+            TriangleArrays result = triangles;
+            if (result == null)
+                triangles = result = new TriangleArrays(items);
+            return result;
+        }
+    }
+
+    /**
+     * Constructor that builds the hierarchy over the given intersectables
+     *
+     * @param intersectables the intersectables to put in the hierarchy
+     */
+    public BVH(List<Intersectable> intersectables) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> others = new LinkedList<>();
+        for (Intersectable item : intersectables) {
+            if (item.getBoundingBox() == null)
+                others.add(item);
+            else
+                bounded.add(item);
+        }
+        unbounded = others.toArray(new Intersectable[0]);
+
+        int n = bounded.size();
+        Intersectable[] items = bounded.toArray(new Intersectable[0]);
+        BoundingBox[] boxes = new BoundingBox[n];
+        double[] centroids = new double[3 * n];
+        for (int i = 0; i < n; ++i) {
+            boxes[i] = items[i].getBoundingBox();
+            for (int axis = 0; axis < 3; ++axis)
+                centroids[3 * i + axis] = boxes[i].getCenter(axis);
+        }
+        root = n == 0 ? null : build(items, boxes, centroids, 0, n, 1);
+        buildCost = cost();
+    }
+
+    /**
+     * Constructor of a hierarchy whose tree was built elsewhere
+     *
+     * @param root      the root of the tree, null if there are no bounded intersectables
+     * @param depth     the depth of the tree
+     * @param unbounded the intersectables without a bounding box
+     */
+    BVH(Node root, int depth, Intersectable[] unbounded) {
+        this.root = root;
+        this.depth = depth;
+        this.unbounded = unbounded;
+        this.buildCost = cost();
+    }
+
+    /**
+     * Builds a linear bounding volume hierarchy (LBVH) over the given intersectables, in parallel.
+     * The tree is built by sorting the intersectables along a Morton curve instead of the surface area heuristic,
+     * so it is built much faster but it is traced a bit slower - see {@link LinearBVHBuilder}.
+     *
+     * @param intersectables the intersectables to put in the hierarchy
+     * @return the hierarchy
+     */
+    public static BVH linear(List<Intersectable> intersectables) {
+        return new LinearBVHBuilder(intersectables).build();
+    }
+
+    /**
+     * Getter of the root of the tree
+     *
+     * @return the root node, null if there are no bounded intersectables
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Getter of the depth of the tree
+     *
+     * @return the depth of the tree
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter of the intersectables that aren't in the tree
+     *
+     * @return the unbounded intersectables
+     */
+    Intersectable[] getUnbounded() {
+        return unbounded;
+    }
+
+    /**
+     * Calculates the expected cost of tracing a ray through the tree by the surface area heuristic:
+     * a ray that hits the root visits a node in the probability of the ratio of their surface areas,
+     * and pays the traversal cost in an inner node and the number of the intersectables in a leaf.
+     * The lower the cost the better the tree.
+     *
+     * @return the cost in units of intersecting one intersectable
+     */
+    public double cost() {
+        return root == null ? 0 : cost(root, root.box.surfaceArea());
+    }
+
+    /**
+     * Calculates the cost of a subtree
+     *
+     * @param node     the root of the subtree
+     * @param rootArea the surface area of the root of the tree (if it is 0 every node is visited)
+     * @return the cost of the subtree
+     */
+    private static double cost(Node node, double rootArea) {
+        double probability = rootArea == 0 ? 1 : node.box.surfaceArea() / rootArea;
+        if (node.isLeaf())
+            return probability * node.items.length;
+        return probability * TRAVERSAL_COST + cost(node.left, rootArea) + cost(node.right, rootArea);
+    }
+
+    /**
+     * Updates the boxes of the nodes from the bottom up after the intersectables have moved (for animation).
+     * The structure of the tree is kept, so the tree gets worse as the intersectables move away from
+     * their places - the cost of the tree is compared to its cost when it was built to tell when a new tree is needed.
+     * The tree must not be traced while it is refit.
+     *
+     * @return true if the tree is still good enough, false if it should be built again
+     */
+    public boolean refit() {
+        if (root == null)
+            return true;
+        if (!refit(root))
+            return false;
+        return cost() <= buildCost * REBUILD_THRESHOLD;
+    }
+
+    /**
+     * Updates the boxes of a subtree from the bottom up
+     *
+     * @param node the root of the subtree
+     * @return false if an intersectable in the subtree has no box anymore
+     */
+    private static boolean refit(Node node) {
+        if (node.isLeaf()) {
+            BoundingBox box = null;
+            for (Intersectable item : node.items) {
+                BoundingBox itemBox = item.getBoundingBox();
+                if (itemBox == null)
+                    return false;
+                box = box == null ? itemBox : box.union(itemBox);
+            }
+            node.box = box;
+            return true;
+        }
+        if (!refit(node.left) || !refit(node.right))
+            return false;
+        node.box = node.left.box.union(node.right.box);
+        return true;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length != 0 || root == null ? null : root.box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName());
+        digest(digest, unbounded);
+        if (root != null)
+            fingerprint(digest, root);
+    }
+
+    /**
+     * Adds the intersectables of the leaves under a node to a digest, from the left to the right
+     *
+     * @param digest the digest
+     * @param node   the node
+     */
+    private static void fingerprint(MessageDigest digest, Node node) {
+        if (node.isLeaf())
+            digest(digest, node.items);
+        else {
+            fingerprint(digest, node.left);
+            fingerprint(digest, node.right);
+        }
+    }
+
+    /**
+     * Builds recursively the subtree of the intersectables in the range [start, end) of the arrays.
+     * The arrays are reordered in place so every child gets a continuous range.
+     *
+     * @param items     the intersectables
+     * @param boxes     the bounding boxes of the intersectables
+     * @param centroids the centers of the boxes (3 values for each intersectable)
+     * @param start     the first index of the range
+     * @param end       the index after the last one in the range
+     * @param level     the level of the node in the tree
+     * @return the root of the subtree
+     */
+    private Node build(Intersectable[] items, BoundingBox[] boxes, double[] centroids, int start, int end, int level) {
+        depth = Math.max(depth, level);
+        Node node = new Node();
+        BoundingBox box = boxes[start];
+        double[] cMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] cMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = start; i < end; ++i) {
+            box = box.union(boxes[i]);
+            for (int axis = 0; axis < 3; ++axis) {
+                cMin[axis] = Math.min(cMin[axis], centroids[3 * i + axis]);
+                cMax[axis] = Math.max(cMax[axis], centroids[3 * i + axis]);
+            }
+        }
+        node.box = box;
+
+        int count = end - start;
+        if (count <= MAX_LEAF_SIZE)
+            return makeLeaf(node, items, start, end);
+
+        // Find the cheapest split over all the axes by binning the centroids
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1, bestSplit = -1;
+        for (int axis = 0; axis < 3; ++axis) {
+            double extent = cMax[axis] - cMin[axis];
+            if (extent <= 0)
+                continue;
+            int[] binCount = new int[BINS];
+            BoundingBox[] binBox = new BoundingBox[BINS];
+            for (int i = start; i < end; ++i) {
+                int b = bin(centroids[3 * i + axis], cMin[axis], extent);
+                ++binCount[b];
+                binBox[b] = binBox[b] == null ? boxes[i] : binBox[b].union(boxes[i]);
+            }
+
+            // Sweep from the right to get the area and count of every right side
+            double[] rightArea = new double[BINS];
+            int[] rightCount = new int[BINS];
+            BoundingBox acc = null;
+            int accCount = 0;
+            for (int b = BINS - 1; b > 0; --b) {
+                if (binBox[b] != null)
+                    acc = acc == null ? binBox[b] : acc.union(binBox[b]);
+                accCount += binCount[b];
+                rightArea[b] = acc == null ? 0 : acc.surfaceArea();
+                rightCount[b] = accCount;
+            }
+
+            // Sweep from the left and evaluate the cost of splitting before every bin
+            acc = null;
+            accCount = 0;
+            for (int b = 0; b < BINS - 1; ++b) {
+                if (binBox[b] != null)
+                    acc = acc == null ? binBox[b] : acc.union(binBox[b]);
+                accCount += binCount[b];
+                if (accCount == 0 || rightCount[b + 1] == 0)
+                    continue;
+                double cost = acc.surfaceArea() * accCount + rightArea[b + 1] * rightCount[b + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestSplit = b;
+                }
+            }
+        }
+
+        // All the centroids are in the same point - the intersectables can't be separated
+        if (bestAxis == -1)
+            return makeLeaf(node, items, start, end);
+
+        // Stop when intersecting all the intersectables is cheaper than splitting them
+        double area = box.surfaceArea();
+        if (area > 0 && TRAVERSAL_COST + bestCost / area >= count && count <= 4 * MAX_LEAF_SIZE)
+            return makeLeaf(node, items, start, end);
+
+        // Partition the range according to the chosen split
+        double extent = cMax[bestAxis] - cMin[bestAxis];
+        int mid = start;
+        for (int i = start; i < end; ++i) {
+            if (bin(centroids[3 * i + bestAxis], cMin[bestAxis], extent) <= bestSplit) {
+                swap(items, boxes, centroids, i, mid);
+                ++mid;
+            }
+        }
+
+        node.left = build(items, boxes, centroids, start, mid, level + 1);
+        node.right = build(items, boxes, centroids, mid, end, level + 1);
+        return node;
+    }
+
+    /**
+     * Turns the node into a leaf of the intersectables in the range [start, end)
+     *
+     * @param node  the node
+     * @param items the intersectables
+     * @param start the first index of the range
+     * @param end   the index after the last one in the range
+     * @return the node
+     */
+    private static Node makeLeaf(Node node, Intersectable[] items, int start, int end) {
+        node.items = new Intersectable[end - start];
+        System.arraycopy(items, start, node.items, 0, end - start);
+        return node;
+    }
+
+    /**
+     * Finds the bucket of a centroid
+     *
+     * @param centroid the centroid coordinate
+     * @param min      the minimal centroid coordinate in the node
+     * @param extent   the extent of the centroids in the node
+     * @return the index of the bucket
+     */
+    private static int bin(double centroid, double min, double extent) {
+        return Math.min(BINS - 1, (int) (BINS * (centroid - min) / extent));
+    }
+
+    /**
+     * Swaps two intersectables with their boxes and centroids
+     *
+     * @param items     the intersectables
+     * @param boxes     the bounding boxes
+     * @param centroids the centroids
+     * @param i         first index
+     * @param j         second index
+     */
+    private static void swap(Intersectable[] items, BoundingBox[] boxes, double[] centroids, int i, int j) {
+        Intersectable item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        BoundingBox box = boxes[i];
+        boxes[i] = boxes[j];
+        boxes[j] = box;
+        for (int axis = 0; axis < 3; ++axis) {
+            double c = centroids[3 * i + axis];
+            centroids[3 * i + axis] = centroids[3 * j + axis];
+            centroids[3 * j + axis] = c;
+        }
+    }
+
+    /**
+     * Calculates and returns the intersection points between the ray and the intersectables in the hierarchy
+     *
+     * @param ray
+     * @return list of intersection points
+     */
+    @Override
+    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        List<GeoPoint> result = null;
+
+        for (Intersectable item : unbounded) {
+            List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
+            if (itemLst != null) {
+                if (result == null)
+                    result = new LinkedList<>();
+                result.addAll(itemLst);
+            }
+        }
+        if (root == null)
+            return result;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        // Go over the nodes whose boxes are hit by the ray
+        Node[] stack = new Node[depth + 1];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node node = stack[--top];
+            if (node.box.entry(ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY) == Double.POSITIVE_INFINITY)
+                continue;
+            if (node.isLeaf()) {
+                for (Intersectable item : node.items) {
+                    List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
+                    if (itemLst != null) {
+                        if (result == null)
+                            result = new LinkedList<>();
+                        result.addAll(itemLst);
+                    }
+                }
+            } else {
+                stack[top++] = node.right;
+                stack[top++] = node.left;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the closest intersection point by visiting the nodes from front to back.
+     * The distance shrinks with every point that is found, so nodes that start farther are never opened.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+
+        for (Intersectable item : unbounded) {
+            GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(p0);
+            }
+        }
+        return root == null ? closest : findClosest(root, ray, maxDistance, closest);
+    }
+
+    /**
+     * Finds the closest intersection point in a subtree by visiting its nodes from front to back
+     *
+     * @param start       the root of the subtree
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param closest     the closest point found so far (at the max distance), null if there is none
+     * @return the closest intersection point, null if there is none
+     */
+    private GeoPoint findClosest(Node start, Ray ray, double maxDistance, GeoPoint closest) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        // The triangles of the leaves are intersected in one pass when the SIMD kernel is in use
+        TriangleKernel kernel = Simd.isEnabled() ? Simd.kernel() : null;
+
+        // The stack keeps every node with the distance in which the ray enters its box
+        Node[] stack = new Node[depth + 1];
+        double[] entries = new double[depth + 1];
+        int top = 0;
+        double startEntry = start.box.entry(ox, oy, oz, ix, iy, iz, maxDistance);
+        if (startEntry != Double.POSITIVE_INFINITY) {
+            stack[top] = start;
+            entries[top++] = startEntry;
+        }
+        while (top > 0) {
+            Node node = stack[--top];
+            // A closer point was found after the node was pushed
+            if (entries[top] >= maxDistance)
+                continue;
+            if (node.isLeaf()) {
+                Intersectable[] items = node.items;
+                if (kernel != null) {
+                    TriangleArrays triangles = node.getTriangles();
+                    int i = kernel.closest(triangles, 0, triangles.size, ox, oy, oz, v.getX(), v.getY(), v.getZ(),
+                            maxDistance);
+                    // The point is created by the closest triangle alone
+                    GeoPoint geoPoint = i == -1 ? null
+                            : triangles.triangles[i].findClosestGeoIntersectionHelper(ray, maxDistance);
+                    if (geoPoint != null) {
+                        closest = geoPoint;
+                        maxDistance = geoPoint.point.distance(p0);
+                    }
+                    items = triangles.others;
+                }
+                for (Intersectable item : items) {
+                    GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+                    if (geoPoint != null) {
+                        closest = geoPoint;
+                        maxDistance = geoPoint.point.distance(p0);
+                    }
+                }
+                continue;
+            }
+
+            double leftEntry = node.left.box.entry(ox, oy, oz, ix, iy, iz, maxDistance);
+            double rightEntry = node.right.box.entry(ox, oy, oz, ix, iy, iz, maxDistance);
+            // Push the farther child first so the nearer one is visited first
+            if (leftEntry <= rightEntry) {
+                if (rightEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = node.right;
+                    entries[top++] = rightEntry;
+                }
+                if (leftEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = node.left;
+                    entries[top++] = leftEntry;
+                }
+            } else {
+                if (leftEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = node.left;
+                    entries[top++] = leftEntry;
+                }
+                if (rightEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = node.right;
+                    entries[top++] = rightEntry;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Traces the rays of a packet through the tree together, and drops a subtree when all of them miss its box.
+     * A coherent packet (one head, like camera rays) is tested against a box at once by the ranges of its directions,
+     * and goes down an inner node with all its rays from the first one that hits it - the other rays are tested
+     * only at the leaves. The children are visited in the order of the first ray, and when the rays diverge and
+     * only one ray is left, it goes on alone by the single ray traversal.
+     *
+     * @param packet the rays
+     * @param mask   the rays to trace (bit i for ray i)
+     */
+    @Override
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet, int mask) {
+        for (Intersectable item : unbounded)
+            item.findClosestGeoIntersectionsHelper(packet, mask);
+        if (root == null)
+            return;
+
+        // The stack keeps every node with the rays that hit the box of its parent
+        Node[] stack = new Node[depth + 1];
+        int[] masks = new int[depth + 1];
+        int top = 0;
+        stack[top] = root;
+        masks[top++] = mask;
+        while (top > 0) {
+            Node node = stack[--top];
+            int active = masks[top];
+            // A coherent packet is culled at once when all its rays miss the box
+            if (packet.isCoherent() && !packet.mayHit(node.box, active))
+                continue;
+            // An inner node of a coherent packet is opened by the first ray that hits it, other nodes are opened
+            // only for the rays that hit them
+            active = node.isLeaf() || !packet.isCoherent()
+                    ? packet.hits(node.box, active) : packet.firstHit(node.box, active);
+            if (active == 0)
+                continue;
+            if ((active & active - 1) == 0) {
+                int i = Integer.numberOfTrailingZeros(active);
+                GeoPoint geoPoint = findClosest(node, packet.rays[i], packet.maxDistances[i], null);
+                if (geoPoint != null)
+                    packet.hit(i, geoPoint);
+                continue;
+            }
+            if (node.isLeaf()) {
+                for (Intersectable item : node.items)
+                    item.findClosestGeoIntersectionsHelper(packet, active);
+                continue;
+            }
+
+            // Push the farther child (along the first ray) first so the nearer one is visited first
+            int first = Integer.numberOfTrailingZeros(active);
+            boolean leftFirst = (node.left.box.getCenter(0) - node.right.box.getCenter(0)) * packet.dx[first]
+                    + (node.left.box.getCenter(1) - node.right.box.getCenter(1)) * packet.dy[first]
+                    + (node.left.box.getCenter(2) - node.right.box.getCenter(2)) * packet.dz[first] <= 0;
+            stack[top] = leftFirst ? node.right : node.left;
+            masks[top++] = active;
+            stack[top] = leftFirst ? node.left : node.right;
+            masks[top++] = active;
+        }
+    }
+
+    /**
+     * Accumulates the transparency of the blockers before a distance, in any order of the nodes.
+     * The traversal stops at the first opaque blocker.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        for (Intersectable item : unbounded) {
+            ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+        if (root == null)
+            return ktr;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        Node[] stack = new Node[depth + 1];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node node = stack[--top];
+            if (node.box.entry(ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            if (node.isLeaf()) {
+                for (Intersectable item : node.items) {
+                    ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+                    if (ktr.equals(Double3.ZERO))
+                        return Double3.ZERO;
+                }
+            } else {
+                stack[top++] = node.right;
+                stack[top++] = node.left;
+            }
+        }
+        return ktr;
+    }
+}
@@ -0,0 +1,225 @@
+package geometries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class BVHCache keeps packed hierarchies ({@link FlatBVH}) in binary files of a directory, so a static scene
+ * that is rendered again (with another camera) doesn't build its hierarchies again.
+ * The tree over a group depends only on the boxes of its intersectables (in their order), so a file is named by
+ * a hash of these boxes - a group whose geometries didn't change finds its file, and any change makes a new one.
+ * A file keeps the arrays of the tree and the order of the leaves as indices into the group, and it is read
+ * by mapping it to memory ({@link FileChannel#map}) and copying the arrays in bulk, without parsing and without
+ * building anything. The arrays are copied once since the traversal works on Java arrays, which can't be a view
+ * of mapped memory.
+ * The cache only saves time: a file that can't be read or written is logged, and the hierarchy is built as if there
+ * were no cache, so a render (which loads its hierarchies lazily, from its rays) never fails on the cache.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class BVHCache {
+    private static final int MAGIC = 0x43485642; // Marks a cache file (and its byte order)
+    private static final int VERSION = 1; // The version of the file layout and of the tree builder
+    private static final int HEADER = 6 * Integer.BYTES; // magic, version, count, items, slots, depth
+    private static final String SUFFIX = ".bvh";
+
+    private final Logger logger = Logger.getLogger("BVHCache");
+    private final Path directory; // The directory of the files
+
+    /**
+     * Constructor
+     *
+     * @param directory the directory of the files (created if it doesn't exist)
+     * @throws IllegalStateException on I/O error
+     */
+    public BVHCache(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't create cache directory " + directory, e);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the hierarchy over a group - read from its file if there is one, otherwise built and written
+     * (an I/O error is only logged - the hierarchy is built, and a hierarchy that can't be written is still returned)
+     *
+     * @param intersectables the intersectables of the group
+     * @return the hierarchy
+     */
+    public FlatBVH load(List<Intersectable> intersectables) {
+        Intersectable[] group = intersectables.toArray(new Intersectable[0]);
+        Path file = getFile(group);
+        if (Files.exists(file))
+            try {
+                FlatBVH hierarchy = read(file, group);
+                if (hierarchy != null)
+                    return hierarchy;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cache file " + file + " not read - the hierarchy is built", e);
+            }
+        FlatBVH hierarchy = new FlatBVH(List.of(group));
+        try {
+            write(file, hierarchy, group);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cache file " + file + " not written", e);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Returns the file of a group, named by the hash of the boxes of its intersectables
+     *
+     * @param group the intersectables of the group
+     * @return the path of the file
+     */
+    Path getFile(Intersectable[] group) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 6 * Double.BYTES);
+        digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(VERSION).putInt(group.length).array());
+        for (Intersectable item : group)
+            digestBox(digest, buffer, item.getBoundingBox());
+
+        StringBuilder name = new StringBuilder();
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 16; ++i)
+            name.append(String.format("%02x", hash[i]));
+        return directory.resolve(name + SUFFIX);
+    }
+
+    /**
+     * Adds a box to a digest - a byte that tells whether there is a box and its six bounds
+     *
+     * @param digest the digest
+     * @param buffer a buffer of at least 1 + 6 doubles for the bytes of the box
+     * @param box    the box, null for an unbounded intersectable
+     */
+    static void digestBox(MessageDigest digest, ByteBuffer buffer, BoundingBox box) {
+        buffer.clear();
+        if (box == null)
+            buffer.put((byte) 0);
+        else
+            buffer.put((byte) 1).putDouble(box.minX).putDouble(box.minY).putDouble(box.minZ)
+                    .putDouble(box.maxX).putDouble(box.maxY).putDouble(box.maxZ);
+        digest.update(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * Calculates the offset of the boxes in a file - after the header and the ints, aligned to a double
+     *
+     * @param items the number of the items in the leaves
+     * @param slots the number of the slots
+     * @return the offset in bytes
+     */
+    private static long boundsOffset(int items, int slots) {
+        long end = HEADER + (long) Integer.BYTES * (items + slots);
+        return (end + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    /**
+     * Reads the hierarchy of a group from its file
+     *
+     * @param file  the file
+     * @param group the intersectables of the group
+     * @return the hierarchy, or null if the file doesn't belong to the group (so it should be written again)
+     * @throws IOException on I/O error
+     */
+    private static FlatBVH read(Path file, Intersectable[] group) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER)
+                return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != group.length)
+                return null;
+            int itemCount = buffer.getInt(), slotCount = buffer.getInt(), depth = buffer.getInt();
+            long offset = boundsOffset(itemCount, slotCount);
+            if (itemCount < 0 || slotCount < 0 || size != offset + (long) Double.BYTES * 3 * slotCount)
+                return null;
+
+            int[] order = new int[itemCount];
+            int[] slots = new int[slotCount];
+            double[] bounds = new double[3 * slotCount];
+            buffer.asIntBuffer().get(order).get(slots);
+            buffer.position((int) offset);
+            buffer.asDoubleBuffer().get(bounds);
+
+            Intersectable[] items = new Intersectable[itemCount];
+            for (int i = 0; i < itemCount; ++i) {
+                if (order[i] < 0 || order[i] >= group.length)
+                    return null;
+                items[i] = group[order[i]];
+            }
+            List<Intersectable> unbounded = new LinkedList<>();
+            for (Intersectable item : group)
+                if (item.getBoundingBox() == null)
+                    unbounded.add(item);
+            return new FlatBVH(unbounded.toArray(new Intersectable[0]), items, bounds, slots, depth);
+        }
+    }
+
+    /**
+     * Writes the hierarchy of a group to its file.
+     * The file is written aside and then moved to its name, so a render that reads it never sees a part of it.
+     *
+     * @param file      the file
+     * @param hierarchy the hierarchy
+     * @param group     the intersectables of the group
+     * @throws IOException on I/O error
+     */
+    private void write(Path file, FlatBVH hierarchy, Intersectable[] group) throws IOException {
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < group.length; ++i)
+            indices.put(group[i], i);
+        Intersectable[] items = hierarchy.getItems();
+        int[] order = new int[items.length];
+        for (int i = 0; i < items.length; ++i)
+            order[i] = indices.get(items[i]);
+        int[] slots = hierarchy.getSlots();
+        double[] bounds = hierarchy.getBounds();
+        long offset = boundsOffset(order.length, slots.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offset + (long) Double.BYTES * bounds.length));
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(group.length)
+                .putInt(order.length).putInt(slots.length).putInt(hierarchy.getDepth());
+        buffer.asIntBuffer().put(order).put(slots);
+        buffer.position((int) offset);
+        buffer.asDoubleBuffer().put(bounds);
+        buffer.position(0);
+
+        Path temp = Files.createTempFile(directory, "bvh", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp); // Left only if the writing or the move failed
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Class BoundingBox represents an axis aligned bounding box (AABB) in Cartesian 3-Dimensional coordinate system.
+ * The box is kept as its minimal and maximal coordinates on each axis, so the ray test (slab test)
+ * works directly on doubles without creating any point or vector.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class BoundingBox {
+    // Relative tolerance of the slab test, so rays that touch a flat box (like a box of a triangle) aren't lost
+    static final double ROBUST = 1 + 1e-12;
+
+    final double minX, minY, minZ; // The minimal corner of the box
+    final double maxX, maxY, maxZ; // The maximal corner of the box
+
+    /**
+     * Constructor that initializes the box by its minimal and maximal coordinates
+     *
+     * @param minX minimal x value
+     * @param minY minimal y value
+     * @param minZ minimal z value
+     * @param maxX maximal x value
+     * @param maxY maximal y value
+     * @param maxZ maximal z value
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructor that initializes the smallest box that contains all the given points
+     *
+     * @param points the points to bound
+     */
+    public BoundingBox(Point... points) {
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            x0 = Math.min(x0, p.getX());
+            y0 = Math.min(y0, p.getY());
+            z0 = Math.min(z0, p.getZ());
+            x1 = Math.max(x1, p.getX());
+            y1 = Math.max(y1, p.getY());
+            z1 = Math.max(z1, p.getZ());
+        }
+        minX = x0;
+        minY = y0;
+        minZ = z0;
+        maxX = x1;
+        maxY = y1;
+        maxZ = z1;
+    }
+
+    /**
+     * Getter of the minimal corner of the box
+     *
+     * @return the minimal corner
+     */
+    public Point getMin() {
+        return new Point(minX, minY, minZ);
+    }
+
+    /**
+     * Getter of the maximal corner of the box
+     *
+     * @return the maximal corner
+     */
+    public Point getMax() {
+        return new Point(maxX, maxY, maxZ);
+    }
+
+    /**
+     * Returns the smallest box that contains both this box and the other box
+     *
+     * @param other the other box
+     * @return the union box
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Calculates the surface area of the box (used by the surface area heuristic)
+     *
+     * @return the surface area
+     */
+    public double surfaceArea() {
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Returns the center of the box on the given axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return the center coordinate
+     */
+    public double getCenter(int axis) {
+        return switch (axis) {
+            case 0 -> (minX + maxX) / 2;
+            case 1 -> (minY + maxY) / 2;
+            default -> (minZ + maxZ) / 2;
+        };
+    }
+
+    /**
+     * Returns the minimal coordinate of the box on the given axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return the minimal coordinate
+     */
+    double min(int axis) {
+        return axis == 0 ? minX : axis == 1 ? minY : minZ;
+    }
+
+    /**
+     * Returns the maximal coordinate of the box on the given axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return the maximal coordinate
+     */
+    double max(int axis) {
+        return axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+    }
+
+    /**
+     * Checks whether the ray hits the box before the given distance
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return true if the ray hits the box
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        return entry(p0.getX(), p0.getY(), p0.getZ(), 1 / v.getX(), 1 / v.getY(), 1 / v.getZ(), maxDistance)
+                != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Slab test of a ray given by its head and the inverse of its direction.
+     * A zero direction component gives an infinite inverse, and the comparisons are written so that
+     * the NaN of a ray laying on a slab never rejects the box.
+     *
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param ix          1 / x of the ray direction
+     * @param iy          1 / y of the ray direction
+     * @param iz          1 / z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the distance in which the ray enters the box (0 if it starts inside), or positive infinity if it misses
+     */
+    double entry(double ox, double oy, double oz, double ix, double iy, double iz, double maxDistance) {
+        double tNear = 0, tFar = maxDistance;
+        double t1 = (minX - ox) * ix, t2 = (maxX - ox) * ix;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar * ROBUST) return Double.POSITIVE_INFINITY;
+
+        t1 = (minY - oy) * iy;
+        t2 = (maxY - oy) * iy;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar * ROBUST) return Double.POSITIVE_INFINITY;
+
+        t1 = (minZ - oz) * iz;
+        t2 = (maxZ - oz) * iz;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear > tFar * ROBUST ? Double.POSITIVE_INFINITY : tNear;
+    }
+
+    /**
+     * Slab test of a box that is packed in an array (min x, y, z and then max x, y, z), like {@link #entry}
+     * but without a box object, for structures that keep their boxes in primitive arrays
+     *
+     * @param bounds      the array of the boxes
+     * @param offset      the index of the box's min x in the array
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param ix          1 / x of the ray direction
+     * @param iy          1 / y of the ray direction
+     * @param iz          1 / z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the distance in which the ray enters the box (0 if it starts inside), or positive infinity if it misses
+     */
+    static double entry(double[] bounds, int offset, double ox, double oy, double oz,
+                        double ix, double iy, double iz, double maxDistance) {
+        double tNear = 0, tFar = maxDistance;
+        double t1 = (bounds[offset] - ox) * ix, t2 = (bounds[offset + 3] - ox) * ix;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar * ROBUST) return Double.POSITIVE_INFINITY;
+
+        t1 = (bounds[offset + 1] - oy) * iy;
+        t2 = (bounds[offset + 4] - oy) * iy;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar * ROBUST) return Double.POSITIVE_INFINITY;
+
+        t1 = (bounds[offset + 2] - oz) * iz;
+        t2 = (bounds[offset + 5] - oz) * iz;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear > tFar * ROBUST ? Double.POSITIVE_INFINITY : tNear;
+    }
+
+    /**
+     * Slab test of the distance in which a ray leaves the box - the far end of the range of {@link #entry}.
+     * The NaN of a ray laying on a slab doesn't limit the range.
+     *
+     * @param ox x of the ray head
+     * @param oy y of the ray head
+     * @param oz z of the ray head
+     * @param ix 1 / x of the ray direction
+     * @param iy 1 / y of the ray direction
+     * @param iz 1 / z of the ray direction
+     * @return the distance in which the ray's line leaves the box
+     */
+    double exit(double ox, double oy, double oz, double ix, double iy, double iz) {
+        double tFar = Double.POSITIVE_INFINITY;
+        double t = Math.max((minX - ox) * ix, (maxX - ox) * ix);
+        if (t < tFar) tFar = t;
+        t = Math.max((minY - oy) * iy, (maxY - oy) * iy);
+        if (t < tFar) tFar = t;
+        t = Math.max((minZ - oz) * iz, (maxZ - oz) * iz);
+        if (t < tFar) tFar = t;
+        return tFar * ROBUST;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox: " +
+                "min = (" + minX + "," + minY + "," + minZ + ")" +
+                ", max = (" + maxX + "," + maxY + "," + maxZ + ")";
+    }
+}
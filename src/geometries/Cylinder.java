@@ -4,8 +4,8 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.security.MessageDigest;
+
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -17,6 +17,7 @@ import static primitives.Util.isZero;
 public class Cylinder extends Tube {
 
     private final double height;
+    private final BoundingBox box; // The bounding box of the cylinder
 
     /**
      * Constructor that initializes the radius and the height
@@ -28,6 +29,17 @@ public class Cylinder extends Tube {
     public Cylinder(double radius, Ray ray, double height) {
         super(radius,ray);
         this.height = height;
+
+        // The box of the two bases - a base spreads on each axis by radius * sin of the angle between the axis and v
+        Point p0 = ray.getP0();
+        Point p1 = ray.getPoint(height);
+        Vector v = ray.getDirection();
+        double ex = radius * Math.sqrt(Math.max(0, 1 - v.getX() * v.getX()));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - v.getY() * v.getY()));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - v.getZ() * v.getZ()));
+        this.box = new BoundingBox(Math.min(p0.getX(), p1.getX()) - ex, Math.min(p0.getY(), p1.getY()) - ey,
+                Math.min(p0.getZ(), p1.getZ()) - ez, Math.max(p0.getX(), p1.getX()) + ex,
+                Math.max(p0.getY(), p1.getY()) + ey, Math.max(p0.getZ(), p1.getZ()) + ez);
     }
 
     /**
@@ -40,6 +52,16 @@ public class Cylinder extends Tube {
     }
 
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        fingerprint(digest, ox, oy, oz, dx, dy, dz, radius, height);
+    }
+
     @Override
     public Vector getNormal(Point point) {
 
@@ -63,13 +85,49 @@ public class Cylinder extends Tube {
     }
 
     /**
-     * Calculates and returns the intersection points between the ray and the Cylinder
+     * Calculates the distances from the head of the ray to the points in which the ray's line crosses the cylinder:
+     * the points of the tube that are between the bases, and the points of the bases' planes that are inside
+     * the radius. A cylinder is convex, so there are at most two of them.
      *
-     * @param ray
-     * @return list of intersection points
+     * @param ray the ray
+     * @return the distances (sorted, they can be negative), or null if the line misses the cylinder
      */
     @Override
-    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-        return null;
+    protected double[] distances(Ray ray) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        double wx = p0.getX() - ox, wy = p0.getY() - oy, wz = p0.getZ() - oz;
+        double vd = vx * dx + vy * dy + vz * dz;
+        double wd = wx * dx + wy * dy + wz * dz;
+
+        double[] distances = new double[2];
+        int count = 0;
+
+        // The points of the tube whose height on the axis is strictly between the bases
+        double[] tube = super.distances(ray);
+        if (tube != null)
+            for (double t : tube) {
+                double h = wd + t * vd;
+                if (alignZero(h) > 0 && alignZero(height - h) > 0)
+                    distances[count++] = t;
+            }
+
+        // The points of the bases' planes that are strictly inside the radius
+        if (count < 2 && !isZero(vd))
+            for (double h : new double[]{0, height}) {
+                double t = alignZero((h - wd) / vd);
+                double px = wx + t * vx - h * dx, py = wy + t * vy - h * dy, pz = wz + t * vz - h * dz;
+                if (count < 2 && alignZero(px * px + py * py + pz * pz - radius * radius) < 0)
+                    distances[count++] = t;
+            }
+
+        if (count == 0)
+            return null;
+        if (count == 1)
+            return new double[]{distances[0]};
+        if (distances[0] > distances[1])
+            return new double[]{distances[1], distances[0]};
+        return distances;
     }
 }
@@ -0,0 +1,416 @@
+package geometries;
+
+import geometries.BVH.Node;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.security.MessageDigest;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class FlatBVH is a bounding volume hierarchy packed into primitive arrays, for faster tracing than the
+ * tree of node objects of {@link BVH} (which it is built from).
+ * The inner nodes are numbered in depth-first order, so the left inner child of a node is always the next node.
+ * Every inner node keeps the boxes of its two children next to each other, so a ray tests both children
+ * from one place in memory, and every child is a slot of two ints: the index of an inner node and a zero count,
+ * or the range of a leaf in the array of the intersectables, which are reordered by the leaves.
+ * The root has a slot of its own at the start of the arrays, and the box of slot s is at index 3s of the bounds.
+ * The traversal keeps the slots in an int stack that belongs to the thread, so tracing a ray allocates nothing.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class FlatBVH extends Intersectable {
+    private final Intersectable[] unbounded; // The intersectables without a bounding box
+    private final Intersectable[] items; // The bounded intersectables in the order of the leaves
+    private final double[] bounds; // The box of every slot (min x, y, z and then max x, y, z)
+    private final int[] slots; // Every slot: the index of an inner node and 0, or the first item and the count of a leaf
+    private final BoundingBox box; // The box of the root, null if there are no bounded intersectables
+    private final ThreadLocal<Stack> stacks; // The traversal stack of every thread
+
+    private int innerCount = 0; // The number of the inner nodes, while flattening
+    private int itemCount = 0; // The number of the items placed in leaves, while flattening
+    private int depth = 0; // The depth of the tree
+
+    /**
+     * Class Stack is the traversal stack of a thread - the slots to visit with the distances where the ray
+     * enters their boxes (also the stack of {@link MeshBVH})
+     */
+    static class Stack {
+        final int[] slots;
+        final double[] entries;
+
+        /**
+         * Constructor
+         *
+         * @param size the maximal number of the slots in the stack
+         */
+        Stack(int size) {
+            slots = new int[size];
+            entries = new double[size];
+        }
+    }
+
+    /**
+     * Constructor that builds the hierarchy over the given intersectables by the surface area heuristic
+     *
+     * @param intersectables the intersectables to put in the hierarchy
+     */
+    public FlatBVH(List<Intersectable> intersectables) {
+        this(new BVH(intersectables));
+    }
+
+    /**
+     * Constructor that packs a hierarchy that was already built
+     *
+     * @param hierarchy the hierarchy
+     */
+    public FlatBVH(BVH hierarchy) {
+        unbounded = hierarchy.getUnbounded();
+        Node root = hierarchy.getRoot();
+        if (root == null) {
+            items = new Intersectable[0];
+            bounds = new double[0];
+            slots = new int[0];
+            box = null;
+            stacks = null;
+            return;
+        }
+
+        int[] counts = count(root);
+        items = new Intersectable[counts[1]];
+        slots = new int[2 + 4 * counts[0]];
+        bounds = new double[3 * slots.length];
+        flatten(root, 0, 1);
+        box = root.box;
+        int size = depth + 1;
+        stacks = ThreadLocal.withInitial(() -> new Stack(size));
+    }
+
+    /**
+     * Constructor of a hierarchy whose arrays were packed elsewhere (read from a {@link BVHCache})
+     *
+     * @param unbounded the intersectables without a bounding box
+     * @param items     the bounded intersectables in the order of the leaves
+     * @param bounds    the box of every slot
+     * @param slots     the slots of the root and of the children of every inner node
+     * @param depth     the depth of the tree
+     */
+    FlatBVH(Intersectable[] unbounded, Intersectable[] items, double[] bounds, int[] slots, int depth) {
+        this.unbounded = unbounded;
+        this.items = items;
+        this.bounds = bounds;
+        this.slots = slots;
+        this.depth = depth;
+        itemCount = items.length;
+        if (slots.length == 0) {
+            box = null;
+            stacks = null;
+            return;
+        }
+        innerCount = (slots.length - 2) / 4;
+        box = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        int size = depth + 1;
+        stacks = ThreadLocal.withInitial(() -> new Stack(size));
+    }
+
+    /**
+     * Counts the inner nodes and the items of a subtree
+     *
+     * @param node the root of the subtree
+     * @return the number of the inner nodes and the number of the items
+     */
+    static int[] count(Node node) {
+        if (node.isLeaf())
+            return new int[]{0, node.items.length};
+        int[] left = count(node.left), right = count(node.right);
+        return new int[]{1 + left[0] + right[0], left[1] + right[1]};
+    }
+
+    /**
+     * Packs a subtree into the arrays, in depth-first order
+     *
+     * @param node  the root of the subtree
+     * @param slot  the slot of the node
+     * @param level the level of the node in the tree
+     */
+    private void flatten(Node node, int slot, int level) {
+        depth = Math.max(depth, level);
+        int offset = 3 * slot;
+        bounds[offset] = node.box.minX;
+        bounds[offset + 1] = node.box.minY;
+        bounds[offset + 2] = node.box.minZ;
+        bounds[offset + 3] = node.box.maxX;
+        bounds[offset + 4] = node.box.maxY;
+        bounds[offset + 5] = node.box.maxZ;
+
+        if (node.isLeaf()) {
+            slots[slot] = itemCount;
+            slots[slot + 1] = node.items.length;
+            System.arraycopy(node.items, 0, items, itemCount, node.items.length);
+            itemCount += node.items.length;
+            return;
+        }
+        int inner = innerCount++;
+        slots[slot] = inner;
+        slots[slot + 1] = 0;
+        flatten(node.left, 2 + 4 * inner, level + 1);
+        flatten(node.right, 4 + 4 * inner, level + 1);
+    }
+
+    /**
+     * Getter of the intersectables in the order of the leaves
+     *
+     * @return the bounded intersectables
+     */
+    Intersectable[] getItems() {
+        return items;
+    }
+
+    /**
+     * Getter of the intersectables that aren't in the tree
+     *
+     * @return the unbounded intersectables
+     */
+    Intersectable[] getUnbounded() {
+        return unbounded;
+    }
+
+    /**
+     * Getter of the boxes of the slots
+     *
+     * @return the boxes
+     */
+    double[] getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Getter of the slots
+     *
+     * @return the slots
+     */
+    int[] getSlots() {
+        return slots;
+    }
+
+    /**
+     * Getter of the depth of the tree
+     *
+     * @return the depth of the tree
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter of the number of the inner nodes
+     *
+     * @return the number of the inner nodes
+     */
+    int getInnerCount() {
+        return innerCount;
+    }
+
+    /**
+     * Calculates the memory of the nodes (the boxes and the slots, without the intersectables)
+     *
+     * @return the number of bytes
+     */
+    long getNodesBytes() {
+        return 8L * bounds.length + 4L * slots.length;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length != 0 ? null : box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName());
+        digest(digest, unbounded);
+        digest(digest, items);
+    }
+
+    /**
+     * Calculates and returns the intersection points between the ray and the intersectables in the hierarchy
+     *
+     * @param ray
+     * @return list of intersection points
+     */
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        List<GeoPoint> result = null;
+
+        for (Intersectable item : unbounded) {
+            List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
+            if (itemLst != null) {
+                if (result == null)
+                    result = new LinkedList<>();
+                result.addAll(itemLst);
+            }
+        }
+        if (box == null)
+            return result;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        int[] stack = stacks.get().slots;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int slot = stack[--top];
+            if (BoundingBox.entry(bounds, 3 * slot, ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY)
+                    == Double.POSITIVE_INFINITY)
+                continue;
+            int first = slots[slot], count = slots[slot + 1];
+            if (count == 0) {
+                stack[top++] = 4 + 4 * first;
+                stack[top++] = 2 + 4 * first;
+                continue;
+            }
+            for (int i = first; i < first + count; ++i) {
+                List<GeoPoint> itemLst = items[i].findGeoIntersectionsHelper(ray);
+                if (itemLst != null) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.addAll(itemLst);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the closest intersection point by visiting the nodes from front to back.
+     * The distance shrinks with every point that is found, so nodes that start farther are never opened.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+
+        for (Intersectable item : unbounded) {
+            GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(p0);
+            }
+        }
+        if (box == null)
+            return closest;
+
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        double rootEntry = BoundingBox.entry(bounds, 0, ox, oy, oz, ix, iy, iz, maxDistance);
+        if (rootEntry == Double.POSITIVE_INFINITY)
+            return closest;
+        Stack stack = stacks.get();
+        int[] stackSlots = stack.slots;
+        double[] entries = stack.entries;
+        stackSlots[0] = 0;
+        entries[0] = rootEntry;
+        int top = 1;
+        while (top > 0) {
+            int slot = stackSlots[--top];
+            // A closer point was found after the slot was pushed
+            if (entries[top] >= maxDistance)
+                continue;
+            int first = slots[slot], count = slots[slot + 1];
+            if (count != 0) {
+                for (int i = first; i < first + count; ++i) {
+                    GeoPoint geoPoint = items[i].findClosestGeoIntersectionHelper(ray, maxDistance);
+                    if (geoPoint != null) {
+                        closest = geoPoint;
+                        maxDistance = geoPoint.point.distance(p0);
+                    }
+                }
+                continue;
+            }
+
+            // The boxes of the two children are next to each other
+            int left = 2 + 4 * first, right = left + 2;
+            double leftEntry = BoundingBox.entry(bounds, 3 * left, ox, oy, oz, ix, iy, iz, maxDistance);
+            double rightEntry = BoundingBox.entry(bounds, 3 * right, ox, oy, oz, ix, iy, iz, maxDistance);
+            // Push the farther child first so the nearer one is visited first
+            if (leftEntry <= rightEntry) {
+                if (rightEntry != Double.POSITIVE_INFINITY) {
+                    stackSlots[top] = right;
+                    entries[top++] = rightEntry;
+                }
+                if (leftEntry != Double.POSITIVE_INFINITY) {
+                    stackSlots[top] = left;
+                    entries[top++] = leftEntry;
+                }
+            } else {
+                if (leftEntry != Double.POSITIVE_INFINITY) {
+                    stackSlots[top] = left;
+                    entries[top++] = leftEntry;
+                }
+                if (rightEntry != Double.POSITIVE_INFINITY) {
+                    stackSlots[top] = right;
+                    entries[top++] = rightEntry;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Accumulates the transparency of the blockers before a distance, in any order of the nodes.
+     * The traversal stops at the first opaque blocker.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        for (Intersectable item : unbounded) {
+            ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+        if (box == null)
+            return ktr;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        int[] stack = stacks.get().slots;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int slot = stack[--top];
+            if (BoundingBox.entry(bounds, 3 * slot, ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            int first = slots[slot], count = slots[slot + 1];
+            if (count == 0) {
+                stack[top++] = 4 + 4 * first;
+                stack[top++] = 2 + 4 * first;
+                continue;
+            }
+            for (int i = first; i < first + count; ++i) {
+                ktr = items[i].findTransparencyHelper(ray, maxDistance, ktr);
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+}
@@ -1,16 +1,56 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.security.MessageDigest;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Collections;
 
+/**
+ * Class Geometries represents a group of intersectables (composite pattern).
+ * Big enough groups are traced through an acceleration structure (a bounding volume hierarchy {@link BVH}
+ * by default) that is built lazily on the first ray and dropped whenever the group changes.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
 public class Geometries extends Intersectable {
+    private static final int ACCELERATOR_MIN_SIZE = 5; // Smaller groups are faster to trace as a flat list
+
+    /**
+     * The acceleration structures that a group can be traced through
+     */
+    public enum Accelerator {
+        /** Test every geometry of the group */
+        NONE,
+        /** Bounding volume hierarchy {@link BVH} */
+        BVH,
+        /** Linear bounding volume hierarchy built in parallel {@link BVH#linear(List)} */
+        LBVH,
+        /** Bounding volume hierarchy packed into arrays {@link FlatBVH} */
+        FLAT_BVH,
+        /** Bounding volume hierarchy with 8-bit child boxes {@link QuantizedBVH} */
+        QUANTIZED_BVH_8,
+        /** Bounding volume hierarchy with 16-bit child boxes {@link QuantizedBVH} */
+        QUANTIZED_BVH_16,
+        /** Uniform grid {@link Grid} */
+        GRID,
+        /** Kd-tree {@link KDTree} */
+        KD_TREE
+    }
+
     List<Intersectable> intersectableList;
 
+    private Accelerator accelerator = Accelerator.BVH; // The structure to trace the group through
+    private volatile Intersectable accelerated = null; // The structure over the group, built on demand
+    private BVHCache cache = null; // The files of the packed hierarchies, null to build them every time
+
+    private BoundingBox box = null; // The box of all the bounded geometries in the group
+    private boolean unbounded = false; // Is there an unbounded geometry in the group
+
     /**
      * Default constructor
      */
@@ -25,7 +65,7 @@ public class Geometries extends Intersectable {
      */
     public Geometries(Intersectable... geometries) {
         this();
-        Collections.addAll(intersectableList, geometries);
+        add(geometries);
     }
 
     /**
@@ -36,6 +76,118 @@ public class Geometries extends Intersectable {
     public void add(Intersectable... geometries) {
 
         Collections.addAll(intersectableList, geometries);
+        accelerated = null;
+
+        // Grow the box of the group
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox == null)
+                unbounded = true;
+            else
+                box = box == null ? geometryBox : box.union(geometryBox);
+        }
+    }
+
+    /**
+     * Returns the box of the whole group.
+     * The box is grown when geometries are added, so a nested group should be filled before it is added.
+     *
+     * @return the bounding box, or null if the group is empty or has an unbounded geometry
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded ? null : box;
+    }
+
+    /**
+     * Updates the group after geometries in it have moved (for animation), before the next frame is rendered.
+     * The box of the group is calculated again (with the boxes of nested groups). A bounding volume hierarchy is
+     * refit without changing its tree, unless the tree got too bad and is built again on the next ray.
+     * The other structures are always built again.
+     *
+     * @return the geometries
+     */
+    public Geometries refit() {
+        box = null;
+        unbounded = false;
+        for (Intersectable geometry : intersectableList) {
+            if (geometry instanceof Geometries group)
+                group.refit();
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox == null)
+                unbounded = true;
+            else
+                box = box == null ? geometryBox : box.union(geometryBox);
+        }
+
+        if (!(accelerated instanceof BVH hierarchy && hierarchy.refit()))
+            accelerated = null;
+        return this;
+    }
+
+    /**
+     * Sets the acceleration structure that the group is traced through
+     *
+     * @param accelerator the acceleration structure
+     * @return the geometries
+     */
+    public Geometries setAccelerator(Accelerator accelerator) {
+        this.accelerator = accelerator;
+        this.accelerated = null;
+        return this;
+    }
+
+    /**
+     * Sets the files that keep the packed hierarchy of the group ({@link Accelerator#FLAT_BVH}) between renders,
+     * so a static scene that is rendered again reads its hierarchy instead of building it
+     *
+     * @param cache the cache, null to build the hierarchy every time
+     * @return the geometries
+     */
+    public Geometries setCache(BVHCache cache) {
+        this.cache = cache;
+        this.accelerated = null;
+        return this;
+    }
+
+    /**
+     * Adds the fingerprint of the group to a digest - the fingerprints of its intersectables in their order, so
+     * an intersectable that is added, removed, moved or painted changes it
+     *
+     * @param digest the digest
+     */
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName());
+        digest(digest, intersectableList.toArray(new Intersectable[0]));
+    }
+
+    /**
+     * Returns the acceleration structure over the group, building it on the first call.
+     * Rendering is multi-threaded, so the structure is built only once under a lock.
+     *
+     * @return the structure, or null if the group is traced as a flat list
+     */
+    private Intersectable getAccelerated() {
+        if (accelerator == Accelerator.NONE || intersectableList.size() < ACCELERATOR_MIN_SIZE)
+            return null;
+        Intersectable result = accelerated;
+        if (result == null) {
+            synchronized (this) {
+                result = accelerated;
+                if (result == null)
+                    accelerated = result = switch (accelerator) {
+                        case LBVH -> BVH.linear(intersectableList);
+                        case FLAT_BVH -> cache == null ? new FlatBVH(intersectableList) : cache.load(intersectableList);
+                        case QUANTIZED_BVH_8 -> new QuantizedBVH(intersectableList, 8);
+                        case QUANTIZED_BVH_16 -> new QuantizedBVH(intersectableList, 16);
+                        case GRID -> new Grid(intersectableList);
+                        case KD_TREE -> new KDTree(intersectableList);
+                        default -> new BVH(intersectableList);
+                    };
+            }
+        }
+        return result;
     }
 
     /**
@@ -46,10 +198,29 @@ public class Geometries extends Intersectable {
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        Intersectable structure = getAccelerated();
+        if (structure != null)
+            return structure.findGeoIntersectionsHelper(ray);
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        // If the ray misses the box of the group - skip all the group
+        if (!unbounded && box != null
+                && box.entry(ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY) == Double.POSITIVE_INFINITY)
+            return null;
+
         List<GeoPoint> result = null;
 
         // For each geometry add its intersections to the list
         for (var item : intersectableList) {
+            // Skip the geometry if the ray misses its box
+            BoundingBox itemBox = item.getBoundingBox();
+            if (itemBox != null
+                    && itemBox.entry(ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY) == Double.POSITIVE_INFINITY)
+                continue;
             List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
             if (itemLst != null) {
                 if (result == null) {
@@ -60,4 +231,82 @@ public class Geometries extends Intersectable {
         }
         return result;
     }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Intersectable structure = getAccelerated();
+        if (structure != null)
+            return structure.findClosestGeoIntersectionHelper(ray, maxDistance);
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        if (!unbounded && box != null
+                && box.entry(ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+            return null;
+
+        // Every found point shrinks the distance, so farther geometries are rejected by their boxes
+        GeoPoint closest = null;
+        for (var item : intersectableList) {
+            BoundingBox itemBox = item.getBoundingBox();
+            if (itemBox != null
+                    && itemBox.entry(ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(p0);
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet, int mask) {
+        Intersectable structure = getAccelerated();
+        if (structure != null) {
+            structure.findClosestGeoIntersectionsHelper(packet, mask);
+            return;
+        }
+
+        // Only the rays that hit the box of the group go on, and each geometry gets the rays that hit its box
+        if (!unbounded && box != null && (mask = packet.hits(box, mask)) == 0)
+            return;
+        for (var item : intersectableList) {
+            BoundingBox itemBox = item.getBoundingBox();
+            int active = itemBox == null ? mask : packet.hits(itemBox, mask);
+            if (active != 0)
+                item.findClosestGeoIntersectionsHelper(packet, active);
+        }
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        Intersectable structure = getAccelerated();
+        if (structure != null)
+            return structure.findTransparencyHelper(ray, maxDistance, ktr);
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        if (!unbounded && box != null
+                && box.entry(ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+            return ktr;
+
+        for (var item : intersectableList) {
+            BoundingBox itemBox = item.getBoundingBox();
+            if (itemBox != null
+                    && itemBox.entry(ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+            // An opaque geometry blocks the ray - there is no need to look further
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
 }
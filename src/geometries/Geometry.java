@@ -1,11 +1,15 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
 import primitives.Vector;
 
 import primitives.Color;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
 /**
  * Interface Geometry represents a geometry shape in Cartesian 3-Dimensional coordinate system
  *
@@ -15,7 +19,25 @@ public abstract class Geometry extends Intersectable {
 
     protected Color emission = Color.BLACK; // The emission color of geometry
 
-    private Material material = new Material(); // The material of geometry
+    private Material material; // The material of geometry
+
+    /**
+     * Constructor of a geometry with the default material
+     */
+    protected Geometry() {
+        this(new Material());
+    }
+
+    /**
+     * Constructor of a geometry with a material.
+     * A geometry that takes its material from another one (overriding {@link #getMaterial()}) passes null, so it
+     * doesn't allocate a material that is never used.
+     *
+     * @param material the material of the geometry
+     */
+    Geometry(Material material) {
+        this.material = material;
+    }
 
     /**
      * Getter of the geometry's emission color
@@ -63,4 +85,32 @@ public abstract class Geometry extends Intersectable {
      * @return the normal vector{@link Vector} of the geometry
      */
     public abstract Vector getNormal(Point point);
+
+    /**
+     * Adds the fingerprint of the geometry to a digest - its class, its emission, its material and the numbers
+     * that define its shape
+     *
+     * @param digest     the digest
+     * @param parameters the numbers that define the shape of the geometry
+     */
+    protected void fingerprint(MessageDigest digest, double... parameters) {
+        digest(digest, getClass().getName() + '\n' + getEmission() + '\n' + getMaterial());
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + parameters.length * Double.BYTES)
+                .putInt(parameters.length);
+        for (double parameter : parameters)
+            buffer.putDouble(parameter);
+        digest.update(buffer.array());
+    }
+
+    /**
+     * Multiplies the transparency factor by the KT of the geometry if an intersection is in the range
+     *
+     * @param ktr         the transparency factor accumulated so far
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param t           the distance of the intersection from the head of the ray (not positive if there is none)
+     * @return the accumulated transparency factor
+     */
+    protected Double3 attenuate(Double3 ktr, double maxDistance, double t) {
+        return t > 0 && t < maxDistance ? getMaterial().KT.product(ktr) : ktr;
+    }
 }
@@ -0,0 +1,400 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class Grid is a uniform grid over a group of intersectables.
+ * The box of the group is divided into equal cells - their number grows with the number of the intersectables -
+ * and every cell keeps the intersectables whose boxes overlap it. A ray walks only through the cells that it
+ * crosses (3D-DDA), from the nearest one to the farthest one.
+ * An intersectable that overlaps several cells is tested only once for a ray (mailboxing).
+ * The grid is built in one pass over the intersectables, so it suits many primitives of similar size (like a terrain).
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class Grid extends Intersectable {
+    private static final double DENSITY = 2; // The number of cells for every intersectable
+    private static final int MAX_RESOLUTION = 256; // The maximal number of cells on an axis
+
+    private final Intersectable[] items; // The bounded intersectables
+    private final Intersectable[] unbounded; // The intersectables without a bounding box
+    private final BoundingBox box; // The box of the grid, null if there are no bounded intersectables
+
+    private final int nx, ny, nz; // The number of cells on every axis
+    private final double widthX, widthY, widthZ; // The size of a cell on every axis
+    private final int[] cellStart; // The index of the first intersectable of every cell in cellItems (and the end)
+    private final int[] cellItems; // The indices of the intersectables of all the cells one after the other
+
+    // The intersectables that the current ray tested, for every thread that traces through the grid
+    private final ThreadLocal<Mailbox> mailboxes;
+
+    /**
+     * Class that walks a ray through the cells of the grid (3D-DDA).
+     * On every axis it keeps the distance in which the ray crosses the next border of cells
+     * and the distance between two borders.
+     */
+    private final class Walker {
+        int x, y, z; // The current cell
+        final int stepX, stepY, stepZ; // The direction of the ray on every axis
+        double nextX, nextY, nextZ; // The distance of the next border on every axis
+        final double deltaX, deltaY, deltaZ; // The distance between two borders on every axis
+
+        /**
+         * Constructor that finds the first cell of the ray
+         *
+         * @param ox    x of the ray head
+         * @param oy    y of the ray head
+         * @param oz    z of the ray head
+         * @param dx    x of the ray direction
+         * @param dy    y of the ray direction
+         * @param dz    z of the ray direction
+         * @param entry the distance in which the ray enters the grid
+         */
+        Walker(double ox, double oy, double oz, double dx, double dy, double dz, double entry) {
+            x = Grid.cell(ox + entry * dx - box.minX, widthX, nx);
+            y = Grid.cell(oy + entry * dy - box.minY, widthY, ny);
+            z = Grid.cell(oz + entry * dz - box.minZ, widthZ, nz);
+
+            stepX = dx > 0 ? 1 : -1;
+            stepY = dy > 0 ? 1 : -1;
+            stepZ = dz > 0 ? 1 : -1;
+
+            // An axis with one cell or without movement never crosses a border
+            nextX = nx == 1 || dx == 0 ? Double.POSITIVE_INFINITY
+                    : (box.minX + (x + (dx > 0 ? 1 : 0)) * widthX - ox) / dx;
+            nextY = ny == 1 || dy == 0 ? Double.POSITIVE_INFINITY
+                    : (box.minY + (y + (dy > 0 ? 1 : 0)) * widthY - oy) / dy;
+            nextZ = nz == 1 || dz == 0 ? Double.POSITIVE_INFINITY
+                    : (box.minZ + (z + (dz > 0 ? 1 : 0)) * widthZ - oz) / dz;
+            deltaX = widthX / Math.abs(dx);
+            deltaY = widthY / Math.abs(dy);
+            deltaZ = widthZ / Math.abs(dz);
+        }
+
+        /**
+         * Returns the index of the current cell
+         *
+         * @return the index of the cell
+         */
+        int cell() {
+            return x + nx * (y + ny * z);
+        }
+
+        /**
+         * Returns the distance in which the ray leaves the current cell
+         *
+         * @return the distance
+         */
+        double exit() {
+            return Math.min(nextX, Math.min(nextY, nextZ));
+        }
+
+        /**
+         * Moves to the next cell of the ray - through the nearest border
+         *
+         * @return false if the ray has left the grid
+         */
+        boolean next() {
+            if (nextX <= nextY && nextX <= nextZ) {
+                if (nextX == Double.POSITIVE_INFINITY)
+                    return false;
+                x += stepX;
+                nextX += deltaX;
+                return x >= 0 && x < nx;
+            }
+            if (nextY <= nextZ) {
+                y += stepY;
+                nextY += deltaY;
+                return y >= 0 && y < ny;
+            }
+            z += stepZ;
+            nextZ += deltaZ;
+            return z >= 0 && z < nz;
+        }
+    }
+
+    /**
+     * Constructor that builds the grid over the given intersectables
+     *
+     * @param intersectables the intersectables to put in the grid
+     */
+    public Grid(List<Intersectable> intersectables) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> others = new LinkedList<>();
+        BoundingBox union = null;
+        for (Intersectable item : intersectables) {
+            BoundingBox itemBox = item.getBoundingBox();
+            if (itemBox == null)
+                others.add(item);
+            else {
+                bounded.add(item);
+                union = union == null ? itemBox : union.union(itemBox);
+            }
+        }
+        unbounded = others.toArray(new Intersectable[0]);
+        items = bounded.toArray(new Intersectable[0]);
+        box = union;
+        int n = items.length;
+        mailboxes = ThreadLocal.withInitial(Mailbox::new);
+
+        if (n == 0) {
+            nx = ny = nz = 1;
+            widthX = widthY = widthZ = 0;
+            cellStart = new int[]{0, 0};
+            cellItems = new int[0];
+            return;
+        }
+
+        // The cells are as close to cubes as possible: the product of the extents of the axes that aren't flat
+        // is divided into DENSITY * n cells
+        double ex = box.maxX - box.minX, ey = box.maxY - box.minY, ez = box.maxZ - box.minZ;
+        int dimensions = 0;
+        double volume = 1;
+        for (double extent : new double[]{ex, ey, ez})
+            if (extent > 0) {
+                ++dimensions;
+                volume *= extent;
+            }
+        double cellsPerUnit = dimensions == 0 ? 0 : Math.pow(DENSITY * n / volume, 1.0 / dimensions);
+        nx = resolution(ex, cellsPerUnit);
+        ny = resolution(ey, cellsPerUnit);
+        nz = resolution(ez, cellsPerUnit);
+        widthX = ex / nx;
+        widthY = ey / ny;
+        widthZ = ez / nz;
+
+        // Count the intersectables of every cell, then place them - every cell gets a continuous range
+        int[][] ranges = new int[n][];
+        cellStart = new int[nx * ny * nz + 1];
+        for (int i = 0; i < n; ++i) {
+            ranges[i] = cells(items[i].getBoundingBox());
+            int[] r = ranges[i];
+            for (int z = r[2]; z <= r[5]; ++z)
+                for (int y = r[1]; y <= r[4]; ++y)
+                    for (int x = r[0]; x <= r[3]; ++x)
+                        ++cellStart[x + nx * (y + ny * z) + 1];
+        }
+        for (int c = 1; c < cellStart.length; ++c)
+            cellStart[c] += cellStart[c - 1];
+        cellItems = new int[cellStart[cellStart.length - 1]];
+        int[] fill = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int i = 0; i < n; ++i) {
+            int[] r = ranges[i];
+            for (int z = r[2]; z <= r[5]; ++z)
+                for (int y = r[1]; y <= r[4]; ++y)
+                    for (int x = r[0]; x <= r[3]; ++x)
+                        cellItems[fill[x + nx * (y + ny * z)]++] = i;
+        }
+    }
+
+    /**
+     * Calculates the number of cells on an axis
+     *
+     * @param extent       the extent of the grid on the axis
+     * @param cellsPerUnit the number of cells in a unit of length
+     * @return the number of cells
+     */
+    private static int resolution(double extent, double cellsPerUnit) {
+        return (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.round(extent * cellsPerUnit)));
+    }
+
+    /**
+     * Finds the cell of a coordinate on an axis
+     *
+     * @param offset the distance of the coordinate from the minimum of the grid
+     * @param width  the size of a cell on the axis
+     * @param count  the number of cells on the axis
+     * @return the index of the cell (the first or the last one for a coordinate out of the grid)
+     */
+    private static int cell(double offset, double width, int count) {
+        if (count == 1)
+            return 0;
+        return Math.max(0, Math.min(count - 1, (int) (offset / width)));
+    }
+
+    /**
+     * Finds the range of the cells that a box overlaps
+     *
+     * @param itemBox the box
+     * @return the first cell on x, y, z and the last cell on x, y, z
+     */
+    private int[] cells(BoundingBox itemBox) {
+        return new int[]{
+                cell(itemBox.minX - box.minX, widthX, nx),
+                cell(itemBox.minY - box.minY, widthY, ny),
+                cell(itemBox.minZ - box.minZ, widthZ, nz),
+                cell(itemBox.maxX - box.minX, widthX, nx),
+                cell(itemBox.maxY - box.minY, widthY, ny),
+                cell(itemBox.maxZ - box.minZ, widthZ, nz)};
+    }
+
+    /**
+     * Getter of the number of cells on every axis
+     *
+     * @return the number of cells on x, y, z
+     */
+    int[] getResolution() {
+        return new int[]{nx, ny, nz};
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length != 0 ? null : box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName());
+        digest(digest, unbounded);
+        digest(digest, items);
+    }
+
+    /**
+     * Starts the walk of a ray through the grid
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the walker at the first cell of the ray, or null if the ray misses the grid
+     */
+    private Walker walk(Ray ray, double maxDistance) {
+        if (box == null)
+            return null;
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
+        double entry = box.entry(ox, oy, oz, 1 / dx, 1 / dy, 1 / dz, maxDistance);
+        return entry == Double.POSITIVE_INFINITY ? null : new Walker(ox, oy, oz, dx, dy, dz, entry);
+    }
+
+    /**
+     * Calculates and returns the intersection points between the ray and the intersectables in the grid
+     *
+     * @param ray
+     * @return list of intersection points
+     */
+    @Override
+    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        List<GeoPoint> result = null;
+
+        for (Intersectable item : unbounded) {
+            List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
+            if (itemLst != null) {
+                if (result == null)
+                    result = new LinkedList<>();
+                result.addAll(itemLst);
+            }
+        }
+
+        Walker walker = walk(ray, Double.POSITIVE_INFINITY);
+        if (walker == null)
+            return result;
+
+        Mailbox mailbox = mailboxes.get();
+        mailbox.next();
+        do {
+            int cell = walker.cell();
+            for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                int item = cellItems[i];
+                if (!mailbox.check(item))
+                    continue;
+                List<GeoPoint> itemLst = items[item].findGeoIntersectionsHelper(ray);
+                if (itemLst != null) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.addAll(itemLst);
+                }
+            }
+        } while (walker.next());
+        return result;
+    }
+
+    /**
+     * Finds the closest intersection point by walking the cells from front to back.
+     * The walk stops at the first cell that the closest point found so far is in -
+     * every intersectable that wasn't tested yet is in the cells beyond it.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+
+        for (Intersectable item : unbounded) {
+            GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(p0);
+            }
+        }
+
+        Walker walker = walk(ray, maxDistance);
+        if (walker == null)
+            return closest;
+
+        Mailbox mailbox = mailboxes.get();
+        mailbox.next();
+        do {
+            int cell = walker.cell();
+            for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                int item = cellItems[i];
+                if (!mailbox.check(item))
+                    continue;
+                GeoPoint geoPoint = items[item].findClosestGeoIntersectionHelper(ray, maxDistance);
+                if (geoPoint != null) {
+                    closest = geoPoint;
+                    maxDistance = geoPoint.point.distance(p0);
+                }
+            }
+        } while (walker.exit() < maxDistance && walker.next());
+        return closest;
+    }
+
+    /**
+     * Accumulates the transparency of the blockers before a distance, walking the cells up to the distance.
+     * The walk stops at the first opaque blocker.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        for (Intersectable item : unbounded) {
+            ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+
+        Walker walker = walk(ray, maxDistance);
+        if (walker == null)
+            return ktr;
+
+        Mailbox mailbox = mailboxes.get();
+        mailbox.next();
+        do {
+            int cell = walker.cell();
+            for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                int item = cellItems[i];
+                if (!mailbox.check(item))
+                    continue;
+                ktr = items[item].findTransparencyHelper(ray, maxDistance, ktr);
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        } while (walker.exit() < maxDistance && walker.next());
+        return ktr;
+    }
+}
@@ -0,0 +1,239 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.security.MessageDigest;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class Instance represents a placement of a shared object (a geometry or a group, usually with its own
+ * acceleration structure) in the scene by an affine transformation - a two-level hierarchy.
+ * The object is kept once in its own (object) space: a ray is moved into the object space by the inverse
+ * transformation, and the points and the normals that are found are moved back to the scene.
+ * Many instances of one object share all its data, and a group of instances can be accelerated by its world boxes.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class Instance extends Intersectable {
+    private final Intersectable object; // The shared object
+    private final Transform transform; // From the object space to the scene
+    private final Transform inverse; // From the scene to the object space
+    private final BoundingBox box; // The box of the transformed object, null if the object is unbounded
+
+    /**
+     * Class Part represents a geometry of the object as it is placed by an instance, for intersection points.
+     * It has no data of its own - the emission and the material are the geometry's ones, and the normal is
+     * the geometry's normal moved to the scene.
+     */
+    public static class Part extends Geometry {
+        private final Instance instance; // The instance of the geometry
+        private final Geometry geometry; // The geometry in the object space
+
+        /**
+         * Constructor
+         *
+         * @param instance the instance of the geometry
+         * @param geometry the geometry in the object space
+         */
+        Part(Instance instance, Geometry geometry) {
+            super(null); // The material is the geometry's one
+            this.instance = instance;
+            this.geometry = geometry;
+        }
+
+        /**
+         * Getter of the instance of the geometry
+         *
+         * @return the instance
+         */
+        public Instance getInstance() {
+            return instance;
+        }
+
+        /**
+         * Getter of the geometry in the object space
+         *
+         * @return the geometry
+         */
+        public Geometry getGeometry() {
+            return geometry;
+        }
+
+        @Override
+        public Color getEmission() {
+            return geometry.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return geometry.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return instance.transform.applyToNormal(geometry.getNormal(instance.inverse.apply(point)));
+        }
+
+        @Override
+        public void fingerprint(MessageDigest digest) {
+            instance.fingerprint(digest);
+            geometry.fingerprint(digest);
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+            List<GeoPoint> geoPoints = instance.findGeoIntersectionsHelper(ray);
+            if (geoPoints == null)
+                return null;
+            List<GeoPoint> result = new LinkedList<>();
+            for (GeoPoint geoPoint : geoPoints)
+                if (equals(geoPoint.geometry))
+                    result.add(geoPoint);
+            return result.isEmpty() ? null : result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Part other)) return false;
+            return instance == other.instance && geometry == other.geometry;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(instance) + System.identityHashCode(geometry);
+        }
+
+        @Override
+        public String toString() {
+            return "Part: " + geometry + " of " + instance;
+        }
+    }
+
+    /**
+     * Constructor that places an object in the scene
+     *
+     * @param object    the shared object
+     * @param transform the transformation from the object space to the scene
+     */
+    public Instance(Intersectable object, Transform transform) {
+        this.object = object;
+        this.transform = transform;
+        this.inverse = transform.inverse();
+
+        BoundingBox objectBox = object.getBoundingBox();
+        if (objectBox == null) {
+            box = null;
+            return;
+        }
+        // The box of the 8 transformed corners of the object's box
+        Point min = objectBox.getMin(), max = objectBox.getMax();
+        Point[] corners = new Point[8];
+        for (int i = 0; i < 8; ++i)
+            corners[i] = transform.apply(new Point((i & 1) == 0 ? min.getX() : max.getX(),
+                    (i & 2) == 0 ? min.getY() : max.getY(),
+                    (i & 4) == 0 ? min.getZ() : max.getZ()));
+        box = new BoundingBox(corners);
+    }
+
+    /**
+     * Getter of the shared object
+     *
+     * @return the object
+     */
+    public Intersectable getObject() {
+        return object;
+    }
+
+    /**
+     * Getter of the transformation from the object space to the scene
+     *
+     * @return the transformation
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName() + '\n' + transform);
+        object.fingerprint(digest);
+    }
+
+    /**
+     * Moves a ray into the object space
+     *
+     * @param ray the ray in the scene
+     * @return the ray in the object space
+     */
+    private Ray toObject(Ray ray) {
+        return new Ray(inverse.apply(ray.getP0()), inverse.applyToVector(ray.getDirection()));
+    }
+
+    /**
+     * Calculates the distance in the object space that matches a unit of distance along a ray in the scene
+     *
+     * @param ray the ray in the scene
+     * @return the scale of the distances
+     */
+    private double scale(Ray ray) {
+        return inverse.applyToVector(ray.getDirection()).length();
+    }
+
+    /**
+     * Moves an intersection point of the object back to the scene
+     *
+     * @param geoPoint the point in the object space
+     * @return the point in the scene
+     */
+    private GeoPoint toScene(GeoPoint geoPoint) {
+        return new GeoPoint(new Part(this, geoPoint.geometry), transform.apply(geoPoint.point));
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        if (box != null && !box.intersects(ray, Double.POSITIVE_INFINITY))
+            return null;
+        List<GeoPoint> geoPoints = object.findGeoIntersections(toObject(ray));
+        if (geoPoints == null)
+            return null;
+        List<GeoPoint> result = new LinkedList<>();
+        for (GeoPoint geoPoint : geoPoints)
+            result.add(toScene(geoPoint));
+        return result;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        if (box != null && !box.intersects(ray, maxDistance))
+            return null;
+        GeoPoint closest = object.findClosestGeoIntersectionHelper(toObject(ray), maxDistance * scale(ray));
+        return closest == null ? null : toScene(closest);
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        if (box != null && !box.intersects(ray, maxDistance))
+            return ktr;
+        return object.findTransparencyHelper(toObject(ray), maxDistance * scale(ray), ktr);
+    }
+
+    @Override
+    public String toString() {
+        return "Instance: " +
+                "object = " + object +
+                ", transform = " + transform;
+    }
+}
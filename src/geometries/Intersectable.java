@@ -1,8 +1,12 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Objects;
 
@@ -69,6 +73,159 @@ public abstract class Intersectable {
         return findGeoIntersectionsHelper(ray);
     }
 
+    /**
+     * Returns the axis aligned bounding box of the graphic object.
+     * Infinite objects (like planes and tubes) have no box, and are tested against every ray.
+     *
+     * @return the bounding box, or null if the object is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
+    /**
+     * Adds the fingerprint of the graphic object to a digest - everything that changes the colors of the rays that
+     * hit it: the shape, the emission and the material of a geometry, or the intersectables of a group
+     *
+     * @param digest the digest
+     */
+    public abstract void fingerprint(MessageDigest digest);
+
+    /**
+     * Adds a text to a digest (like the class of a graphic object)
+     *
+     * @param digest the digest
+     * @param text   the text
+     */
+    static void digest(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0); // Ends the text, so the next bytes can't continue it
+    }
+
+    /**
+     * Adds intersectables to a digest - their number and their fingerprints in their order
+     *
+     * @param digest the digest
+     * @param items  the intersectables
+     */
+    static void digest(MessageDigest digest, Intersectable[] items) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(items.length).array());
+        for (Intersectable item : items)
+            item.fingerprint(digest);
+    }
+
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray);
 
+    /**
+     * Finds the closest intersection point between a ray and the graphic object
+     *
+     * @param ray the ray
+     * @return the closest intersection point, null if there is none
+     */
+    public GeoPoint findClosestGeoIntersection(Ray ray) {
+        return findClosestGeoIntersectionHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the closest intersection point between a ray and the graphic object that is closer than a distance
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    public GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance) {
+        return findClosestGeoIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * Finds the closest intersection point that is closer than a distance.
+     * The default implementation filters all the intersections, geometries override it in order to
+     * create only the point that is returned, and groups shrink the distance as closer points are found.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> geoPoints = findGeoIntersectionsHelper(ray);
+        if (geoPoints == null)
+            return null;
+
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+        for (GeoPoint geoPoint : geoPoints) {
+            double distance = geoPoint.point.distance(p0);
+            if (distance < maxDistance) {
+                maxDistance = distance;
+                closest = geoPoint;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersection point of every ray of a packet (coherent rays that are traced together).
+     * The points are kept in the packet - see {@link RayPacket#getClosest(int)}.
+     *
+     * @param packet the rays
+     */
+    public void findClosestGeoIntersections(RayPacket packet) {
+        findClosestGeoIntersectionsHelper(packet, packet.all());
+    }
+
+    /**
+     * Finds the closest intersection points of some rays of a packet, each closer than the closest point of the ray
+     * so far. The default implementation traces the rays one by one, geometries override it in order to work
+     * on the arrays of the packet, and hierarchies test every box once for all the rays that reach it.
+     *
+     * @param packet the rays
+     * @param mask   the rays to trace (bit i for ray i)
+     */
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet, int mask) {
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int i = Integer.numberOfTrailingZeros(rest);
+            GeoPoint geoPoint = findClosestGeoIntersectionHelper(packet.rays[i], packet.maxDistances[i]);
+            if (geoPoint != null)
+                packet.hit(i, geoPoint);
+        }
+    }
+
+    /**
+     * Calculates how much light passes along a ray up to a distance (occlusion query for shadow rays).
+     * The transparency factors (KT) of the blockers on the way are multiplied, and the query stops
+     * as soon as an opaque blocker is met.
+     *
+     * @param ray         the ray from the shaded point towards the light
+     * @param maxDistance the distance of the light from the head of the ray
+     * @return the transparency factor - ONE if nothing blocks the ray, ZERO if an opaque geometry blocks it
+     */
+    public Double3 findTransparency(Ray ray, double maxDistance) {
+        return findTransparencyHelper(ray, maxDistance, Double3.ONE);
+    }
+
+    /**
+     * Multiplies the transparency factor by the KT of every intersection that is closer than a distance.
+     * The default implementation goes over all the intersections, geometries override it in order not to
+     * create any point, and groups stop going over their members when the factor drops to zero.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        List<GeoPoint> geoPoints = findGeoIntersectionsHelper(ray);
+        if (geoPoints == null)
+            return ktr;
+
+        Point p0 = ray.getP0();
+        for (GeoPoint geoPoint : geoPoints) {
+            if (geoPoint.point.distance(p0) < maxDistance) {
+                ktr = geoPoint.geometry.getMaterial().KT.product(ktr);
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
 }
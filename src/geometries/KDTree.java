@@ -0,0 +1,445 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class KDTree is a kd-tree over a group of intersectables.
+ * Every inner node splits its box by an axis aligned plane, chosen with the surface area heuristic (SAH)
+ * among the sides of the boxes of the intersectables. An intersectable that crosses the plane is kept in both
+ * children, so the leaves don't overlap: a ray visits them from front to back, and the closest point is final
+ * as soon as it is inside the leaf that is visited (the tree suits static scenes with many secondary rays).
+ * Unbounded intersectables (like planes) can't be placed in the tree, so they are kept aside and tested for every ray.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class KDTree extends Intersectable {
+    private static final double TRAVERSAL_COST = 0.5; // The cost of visiting a node relative to intersecting a geometry
+    private static final double EMPTY_BONUS = 0.2; // The part of the cost saved when a side of the split is empty
+    private static final int MAX_LEAF_SIZE = 2; // Nodes with this many intersectables or less are never split
+
+    private final Intersectable[] items; // The bounded intersectables
+    private final Intersectable[] unbounded; // The intersectables without a bounding box
+    private final BoundingBox[] boxes; // The boxes of the bounded intersectables
+    private final BoundingBox box; // The box of the tree, null if there are no bounded intersectables
+    private final Node root; // The root of the tree, null if there are no bounded intersectables
+    private int depth = 0; // The depth of the tree (the size of the traversal stack)
+
+    // The intersectables that the current ray tested, for every thread that traces through the tree
+    private final ThreadLocal<Mailbox> mailboxes;
+
+    /**
+     * Class that represents a node of the tree - an inner node has a split plane and a leaf has intersectables
+     */
+    static class Node {
+        int axis; // The axis that the split plane is orthogonal to
+        double split; // The coordinate of the split plane on the axis
+        Node below; // The child on the lower side of the plane (null in a leaf)
+        Node above; // The child on the upper side of the plane (null in a leaf)
+        int[] items; // The indices of the intersectables of a leaf (null in an inner node)
+
+        /**
+         * Checks whether the node is a leaf
+         *
+         * @return true if the node is a leaf
+         */
+        boolean isLeaf() {
+            return items != null;
+        }
+    }
+
+    /**
+     * Class that walks a ray through the leaves of the tree from front to back.
+     * The far children are kept on a stack with the range of distances of the ray inside them.
+     */
+    private final class Walker {
+        private final double[] origin; // The head of the ray
+        private final double[] inverse; // 1 / the direction of the ray
+        private final Node[] stack = new Node[depth + 1];
+        private final double[] stackMin = new double[depth + 1];
+        private final double[] stackMax = new double[depth + 1];
+        private int top = 0;
+
+        int[] leaf; // The intersectables of the current leaf
+        double leafMax; // The distance in which the ray leaves the current leaf
+
+        /**
+         * Constructor
+         *
+         * @param origin  the head of the ray
+         * @param inverse 1 / the direction of the ray
+         * @param entry   the distance in which the ray enters the tree
+         * @param exit    the distance in which the ray leaves the tree
+         */
+        Walker(double[] origin, double[] inverse, double entry, double exit) {
+            this.origin = origin;
+            this.inverse = inverse;
+            stack[top] = root;
+            stackMin[top] = entry;
+            stackMax[top++] = exit;
+        }
+
+        /**
+         * Moves to the next leaf of the ray that isn't empty
+         *
+         * @param maxDistance the maximal distance from the head of the ray
+         * @return false if there are no more leaves before the distance
+         */
+        boolean next(double maxDistance) {
+            while (top > 0) {
+                Node node = stack[--top];
+                double tMin = stackMin[top], tMax = stackMax[top];
+                // The stack is ordered - all the leaves that are left are farther
+                if (tMin >= maxDistance)
+                    return false;
+
+                while (!node.isLeaf()) {
+                    int axis = node.axis;
+                    double tSplit = (node.split - origin[axis]) * inverse[axis];
+                    boolean belowFirst = origin[axis] < node.split
+                            || (origin[axis] == node.split && inverse[axis] <= 0);
+                    Node near = belowFirst ? node.below : node.above;
+                    Node far = belowFirst ? node.above : node.below;
+
+                    // The ray doesn't cross the plane inside the node, or crosses it only before it enters
+                    if (!(tSplit > 0) || tSplit > tMax)
+                        node = near;
+                    else if (tSplit < tMin)
+                        node = far;
+                    else {
+                        stack[top] = far;
+                        stackMin[top] = tSplit;
+                        stackMax[top++] = tMax;
+                        node = near;
+                        tMax = tSplit;
+                    }
+                }
+                if (node.items.length != 0) {
+                    leaf = node.items;
+                    leafMax = tMax;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Constructor that builds the tree over the given intersectables
+     *
+     * @param intersectables the intersectables to put in the tree
+     */
+    public KDTree(List<Intersectable> intersectables) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> others = new LinkedList<>();
+        BoundingBox union = null;
+        for (Intersectable item : intersectables) {
+            BoundingBox itemBox = item.getBoundingBox();
+            if (itemBox == null)
+                others.add(item);
+            else {
+                bounded.add(item);
+                union = union == null ? itemBox : union.union(itemBox);
+            }
+        }
+        unbounded = others.toArray(new Intersectable[0]);
+        items = bounded.toArray(new Intersectable[0]);
+        box = union;
+        int n = items.length;
+        mailboxes = ThreadLocal.withInitial(Mailbox::new);
+
+        boxes = new BoundingBox[n];
+        int[] indices = new int[n];
+        for (int i = 0; i < n; ++i) {
+            boxes[i] = items[i].getBoundingBox();
+            indices[i] = i;
+        }
+        int maxDepth = (int) Math.round(8 + 1.3 * Math.log(Math.max(n, 1)) / Math.log(2));
+        root = n == 0 ? null : build(indices, box, maxDepth, 1);
+    }
+
+    /**
+     * Getter of the root of the tree
+     *
+     * @return the root node, null if there are no bounded intersectables
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Getter of the depth of the tree
+     *
+     * @return the depth of the tree
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length != 0 ? null : box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName());
+        digest(digest, unbounded);
+        digest(digest, items);
+    }
+
+    /**
+     * Builds recursively the subtree of the given intersectables
+     *
+     * @param indices  the indices of the intersectables in the node
+     * @param nodeBox  the box of the node
+     * @param maxDepth the number of levels that may still be added under the node
+     * @param level    the level of the node in the tree
+     * @return the root of the subtree
+     */
+    private Node build(int[] indices, BoundingBox nodeBox, int maxDepth, int level) {
+        depth = Math.max(depth, level);
+        Node node = new Node();
+        int n = indices.length;
+        if (n <= MAX_LEAF_SIZE || maxDepth == 0) {
+            node.items = indices;
+            return node;
+        }
+
+        // Sweep the sides of the boxes on every axis, and find the plane of the cheapest split
+        double area = nodeBox.surfaceArea();
+        double bestCost = Double.POSITIVE_INFINITY, bestSplit = 0;
+        int bestAxis = -1;
+        double[] mins = new double[n], maxs = new double[n];
+        for (int axis = 0; axis < 3; ++axis) {
+            double nodeMin = nodeBox.min(axis), nodeMax = nodeBox.max(axis);
+            if (nodeMax <= nodeMin)
+                continue;
+            int other1 = (axis + 1) % 3, other2 = (axis + 2) % 3;
+            double d1 = nodeBox.max(other1) - nodeBox.min(other1), d2 = nodeBox.max(other2) - nodeBox.min(other2);
+            for (int i = 0; i < n; ++i) {
+                mins[i] = boxes[indices[i]].min(axis);
+                maxs[i] = boxes[indices[i]].max(axis);
+            }
+            Arrays.sort(mins);
+            Arrays.sort(maxs);
+
+            // At an equal coordinate the starts of boxes come before the ends
+            int below = 0, above = n;
+            for (int i = 0, j = 0; j < n; ) {
+                boolean start = i < n && mins[i] <= maxs[j];
+                double split = start ? mins[i] : maxs[j];
+                if (!start)
+                    --above;
+                if (split > nodeMin && split < nodeMax) {
+                    double belowArea = 2 * (d1 * d2 + (split - nodeMin) * (d1 + d2));
+                    double aboveArea = 2 * (d1 * d2 + (nodeMax - split) * (d1 + d2));
+                    double bonus = below == 0 || above == 0 ? EMPTY_BONUS : 0;
+                    double cost = TRAVERSAL_COST
+                            + (1 - bonus) * (belowArea * below + aboveArea * above) / area;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = split;
+                    }
+                }
+                if (start) {
+                    ++below;
+                    ++i;
+                } else
+                    ++j;
+            }
+        }
+
+        // Stop when intersecting all the intersectables is cheaper than splitting them
+        if (bestAxis == -1 || bestCost >= n) {
+            node.items = indices;
+            return node;
+        }
+
+        // An intersectable that crosses the plane goes to both sides, a flat one on the plane goes below
+        int[] belowItems = new int[n], aboveItems = new int[n];
+        int belowCount = 0, aboveCount = 0;
+        for (int index : indices) {
+            double min = boxes[index].min(bestAxis), max = boxes[index].max(bestAxis);
+            if (min < bestSplit || max <= bestSplit)
+                belowItems[belowCount++] = index;
+            if (max > bestSplit)
+                aboveItems[aboveCount++] = index;
+        }
+
+        node.axis = bestAxis;
+        node.split = bestSplit;
+        node.below = build(Arrays.copyOf(belowItems, belowCount), side(nodeBox, bestAxis, bestSplit, true),
+                maxDepth - 1, level + 1);
+        node.above = build(Arrays.copyOf(aboveItems, aboveCount), side(nodeBox, bestAxis, bestSplit, false),
+                maxDepth - 1, level + 1);
+        return node;
+    }
+
+    /**
+     * Cuts a box by an axis aligned plane
+     *
+     * @param nodeBox the box
+     * @param axis    the axis that the plane is orthogonal to
+     * @param split   the coordinate of the plane on the axis
+     * @param below   true for the lower side of the plane, false for the upper side
+     * @return the side of the box
+     */
+    private static BoundingBox side(BoundingBox nodeBox, int axis, double split, boolean below) {
+        double[] min = {nodeBox.minX, nodeBox.minY, nodeBox.minZ};
+        double[] max = {nodeBox.maxX, nodeBox.maxY, nodeBox.maxZ};
+        if (below)
+            max[axis] = split;
+        else
+            min[axis] = split;
+        return new BoundingBox(min[0], min[1], min[2], max[0], max[1], max[2]);
+    }
+
+    /**
+     * Starts the walk of a ray through the tree
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the walker, or null if the ray misses the tree
+     */
+    private Walker walk(Ray ray, double maxDistance) {
+        if (root == null)
+            return null;
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+        double entry = box.entry(ox, oy, oz, ix, iy, iz, maxDistance);
+        if (entry == Double.POSITIVE_INFINITY)
+            return null;
+        return new Walker(new double[]{ox, oy, oz}, new double[]{ix, iy, iz}, entry,
+                box.exit(ox, oy, oz, ix, iy, iz));
+    }
+
+    /**
+     * Calculates and returns the intersection points between the ray and the intersectables in the tree
+     *
+     * @param ray
+     * @return list of intersection points
+     */
+    @Override
+    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        List<GeoPoint> result = null;
+
+        for (Intersectable item : unbounded) {
+            List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
+            if (itemLst != null) {
+                if (result == null)
+                    result = new LinkedList<>();
+                result.addAll(itemLst);
+            }
+        }
+
+        Walker walker = walk(ray, Double.POSITIVE_INFINITY);
+        if (walker == null)
+            return result;
+
+        Mailbox mailbox = mailboxes.get();
+        mailbox.next();
+        while (walker.next(Double.POSITIVE_INFINITY)) {
+            for (int item : walker.leaf) {
+                if (!mailbox.check(item))
+                    continue;
+                List<GeoPoint> itemLst = items[item].findGeoIntersectionsHelper(ray);
+                if (itemLst != null) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.addAll(itemLst);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the closest intersection point by visiting the leaves from front to back.
+     * The walk stops at the first leaf that the closest point found so far is in -
+     * every intersectable that wasn't tested yet is in the leaves beyond it.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+
+        for (Intersectable item : unbounded) {
+            GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(p0);
+            }
+        }
+
+        Walker walker = walk(ray, maxDistance);
+        if (walker == null)
+            return closest;
+
+        Mailbox mailbox = mailboxes.get();
+        mailbox.next();
+        while (walker.next(maxDistance)) {
+            for (int item : walker.leaf) {
+                if (!mailbox.check(item))
+                    continue;
+                GeoPoint geoPoint = items[item].findClosestGeoIntersectionHelper(ray, maxDistance);
+                if (geoPoint != null) {
+                    closest = geoPoint;
+                    maxDistance = geoPoint.point.distance(p0);
+                }
+            }
+            if (maxDistance <= walker.leafMax)
+                break;
+        }
+        return closest;
+    }
+
+    /**
+     * Accumulates the transparency of the blockers before a distance, visiting the leaves up to the distance.
+     * The walk stops at the first opaque blocker.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        for (Intersectable item : unbounded) {
+            ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+
+        Walker walker = walk(ray, maxDistance);
+        if (walker == null)
+            return ktr;
+
+        Mailbox mailbox = mailboxes.get();
+        mailbox.next();
+        while (walker.next(maxDistance)) {
+            for (int item : walker.leaf) {
+                if (!mailbox.check(item))
+                    continue;
+                ktr = items[item].findTransparencyHelper(ray, maxDistance, ktr);
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+}
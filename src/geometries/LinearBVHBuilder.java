@@ -0,0 +1,296 @@
+package geometries;
+
+import geometries.BVH.Node;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Class LinearBVHBuilder builds a linear bounding volume hierarchy (LBVH) in parallel on the common fork/join pool.
+ * Every intersectable gets the Morton code of the center of its box - the bits of the three coordinates
+ * interleaved, so close codes mean close places. The codes are radix sorted, and the tree is emitted by splitting
+ * every range of codes where its highest different bit changes. Every step works on independent chunks of
+ * the intersectables, so it scales with the number of the cores, at the price of a tree that is a bit worse
+ * than the surface area heuristic one of {@link BVH}.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class LinearBVHBuilder {
+    private static final int BITS = 21; // The bits of a Morton code for every axis (63 bits in all)
+    private static final int RADIX_BITS = 8; // The bits of the code that are sorted in every pass
+    private static final int CHUNK = 1 << 14; // The number of intersectables that a task handles by itself
+    private static final int MAX_LEAF_SIZE = 4; // Ranges with this many intersectables or less become leaves
+
+    private final Intersectable[] unbounded; // The intersectables without a bounding box
+    private Intersectable[] items; // The bounded intersectables (in Morton order after sorting)
+    private BoundingBox[] boxes; // The boxes of the bounded intersectables
+    private long[] codes; // The Morton codes of the bounded intersectables
+    private final AtomicInteger depth = new AtomicInteger(); // The depth of the tree
+
+    /**
+     * Constructor
+     *
+     * @param intersectables the intersectables to put in the hierarchy
+     */
+    LinearBVHBuilder(List<Intersectable> intersectables) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> others = new LinkedList<>();
+        for (Intersectable item : intersectables) {
+            if (item.getBoundingBox() == null)
+                others.add(item);
+            else
+                bounded.add(item);
+        }
+        unbounded = others.toArray(new Intersectable[0]);
+        items = bounded.toArray(new Intersectable[0]);
+    }
+
+    /**
+     * Builds the hierarchy
+     *
+     * @return the hierarchy
+     */
+    BVH build() {
+        int n = items.length;
+        if (n == 0)
+            return new BVH(null, 0, unbounded);
+
+        computeCodes();
+        sort();
+        Node root = ForkJoinPool.commonPool().invoke(new Emit(0, n, 1));
+        return new BVH(root, depth.get(), unbounded);
+    }
+
+    /**
+     * Runs a task for every chunk of the intersectables.
+     * Parallel streams run on the common fork/join pool.
+     *
+     * @param chunks the number of the chunks
+     * @param task   the task of a chunk, given the index of the chunk
+     */
+    private static void forEachChunk(int chunks, IntConsumer task) {
+        IntStream.range(0, chunks).parallel().forEach(task);
+    }
+
+    /**
+     * Calculates the boxes of the intersectables and the Morton codes of their centers
+     */
+    private void computeCodes() {
+        int n = items.length;
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        boxes = new BoundingBox[n];
+
+        // The box of the centers, collected by every chunk and then merged
+        double[] bounds = new double[6 * chunks];
+        forEachChunk(chunks, c -> {
+            double[] local = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; ++i) {
+                boxes[i] = items[i].getBoundingBox();
+                for (int axis = 0; axis < 3; ++axis) {
+                    double center = boxes[i].getCenter(axis);
+                    local[axis] = Math.min(local[axis], center);
+                    local[axis + 3] = Math.max(local[axis + 3], center);
+                }
+            }
+            System.arraycopy(local, 0, bounds, 6 * c, 6);
+        });
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] scale = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int c = 0; c < chunks; ++c)
+            for (int axis = 0; axis < 3; ++axis) {
+                min[axis] = Math.min(min[axis], bounds[6 * c + axis]);
+                scale[axis] = Math.max(scale[axis], bounds[6 * c + axis + 3]);
+            }
+        // The scale of every axis turns its extent into the range of the code bits
+        for (int axis = 0; axis < 3; ++axis) {
+            double extent = scale[axis] - min[axis];
+            scale[axis] = extent > 0 ? (1 << BITS) / extent : 0;
+        }
+
+        codes = new long[n];
+        forEachChunk(chunks, c -> {
+            for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; ++i)
+                codes[i] = spread(quantize(boxes[i].getCenter(0), min[0], scale[0])) << 2
+                        | spread(quantize(boxes[i].getCenter(1), min[1], scale[1])) << 1
+                        | spread(quantize(boxes[i].getCenter(2), min[2], scale[2]));
+        });
+    }
+
+    /**
+     * Turns a coordinate into an integer of the code bits
+     *
+     * @param value the coordinate
+     * @param min   the minimal coordinate
+     * @param scale the number of integer steps in a unit of length
+     * @return the integer
+     */
+    private static long quantize(double value, double min, double scale) {
+        return Math.min((1L << BITS) - 1, (long) ((value - min) * scale));
+    }
+
+    /**
+     * Spreads the bits of an integer so that there are two zero bits between every two of them
+     *
+     * @param x the integer (of {@link #BITS} bits)
+     * @return the spread bits
+     */
+    private static long spread(long x) {
+        x &= (1L << BITS) - 1;
+        x = (x | x << 32) & 0x1f00000000ffffL;
+        x = (x | x << 16) & 0x1f0000ff0000ffL;
+        x = (x | x << 8) & 0x100f00f00f00f00fL;
+        x = (x | x << 4) & 0x10c30c30c30c30c3L;
+        x = (x | x << 2) & 0x1249249249249249L;
+        return x;
+    }
+
+    /**
+     * Sorts the intersectables by their codes - a parallel least significant digit radix sort.
+     * In every pass every chunk counts its digits, the counts give every chunk its place for every digit,
+     * and then every chunk moves its intersectables to their places (so the order of equal digits is kept).
+     */
+    private void sort() {
+        int n = items.length;
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        int radix = 1 << RADIX_BITS;
+        long[] otherCodes = new long[n];
+        Intersectable[] otherItems = new Intersectable[n];
+        BoundingBox[] otherBoxes = new BoundingBox[n];
+        int[][] counts = new int[chunks][radix];
+
+        for (int shift = 0; shift < 3 * BITS; shift += RADIX_BITS) {
+            int digitShift = shift;
+            long[] source = codes;
+            forEachChunk(chunks, c -> {
+                int[] count = counts[c];
+                Arrays.fill(count, 0);
+                for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; ++i)
+                    ++count[(int) (source[i] >>> digitShift) & (radix - 1)];
+            });
+
+            // Turn the counts into the first place of every digit in every chunk.
+            // A pass where all the codes have the same digit doesn't change the order
+            boolean same = false;
+            int place = 0;
+            for (int digit = 0; digit < radix; ++digit) {
+                int total = 0;
+                for (int c = 0; c < chunks; ++c)
+                    total += counts[c][digit];
+                if (total == n)
+                    same = true;
+                for (int c = 0; c < chunks; ++c) {
+                    int count = counts[c][digit];
+                    counts[c][digit] = place;
+                    place += count;
+                }
+            }
+            if (same)
+                continue;
+
+            long[] targetCodes = otherCodes;
+            Intersectable[] targetItems = otherItems;
+            BoundingBox[] targetBoxes = otherBoxes;
+            Intersectable[] sourceItems = items;
+            BoundingBox[] sourceBoxes = boxes;
+            forEachChunk(chunks, c -> {
+                int[] next = counts[c];
+                for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; ++i) {
+                    int j = next[(int) (source[i] >>> digitShift) & (radix - 1)]++;
+                    targetCodes[j] = source[i];
+                    targetItems[j] = sourceItems[i];
+                    targetBoxes[j] = sourceBoxes[i];
+                }
+            });
+            otherCodes = codes;
+            otherItems = items;
+            otherBoxes = boxes;
+            codes = targetCodes;
+            items = targetItems;
+            boxes = targetBoxes;
+        }
+    }
+
+    /**
+     * Finds where to split a range of sorted codes: after the last code that has the same highest bits as the first
+     * code, up to the highest bit that differs between the first and the last codes (by binary search).
+     *
+     * @param start the first index of the range
+     * @param end   the index after the last one in the range
+     * @return the index of the first code of the upper part
+     */
+    private int split(int start, int end) {
+        long first = codes[start], last = codes[end - 1];
+        // All the codes are equal - split the range in the middle
+        if (first == last)
+            return (start + end) >>> 1;
+
+        int prefix = Long.numberOfLeadingZeros(first ^ last);
+        int split = start, step = end - 1 - start;
+        do {
+            step = (step + 1) >>> 1;
+            int candidate = split + step;
+            if (candidate < end - 1 && Long.numberOfLeadingZeros(first ^ codes[candidate]) > prefix)
+                split = candidate;
+        } while (step > 1);
+        return split + 1;
+    }
+
+    /**
+     * Task that emits the subtree of a range of the sorted intersectables.
+     * Big ranges fork the lower part and build the upper part on the same thread.
+     */
+    private class Emit extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L; // Tasks are never serialized, ForkJoinTask is Serializable
+        private final int start; // The first index of the range
+        private final int end; // The index after the last one in the range
+        private final int level; // The level of the node in the tree
+
+        /**
+         * Constructor
+         *
+         * @param start the first index of the range
+         * @param end   the index after the last one in the range
+         * @param level the level of the node in the tree
+         */
+        Emit(int start, int end, int level) {
+            this.start = start;
+            this.end = end;
+            this.level = level;
+        }
+
+        @Override
+        protected Node compute() {
+            Node node = new Node();
+            if (end - start <= MAX_LEAF_SIZE) {
+                depth.accumulateAndGet(level, Math::max);
+                node.items = new Intersectable[end - start];
+                System.arraycopy(items, start, node.items, 0, end - start);
+                BoundingBox box = boxes[start];
+                for (int i = start + 1; i < end; ++i)
+                    box = box.union(boxes[i]);
+                node.box = box;
+                return node;
+            }
+
+            int mid = split(start, end);
+            if (end - start > CHUNK) {
+                Emit lower = new Emit(start, mid, level + 1);
+                lower.fork();
+                node.right = new Emit(mid, end, level + 1).compute();
+                node.left = lower.join();
+            } else {
+                node.left = new Emit(start, mid, level + 1).compute();
+                node.right = new Emit(mid, end, level + 1).compute();
+            }
+            node.box = node.left.box.union(node.right.box);
+            return node;
+        }
+    }
+}
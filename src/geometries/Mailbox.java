@@ -0,0 +1,82 @@
+package geometries;
+
+/**
+ * Class Mailbox keeps the intersectables of an acceleration structure that the current ray tested, so an
+ * intersectable that is referenced from several cells of a structure is tested only once for a ray.
+ * The tested intersectables are kept in a small hash set (open addressing) whose slots are stamped with the number of
+ * the ray, so a new ray empties the set without clearing it. The set grows only with the intersectables that a single
+ * ray tests - not with the scene - so a mailbox takes half a kilobyte unless a ray tests more than 32 of them.
+ * A mailbox belongs to one thread - the structures keep one for every thread that traces through them, so a query
+ * takes it without waiting for the other threads (and a virtual thread for every tile makes only a small mailbox).
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class Mailbox {
+    private static final int INITIAL_SLOTS = 64; // A power of 2
+    private int[] items = new int[INITIAL_SLOTS]; // The index of the intersectable of every slot
+    private int[] stamps = new int[INITIAL_SLOTS]; // The number of the ray of every slot - a slot of another is empty
+    private int ray = 0; // The number of the current ray
+    private int count = 0; // The number of the intersectables that the current ray tested
+
+    /**
+     * Starts a new ray
+     *
+     * @return the number of the new ray
+     */
+    int next() {
+        count = 0;
+        if (++ray == 0) { // The numbers went all the way round - forget the old rays
+            stamps = new int[stamps.length];
+            ray = 1;
+        }
+        return ray;
+    }
+
+    /**
+     * Marks an intersectable as tested by the current ray
+     *
+     * @param item the index of the intersectable
+     * @return true if the intersectable wasn't tested by the current ray before
+     */
+    boolean check(int item) {
+        int slot = find(item);
+        if (stamps[slot] == ray)
+            return false;
+        if (2 * ++count > items.length) { // At most half of the slots are taken, so the probes stay short
+            grow();
+            slot = find(item);
+        }
+        items[slot] = item;
+        stamps[slot] = ray;
+        return true;
+    }
+
+    /**
+     * Finds the slot of an intersectable - its own slot, or the empty slot where it belongs
+     *
+     * @param item the index of the intersectable
+     * @return the slot
+     */
+    private int find(int item) {
+        int mask = items.length - 1;
+        int slot = item * 0x9E3779B9 & mask; // Fibonacci hashing - the near indexes are spread
+        while (stamps[slot] == ray && items[slot] != item)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Doubles the slots and moves the intersectables of the current ray into them
+     */
+    private void grow() {
+        int[] oldItems = items, oldStamps = stamps;
+        items = new int[oldItems.length * 2];
+        stamps = new int[oldStamps.length * 2];
+        for (int i = 0; i < oldItems.length; ++i)
+            if (oldStamps[i] == ray) {
+                int slot = find(oldItems[i]);
+                items[slot] = oldItems[i];
+                stamps[slot] = ray;
+            }
+    }
+}
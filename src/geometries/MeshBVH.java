@@ -0,0 +1,537 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Class MeshBVH is a bounding volume hierarchy over the faces of a {@link TriangleMesh}, so a ray tests the faces
+ * of the leaves that it passes through instead of every face of the mesh.
+ * Like {@link FlatBVH}, the tree is kept in primitive arrays: the nodes are numbered in depth-first order (the left
+ * child of a node is the next node), every node has its box in 6 doubles and 2 ints - the index of the right child
+ * and 0 for an inner node, or the range of a leaf in the array of the faces, which are ordered by the leaves.
+ * The tree is built by the surface area heuristic over bins of the centers of the faces. When vertices move, the
+ * boxes are calculated again from the leaves up without changing the tree ({@link #refit()}).
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class MeshBVH {
+    private static final int BINS = 16; // The bins of the centers in which the split of a node is searched
+    private static final int MIN_LEAF = 2; // Nodes of this many faces or fewer are always leaves
+    private static final int MAX_LEAF = 8; // Nodes of more faces are always split
+    private static final double TRAVERSAL_COST = 1; // The cost of visiting a node relative to testing a face
+
+    private final TriangleMesh mesh;
+    private final double[] vertices; // The vertices of the mesh (shared with it)
+    private final int[] indices; // The vertex indices of the faces of the mesh (shared with it)
+    private final int[] order; // The faces in the order of the leaves
+    private double[] bounds; // The box of every node (min x, y, z and then max x, y, z)
+    private int[] nodes; // Every node: the right child and 0, or the first face in the order and the count of a leaf
+    private int nodeCount = 0; // The number of the nodes
+    private int depth = 0; // The depth of the tree
+    private volatile TriangleArrays faces = null; // The faces in the order of the leaves for the SIMD kernel
+    private final ThreadLocal<FlatBVH.Stack> stacks; // The traversal stack of every thread
+
+    /**
+     * Constructor that builds the hierarchy over all the faces of a mesh
+     *
+     * @param mesh     the mesh
+     * @param vertices x, y, z of every vertex of the mesh
+     * @param indices  the indices of the three vertices of every face of the mesh
+     */
+    MeshBVH(TriangleMesh mesh, double[] vertices, int[] indices) {
+        this.mesh = mesh;
+        this.vertices = vertices;
+        this.indices = indices;
+        int count = indices.length / 3;
+        order = new int[count];
+        for (int i = 0; i < count; ++i)
+            order[i] = i;
+        bounds = new double[6 * Math.max(1, count)];
+        nodes = new int[2 * Math.max(1, count)];
+
+        // The centers of the faces are needed only while building
+        double[] centers = new double[3 * count];
+        for (int face = 0; face < count; ++face)
+            for (int axis = 0; axis < 3; ++axis)
+                centers[3 * face + axis] = (vertices[3 * indices[3 * face] + axis]
+                        + vertices[3 * indices[3 * face + 1] + axis] + vertices[3 * indices[3 * face + 2] + axis]) / 3;
+        if (count > 0)
+            build(centers, 0, count, 1);
+        bounds = Arrays.copyOf(bounds, 6 * nodeCount);
+        nodes = Arrays.copyOf(nodes, 2 * nodeCount);
+        int size = depth + 1;
+        stacks = ThreadLocal.withInitial(() -> new FlatBVH.Stack(size));
+    }
+
+    /**
+     * Adds a node to the arrays, growing them if needed
+     *
+     * @return the index of the node
+     */
+    private int addNode() {
+        if (2 * (nodeCount + 1) > nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+            bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+        }
+        return nodeCount++;
+    }
+
+    /**
+     * Builds the subtree over a range of the faces, in depth-first order
+     *
+     * @param centers the centers of the faces
+     * @param start   the first position of the range in the order
+     * @param end     the position after the last one of the range
+     * @param level   the level of the node in the tree
+     * @return the index of the root of the subtree
+     */
+    private int build(double[] centers, int start, int end, int level) {
+        depth = Math.max(depth, level);
+        int node = addNode();
+        int count = end - start;
+
+        // The box of the faces and the box of their centers
+        double[] centerBox = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = start; i < end; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                double c = centers[3 * order[i] + axis];
+                centerBox[axis] = Math.min(centerBox[axis], c);
+                centerBox[axis + 3] = Math.max(centerBox[axis + 3], c);
+            }
+        leafBox(node, start, end);
+
+        int axis = 0;
+        for (int a = 1; a < 3; ++a)
+            if (centerBox[a + 3] - centerBox[a] > centerBox[axis + 3] - centerBox[axis])
+                axis = a;
+        double min = centerBox[axis], extent = centerBox[axis + 3] - min;
+        int mid = -1;
+        if (count > MIN_LEAF && extent > 0)
+            mid = split(centers, start, end, node, axis, min, extent);
+        if (mid == -1 && count > MAX_LEAF)
+            mid = (start + end) / 2; // The centers are on one point - any split is as good
+        if (mid == -1) {
+            nodes[2 * node] = start;
+            nodes[2 * node + 1] = count;
+            return node;
+        }
+
+        build(centers, start, mid, level + 1);
+        int right = build(centers, mid, end, level + 1); // Before the array is read - the build may grow it
+        nodes[2 * node] = right;
+        nodes[2 * node + 1] = 0;
+        return node;
+    }
+
+    /**
+     * Finds the cheapest split of a node among the bins of the centers on an axis (by the surface area heuristic),
+     * and partitions the faces of the node by it
+     *
+     * @param centers the centers of the faces
+     * @param start   the first position of the faces of the node in the order
+     * @param end     the position after the last one
+     * @param node    the node (its box is already set)
+     * @param axis    the axis of the bins
+     * @param min     the smallest center on the axis
+     * @param extent  the extent of the centers on the axis
+     * @return the position of the first face of the right child, -1 if the node is cheaper as a leaf
+     */
+    private int split(double[] centers, int start, int end, int node, int axis, double min, double extent) {
+        int[] binCounts = new int[BINS];
+        double[] binBounds = new double[6 * BINS];
+        for (int b = 0; b < BINS; ++b)
+            emptyBox(binBounds, 6 * b);
+        double scale = BINS / extent;
+        for (int i = start; i < end; ++i) {
+            int face = order[i];
+            int b = Math.min(BINS - 1, (int) ((centers[3 * face + axis] - min) * scale));
+            ++binCounts[b];
+            growByFace(binBounds, 6 * b, face);
+        }
+
+        // The area and the count of the bins on the left of every split, and then the cost with the right side
+        double[] leftAreas = new double[BINS];
+        int[] leftCounts = new int[BINS];
+        double[] box = new double[6];
+        emptyBox(box, 0);
+        int running = 0;
+        for (int b = 0; b < BINS - 1; ++b) {
+            union(box, 0, binBounds, 6 * b);
+            running += binCounts[b];
+            leftAreas[b] = area(box, 0);
+            leftCounts[b] = running;
+        }
+        emptyBox(box, 0);
+        running = 0;
+        double bestCost = Double.POSITIVE_INFINITY;
+        int best = -1;
+        for (int b = BINS - 1; b > 0; --b) {
+            union(box, 0, binBounds, 6 * b);
+            running += binCounts[b];
+            if (running == 0 || leftCounts[b - 1] == 0)
+                continue;
+            double cost = leftAreas[b - 1] * leftCounts[b - 1] + area(box, 0) * running;
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = b;
+            }
+        }
+        int count = end - start;
+        double parentArea = area(bounds, 6 * node);
+        if (best == -1 || count <= MAX_LEAF && parentArea > 0 && TRAVERSAL_COST + bestCost / parentArea >= count)
+            return -1;
+
+        // Partition the order: the faces of the bins before the best split first
+        int i = start, j = end - 1;
+        while (i <= j) {
+            int face = order[i];
+            if (Math.min(BINS - 1, (int) ((centers[3 * face + axis] - min) * scale)) < best)
+                ++i;
+            else {
+                order[i] = order[j];
+                order[j--] = face;
+            }
+        }
+        return i == start || i == end ? -1 : i;
+    }
+
+    /**
+     * Sets the box of a node to the box of a range of the faces
+     *
+     * @param node  the node
+     * @param start the first position of the range in the order
+     * @param end   the position after the last one
+     */
+    private void leafBox(int node, int start, int end) {
+        emptyBox(bounds, 6 * node);
+        for (int i = start; i < end; ++i)
+            growByFace(bounds, 6 * node, order[i]);
+    }
+
+    /**
+     * Makes a box empty (every minimum at infinity and every maximum at minus infinity)
+     *
+     * @param box    the array of the box
+     * @param offset the index of the box in the array
+     */
+    private static void emptyBox(double[] box, int offset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            box[offset + axis] = Double.POSITIVE_INFINITY;
+            box[offset + axis + 3] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Grows a box to contain the vertices of a face
+     *
+     * @param box    the array of the box
+     * @param offset the index of the box in the array
+     * @param face   the face
+     */
+    private void growByFace(double[] box, int offset, int face) {
+        for (int k = 0; k < 3; ++k) {
+            int vertex = 3 * indices[3 * face + k];
+            for (int axis = 0; axis < 3; ++axis) {
+                double c = vertices[vertex + axis];
+                if (c < box[offset + axis])
+                    box[offset + axis] = c;
+                if (c > box[offset + axis + 3])
+                    box[offset + axis + 3] = c;
+            }
+        }
+    }
+
+    /**
+     * Grows a box to contain another box
+     *
+     * @param box         the array of the box that grows
+     * @param offset      the index of the box in its array
+     * @param other       the array of the other box
+     * @param otherOffset the index of the other box in its array
+     */
+    private static void union(double[] box, int offset, double[] other, int otherOffset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            box[offset + axis] = Math.min(box[offset + axis], other[otherOffset + axis]);
+            box[offset + axis + 3] = Math.max(box[offset + axis + 3], other[otherOffset + axis + 3]);
+        }
+    }
+
+    /**
+     * Calculates the surface area of a box (0 for an empty box)
+     *
+     * @param box    the array of the box
+     * @param offset the index of the box in the array
+     * @return the surface area
+     */
+    private static double area(double[] box, int offset) {
+        double dx = box[offset + 3] - box[offset], dy = box[offset + 4] - box[offset + 1];
+        double dz = box[offset + 5] - box[offset + 2];
+        return dx < 0 ? 0 : 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Calculates the boxes again after vertices of the mesh have moved, from the leaves up.
+     * A node comes before its children in the arrays, so the nodes are visited from the last to the first.
+     */
+    void refit() {
+        for (int node = nodeCount - 1; node >= 0; --node) {
+            int first = nodes[2 * node], count = nodes[2 * node + 1];
+            if (count != 0)
+                leafBox(node, first, first + count);
+            else { // The left child is the next node and the right child is the first
+                System.arraycopy(bounds, 6 * (node + 1), bounds, 6 * node, 6);
+                union(bounds, 6 * node, bounds, 6 * first);
+            }
+        }
+        faces = null;
+    }
+
+    /**
+     * Getter of the depth of the tree
+     *
+     * @return the depth of the tree
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter of the number of the nodes
+     *
+     * @return the number of the nodes
+     */
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the faces in the order of the leaves as arrays for the SIMD kernel, made on the first use
+     *
+     * @return the faces
+     */
+    private TriangleArrays getFaces() {
+        TriangleArrays result = faces;
+        if (result == null) {
+            result = new TriangleArrays(order.length, new Intersectable[0]);
+            for (int i = 0; i < order.length; ++i) {
+                int face = order[i];
+                int a = 3 * indices[3 * face], b = 3 * indices[3 * face + 1], c = 3 * indices[3 * face + 2];
+                result.set(i, vertices[a], vertices[a + 1], vertices[a + 2], vertices[b], vertices[b + 1],
+                        vertices[b + 2], vertices[c], vertices[c + 1], vertices[c + 2]);
+            }
+            faces = result;
+        }
+        return result;
+    }
+
+    /**
+     * Finds all the faces that a ray crosses
+     *
+     * @param ray the ray
+     * @param ox  x of the ray head
+     * @param oy  y of the ray head
+     * @param oz  z of the ray head
+     * @param dx  x of the ray direction
+     * @param dy  y of the ray direction
+     * @param dz  z of the ray direction
+     * @return the intersection points, null if there are none
+     */
+    List<GeoPoint> findAll(Ray ray, double ox, double oy, double oz, double dx, double dy, double dz) {
+        if (nodeCount == 0)
+            return null;
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+        List<GeoPoint> result = null;
+        int[] stack = stacks.get().slots;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (BoundingBox.entry(bounds, 6 * node, ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY)
+                    == Double.POSITIVE_INFINITY)
+                continue;
+            int first = nodes[2 * node], count = nodes[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = first;
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = first; i < first + count; ++i) {
+                double t = mesh.intersect(order[i], ox, oy, oz, dx, dy, dz);
+                if (t > 0) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.add(new GeoPoint(new TriangleMesh.Face(mesh, order[i]), ray.getPoint(t)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the closest face that a ray crosses before a distance, by visiting the nodes from front to back.
+     * Only the distance is kept while searching, so nothing is allocated.
+     *
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param dx          x of the ray direction
+     * @param dy          y of the ray direction
+     * @param dz          z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the index of the closest face, -1 if the ray crosses none
+     */
+    int findClosest(double ox, double oy, double oz, double dx, double dy, double dz, double maxDistance) {
+        if (nodeCount == 0)
+            return -1;
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+        double rootEntry = BoundingBox.entry(bounds, 0, ox, oy, oz, ix, iy, iz, maxDistance);
+        if (rootEntry == Double.POSITIVE_INFINITY)
+            return -1;
+
+        // The faces of the leaves are intersected in one pass when the SIMD kernel is in use
+        TriangleArrays arrays = Simd.isEnabled() ? getFaces() : null;
+        TriangleKernel kernel = Simd.kernel();
+
+        FlatBVH.Stack stack = stacks.get();
+        int[] stackNodes = stack.slots;
+        double[] entries = stack.entries;
+        stackNodes[0] = 0;
+        entries[0] = rootEntry;
+        int top = 1;
+        int closest = -1;
+        while (top > 0) {
+            int node = stackNodes[--top];
+            // A closer face was found after the node was pushed
+            if (entries[top] >= maxDistance)
+                continue;
+            int first = nodes[2 * node], count = nodes[2 * node + 1];
+            if (count != 0) {
+                if (arrays != null) {
+                    int i = kernel.closest(arrays, first, first + count, ox, oy, oz, dx, dy, dz, maxDistance);
+                    if (i != -1) {
+                        closest = order[i];
+                        maxDistance = TriangleKernel.distance(arrays, i, ox, oy, oz, dx, dy, dz);
+                    }
+                    continue;
+                }
+                for (int i = first; i < first + count; ++i) {
+                    double t = mesh.intersect(order[i], ox, oy, oz, dx, dy, dz);
+                    if (t > 0 && t < maxDistance) {
+                        maxDistance = t;
+                        closest = order[i];
+                    }
+                }
+                continue;
+            }
+
+            int left = node + 1, right = first;
+            double leftEntry = BoundingBox.entry(bounds, 6 * left, ox, oy, oz, ix, iy, iz, maxDistance);
+            double rightEntry = BoundingBox.entry(bounds, 6 * right, ox, oy, oz, ix, iy, iz, maxDistance);
+            // Push the farther child first so the nearer one is visited first
+            if (leftEntry <= rightEntry) {
+                if (rightEntry != Double.POSITIVE_INFINITY) {
+                    stackNodes[top] = right;
+                    entries[top++] = rightEntry;
+                }
+                if (leftEntry != Double.POSITIVE_INFINITY) {
+                    stackNodes[top] = left;
+                    entries[top++] = leftEntry;
+                }
+            } else {
+                if (leftEntry != Double.POSITIVE_INFINITY) {
+                    stackNodes[top] = left;
+                    entries[top++] = leftEntry;
+                }
+                if (rightEntry != Double.POSITIVE_INFINITY) {
+                    stackNodes[top] = right;
+                    entries[top++] = rightEntry;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Accumulates the transparency of the faces that a ray crosses before a distance, in any order of the nodes.
+     * The traversal stops when the transparency is zero.
+     *
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param dx          x of the ray direction
+     * @param dy          y of the ray direction
+     * @param dz          z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    Double3 findTransparency(double ox, double oy, double oz, double dx, double dy, double dz, double maxDistance,
+                             Double3 ktr) {
+        if (nodeCount == 0)
+            return ktr;
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+        int[] stack = stacks.get().slots;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (BoundingBox.entry(bounds, 6 * node, ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            int first = nodes[2 * node], count = nodes[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = first;
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = first; i < first + count; ++i) {
+                ktr = mesh.attenuate(ktr, maxDistance, mesh.intersect(order[i], ox, oy, oz, dx, dy, dz));
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Finds a face that a point lays on, by visiting only the nodes whose boxes hold the point
+     *
+     * @param x      x of the point
+     * @param y      y of the point
+     * @param z      z of the point
+     * @param onFace tells whether the point lays on a face
+     * @return the index of the first face that the point lays on, -1 if there is none
+     */
+    int findFace(double x, double y, double z, IntPredicate onFace) {
+        if (nodeCount == 0)
+            return -1;
+        // The point is on the side of a box if it is on an edge of a face, so a bit of rounding is allowed
+        double tolerance = 1e-9 * (1 + Math.max(Math.abs(x), Math.max(Math.abs(y), Math.abs(z))));
+        int[] stack = stacks.get().slots;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = 6 * node;
+            if (x < bounds[b] - tolerance || y < bounds[b + 1] - tolerance || z < bounds[b + 2] - tolerance
+                    || x > bounds[b + 3] + tolerance || y > bounds[b + 4] + tolerance || z > bounds[b + 5] + tolerance)
+                continue;
+            int first = nodes[2 * node], count = nodes[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = first;
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = first; i < first + count; ++i)
+                if (onFace.test(order[i]))
+                    return order[i];
+        }
+        return -1;
+    }
+}
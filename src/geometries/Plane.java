@@ -1,9 +1,11 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.security.MessageDigest;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -76,6 +78,21 @@ public class Plane extends Geometry {
                 ", normal=" + normal;
     }
 
+    /**
+     * A plane is infinite, so it has no bounding box
+     *
+     * @return null
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        fingerprint(digest, q0.getX(), q0.getY(), q0.getZ(), normal.getX(), normal.getY(), normal.getZ());
+    }
+
     /**
      * Calculates and returns the normal of the Plane
      *
@@ -95,6 +112,35 @@ public class Plane extends Geometry {
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        double t = distance(ray);
+
+        // If t>0 the ray intersects the plane
+        if (t > 0) {
+            return List.of(new GeoPoint(this, ray.getPoint(t)));
+        }
+
+        // Else - there are no intersections
+        return null;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        double t = distance(ray);
+        return t > 0 && t < maxDistance ? new GeoPoint(this, ray.getPoint(t)) : null;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        return attenuate(ktr, maxDistance, distance(ray));
+    }
+
+    /**
+     * Calculates the distance from the head of the ray to the plane along the ray
+     *
+     * @param ray the ray
+     * @return the distance, or 0 if the ray doesn't intersect the plane
+     */
+    double distance(Ray ray) {
 
         Point P0 = ray.getP0();
         Vector v = ray.getDirection();
@@ -104,28 +150,20 @@ public class Plane extends Geometry {
 
         // If the ray parallel to the plane - there are no intersections
         if (isZero(nv)) {
-            return null;
+            return 0;
         }
 
         // If the p0 is the reference point - there are no intersections
         if (q0.equals(P0)) {
-            return null;
+            return 0;
         }
 
         double numerator = n.dotProduct(q0.subtract(P0)); // numerator = n*Q0P0
 
         // In this case P0 is on the plane - there are no intersections
         if (isZero(numerator)) {
-            return null;
-        }
-        double t = alignZero(numerator / nv); // t = numerator/nv
-
-        // If t>0 the ray intersects the plane
-        if (t > 0) {
-            return List.of(new GeoPoint(this, P0.add(v.scale(t))));
+            return 0;
         }
-
-        // Else - there are no intersections
-        return null;
+        return alignZero(numerator / nv); // t = numerator/nv
     }
 }
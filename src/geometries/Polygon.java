@@ -1,9 +1,12 @@
 
 package geometries;
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
+import java.security.MessageDigest;
 import java.util.List;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -17,6 +20,99 @@ public class Polygon extends Geometry {
    /** Associated plane in which the polygon lays */
    protected final Plane       plane;
    private final int           size;
+   /** The bounding box of the polygon */
+   private final BoundingBox   box;
+   /** The projection of the polygon for its intersections, made on the first ray (a triangle never makes it) */
+   private Projection          projection = null;
+
+   /** The projection of a polygon to 2D with the equations of its edges. It is immutable, so a polygon that two
+    * threads trace at once may make it twice, and either one is right. */
+   private static final class Projection {
+      /** The normal of the plane and its distance from the origin (n*q0), kept as doubles */
+      private final double   nx, ny, nz, nd;
+      /** The axis that is dropped when the polygon is projected to 2D - the largest component of the normal */
+      private final int      dropped;
+      /** The edge equations a*u + b*v + c of the projected polygon - positive inside of the polygon */
+      private final double[] edgeA, edgeB, edgeC;
+
+      /** Projects the polygon on the plane of the two axes where it is the largest, and calculates the
+       * equations of the projected edges
+       * @param vertices the vertices of the polygon
+       * @param n        the normal of the polygon */
+      private Projection(List<Point> vertices, Vector n) {
+         int size = vertices.size();
+         nx       = n.getX();
+         ny       = n.getY();
+         nz       = n.getZ();
+         Point q0 = vertices.get(0);
+         nd       = nx * q0.getX() + ny * q0.getY() + nz * q0.getZ();
+         double ax = Math.abs(nx), ay = Math.abs(ny), az = Math.abs(nz);
+         dropped  = ax >= ay && ax >= az ? 0 : ay >= az ? 1 : 2;
+         edgeA    = new double[size];
+         edgeB    = new double[size];
+         edgeC    = new double[size];
+         for (int i = 0; i < size; ++i) {
+            Point p1 = vertices.get(i), p2 = vertices.get((i + 1) % size);
+            double u1 = u(p1.getX(), p1.getY(), p1.getZ()), v1 = v(p1.getX(), p1.getY(), p1.getZ());
+            double u2 = u(p2.getX(), p2.getY(), p2.getZ()), v2 = v(p2.getX(), p2.getY(), p2.getZ());
+            edgeA[i] = v1 - v2;
+            edgeB[i] = u2 - u1;
+            edgeC[i] = u1 * v2 - u2 * v1;
+         }
+         // The third vertex is inside of the first edge in a convex polygon - turn the edges if it is negative
+         Point p3 = vertices.get(2);
+         if (edgeA[0] * u(p3.getX(), p3.getY(), p3.getZ()) + edgeB[0] * v(p3.getX(), p3.getY(), p3.getZ())
+               + edgeC[0] < 0)
+            for (int i = 0; i < size; ++i) {
+               edgeA[i] = -edgeA[i];
+               edgeB[i] = -edgeB[i];
+               edgeC[i] = -edgeC[i];
+            }
+      }
+
+      /** Calculates the distance from a head to the polygon along a direction: one test with the plane, and then
+       * the point is projected to 2D and tested against the equations of the edges
+       * @param  x0 the x coordinate of the head
+       * @param  y0 the y coordinate of the head
+       * @param  z0 the z coordinate of the head
+       * @param  dx the x coordinate of the direction
+       * @param  dy the y coordinate of the direction
+       * @param  dz the z coordinate of the direction
+       * @return    the distance, or 0 if the ray doesn't intersect the polygon */
+      private double distance(double x0, double y0, double z0, double dx, double dy, double dz) {
+         // If the ray is parallel to the plane or starts on it - there is no intersection
+         double nv = nx * dx + ny * dy + nz * dz;
+         if (isZero(nv)) return 0;
+         double numerator = nd - (nx * x0 + ny * y0 + nz * z0);
+         if (isZero(numerator)) return 0;
+         double t = alignZero(numerator / nv);
+         if (t <= 0) return 0;
+
+         double x = x0 + t * dx, y = y0 + t * dy, z = z0 + t * dz;
+         double u = u(x, y, z), v = v(x, y, z);
+         for (int i = 0; i < edgeA.length; ++i)
+            if (alignZero(edgeA[i] * u + edgeB[i] * v + edgeC[i]) <= 0) return 0;
+         return t;
+      }
+
+      /** The first coordinate of a point projected on the plane of the two axes that are not dropped
+       * @param  x the x coordinate
+       * @param  y the y coordinate
+       * @param  z the z coordinate
+       * @return   the first projected coordinate */
+      private double u(double x, double y, double z) {
+         return dropped == 0 ? y : dropped == 1 ? z : x;
+      }
+
+      /** The second coordinate of a point projected on the plane of the two axes that are not dropped
+       * @param  x the x coordinate
+       * @param  y the y coordinate
+       * @param  z the z coordinate
+       * @return   the second projected coordinate */
+      private double v(double x, double y, double z) {
+         return dropped == 0 ? z : dropped == 1 ? x : y;
+      }
+   }
 
    /** Polygon constructor based on vertices list. The list must be ordered by edge
     * path. The polygon must be convex.
@@ -43,14 +139,16 @@ public class Polygon extends Geometry {
          throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
       this.vertices = List.of(vertices);
       size          = vertices.length;
+      box           = new BoundingBox(vertices);
 
       // Generate the plane according to the first three vertices and associate the
       // polygon with this plane.
       // The plane holds the invariant normal (orthogonal unit) vector to the polygon
       plane         = new Plane(vertices[0], vertices[1], vertices[2]);
+      Vector  n        = plane.getNormal();
+
       if (size == 3) return; // no need for more tests for a Triangle
 
-      Vector  n        = plane.getNormal();
       // Subtracting any subsequent points will throw an IllegalArgumentException
       // because of Zero Vector if they are in the same point
       Vector  edge1    = vertices[vertices.length - 1].subtract(vertices[vertices.length - 2]);
@@ -78,13 +176,77 @@ public class Polygon extends Geometry {
       }
    }
 
+   @Override
+   public BoundingBox getBoundingBox() { return box; }
+
+   @Override
+   public void fingerprint(MessageDigest digest) {
+      double[] coordinates = new double[3 * size];
+      for (int i = 0; i < size; ++i) {
+         Point vertex = vertices.get(i);
+         coordinates[3 * i] = vertex.getX();
+         coordinates[3 * i + 1] = vertex.getY();
+         coordinates[3 * i + 2] = vertex.getZ();
+      }
+      fingerprint(digest, coordinates);
+   }
+
    @Override
    public Vector getNormal(Point point) {
       return plane.getNormal(); }
 
    @Override
    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+      double t = distance(ray);
+      return t > 0 ? List.of(new GeoPoint(this, ray.getPoint(t))) : null;
+   }
+
+   @Override
+   protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+      // The point is created only for a hit that is closer than the max distance
+      double t = distance(ray);
+      return t > 0 && t < maxDistance ? new GeoPoint(this, ray.getPoint(t)) : null;
+   }
+
+   @Override
+   protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+      return attenuate(ktr, maxDistance, distance(ray));
+   }
+
+   @Override
+   protected void findClosestGeoIntersectionsHelper(RayPacket packet, int mask) {
+      // The rays of the packet are tested on their arrays, and a point is created only for a closer hit
+      for (int rest = mask; rest != 0; rest &= rest - 1) {
+         int i = Integer.numberOfTrailingZeros(rest);
+         double t = distance(packet.ox[i], packet.oy[i], packet.oz[i], packet.dx[i], packet.dy[i], packet.dz[i]);
+         if (t > 0 && t < packet.maxDistances[i])
+            packet.hit(i, new GeoPoint(this, packet.rays[i].getPoint(t)));
+      }
+   }
+
+   /** Calculates the distance from the head of the ray to the polygon: one test with the plane, and then the
+    * point is projected to 2D and tested against the equations of the edges (made on the first ray). A ray that
+    * passes on an edge or a vertex doesn't intersect the polygon.
+    * @param  ray the ray
+    * @return     the distance, or 0 if the ray doesn't intersect the polygon */
+   double distance(Ray ray) {
+      Point  p0 = ray.getP0();
+      Vector dir = ray.getDirection();
+      return distance(p0.getX(), p0.getY(), p0.getZ(), dir.getX(), dir.getY(), dir.getZ());
+   }
 
-      return null;
+   /** Calculates the distance from a head to the polygon along a direction, on doubles only (for ray packets)
+    * @param  x0 the x coordinate of the head
+    * @param  y0 the y coordinate of the head
+    * @param  z0 the z coordinate of the head
+    * @param  dx the x coordinate of the direction
+    * @param  dy the y coordinate of the direction
+    * @param  dz the z coordinate of the direction
+    * @return    the distance, or 0 if the ray doesn't intersect the polygon */
+   double distance(double x0, double y0, double z0, double dx, double dy, double dz) {
+      Projection result = projection;
+      if (result == null)
+         projection = result = new Projection(vertices, plane.getNormal());
+      return result.distance(x0, y0, z0, dx, dy, dz);
    }
 }
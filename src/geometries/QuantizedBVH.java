@@ -0,0 +1,454 @@
+package geometries;
+
+import geometries.BVH.Node;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.security.MessageDigest;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class QuantizedBVH is a bounding volume hierarchy packed into arrays like {@link FlatBVH}, with the boxes of
+ * the children compressed to 8 or 16 bits for every coordinate, relative to the box of their parent, for very
+ * big meshes where the boxes of the nodes take more memory than the triangles.
+ * A coordinate is the number of the step of the parent's extent, so a child box is decoded from its parent's
+ * (decoded) box while the ray goes down the tree. The steps are rounded outwards and checked by the same
+ * decoding that the traversal uses, so a decoded box always contains the real one and no hit is missed -
+ * the boxes are only a bit bigger, so the traversal visits a few more nodes.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class QuantizedBVH extends Intersectable {
+    private final int levels; // The largest quantized coordinate (the number of steps of a parent's extent)
+    private final double inverseLevels; // 1 / levels, to find the size of a step
+    private final Intersectable[] unbounded; // The intersectables without a bounding box
+    private final Intersectable[] items; // The bounded intersectables in the order of the leaves
+    private final byte[] bytes; // The 8-bit child boxes of every inner node, null in 16 bits
+    private final char[] chars; // The 16-bit child boxes of every inner node, null in 8 bits
+    private final int[] slots; // Every slot: the index of an inner node and 0, or the first item and the count of a leaf
+    private final BoundingBox box; // The box of the root, null if there are no bounded intersectables
+    private final ThreadLocal<Stack> stacks; // The traversal stack of every thread
+
+    private int innerCount = 0; // The number of the inner nodes, while packing
+    private int itemCount = 0; // The number of the items placed in leaves, while packing
+    private int depth = 0; // The depth of the tree
+
+    /**
+     * Class Stack is the traversal stack of a thread - the slots to visit with their decoded boxes and the
+     * distances where the ray enters them
+     */
+    private static class Stack {
+        final int[] slots;
+        final double[] entries;
+        final double[] boxes; // 6 coordinates for every slot in the stack
+        final double[] children = new double[12]; // The decoded boxes of the children of the current node
+
+        /**
+         * Constructor
+         *
+         * @param size the maximal number of the slots in the stack
+         */
+        Stack(int size) {
+            slots = new int[size];
+            entries = new double[size];
+            boxes = new double[6 * size];
+        }
+    }
+
+    /**
+     * Constructor that builds the hierarchy over the given intersectables by the surface area heuristic
+     *
+     * @param intersectables the intersectables to put in the hierarchy
+     * @param bits           the bits of a coordinate - 8 or 16
+     * @throws IllegalArgumentException if the bits are not 8 or 16
+     */
+    public QuantizedBVH(List<Intersectable> intersectables, int bits) {
+        this(new BVH(intersectables), bits);
+    }
+
+    /**
+     * Constructor that packs a hierarchy that was already built
+     *
+     * @param hierarchy the hierarchy
+     * @param bits      the bits of a coordinate - 8 or 16
+     * @throws IllegalArgumentException if the bits are not 8 or 16
+     */
+    public QuantizedBVH(BVH hierarchy, int bits) {
+        if (bits != 8 && bits != 16)
+            throw new IllegalArgumentException("A quantized coordinate must have 8 or 16 bits");
+        levels = (1 << bits) - 1;
+        inverseLevels = 1.0 / levels;
+        unbounded = hierarchy.getUnbounded();
+        Node root = hierarchy.getRoot();
+        if (root == null) {
+            items = new Intersectable[0];
+            bytes = null;
+            chars = null;
+            slots = new int[0];
+            box = null;
+            stacks = null;
+            return;
+        }
+
+        int[] counts = FlatBVH.count(root);
+        items = new Intersectable[counts[1]];
+        slots = new int[2 + 4 * counts[0]];
+        bytes = bits == 8 ? new byte[12 * counts[0]] : null;
+        chars = bits == 16 ? new char[12 * counts[0]] : null;
+        box = root.box;
+        pack(root, 0, new double[]{box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ}, 1);
+        int size = depth + 1;
+        stacks = ThreadLocal.withInitial(() -> new Stack(size));
+    }
+
+    /**
+     * Packs a subtree into the arrays, in depth-first order
+     *
+     * @param node    the root of the subtree
+     * @param slot    the slot of the node
+     * @param decoded the decoded box of the node (that contains its real box)
+     * @param level   the level of the node in the tree
+     */
+    private void pack(Node node, int slot, double[] decoded, int level) {
+        depth = Math.max(depth, level);
+        if (node.isLeaf()) {
+            slots[slot] = itemCount;
+            slots[slot + 1] = node.items.length;
+            System.arraycopy(node.items, 0, items, itemCount, node.items.length);
+            itemCount += node.items.length;
+            return;
+        }
+        int inner = innerCount++;
+        slots[slot] = inner;
+        slots[slot + 1] = 0;
+        double[] left = new double[6], right = new double[6];
+        encode(node.left.box, decoded, 12 * inner, left);
+        encode(node.right.box, decoded, 12 * inner + 6, right);
+        pack(node.left, 2 + 4 * inner, left, level + 1);
+        pack(node.right, 4 + 4 * inner, right, level + 1);
+    }
+
+    /**
+     * Quantizes the box of a child relative to the decoded box of its parent, rounding outwards
+     *
+     * @param child   the box of the child
+     * @param parent  the decoded box of the parent
+     * @param offset  the index of the child's coordinates in the quantized arrays
+     * @param decoded the array to fill with the decoded box of the child
+     */
+    private void encode(BoundingBox child, double[] parent, int offset, double[] decoded) {
+        for (int axis = 0; axis < 3; ++axis) {
+            double min = parent[axis], max = parent[axis + 3];
+            double step = step(min, max);
+            int low = 0, high = levels;
+            if (step > 0) {
+                low = (int) Math.max(0, Math.min(levels, Math.floor((child.min(axis) - min) / step)));
+                high = (int) Math.max(0, Math.min(levels, Math.ceil((child.max(axis) - min) / step)));
+            }
+            // Fix the rounding of the division by the decoding itself
+            while (low > 0 && min + low * step > child.min(axis))
+                --low;
+            while (high < levels && min + high * step < child.max(axis))
+                ++high;
+            store(offset + axis, low);
+            store(offset + axis + 3, high);
+            decoded[axis] = min + low * step;
+            decoded[axis + 3] = min + high * step;
+        }
+    }
+
+    /**
+     * Calculates the size of a step of a parent's extent. The step is rounded up, so that the last step
+     * is never before the parent's maximum.
+     *
+     * @param min the minimal coordinate of the parent
+     * @param max the maximal coordinate of the parent
+     * @return the size of a step
+     */
+    private double step(double min, double max) {
+        double step = (max - min) * inverseLevels;
+        while (min + levels * step < max)
+            step = Math.nextUp(step);
+        return step;
+    }
+
+    /**
+     * Stores a quantized coordinate
+     *
+     * @param index the index of the coordinate
+     * @param value the quantized coordinate
+     */
+    private void store(int index, int value) {
+        if (chars != null)
+            chars[index] = (char) value;
+        else
+            bytes[index] = (byte) value;
+    }
+
+    /**
+     * Decodes the boxes of the two children of an inner node
+     *
+     * @param inner    the index of the inner node
+     * @param boxes    the array of the decoded box of the node
+     * @param offset   the index of the node's box in the array
+     * @param children the array to fill with the boxes of the left and the right children
+     */
+    private void decodeChildren(int inner, double[] boxes, int offset, double[] children) {
+        int base = 12 * inner;
+        for (int axis = 0; axis < 3; ++axis) {
+            double min = boxes[offset + axis], max = boxes[offset + axis + 3];
+            double step = step(min, max);
+            int index = base + axis;
+            if (chars != null) {
+                children[axis] = min + chars[index] * step;
+                children[axis + 3] = min + chars[index + 3] * step;
+                children[axis + 6] = min + chars[index + 6] * step;
+                children[axis + 9] = min + chars[index + 9] * step;
+            } else {
+                children[axis] = min + (bytes[index] & 0xFF) * step;
+                children[axis + 3] = min + (bytes[index + 3] & 0xFF) * step;
+                children[axis + 6] = min + (bytes[index + 6] & 0xFF) * step;
+                children[axis + 9] = min + (bytes[index + 9] & 0xFF) * step;
+            }
+        }
+    }
+
+    /**
+     * Pushes a slot with its box to the stack
+     *
+     * @param stack  the stack
+     * @param top    the size of the stack
+     * @param slot   the slot
+     * @param entry  the distance where the ray enters the box
+     * @param box    the array of the box
+     * @param offset the index of the box in the array
+     * @return the new size of the stack
+     */
+    private static int push(Stack stack, int top, int slot, double entry, double[] box, int offset) {
+        stack.slots[top] = slot;
+        stack.entries[top] = entry;
+        System.arraycopy(box, offset, stack.boxes, 6 * top, 6);
+        return top + 1;
+    }
+
+    /**
+     * Pushes the root with its box to an empty stack
+     *
+     * @param stack the stack
+     * @param entry the distance where the ray enters the box
+     * @return the new size of the stack
+     */
+    private int pushRoot(Stack stack, double entry) {
+        stack.slots[0] = 0;
+        stack.entries[0] = entry;
+        stack.boxes[0] = box.minX;
+        stack.boxes[1] = box.minY;
+        stack.boxes[2] = box.minZ;
+        stack.boxes[3] = box.maxX;
+        stack.boxes[4] = box.maxY;
+        stack.boxes[5] = box.maxZ;
+        return 1;
+    }
+
+    /**
+     * Calculates the memory of the nodes (the root box, the quantized boxes and the slots, without the intersectables)
+     *
+     * @return the number of bytes
+     */
+    long getNodesBytes() {
+        long quantized = chars != null ? 2L * chars.length : bytes == null ? 0 : bytes.length;
+        return 48 + quantized + 4L * slots.length;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.length != 0 ? null : box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        digest(digest, getClass().getName());
+        digest(digest, unbounded);
+        digest(digest, items);
+    }
+
+    /**
+     * Calculates and returns the intersection points between the ray and the intersectables in the hierarchy
+     *
+     * @param ray
+     * @return list of intersection points
+     */
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        List<GeoPoint> result = null;
+
+        for (Intersectable item : unbounded) {
+            List<GeoPoint> itemLst = item.findGeoIntersectionsHelper(ray);
+            if (itemLst != null) {
+                if (result == null)
+                    result = new LinkedList<>();
+                result.addAll(itemLst);
+            }
+        }
+        if (box == null)
+            return result;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        if (box.entry(ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY) == Double.POSITIVE_INFINITY)
+            return result;
+        Stack stack = stacks.get();
+        double[] children = stack.children;
+        int top = pushRoot(stack, 0);
+        while (top > 0) {
+            int slot = stack.slots[--top];
+            int first = slots[slot], count = slots[slot + 1];
+            if (count == 0) {
+                decodeChildren(first, stack.boxes, 6 * top, children);
+                int left = 2 + 4 * first;
+                if (BoundingBox.entry(children, 6, ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY)
+                        != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, left + 2, 0, children, 6);
+                if (BoundingBox.entry(children, 0, ox, oy, oz, ix, iy, iz, Double.POSITIVE_INFINITY)
+                        != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, left, 0, children, 0);
+                continue;
+            }
+            for (int i = first; i < first + count; ++i) {
+                List<GeoPoint> itemLst = items[i].findGeoIntersectionsHelper(ray);
+                if (itemLst != null) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.addAll(itemLst);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the closest intersection point by visiting the nodes from front to back.
+     * The distance shrinks with every point that is found, so nodes that start farther are never opened.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @return the closest intersection point, null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+
+        for (Intersectable item : unbounded) {
+            GeoPoint geoPoint = item.findClosestGeoIntersectionHelper(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(p0);
+            }
+        }
+        if (box == null)
+            return closest;
+
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        double rootEntry = box.entry(ox, oy, oz, ix, iy, iz, maxDistance);
+        if (rootEntry == Double.POSITIVE_INFINITY)
+            return closest;
+        Stack stack = stacks.get();
+        double[] children = stack.children;
+        int top = pushRoot(stack, rootEntry);
+        while (top > 0) {
+            int slot = stack.slots[--top];
+            // A closer point was found after the slot was pushed
+            if (stack.entries[top] >= maxDistance)
+                continue;
+            int first = slots[slot], count = slots[slot + 1];
+            if (count != 0) {
+                for (int i = first; i < first + count; ++i) {
+                    GeoPoint geoPoint = items[i].findClosestGeoIntersectionHelper(ray, maxDistance);
+                    if (geoPoint != null) {
+                        closest = geoPoint;
+                        maxDistance = geoPoint.point.distance(p0);
+                    }
+                }
+                continue;
+            }
+
+            decodeChildren(first, stack.boxes, 6 * top, children);
+            int left = 2 + 4 * first, right = left + 2;
+            double leftEntry = BoundingBox.entry(children, 0, ox, oy, oz, ix, iy, iz, maxDistance);
+            double rightEntry = BoundingBox.entry(children, 6, ox, oy, oz, ix, iy, iz, maxDistance);
+            // Push the farther child first so the nearer one is visited first
+            if (leftEntry <= rightEntry) {
+                if (rightEntry != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, right, rightEntry, children, 6);
+                if (leftEntry != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, left, leftEntry, children, 0);
+            } else {
+                if (leftEntry != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, left, leftEntry, children, 0);
+                if (rightEntry != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, right, rightEntry, children, 6);
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Accumulates the transparency of the blockers before a distance, in any order of the nodes.
+     * The traversal stops at the first opaque blocker.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the head of the ray
+     * @param ktr         the transparency factor accumulated so far
+     * @return the accumulated transparency factor
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        for (Intersectable item : unbounded) {
+            ktr = item.findTransparencyHelper(ray, maxDistance, ktr);
+            if (ktr.equals(Double3.ZERO))
+                return Double3.ZERO;
+        }
+        if (box == null)
+            return ktr;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = 1 / v.getX(), iy = 1 / v.getY(), iz = 1 / v.getZ();
+
+        if (box.entry(ox, oy, oz, ix, iy, iz, maxDistance) == Double.POSITIVE_INFINITY)
+            return ktr;
+        Stack stack = stacks.get();
+        double[] children = stack.children;
+        int top = pushRoot(stack, 0);
+        while (top > 0) {
+            int slot = stack.slots[--top];
+            int first = slots[slot], count = slots[slot + 1];
+            if (count == 0) {
+                decodeChildren(first, stack.boxes, 6 * top, children);
+                int left = 2 + 4 * first;
+                if (BoundingBox.entry(children, 6, ox, oy, oz, ix, iy, iz, maxDistance) != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, left + 2, 0, children, 6);
+                if (BoundingBox.entry(children, 0, ox, oy, oz, ix, iy, iz, maxDistance) != Double.POSITIVE_INFINITY)
+                    top = push(stack, top, left, 0, children, 0);
+                continue;
+            }
+            for (int i = first; i < first + count; ++i) {
+                ktr = items[i].findTransparencyHelper(ray, maxDistance, ktr);
+                if (ktr.equals(Double3.ZERO))
+                    return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+}
@@ -0,0 +1,224 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Class RayPacket is a small group of coherent rays (like the camera rays of a 2x2 or a 4x4 block of pixels) that
+ * are traced through the scene together. The heads and the directions of the rays are kept as arrays of doubles,
+ * and every ray has its own closest point so far and the distance of it.
+ * The rays that take part in a step are given as a mask of bits (bit i for ray i), so a structure tests a box
+ * once for all the rays that reach it and drops a subtree when all of them miss it. When all the rays start at one
+ * head (like camera rays) the whole packet is tested against a box at once - see {@link #mayHit}.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class RayPacket {
+    /** The maximal number of the rays in a packet (the bits of a mask) */
+    public static final int MAX_SIZE = 32;
+
+    final Ray[] rays; // The rays
+    final double[] ox, oy, oz; // The heads of the rays
+    final double[] dx, dy, dz; // The directions of the rays
+    final double[] ix, iy, iz; // The inverse of the directions (for the slab tests)
+    final double[] maxDistances; // The distance of the closest point of every ray so far
+    final GeoPoint[] closest; // The closest point of every ray so far
+
+    // Do all the rays start at the same head with the same signs of their directions - then the whole packet
+    // is tested against a box at once by the ranges of the inverse directions
+    private final boolean coherent;
+    private double ixMin = Double.POSITIVE_INFINITY, iyMin = Double.POSITIVE_INFINITY, izMin = Double.POSITIVE_INFINITY;
+    private double ixMax = Double.NEGATIVE_INFINITY, iyMax = Double.NEGATIVE_INFINITY, izMax = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor
+     *
+     * @param rays the rays of the packet
+     * @throws IllegalArgumentException if there are no rays or more than {@link #MAX_SIZE}
+     */
+    public RayPacket(Ray... rays) {
+        if (rays.length == 0 || rays.length > MAX_SIZE)
+            throw new IllegalArgumentException("A packet must have 1 to " + MAX_SIZE + " rays");
+        int n = rays.length;
+        this.rays = rays;
+        ox = new double[n];
+        oy = new double[n];
+        oz = new double[n];
+        dx = new double[n];
+        dy = new double[n];
+        dz = new double[n];
+        ix = new double[n];
+        iy = new double[n];
+        iz = new double[n];
+        maxDistances = new double[n];
+        closest = new GeoPoint[n];
+        for (int i = 0; i < n; ++i) {
+            Point p0 = rays[i].getP0();
+            Vector v = rays[i].getDirection();
+            ox[i] = p0.getX();
+            oy[i] = p0.getY();
+            oz[i] = p0.getZ();
+            dx[i] = v.getX();
+            dy[i] = v.getY();
+            dz[i] = v.getZ();
+            ix[i] = 1 / dx[i];
+            iy[i] = 1 / dy[i];
+            iz[i] = 1 / dz[i];
+            maxDistances[i] = Double.POSITIVE_INFINITY;
+            ixMin = Math.min(ixMin, ix[i]);
+            iyMin = Math.min(iyMin, iy[i]);
+            izMin = Math.min(izMin, iz[i]);
+            ixMax = Math.max(ixMax, ix[i]);
+            iyMax = Math.max(iyMax, iy[i]);
+            izMax = Math.max(izMax, iz[i]);
+        }
+
+        boolean same = sameSign(ixMin, ixMax) && sameSign(iyMin, iyMax) && sameSign(izMin, izMax);
+        for (int i = 1; i < n && same; ++i)
+            same = ox[i] == ox[0] && oy[i] == oy[0] && oz[i] == oz[0];
+        coherent = same;
+    }
+
+    /**
+     * Checks whether a range of inverse directions is finite and doesn't cross zero
+     *
+     * @param min the minimal inverse direction
+     * @param max the maximal inverse direction
+     * @return true if all the values in the range have the same sign
+     */
+    private static boolean sameSign(double min, double max) {
+        return Double.isFinite(min) && Double.isFinite(max) && (min > 0 || max < 0);
+    }
+
+    /**
+     * Getter of the number of the rays
+     *
+     * @return the number of the rays
+     */
+    public int size() {
+        return rays.length;
+    }
+
+    /**
+     * Getter of a ray
+     *
+     * @param i the index of the ray
+     * @return the ray
+     */
+    public Ray getRay(int i) {
+        return rays[i];
+    }
+
+    /**
+     * Getter of the closest point of a ray
+     *
+     * @param i the index of the ray
+     * @return the closest point found, null if the ray hits nothing
+     */
+    public GeoPoint getClosest(int i) {
+        return closest[i];
+    }
+
+    /**
+     * Returns the mask of all the rays of the packet
+     *
+     * @return the mask
+     */
+    int all() {
+        return rays.length == 32 ? -1 : (1 << rays.length) - 1;
+    }
+
+    /**
+     * Keeps a closer point of a ray
+     *
+     * @param i        the index of the ray
+     * @param geoPoint the point
+     */
+    void hit(int i, GeoPoint geoPoint) {
+        closest[i] = geoPoint;
+        maxDistances[i] = geoPoint.point.distance(rays[i].getP0());
+    }
+
+    /**
+     * Tests a box against some rays of the packet, each up to the distance of its closest point so far
+     *
+     * @param box  the box
+     * @param mask the rays to test
+     * @return the mask of the rays that hit the box
+     */
+    int hits(BoundingBox box, int mask) {
+        int result = 0;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int i = Integer.numberOfTrailingZeros(rest);
+            if (box.entry(ox[i], oy[i], oz[i], ix[i], iy[i], iz[i], maxDistances[i]) != Double.POSITIVE_INFINITY)
+                result |= 1 << i;
+        }
+        return result;
+    }
+
+    /**
+     * Tests a box against some rays of the packet in their order until one of them hits it. The rays before it are
+     * dropped, and the rays after it are kept without a test - they are tested again in the nodes below
+     *
+     * @param box  the box
+     * @param mask the rays to test
+     * @return the mask of the first ray that hits the box and the rays after it, 0 if all the rays miss the box
+     */
+    int firstHit(BoundingBox box, int mask) {
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int i = Integer.numberOfTrailingZeros(rest);
+            if (box.entry(ox[i], oy[i], oz[i], ix[i], iy[i], iz[i], maxDistances[i]) != Double.POSITIVE_INFINITY)
+                return rest;
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether the packet is coherent - all the rays start at the same head, and their directions have the same
+     * signs, so {@link #mayHit} can be used
+     *
+     * @return true if the packet is coherent
+     */
+    boolean isCoherent() {
+        return coherent;
+    }
+
+    /**
+     * Tests a box against some rays of a coherent packet at once. The distances of every slab are calculated by the
+     * ranges of the inverse directions of all the rays, so the test is conservative: it fails only if all the rays
+     * miss the box, and it may pass when they all miss it near a corner.
+     *
+     * @param box  the box
+     * @param mask the rays to test
+     * @return false if none of the rays hits the box before its closest point
+     */
+    boolean mayHit(BoundingBox box, int mask) {
+        double tFar = 0;
+        for (int rest = mask; rest != 0; rest &= rest - 1)
+            tFar = Math.max(tFar, maxDistances[Integer.numberOfTrailingZeros(rest)]);
+        double tNear = 0;
+        double o = ox[0];
+
+        // The slab of the near side is entered first by the rays - the positive directions enter it at the min side
+        double near = (ixMin > 0 ? box.minX : box.maxX) - o, far = (ixMin > 0 ? box.maxX : box.minX) - o;
+        tNear = Math.max(tNear, Math.min(near * ixMin, near * ixMax));
+        tFar = Math.min(tFar, Math.max(far * ixMin, far * ixMax));
+        if (tNear > tFar * BoundingBox.ROBUST) return false;
+
+        o = oy[0];
+        near = (iyMin > 0 ? box.minY : box.maxY) - o;
+        far = (iyMin > 0 ? box.maxY : box.minY) - o;
+        tNear = Math.max(tNear, Math.min(near * iyMin, near * iyMax));
+        tFar = Math.min(tFar, Math.max(far * iyMin, far * iyMax));
+        if (tNear > tFar * BoundingBox.ROBUST) return false;
+
+        o = oz[0];
+        near = (izMin > 0 ? box.minZ : box.maxZ) - o;
+        far = (izMin > 0 ? box.maxZ : box.minZ) - o;
+        tNear = Math.max(tNear, Math.min(near * izMin, near * izMax));
+        tFar = Math.min(tFar, Math.max(far * izMin, far * izMax));
+        return tNear <= tFar * BoundingBox.ROBUST;
+    }
+}
@@ -0,0 +1,91 @@
+package geometries;
+
+/**
+ * Class Simd is the runtime switch of the SIMD intersection of triangles (several triangles against one ray in one
+ * pass, on the Java Vector API). The SIMD kernel is used in the leaves of the hierarchies {@link BVH} and of the
+ * meshes {@link TriangleMesh}, and it finds exactly the points of the scalar code.
+ * The switch is an experiment, not a speedup: a leaf holds a few triangles (up to 4 in {@link BVH}, up to 8 in a
+ * mesh), less than the SIMD lanes fill, and the time of a ray is mostly the traversal of the nodes, so the
+ * benchmark (SimdBenchmark) measures about the same time with both kernels. The kernel pays off only where a ray
+ * tests many triangles one after another, which the hierarchies avoid.
+ * The Vector API is the incubator module jdk.incubator.vector, so the JVM must run with
+ * {@code --add-modules jdk.incubator.vector} - without it the SIMD kernel isn't available, and the scalar code
+ * is used even if the switch is on. The switch is off by default, and it can be turned on by
+ * {@code -Dgeometries.simd=true}.
+ * <p>
+ * The SIMD kernel ({@code geometries.VectorTriangleKernel}) is in a source root of its own, {@code simd}, and it is
+ * loaded by its name, so the code of {@code src} compiles by plain javac. The kernel is compiled after it, into the
+ * same classes directory, only where the module exists:
+ * <pre>
+ * javac -d out $(find src -name "*.java")
+ * javac --add-modules jdk.incubator.vector -cp out -d out simd/geometries/VectorTriangleKernel.java
+ * </pre>
+ * In IntelliJ the root is the module {@code simd}, which alone gets the option of the module, and which compiles into
+ * the classes directory of the main module, so the run configurations of the main module load the kernel (with
+ * the option in their VM options). When the second step is skipped (or fails on a JDK without the module) the
+ * classes run as they are with the scalar kernel.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public final class Simd {
+    private static final TriangleKernel SCALAR = new TriangleKernel(); // The kernel of one triangle after another
+    private static final TriangleKernel VECTOR = loadVectorKernel(); // The SIMD kernel, null if it isn't available
+
+    private static boolean enabled = Boolean.getBoolean("geometries.simd"); // Is the SIMD kernel in use
+
+    /**
+     * Empty private constructor to hide the public one
+     */
+    private Simd() {
+    }
+
+    /**
+     * Loads the SIMD kernel - its class refers to the Vector API, so it fails to load when the module is absent
+     *
+     * @return the kernel, null if it isn't available
+     */
+    private static TriangleKernel loadVectorKernel() {
+        try {
+            return (TriangleKernel) Class.forName("geometries.VectorTriangleKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the SIMD kernel can be used (the Vector API module is present)
+     *
+     * @return true if the SIMD kernel is available
+     */
+    public static boolean isAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Checks whether the SIMD kernel is in use - the switch is on and the kernel is available
+     *
+     * @return true if the triangles are intersected by the SIMD kernel
+     */
+    public static boolean isEnabled() {
+        return enabled && VECTOR != null;
+    }
+
+    /**
+     * Turns the SIMD kernel on or off
+     *
+     * @param enabled true to use the SIMD kernel when it is available
+     */
+    public static void setEnabled(boolean enabled) {
+        Simd.enabled = enabled;
+    }
+
+    /**
+     * Returns the kernel to intersect triangles by
+     *
+     * @return the SIMD kernel if it is in use, otherwise the scalar one
+     */
+    static TriangleKernel kernel() {
+        return enabled && VECTOR != null ? VECTOR : SCALAR;
+    }
+}
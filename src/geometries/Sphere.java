@@ -1,9 +1,11 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.security.MessageDigest;
 import java.util.List;
 import static primitives.Util.isZero;
 import static primitives.Util.alignZero;
@@ -15,6 +17,7 @@ import static primitives.Util.alignZero;
 public class Sphere extends RadialGeometry {
 
     private final Point center;
+    private final BoundingBox box; // The bounding box of the sphere
 
     /**
      * Constructor That initializes the sphere
@@ -25,6 +28,8 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center, double radius) {
         super(radius);
         this.center = center;
+        this.box = new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
     }
 
     /**
@@ -36,6 +41,16 @@ public class Sphere extends RadialGeometry {
         return center;
     }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        fingerprint(digest, center.getX(), center.getY(), center.getZ(), radius);
+    }
+
     @Override
     public String toString() {
         return "Sphere: " +
@@ -109,4 +124,82 @@ public class Sphere extends RadialGeometry {
         // Else if they are both negative then there are no intersections
         return null;
     }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double tm = projection(p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ());
+        double th = halfChord(p0.getX(), p0.getY(), p0.getZ(), tm);
+        if (th < 0)
+            return null;
+
+        // The closest positive distance (t1 <= t2) - create the point only if it's closer than maxDistance
+        double t1 = alignZero(tm - th);
+        double tMin = t1 > 0 ? t1 : alignZero(tm + th);
+        return tMin > 0 && tMin < maxDistance ? new GeoPoint(this, ray.getPoint(tMin)) : null;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double tm = projection(p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ());
+        double th = halfChord(p0.getX(), p0.getY(), p0.getZ(), tm);
+        return th < 0 ? ktr
+                : attenuate(attenuate(ktr, maxDistance, alignZero(tm - th)), maxDistance, alignZero(tm + th));
+    }
+
+    @Override
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet, int mask) {
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int i = Integer.numberOfTrailingZeros(rest);
+            double tm = projection(packet.ox[i], packet.oy[i], packet.oz[i], packet.dx[i], packet.dy[i], packet.dz[i]);
+            double th = halfChord(packet.ox[i], packet.oy[i], packet.oz[i], tm);
+            if (th < 0)
+                continue;
+            double t1 = alignZero(tm - th);
+            double tMin = t1 > 0 ? t1 : alignZero(tm + th);
+            if (tMin > 0 && tMin < packet.maxDistances[i])
+                packet.hit(i, new GeoPoint(this, packet.rays[i].getPoint(tMin)));
+        }
+    }
+
+    /**
+     * Calculates the distance along a direction from a head to the point of the line that is closest to the center.
+     * The calculation is on doubles, so nothing is allocated for a ray that misses the sphere.
+     *
+     * @param x0 the x coordinate of the head
+     * @param y0 the y coordinate of the head
+     * @param z0 the z coordinate of the head
+     * @param dx the x coordinate of the direction
+     * @param dy the y coordinate of the direction
+     * @param dz the z coordinate of the direction
+     * @return tm = v*(center-p0)
+     */
+    private double projection(double x0, double y0, double z0, double dx, double dy, double dz) {
+        return alignZero(dx * (center.getX() - x0) + dy * (center.getY() - y0) + dz * (center.getZ() - z0));
+    }
+
+    /**
+     * Calculates half of the chord that the line of a ray cuts in the sphere, so the line crosses the sphere at the
+     * distances tm-th and tm+th from the head of the ray
+     *
+     * @param x0 the x coordinate of the head
+     * @param y0 the y coordinate of the head
+     * @param z0 the z coordinate of the head
+     * @param tm the distance of the point of the line closest to the center (see {@link #projection})
+     * @return th, or -1 if the line misses the sphere
+     */
+    private double halfChord(double x0, double y0, double z0, double tm) {
+        double ux = center.getX() - x0;
+        double uy = center.getY() - y0;
+        double uz = center.getZ() - z0;
+        // d^2 = |u|^2-tm^2 is the squared distance from the center to the ray
+        double d2 = ux * ux + uy * uy + uz * uz - tm * tm;
+        if (d2 >= radius * radius) {
+            return -1;
+        }
+        return alignZero(Math.sqrt(radius * radius - Math.max(0, d2)));
+    }
 }
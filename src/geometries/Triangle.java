@@ -1,21 +1,21 @@
 package geometries;
 
 import primitives.Point;
-import primitives.Ray;
-import primitives.Vector;
 
-import java.util.List;
 import static primitives.Util.isZero;
 import static primitives.Util.alignZero;
 
-import java.util.List;
-
 /** Class Triangle represents a triangle in Cartesian 3-Dimensional coordinate system.
  *
  * @author Naomi Reitzer and Leah Golovenziz
  */
 public class Triangle extends Polygon {
 
+    // The first vertex and the two edges from it, kept as doubles for the Moller-Trumbore intersection
+    private final double ax, ay, az;
+    private final double e1x, e1y, e1z;
+    private final double e2x, e2y, e2z;
+
     /**
      * Constructor that initialize the triangle's point
      * @param p1 the first point
@@ -25,48 +25,55 @@ public class Triangle extends Polygon {
     public Triangle(Point p1,Point p2,Point p3){
 
         super(p1,p2,p3);
+
+        ax = p1.getX();
+        ay = p1.getY();
+        az = p1.getZ();
+        e1x = p2.getX() - ax;
+        e1y = p2.getY() - ay;
+        e1z = p2.getZ() - az;
+        e2x = p3.getX() - ax;
+        e2y = p3.getY() - ay;
+        e2z = p3.getZ() - az;
     }
 
     /**
-     * Calculates and returns the intersection points between the ray and the Triangle
+     * Calculates the distance from the head of the ray to the triangle by the Moller-Trumbore algorithm.
+     * The edges are calculated once in the constructor, and the test works on doubles only,
+     * so a ray that misses the triangle creates no object at all.
+     * A ray that passes on an edge or a vertex doesn't intersect the triangle.
      *
-     * @param ray
-     * @return list of intersection points
+     * @param x0 the x coordinate of the head of the ray
+     * @param y0 the y coordinate of the head of the ray
+     * @param z0 the z coordinate of the head of the ray
+     * @param dx the x coordinate of the direction of the ray
+     * @param dy the y coordinate of the direction of the ray
+     * @param dz the z coordinate of the direction of the ray
+     * @return the distance, or 0 if the ray doesn't intersect the triangle
      */
     @Override
-    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-
-        // First find the intersections with the plane in which the triangle lays
-        List<GeoPoint> intersections = plane.findGeoIntersectionsHelper(ray);
-
-
-
-        // If there are no intersections with the plane - return null
-        if (intersections == null)
-            return null;
-
-        Point p0 = ray.getP0();
-        Vector v = ray.getDirection();
-
-        // Vectors from the ray start point to the polygon vertices
-        Vector v1 = vertices.get(0).subtract(p0);
-        Vector v2 = vertices.get(1).subtract(p0);
-        Vector v3 = vertices.get(2).subtract(p0);
-
-        double vn1 = v.dotProduct(v1.crossProduct(v2)); //s1 = v * (v1 X v2)
-        double vn2 = v.dotProduct(v2.crossProduct(v3)); //s2 = v * (v2 X v3)
-        double vn3 = v.dotProduct(v3.crossProduct(v1)); //s3 = v * (v3 X v1)
-
-        // If the point is on the triangle - there are no intersection point
-        if (isZero(vn1) || isZero(vn2) || isZero(vn3))
-            return null;
-
-        // Update the geometry
-        for (GeoPoint gp : intersections) {
-            gp.geometry = this;
-        }
-
-        // IF they all have the same sign (-/+) the point is in the triangle so return the intersections , else return null
-        return ((vn1 > 0 && vn2 > 0 && vn3 > 0) || (vn1 < 0 && vn2 < 0 && vn3 < 0)) ? intersections : null;
+    double distance(double x0, double y0, double z0, double dx, double dy, double dz) {
+
+        // p = v X e2, det = e1 * p - if det is zero the ray is parallel to the triangle
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det))
+            return 0;
+
+        // The barycentric coordinates of the point multiplied by det (the same values as v * (vi X vj) of the
+        // vertices seen from p0) - the point is inside only if all of them have the sign of det
+        double sx = x0 - ax, sy = y0 - ay, sz = z0 - az;
+        double u = sx * px + sy * py + sz * pz;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double w = dx * qx + dy * qy + dz * qz;
+        double rest = det - u - w;
+
+        // If the point is on an edge - there is no intersection point
+        if (isZero(u) || isZero(w) || isZero(rest))
+            return 0;
+        if (det > 0 ? u < 0 || w < 0 || rest < 0 : u > 0 || w > 0 || rest > 0)
+            return 0;
+
+        return alignZero((e2x * qx + e2y * qy + e2z * qz) / det);
     }
 }
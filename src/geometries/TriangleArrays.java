@@ -0,0 +1,104 @@
+package geometries;
+
+import primitives.Point;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class TriangleArrays keeps a group of triangles as structure of arrays - the first vertex and the two edges from
+ * it, every coordinate in its own array - so a {@link TriangleKernel} intersects several triangles with a ray
+ * in one pass. The triangles can be {@link Triangle} objects (of a leaf of a hierarchy) or faces of a mesh.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class TriangleArrays {
+    final int size; // The number of the triangles
+    final double[] ax, ay, az; // The first vertex of every triangle
+    final double[] e1x, e1y, e1z; // The edge from the first vertex to the second one
+    final double[] e2x, e2y, e2z; // The edge from the first vertex to the third one
+    final Triangle[] triangles; // The triangle objects, null for the faces of a mesh
+    final Intersectable[] others; // The intersectables of the group that aren't triangles
+
+    /**
+     * Constructor of empty arrays for a number of triangles
+     *
+     * @param size   the number of the triangles
+     * @param others the intersectables of the group that aren't triangles
+     */
+    TriangleArrays(int size, Intersectable[] others) {
+        this.size = size;
+        ax = new double[size];
+        ay = new double[size];
+        az = new double[size];
+        e1x = new double[size];
+        e1y = new double[size];
+        e1z = new double[size];
+        e2x = new double[size];
+        e2y = new double[size];
+        e2z = new double[size];
+        triangles = null;
+        this.others = others;
+    }
+
+    /**
+     * Constructor of the arrays of the triangles in a group of intersectables (like a leaf of a hierarchy)
+     *
+     * @param items the intersectables of the group
+     */
+    TriangleArrays(Intersectable[] items) {
+        List<Triangle> found = new LinkedList<>();
+        List<Intersectable> rest = new LinkedList<>();
+        for (Intersectable item : items) {
+            // A subclass may intersect in another way, so only plain triangles are packed
+            if (item.getClass() == Triangle.class)
+                found.add((Triangle) item);
+            else
+                rest.add(item);
+        }
+        size = found.size();
+        ax = new double[size];
+        ay = new double[size];
+        az = new double[size];
+        e1x = new double[size];
+        e1y = new double[size];
+        e1z = new double[size];
+        e2x = new double[size];
+        e2y = new double[size];
+        e2z = new double[size];
+        triangles = found.toArray(new Triangle[0]);
+        others = rest.toArray(new Intersectable[0]);
+        for (int i = 0; i < size; ++i) {
+            List<Point> vertices = triangles[i].vertices;
+            Point a = vertices.get(0), b = vertices.get(1), c = vertices.get(2);
+            set(i, a.getX(), a.getY(), a.getZ(), b.getX(), b.getY(), b.getZ(), c.getX(), c.getY(), c.getZ());
+        }
+    }
+
+    /**
+     * Sets a triangle by its vertices - the edges are calculated like in {@link Triangle}
+     *
+     * @param i  the index of the triangle
+     * @param ax x of the first vertex
+     * @param ay y of the first vertex
+     * @param az z of the first vertex
+     * @param bx x of the second vertex
+     * @param by y of the second vertex
+     * @param bz z of the second vertex
+     * @param cx x of the third vertex
+     * @param cy y of the third vertex
+     * @param cz z of the third vertex
+     */
+    void set(int i, double ax, double ay, double az, double bx, double by, double bz,
+             double cx, double cy, double cz) {
+        this.ax[i] = ax;
+        this.ay[i] = ay;
+        this.az[i] = az;
+        e1x[i] = bx - ax;
+        e1y[i] = by - ay;
+        e1z[i] = bz - az;
+        e2x[i] = cx - ax;
+        e2y[i] = cy - ay;
+        e2z[i] = cz - az;
+    }
+}
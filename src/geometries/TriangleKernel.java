@@ -0,0 +1,80 @@
+package geometries;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Class TriangleKernel intersects a ray with the triangles of a {@link TriangleArrays} by the Moller-Trumbore
+ * algorithm, with the same calculation and tolerances as {@link Triangle}: a ray that passes on an edge or a vertex
+ * doesn't intersect the triangle.
+ * This is the scalar kernel, which tests the triangles one by one - {@link Simd} chooses between it and the
+ * kernel on the Java Vector API.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class TriangleKernel {
+    /**
+     * Finds the closest triangle of a range that the ray hits before a distance
+     *
+     * @param arrays      the triangles
+     * @param from        the index of the first triangle of the range
+     * @param to          the index after the last triangle of the range
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param dx          x of the ray direction
+     * @param dy          y of the ray direction
+     * @param dz          z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the index of the closest triangle, -1 if the ray hits none
+     */
+    int closest(TriangleArrays arrays, int from, int to, double ox, double oy, double oz,
+                double dx, double dy, double dz, double maxDistance) {
+        int closest = -1;
+        for (int i = from; i < to; ++i) {
+            double t = distance(arrays, i, ox, oy, oz, dx, dy, dz);
+            if (t > 0 && t < maxDistance) {
+                maxDistance = t;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Calculates the distance to a triangle
+     *
+     * @param arrays the triangles
+     * @param i      the index of the triangle
+     * @param ox     x of the ray head
+     * @param oy     y of the ray head
+     * @param oz     z of the ray head
+     * @param dx     x of the ray direction
+     * @param dy     y of the ray direction
+     * @param dz     z of the ray direction
+     * @return the distance from the ray head, or 0 if the ray doesn't intersect the triangle
+     */
+    static double distance(TriangleArrays arrays, int i, double ox, double oy, double oz,
+                           double dx, double dy, double dz) {
+        double e1x = arrays.e1x[i], e1y = arrays.e1y[i], e1z = arrays.e1z[i];
+        double e2x = arrays.e2x[i], e2y = arrays.e2y[i], e2z = arrays.e2z[i];
+
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det))
+            return 0;
+
+        double sx = ox - arrays.ax[i], sy = oy - arrays.ay[i], sz = oz - arrays.az[i];
+        double u = sx * px + sy * py + sz * pz;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double w = dx * qx + dy * qy + dz * qz;
+        double rest = det - u - w;
+        if (isZero(u) || isZero(w) || isZero(rest))
+            return 0;
+        if (det > 0 ? u < 0 || w < 0 || rest < 0 : u > 0 || w > 0 || rest > 0)
+            return 0;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) / det);
+        return t > 0 ? t : 0;
+    }
+}
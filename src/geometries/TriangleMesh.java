@@ -0,0 +1,519 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Class TriangleMesh represents a mesh of triangles with shared vertices in Cartesian 3-Dimensional coordinate system.
+ * The vertices and the faces are kept in primitive arrays (3 coordinates for every vertex and 3 vertex indices for
+ * every face), so a face costs 12 bytes instead of a full {@link Triangle} object.
+ * A ray is traced through a compact hierarchy over the faces ({@link MeshBVH}, about 8 more bytes of a face), built
+ * on the first query, so it tests only the faces of the leaves that it passes through.
+ * All the faces share the emission and the material of the mesh. An intersection point holds a light-weight
+ * {@link Face} geometry that is created only for the points that are returned.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class TriangleMesh extends Geometry {
+    private final double[] vertices; // x, y, z of every vertex
+    private final int[] indices; // The indices of the three vertices of every face
+    private volatile BoundingBox box; // The bounding box of all the vertices
+    private volatile boolean moved = false; // Has a vertex moved since the box was calculated
+    private volatile MeshBVH hierarchy = null; // The hierarchy over the faces, built on the first query
+
+    /**
+     * Class Face represents a face of the mesh as a geometry for intersection points.
+     * It has no data of its own - the emission and the material are the mesh's ones, so a face has no material
+     * object of its own either, and creating it for a hit allocates only the face.
+     */
+    public static class Face extends Geometry {
+        private final TriangleMesh mesh; // The mesh of the face
+        private final int face; // The index of the face in the mesh
+
+        /**
+         * Constructor
+         *
+         * @param mesh the mesh of the face
+         * @param face the index of the face in the mesh
+         */
+        Face(TriangleMesh mesh, int face) {
+            super(null); // The material is the mesh's one
+            this.mesh = mesh;
+            this.face = face;
+        }
+
+        /**
+         * Getter of the mesh of the face
+         *
+         * @return the mesh
+         */
+        public TriangleMesh getMesh() {
+            return mesh;
+        }
+
+        /**
+         * Getter of the index of the face in the mesh
+         *
+         * @return the index of the face
+         */
+        public int getIndex() {
+            return face;
+        }
+
+        @Override
+        public Color getEmission() {
+            return mesh.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return mesh.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return mesh.getFaceNormal(face);
+        }
+
+        @Override
+        public void fingerprint(MessageDigest digest) {
+            mesh.fingerprint(digest);
+            fingerprint(digest, face);
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+            double t = mesh.intersect(face, ray);
+            return t > 0 ? List.of(new GeoPoint(this, ray.getPoint(t))) : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Face other)) return false;
+            return mesh == other.mesh && face == other.face;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(mesh) + face;
+        }
+
+        @Override
+        public String toString() {
+            return "Face: " + face + " of " + mesh;
+        }
+    }
+
+    /**
+     * Constructor that initializes the mesh by its arrays.
+     * The arrays are used as they are (they are not copied).
+     *
+     * @param vertices x, y, z of every vertex
+     * @param indices  the indices of the three vertices of every face
+     * @throws IllegalArgumentException if the arrays aren't made of triads or an index is not of a vertex
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("Every vertex must have 3 coordinates");
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("Every face must have 3 vertices");
+        int count = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= count)
+                throw new IllegalArgumentException("Face vertex index out of range: " + index);
+
+        this.vertices = vertices;
+        this.indices = indices;
+        box = calcBoundingBox();
+    }
+
+    /**
+     * Calculates the box of all the vertices
+     *
+     * @return the box, null if there are no vertices
+     */
+    private BoundingBox calcBoundingBox() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertices.length; i += 3) {
+            minX = Math.min(minX, vertices[i]);
+            minY = Math.min(minY, vertices[i + 1]);
+            minZ = Math.min(minZ, vertices[i + 2]);
+            maxX = Math.max(maxX, vertices[i]);
+            maxY = Math.max(maxY, vertices[i + 1]);
+            maxZ = Math.max(maxZ, vertices[i + 2]);
+        }
+        return vertices.length == 0 ? null : new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Constructor that initializes the mesh by its vertices points and faces indices
+     *
+     * @param vertices the vertices
+     * @param indices  the indices of the three vertices of every face
+     */
+    public TriangleMesh(List<Point> vertices, int... indices) {
+        this(toArray(vertices), indices);
+    }
+
+    /**
+     * Converts points to an array of their coordinates
+     *
+     * @param points the points
+     * @return x, y, z of every point
+     */
+    private static double[] toArray(List<Point> points) {
+        double[] result = new double[3 * points.size()];
+        int i = 0;
+        for (Point p : points) {
+            result[i++] = p.getX();
+            result[i++] = p.getY();
+            result[i++] = p.getZ();
+        }
+        return result;
+    }
+
+    /**
+     * Reads a mesh from a Wavefront OBJ file.
+     * Only the vertices ("v") and the faces ("f") are read, and faces of more than 3 vertices are split
+     * into a fan of triangles.
+     *
+     * @param path the path of the file
+     * @return the mesh
+     * @throws IllegalArgumentException if a line of the file is not legal
+     * @throws IllegalStateException    on I/O error
+     */
+    public static TriangleMesh readObj(Path path) {
+        double[] vertices = new double[3 * 1024];
+        int[] indices = new int[3 * 1024];
+        int vCount = 0, iCount = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens[0].equals("v")) {
+                    if (vCount + 3 > vertices.length)
+                        vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+                    for (int i = 1; i <= 3; ++i)
+                        vertices[vCount++] = Double.parseDouble(tokens[i]);
+                } else if (tokens[0].equals("f")) {
+                    if (tokens.length < 4)
+                        throw new IllegalArgumentException("A face must have at least 3 vertices: " + line);
+                    int first = objIndex(tokens[1], vCount / 3);
+                    int previous = objIndex(tokens[2], vCount / 3);
+                    for (int i = 3; i < tokens.length; ++i) {
+                        int current = objIndex(tokens[i], vCount / 3);
+                        if (iCount + 3 > indices.length)
+                            indices = Arrays.copyOf(indices, 2 * indices.length);
+                        indices[iCount++] = first;
+                        indices[iCount++] = previous;
+                        indices[iCount++] = current;
+                        previous = current;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't read mesh file " + path, e);
+        }
+        return new TriangleMesh(Arrays.copyOf(vertices, vCount), Arrays.copyOf(indices, iCount));
+    }
+
+    /**
+     * Converts a vertex reference of an OBJ face ("v", "v/vt" or "v/vt/vn", 1-based or negative) to an index
+     *
+     * @param token  the vertex reference
+     * @param vCount the number of vertices read so far
+     * @return the 0-based index of the vertex
+     */
+    private static int objIndex(String token, int vCount) {
+        int slash = token.indexOf('/');
+        int index = Integer.parseInt(slash < 0 ? token : token.substring(0, slash));
+        return index < 0 ? vCount + index : index - 1;
+    }
+
+    /**
+     * Getter of the number of vertices
+     *
+     * @return the number of vertices
+     */
+    public int getVerticesCount() {
+        return vertices.length / 3;
+    }
+
+    /**
+     * Getter of the number of faces
+     *
+     * @return the number of faces
+     */
+    public int getFacesCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * Returns a vertex of the mesh
+     *
+     * @param index the index of the vertex
+     * @return the vertex
+     */
+    public Point getVertex(int index) {
+        return new Point(vertices[3 * index], vertices[3 * index + 1], vertices[3 * index + 2]);
+    }
+
+    /**
+     * Moves a vertex of the mesh (for animation).
+     * The box and the hierarchy of the mesh are refit when they are needed, and a group that holds the mesh must be
+     * refit ({@link Geometries#refit()}) after the vertices have moved and before rendering.
+     *
+     * @param index the index of the vertex
+     * @param point the new place of the vertex
+     * @return the mesh
+     */
+    public synchronized TriangleMesh setVertex(int index, Point point) {
+        vertices[3 * index] = point.getX();
+        vertices[3 * index + 1] = point.getY();
+        vertices[3 * index + 2] = point.getZ();
+        moved = true;
+        return this;
+    }
+
+    /**
+     * Calculates the normal of a face (according to the order of its vertices)
+     *
+     * @param face the index of the face
+     * @return the normal of the face
+     */
+    public Vector getFaceNormal(int face) {
+        int a = 3 * indices[3 * face], b = 3 * indices[3 * face + 1], c = 3 * indices[3 * face + 2];
+        Vector e1 = new Vector(vertices[b] - vertices[a], vertices[b + 1] - vertices[a + 1],
+                vertices[b + 2] - vertices[a + 2]);
+        Vector e2 = new Vector(vertices[c] - vertices[a], vertices[c + 1] - vertices[a + 1],
+                vertices[c + 2] - vertices[a + 2]);
+        return e1.crossProduct(e2).normalize();
+    }
+
+    /**
+     * Calculates the box again and refits the hierarchy (if it was built) if a vertex has moved.
+     * The new box and boxes are published before the flag is cleared, so a thread that sees the flag cleared gets
+     * them.
+     */
+    private void refresh() {
+        if (moved)
+            synchronized (this) {
+                if (moved) {
+                    box = calcBoundingBox();
+                    if (hierarchy != null)
+                        hierarchy.refit();
+                    moved = false;
+                }
+            }
+    }
+
+    /**
+     * Returns the hierarchy over the faces, built on the first call (and refit if a vertex has moved)
+     *
+     * @return the hierarchy
+     */
+    MeshBVH getHierarchy() {
+        refresh();
+        MeshBVH result = hierarchy;
+        if (result == null)
+            synchronized (this) {
+                result = hierarchy;
+                if (result == null)
+                    hierarchy = result = new MeshBVH(this, vertices, indices);
+            }
+        return result;
+    }
+
+    /**
+     * Returns the box of all the vertices, calculated again (with the hierarchy) if a vertex has moved
+     *
+     * @return the bounding box, null if there are no vertices
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        refresh();
+        return box;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        fingerprint(digest, vertices);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * (1 + indices.length)).putInt(indices.length);
+        for (int index : indices)
+            buffer.putInt(index);
+        digest.update(buffer.array());
+    }
+
+    /**
+     * Returns the normal of the face that the point lays on.
+     * The face is searched through the hierarchy, in the leaves whose boxes hold the point - the geometry of an
+     * intersection point is its {@link Face}, which knows its normal directly.
+     *
+     * @param point a point on the mesh
+     * @return the normal of the face
+     * @throws IllegalArgumentException if the point is not on the mesh
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        int face = getHierarchy().findFace(point.getX(), point.getY(), point.getZ(), f -> {
+            Vector n = getFaceNormal(f);
+            Point a = getVertex(indices[3 * f]);
+            return a.equals(point) || isZero(point.subtract(a).dotProduct(n)) && contains(f, point, n);
+        });
+        if (face == -1)
+            throw new IllegalArgumentException("The point is not on the mesh");
+        return getFaceNormal(face);
+    }
+
+    /**
+     * Checks whether a point on the plane of a face is inside the face (or on its edges)
+     *
+     * @param face  the index of the face
+     * @param point the point
+     * @param n     the normal of the face
+     * @return true if the point is in the face
+     */
+    private boolean contains(int face, Point point, Vector n) {
+        for (int i = 0; i < 3; ++i) {
+            Point a = getVertex(indices[3 * face + i]);
+            Point b = getVertex(indices[3 * face + (i + 1) % 3]);
+            if (a.equals(point) || b.equals(point))
+                return true;
+            try {
+                if (alignZero(b.subtract(a).crossProduct(point.subtract(a)).dotProduct(n)) < 0)
+                    return false;
+            } catch (IllegalArgumentException e) { // The point is on the line of the edge
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the distance to a face by the Moller-Trumbore algorithm on the arrays of the mesh.
+     * Like a {@link Triangle}, a ray that passes on an edge or a vertex doesn't intersect the face.
+     *
+     * @param face the index of the face
+     * @param ox   x of the ray head
+     * @param oy   y of the ray head
+     * @param oz   z of the ray head
+     * @param dx   x of the ray direction
+     * @param dy   y of the ray direction
+     * @param dz   z of the ray direction
+     * @return the distance from the ray head, or 0 if the ray doesn't intersect the face
+     */
+    double intersect(int face, double ox, double oy, double oz, double dx, double dy, double dz) {
+        int a = 3 * indices[3 * face], b = 3 * indices[3 * face + 1], c = 3 * indices[3 * face + 2];
+        double ax = vertices[a], ay = vertices[a + 1], az = vertices[a + 2];
+        // The edges from the first vertex
+        double e1x = vertices[b] - ax, e1y = vertices[b + 1] - ay, e1z = vertices[b + 2] - az;
+        double e2x = vertices[c] - ax, e2y = vertices[c + 1] - ay, e2z = vertices[c + 2] - az;
+
+        // p = d X e2, det = e1 * p - if det is zero the ray is parallel to the face
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det))
+            return 0;
+
+        // The barycentric coordinates of the hit point multiplied by det - all of them must have the sign of det
+        double sx = ox - ax, sy = oy - ay, sz = oz - az;
+        double u = sx * px + sy * py + sz * pz;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = dx * qx + dy * qy + dz * qz;
+        double rest = det - u - v;
+        if (isZero(u) || isZero(v) || isZero(rest))
+            return 0;
+        if (det > 0 ? u < 0 || v < 0 || rest < 0 : u > 0 || v > 0 || rest > 0)
+            return 0;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) / det);
+        return t > 0 ? t : 0;
+    }
+
+    /**
+     * Calculates the distance to a face
+     *
+     * @param face the index of the face
+     * @param ray  the ray
+     * @return the distance from the ray head, or 0 if the ray doesn't intersect the face
+     */
+    double intersect(int face, Ray ray) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        return intersect(face, p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ());
+    }
+
+    /**
+     * Calculates and returns the intersection points between the ray and the faces of the mesh
+     *
+     * @param ray
+     * @return list of intersection points
+     */
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
+        BoundingBox meshBox = getBoundingBox();
+        if (meshBox == null || meshBox.entry(ox, oy, oz, 1 / dx, 1 / dy, 1 / dz, Double.POSITIVE_INFINITY)
+                == Double.POSITIVE_INFINITY)
+            return null;
+
+        return getHierarchy().findAll(ray, ox, oy, oz, dx, dy, dz);
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
+        BoundingBox meshBox = getBoundingBox();
+        if (meshBox == null || meshBox.entry(ox, oy, oz, 1 / dx, 1 / dy, 1 / dz, maxDistance) == Double.POSITIVE_INFINITY)
+            return null;
+
+        // Only the index is kept while searching - the point is created for the closest face alone
+        int face = getHierarchy().findClosest(ox, oy, oz, dx, dy, dz, maxDistance);
+        return face == -1 ? null
+                : new GeoPoint(new Face(this, face), ray.getPoint(intersect(face, ox, oy, oz, dx, dy, dz)));
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
+        BoundingBox meshBox = getBoundingBox();
+        if (meshBox == null || meshBox.entry(ox, oy, oz, 1 / dx, 1 / dy, 1 / dz, maxDistance) == Double.POSITIVE_INFINITY)
+            return ktr;
+
+        return getHierarchy().findTransparency(ox, oy, oz, dx, dy, dz, maxDistance, ktr);
+    }
+
+    @Override
+    public String toString() {
+        return "TriangleMesh: " +
+                "vertices = " + getVerticesCount() +
+                ", faces = " + getFacesCount();
+    }
+}
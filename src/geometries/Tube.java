@@ -1,9 +1,12 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.security.MessageDigest;
+import java.util.LinkedList;
 import java.util.List;
 
 import static primitives.Util.isZero;
@@ -16,6 +19,9 @@ import static primitives.Util.alignZero;
 public class Tube extends RadialGeometry {
 
     protected final Ray axisRay;
+    // The head and the direction of the axis, kept as doubles for the intersection
+    protected final double ox, oy, oz;
+    protected final double dx, dy, dz;
 
     /**
      * constructor that initializes the Tube
@@ -26,6 +32,15 @@ public class Tube extends RadialGeometry {
     public Tube(double radius, Ray axisRay) {
         super(radius);
         this.axisRay = axisRay;
+
+        Point p0 = axisRay.getP0();
+        Vector v = axisRay.getDirection();
+        ox = p0.getX();
+        oy = p0.getY();
+        oz = p0.getZ();
+        dx = v.getX();
+        dy = v.getY();
+        dz = v.getZ();
     }
 
     /**
@@ -44,6 +59,21 @@ public class Tube extends RadialGeometry {
                 ", radius = " + radius;
     }
 
+    /**
+     * A tube is infinite, so it has no bounding box
+     *
+     * @return null
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
+    @Override
+    public void fingerprint(MessageDigest digest) {
+        fingerprint(digest, ox, oy, oz, dx, dy, dz, radius);
+    }
+
     @Override
     public Vector getNormal(Point point) {
         Point P0 = axisRay.getP0();
@@ -65,8 +95,76 @@ public class Tube extends RadialGeometry {
         return point.subtract(o).normalize();
     }
 
+    /**
+     * Calculates and returns the intersection points between the ray and the Tube
+     *
+     * @param ray
+     * @return list of intersection points
+     */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        double[] distances = distances(ray);
+        if (distances == null)
+            return null;
+
+        List<GeoPoint> intersections = new LinkedList<>();
+        for (double t : distances)
+            if (t > 0)
+                intersections.add(new GeoPoint(this, ray.getPoint(t)));
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        double[] distances = distances(ray);
+        if (distances == null)
+            return null;
+
+        // The distances are sorted - the first positive one is the closest
+        for (double t : distances)
+            if (t > 0)
+                return t < maxDistance ? new GeoPoint(this, ray.getPoint(t)) : null;
         return null;
     }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        double[] distances = distances(ray);
+        if (distances != null)
+            for (double t : distances)
+                ktr = attenuate(ktr, maxDistance, t);
+        return ktr;
+    }
+
+    /**
+     * Calculates the distances from the head of the ray to the points in which the ray's line crosses the tube.
+     * The parts of the ray's direction and of the vector from the axis head to p0 that are orthogonal to the axis
+     * give the quadratic equation |vp*t + wp|^2 = r^2, which is solved on doubles.
+     * A line that is parallel to the axis or tangent to the tube doesn't cross it.
+     *
+     * @param ray the ray
+     * @return the two distances (the smaller first, they can be negative), or null if the line misses the tube
+     */
+    protected double[] distances(Ray ray) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        double wx = p0.getX() - ox, wy = p0.getY() - oy, wz = p0.getZ() - oz;
+
+        // The projections of v and w on the axis
+        double vd = vx * dx + vy * dy + vz * dz;
+        double wd = wx * dx + wy * dy + wz * dz;
+
+        double a = 1 - vd * vd;
+        if (isZero(a))
+            return null;
+        double b = vx * wx + vy * wy + vz * wz - vd * wd; // half of the linear coefficient
+        double c = wx * wx + wy * wy + wz * wz - wd * wd - radius * radius;
+        double discriminant = alignZero(b * b - a * c);
+        if (discriminant <= 0)
+            return null;
+
+        double root = Math.sqrt(discriminant);
+        return new double[]{alignZero((-b - root) / a), alignZero((-b + root) / a)};
+    }
 }
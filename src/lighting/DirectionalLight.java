@@ -41,5 +41,14 @@ public class DirectionalLight extends Light implements LightSource {
     public double getDistance(Point p) {
         return Double.POSITIVE_INFINITY;
     }
-}
 
+    /**
+     * Returns a string representation of the light - its intensity and its direction
+     *
+     * @return a string representation of the light
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " to " + direction;
+    }
+}
@@ -25,4 +25,14 @@ abstract class Light {
     public Color getIntensity() {
         return intensity;
     }
+
+    /**
+     * Returns a string representation of the light - its kind and its intensity
+     *
+     * @return a string representation of the light
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + intensity;
+    }
 }
\ No newline at end of file
@@ -94,4 +94,14 @@ public class PointLight extends Light implements LightSource {
     public double getDistance(Point p) {
         return p.distance(this.position);
     }
+
+    /**
+     * Returns a string representation of the light - its intensity, its position and its attenuation factors
+     *
+     * @return a string representation of the light
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " at " + position + " kC=" + kC + " kL=" + KL + " kQ=" + KQ;
+    }
 }
\ No newline at end of file
@@ -40,4 +40,14 @@ public class SpotLight extends PointLight {
         // i0*(max(0,direction*(position-p))/(kC+d*KL+ds*KQ)
         return i0.scale(factor);
     }
+
+    /**
+     * Returns a string representation of the light - its intensity, position, attenuation and direction
+     *
+     * @return a string representation of the light
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " to " + direction;
+    }
 }
\ No newline at end of file
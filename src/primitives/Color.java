@@ -55,6 +55,15 @@ public class Color {
       return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
    }
 
+   /** Copies the RGB components as they are (without the limit of 255) into an array
+    * @param target the array
+    * @param offset the index of the red component in the array */
+   public void copyTo(double[] target, int offset) {
+      target[offset] = rgb.d1;
+      target[offset + 1] = rgb.d2;
+      target[offset + 2] = rgb.d3;
+   }
+
    /** Operation of adding this and one or more other colors (by component)
     * @param  colors one or more other colors to add
     * @return        new Color object which is a result of the operation */
@@ -116,4 +116,19 @@ public class Material {
         this.NShininess = NShininess;
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a string representation of the material - all its factors
+     *
+     * @return a string representation of the material
+     */
+    @Override
+    public String toString() {
+        return "Material: " +
+                "KD = " + KD +
+                ", KS = " + KS +
+                ", NShininess = " + NShininess +
+                ", KT = " + KT +
+                ", KR = " + KR;
+    }
+}
@@ -85,12 +85,13 @@ public class Ray {
     }
 
     /**
-     * Returns a new {@code Vector} object representing the direction vector of the ray.
+     * Returns the direction vector of the ray.
+     * Vectors are immutable, so the direction is shared rather than copied on every call.
      *
-     * @return a new {@code Vector} object representing the direction vector of the ray.
+     * @return the direction vector of the ray.
      */
     public Vector getDirection() {
-        return new Vector(dir.xyz);
+        return dir;
     }
 
     /**
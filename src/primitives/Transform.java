@@ -0,0 +1,196 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * Class Transform represents an affine transformation in Cartesian 3-Dimensional coordinate system:
+ * a linear part (a 3x3 matrix - rotation, scaling) followed by a translation.
+ * The inverse transformation is calculated once when the transformation is created, since normals are
+ * transformed by the transpose of the inverse matrix.
+ * This class is immutable - combining transformations creates new ones.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public class Transform {
+    /** The transformation that doesn't change anything */
+    public static final Transform IDENTITY = new Transform(1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0);
+
+    // The linear part, row by row, and the translation
+    private final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+    private final double tx, ty, tz;
+    // The linear part of the inverse transformation (the inverse translation is calculated from it)
+    private final double i00, i01, i02, i10, i11, i12, i20, i21, i22;
+
+    /**
+     * Constructor that initializes the transformation by its matrix rows and translation
+     *
+     * @throws IllegalArgumentException if the linear part can't be inverted
+     */
+    private Transform(double m00, double m01, double m02, double m10, double m11, double m12,
+                      double m20, double m21, double m22, double tx, double ty, double tz) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.tx = tx;
+        this.ty = ty;
+        this.tz = tz;
+
+        // The inverse by the cofactors of the matrix
+        double c00 = m11 * m22 - m12 * m21, c01 = m12 * m20 - m10 * m22, c02 = m10 * m21 - m11 * m20;
+        double det = m00 * c00 + m01 * c01 + m02 * c02;
+        if (isZero(det))
+            throw new IllegalArgumentException("A transformation must be invertible");
+        double inv = 1 / det;
+        i00 = c00 * inv;
+        i01 = (m02 * m21 - m01 * m22) * inv;
+        i02 = (m01 * m12 - m02 * m11) * inv;
+        i10 = c01 * inv;
+        i11 = (m00 * m22 - m02 * m20) * inv;
+        i12 = (m02 * m10 - m00 * m12) * inv;
+        i20 = c02 * inv;
+        i21 = (m01 * m20 - m00 * m21) * inv;
+        i22 = (m00 * m11 - m01 * m10) * inv;
+    }
+
+    /**
+     * Creates a translation
+     *
+     * @param v the translation vector
+     * @return the transformation
+     */
+    public static Transform translation(Vector v) {
+        return new Transform(1, 0, 0, 0, 1, 0, 0, 0, 1, v.getX(), v.getY(), v.getZ());
+    }
+
+    /**
+     * Creates a uniform scaling about the origin
+     *
+     * @param scale the scale factor
+     * @return the transformation
+     * @throws IllegalArgumentException if the factor is zero
+     */
+    public static Transform scaling(double scale) {
+        return scaling(scale, scale, scale);
+    }
+
+    /**
+     * Creates a scaling about the origin with a factor for every axis
+     *
+     * @param sx the scale factor of x
+     * @param sy the scale factor of y
+     * @param sz the scale factor of z
+     * @return the transformation
+     * @throws IllegalArgumentException if a factor is zero
+     */
+    public static Transform scaling(double sx, double sy, double sz) {
+        return new Transform(sx, 0, 0, 0, sy, 0, 0, 0, sz, 0, 0, 0);
+    }
+
+    /**
+     * Creates a rotation about an axis through the origin (by Rodrigues' rotation formula).
+     * The rotation is counterclockwise when the axis points at the viewer.
+     *
+     * @param axis    the axis of the rotation
+     * @param degrees the angle of the rotation in degrees
+     * @return the transformation
+     */
+    public static Transform rotation(Vector axis, double degrees) {
+        Vector k = axis.normalize();
+        double x = k.getX(), y = k.getY(), z = k.getZ();
+        double angle = Math.toRadians(degrees);
+        double c = Math.cos(angle), s = Math.sin(angle), t = 1 - c;
+        return new Transform(
+                t * x * x + c, t * x * y - s * z, t * x * z + s * y,
+                t * x * y + s * z, t * y * y + c, t * y * z - s * x,
+                t * x * z - s * y, t * y * z + s * x, t * z * z + c,
+                0, 0, 0);
+    }
+
+    /**
+     * Combines the transformation with another one that is applied after it
+     *
+     * @param next the transformation to apply after this one
+     * @return the combined transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(
+                next.m00 * m00 + next.m01 * m10 + next.m02 * m20,
+                next.m00 * m01 + next.m01 * m11 + next.m02 * m21,
+                next.m00 * m02 + next.m01 * m12 + next.m02 * m22,
+                next.m10 * m00 + next.m11 * m10 + next.m12 * m20,
+                next.m10 * m01 + next.m11 * m11 + next.m12 * m21,
+                next.m10 * m02 + next.m11 * m12 + next.m12 * m22,
+                next.m20 * m00 + next.m21 * m10 + next.m22 * m20,
+                next.m20 * m01 + next.m21 * m11 + next.m22 * m21,
+                next.m20 * m02 + next.m21 * m12 + next.m22 * m22,
+                next.m00 * tx + next.m01 * ty + next.m02 * tz + next.tx,
+                next.m10 * tx + next.m11 * ty + next.m12 * tz + next.ty,
+                next.m20 * tx + next.m21 * ty + next.m22 * tz + next.tz);
+    }
+
+    /**
+     * Returns the inverse transformation
+     *
+     * @return the transformation that cancels this one
+     */
+    public Transform inverse() {
+        return new Transform(i00, i01, i02, i10, i11, i12, i20, i21, i22,
+                -(i00 * tx + i01 * ty + i02 * tz),
+                -(i10 * tx + i11 * ty + i12 * tz),
+                -(i20 * tx + i21 * ty + i22 * tz));
+    }
+
+    /**
+     * Transforms a point
+     *
+     * @param p the point
+     * @return the transformed point
+     */
+    public Point apply(Point p) {
+        double x = p.getX(), y = p.getY(), z = p.getZ();
+        return new Point(m00 * x + m01 * y + m02 * z + tx,
+                m10 * x + m11 * y + m12 * z + ty,
+                m20 * x + m21 * y + m22 * z + tz);
+    }
+
+    /**
+     * Transforms a direction vector - by the linear part only
+     *
+     * @param v the vector
+     * @return the transformed vector (not normalized)
+     */
+    public Vector applyToVector(Vector v) {
+        double x = v.getX(), y = v.getY(), z = v.getZ();
+        return new Vector(m00 * x + m01 * y + m02 * z,
+                m10 * x + m11 * y + m12 * z,
+                m20 * x + m21 * y + m22 * z);
+    }
+
+    /**
+     * Transforms a normal vector - by the transpose of the inverse of the linear part,
+     * so the normal stays orthogonal to the transformed surface
+     *
+     * @param n the normal
+     * @return the transformed normal (normalized)
+     */
+    public Vector applyToNormal(Vector n) {
+        double x = n.getX(), y = n.getY(), z = n.getZ();
+        return new Vector(i00 * x + i10 * y + i20 * z,
+                i01 * x + i11 * y + i21 * z,
+                i02 * x + i12 * y + i22 * z).normalize();
+    }
+
+    @Override
+    public String toString() {
+        return "Transform: " +
+                "[" + m00 + "," + m01 + "," + m02 + "," + tx + "]" +
+                ", [" + m10 + "," + m11 + "," + m12 + "," + ty + "]" +
+                ", [" + m20 + "," + m21 + "," + m22 + "," + tz + "]";
+    }
+}
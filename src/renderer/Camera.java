@@ -1,13 +1,29 @@
 package renderer;
 
+import geometries.RayPacket;
 import primitives.Color;
 import primitives.Ray;
 import primitives.Point;
 import primitives.Vector;
 import renderer.ImageWriter;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.MissingResourceException;
-import java.util.stream.IntStream;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -18,6 +34,132 @@ import static primitives.Util.isZero;
  * @author Naomi Reitzer and Leah Golovenziz
  */
 public class Camera {
+    private static final int PREVIEW_STEP = 8; // The side of the blocks of the first pass of a progressive render
+    private static final int MAX_BUDGET_SAMPLES = 64; // The max samples of a pixel in a render with a time budget
+    private static final long PROGRESS_INTERVAL = 500; // The milliseconds between the reports of the progress
+
+    /**
+     * The samples of the pixels of a tile in a render with a time budget
+     */
+    private static class TileSamples {
+        private final TileScheduler.Tile tile;
+        private final Color[] sums; // The sums of the samples of the pixels row after row
+        private final double[] brightness; // The sums of the brightness of the samples of the pixels
+        private final double[] squares; // The sums of the squares of the brightness of the samples of the pixels
+        private int samples = 1; // The number of the samples of every pixel
+        // The variance of the averages of the pixels, unknown (infinite) until the pixels have a second sample
+        private double variance = Double.POSITIVE_INFINITY;
+
+        /**
+         * Constructor - keeps the first samples of the pixels
+         *
+         * @param tile   the tile
+         * @param colors the colors of the pixels row after row
+         */
+        private TileSamples(TileScheduler.Tile tile, Color[] colors) {
+            this.tile = tile;
+            sums = colors;
+            brightness = new double[colors.length];
+            squares = new double[colors.length];
+            for (int i = 0; i < colors.length; ++i) {
+                brightness[i] = brightness(colors[i]);
+                squares[i] = brightness[i] * brightness[i];
+            }
+        }
+
+        /**
+         * Constructor - resumes the samples of the pixels from a checkpoint
+         *
+         * @param tile       the tile
+         * @param checkpoint the checkpoint
+         */
+        private TileSamples(TileScheduler.Tile tile, RenderCheckpoint checkpoint) {
+            this.tile = tile;
+            sums = checkpoint.getSums(tile);
+            samples = (int) checkpoint.getChannel(tile, 0)[0];
+            brightness = checkpoint.getChannel(tile, 1);
+            squares = checkpoint.getChannel(tile, 2);
+            if (samples > 1)
+                updateVariance();
+        }
+
+        /**
+         * Adds a sample to every pixel and updates the variance
+         *
+         * @param colors the colors of the samples row after row
+         */
+        private void addSample(Color[] colors) {
+            ++samples;
+            for (int i = 0; i < colors.length; ++i) {
+                sums[i] = sums[i].add(colors[i]);
+                double b = brightness(colors[i]);
+                brightness[i] += b;
+                squares[i] += b * b;
+            }
+            updateVariance();
+        }
+
+        /**
+         * Calculates the variance of the averages of the pixels from their sums
+         */
+        private void updateVariance() {
+            double total = 0;
+            for (int i = 0; i < sums.length; ++i)
+                total += Math.max(0, squares[i] / samples - square(brightness[i] / samples));
+            variance = total / sums.length / samples;
+        }
+
+        /**
+         * Keeps the samples of the pixels in a checkpoint
+         *
+         * @param checkpoint the checkpoint, null for a render without checkpoints
+         * @param spent      the nanoseconds that the render has spent
+         */
+        private void keep(RenderCheckpoint checkpoint, long spent) {
+            if (checkpoint != null)
+                checkpoint.tileDone(tile, spent, sums, samples, brightness, squares);
+        }
+
+        /**
+         * Calculates the brightness of a color as it is shown (of 255)
+         *
+         * @param color the color
+         * @return the brightness
+         */
+        private static double brightness(Color color) {
+            java.awt.Color rgb = color.getColor();
+            return 0.2126 * rgb.getRed() + 0.7152 * rgb.getGreen() + 0.0722 * rgb.getBlue();
+        }
+
+        /**
+         * Calculates the square of a number
+         *
+         * @param x the number
+         * @return x * x
+         */
+        private static double square(double x) {
+            return x * x;
+        }
+    }
+
+    /**
+     * The threads that render the tiles of the image
+     */
+    public enum ThreadPool {
+        /**
+         * A pool of platform threads of the camera's own, of the size of {@link #setThreadCount(int)}
+         */
+        PLATFORM,
+        /**
+         * The common fork/join pool of the JVM (shared with the parallel streams of the whole program)
+         */
+        COMMON,
+        /**
+         * A virtual thread for every tile (only on Java 21 and later)
+         */
+        VIRTUAL
+    }
+
     private Point p0; // Camera view
     private Vector vRight; // vector pointing right from the camera's perspective
     private Vector vTo; // vector pointing towards the camera's view direction
@@ -31,6 +173,24 @@ public class Camera {
     private RayTracerBase rayTracerBase = null;
 
     private Boolean multiThreading = true;
+    private int packetSize = 1; // The side of the blocks of pixels that are traced together, 1 for single rays
+    private int tileSize = 16; // The side of the tiles of pixels that the render threads take one at a time
+    private ThreadPool threadPool = ThreadPool.PLATFORM; // The threads that render the tiles
+    private int threadCount = Runtime.getRuntime().availableProcessors(); // The size of the platform pool
+    // The threads of the camera, kept between the passes and the renders, and the kind and the size they were made for
+    private ExecutorService pool = null;
+    private ThreadPool poolKind = null;
+    private int poolThreads = 0;
+    private int adaptiveDepth = 0; // The max depth of the adaptive supersampling, 0 for a ray through every center
+    private double adaptiveThreshold = 0; // The color difference (of 255) that splits a square of the supersampling
+    private Path checkpointFile = null; // The checkpoint file of the render, null for a render without checkpoints
+    private Duration checkpointInterval = Duration.ZERO; // The time between the writes of the checkpoint file
+    private final LongAdder tracedRays = new LongAdder(); // The camera rays that the last render traced
+    private final LongAdder duplicateRays = new LongAdder(); // The rays of them that two tiles traced at once
+    // The samples of the adaptive supersampling on the borders between the tiles, shared by the tiles around them
+    // until they are all done
+    private final Map<Long, Color> borderSamples = new ConcurrentHashMap<>();
+    private AtomicIntegerArray doneTiles = null; // The tiles of the adaptive supersampling that are done (1) or not
 
     /**
      * Constructor for Camera class.
@@ -124,6 +284,154 @@ public class Camera {
         return this;
     }
 
+    /**
+     * Setter of the size of the ray packets - the camera rays of every block of size x size pixels are traced
+     * together through the scene (see {@link RayPacket}), which saves box tests since neighbouring rays
+     * visit the same nodes of the hierarchies
+     *
+     * @param packetSize the side of the blocks, 1 to trace every ray alone
+     * @return this camera
+     * @throws IllegalArgumentException if the size is not positive or the block is larger than a packet
+     */
+    public Camera setPacketSize(int packetSize) {
+        if (packetSize < 1 || packetSize * packetSize > RayPacket.MAX_SIZE)
+            throw new IllegalArgumentException(
+                    "Packet size must be between 1 and " + (int) Math.sqrt(RayPacket.MAX_SIZE));
+        this.packetSize = packetSize;
+        return this;
+    }
+
+    /**
+     * Setter of the size of the tiles - the render threads take square tiles of size x size pixels one at a time,
+     * and every tile is rendered into a buffer of its own before it is written into the image
+     *
+     * @param tileSize the side of the tiles
+     * @return this camera
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Camera setTileSize(int tileSize) {
+        if (tileSize < 1)
+            throw new IllegalArgumentException("Tile size must be positive");
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Setter of the threads that render the tiles of the image
+     *
+     * @param threadPool the kind of the threads
+     * @return this camera
+     * @throws UnsupportedOperationException for virtual threads on a JVM without them (before Java 21)
+     */
+    public Camera setThreadPool(ThreadPool threadPool) {
+        if (threadPool == ThreadPool.VIRTUAL && !TileScheduler.hasVirtualThreads())
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+        this.threadPool = threadPool;
+        return this;
+    }
+
+    /**
+     * Setter of the number of the threads of the camera's own pool ({@link ThreadPool#PLATFORM}),
+     * the number of the processors by default
+     *
+     * @param threadCount the number of the threads
+     * @return this camera
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public Camera setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("Thread count must be positive");
+        this.threadCount = threadCount;
+        return this;
+    }
+
+    /**
+     * Setter of the adaptive supersampling - the rays go through the corners of the pixels (a corner is shared by
+     * the pixels around it), and a square whose corners differ in a color component by more than the threshold is
+     * split into four squares, down to the max depth; the color of a square is the average of its corners or of its
+     * four squares. Samples on the shared edges and corners of the squares are traced once.
+     *
+     * @param maxDepth  the max number of times that a pixel is split, 0 for a ray through the center of every pixel
+     * @param threshold the difference of a color component (of 255) above which a square is split
+     * @return this camera
+     * @throws IllegalArgumentException if the depth is negative or larger than 10, or the threshold is negative
+     */
+    public Camera setAdaptiveSampling(int maxDepth, double threshold) {
+        if (maxDepth < 0 || maxDepth > 10)
+            throw new IllegalArgumentException("Adaptive sampling depth must be between 0 and 10");
+        if (threshold < 0)
+            throw new IllegalArgumentException("Adaptive sampling threshold can't be negative");
+        this.adaptiveDepth = maxDepth;
+        this.adaptiveThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Setter of the checkpoints of the renders: while the image is rendered its samples are written into the file
+     * every interval (by a thread of its own, so the render doesn't wait), and a render that finds a file of the same
+     * render, camera, scene and resolution goes on from it. {@link #renderImage()} appends the colors of its finished
+     * tiles to the file and renders only the tiles that are missing in it, and the other renders keep the sums of
+     * the samples of the pixels and their numbers as doubles:
+     * {@link #renderProgressive(int, Consumer)} goes on after the last pass in the file (whose snapshot is its first
+     * one), and {@link #renderImage(Duration)} goes on adding samples to the pixels of the file for the rest of its
+     * budget (the time that the render in the file spent is a part of the budget). Since the sums aren't rounded, a
+     * resumed render ends with the same image as a render that was never stopped. The file is deleted when the render
+     * is finished.
+     *
+     * @param file     the checkpoint file, null for a render without checkpoints
+     * @param interval the time between the writes of the file
+     * @return this camera
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public Camera setCheckpoint(Path file, Duration interval) {
+        if (interval.isNegative())
+            throw new IllegalArgumentException("The checkpoint interval can't be negative");
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        return this;
+    }
+
+    /**
+     * Getter of the number of the camera rays that the last render traced (not the shadow, reflected and refracted
+     * rays)
+     *
+     * @return the number of the rays
+     */
+    public long getTracedRays() {
+        return tracedRays.sum();
+    }
+
+    /**
+     * Getter of the number of the camera rays that the last render traced twice - corners of the pixels on the border
+     * between two tiles of the adaptive supersampling that both tiles traced at the same time. They are counted in
+     * {@link #getTracedRays()} too.
+     *
+     * @return the number of the rays
+     */
+    public long getDuplicateRays() {
+        return duplicateRays.sum();
+    }
+
+    /**
+     * Getter of the number of the samples of the adaptive supersampling on the borders between the tiles that are
+     * kept now for the tiles around them
+     *
+     * @return the number of the samples
+     */
+    int getBorderSamples() {
+        return borderSamples.size();
+    }
+
+    /**
+     * Getter of the number of the camera rays that uniform supersampling of the image would trace at the resolution
+     * of the max depth of the adaptive supersampling - 4^depth rays in every pixel
+     *
+     * @return the number of the rays
+     */
+    public long getUniformRays() {
+        return (long) imageWriter.getNx() * imageWriter.getNy() << 2 * adaptiveDepth;
+    }
+
     /**
      * Constructs a ray that passes through a specific pixel on the camera's view plane.
      *
@@ -134,6 +442,19 @@ public class Camera {
      * @return the ray from the camera to the specified pixel
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
+        return constructRay(nX, nY, (double) j, (double) i);
+    }
+
+    /**
+     * Constructs a ray that passes through a point of a pixel - the pixel centers are at whole indices
+     *
+     * @param nX the number of columns in the view plane
+     * @param nY the number of rows in the view plane
+     * @param j  the column of the point on the view plane, in pixels
+     * @param i  the row of the point on the view plane, in pixels
+     * @return the ray from the camera to the point
+     */
+    private Ray constructRay(int nX, int nY, double j, double i) {
         //image center
         Point Pc = p0.add(vTo.scale(distance));
 
@@ -163,43 +484,321 @@ public class Camera {
      * Color all the pixels of the image
      */
     public Camera renderImage() {
-        if (p0 == null || vRight == null
-                || vUp == null || vTo == null || distance == 0
-                || width == 0 || height == 0 || p0 == null
-                || imageWriter == null || rayTracerBase == null) {
-            throw new MissingResourceException("Missing camera data", Camera.class.getName(), null);
-        }
-
+        checkRenderData();
         int nX = imageWriter.getNx();
         int nY = imageWriter.getNy();
 
-        if(multiThreading)
-        {
+        // Every worker renders whole tiles, so the workers share only the counter of the tiles
+        Pixel.initialize(nY, nX, multiThreading ? 60 : 0);
+        tracedRays.reset();
+        duplicateRays.reset();
+        TileScheduler scheduler = new TileScheduler(nX, nY, tileSize);
+        doneTiles = new AtomicIntegerArray(scheduler.getTiles().length);
+        if (checkpointFile == null) {
+            try {
+                runTiles(scheduler, tile -> renderTile(nX, nY, tile, null));
+            } finally {
+                borderSamples.clear();
+            }
+            return this;
+        }
 
-            Pixel.initialize(nY, nX, 60);
-            IntStream.range(0, nY).parallel().forEach(i->{
-                IntStream.range(0, nX).parallel().forEach(j->{
-                    castRay(nX, nY, j, i);
-                    Pixel.pixelDone();
-                    Pixel.printPixel();
-                });
+        // The tiles of the checkpoint file are written as they are, and the rest are rendered
+        RenderCheckpoint checkpoint = new RenderCheckpoint(checkpointFile, checkpointInterval, getCheckpointKey(),
+                RenderCheckpoint.Mode.IMAGE, nX, nY, tileSize, scheduler);
+        Pixel.pixelsDone(checkpoint.restore(imageWriter));
+        for (TileScheduler.Tile tile : scheduler.getTiles())
+            if (checkpoint.isDone(tile.index))
+                doneTiles.set(tile.index, 1); // It shares no samples with the tiles around it
+        boolean finished = false;
+        try {
+            runTiles(scheduler, tile -> {
+                if (!checkpoint.isDone(tile.index))
+                    renderTile(nX, nY, tile, checkpoint);
             });
+            finished = true;
+        } finally {
+            checkpoint.close(finished);
+            borderSamples.clear();
         }
-        else {
+        return this;
+    }
 
-            // GO over all the pixels of the view plane
-            for (int i = 0; i < nX; i++) {
-                for (int j = 0; j < nY; j++) {
-                    // Construct a ray through the current pixel
-                    Ray ray = this.constructRay(nX, nY, j, i);
-                    // Color the pixel
-                    imageWriter.writePixel(j, i, rayTracerBase.traceRay(ray));
+    /**
+     * Calculates the key of the checkpoints of the camera - the SHA-256 digest of everything that changes the colors
+     * of the pixels: the view and the adaptive supersampling of the camera, and the fingerprint of its ray tracer
+     * (its settings and its scene, see {@link RayTracerBase#fingerprint(MessageDigest)})
+     *
+     * @return the key
+     * @throws IllegalStateException if SHA-256 isn't supported
+     */
+    private byte[] getCheckpointKey() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        ByteBuffer view = ByteBuffer.allocate(13 * Double.BYTES + Integer.BYTES);
+        for (double value : new double[]{p0.getX(), p0.getY(), p0.getZ(), vTo.getX(), vTo.getY(), vTo.getZ(),
+                vUp.getX(), vUp.getY(), vUp.getZ(), width, height, distance, adaptiveThreshold})
+            view.putDouble(value);
+        digest.update(view.putInt(adaptiveDepth).array());
+        rayTracerBase.fingerprint(digest);
+        return digest.digest();
+    }
+
+    /**
+     * Color all the pixels of the image progressively: the first pass traces a ray for every block of
+     * {@value #PREVIEW_STEP}x{@value #PREVIEW_STEP} pixels, every next pass halves the blocks until every pixel has
+     * its own ray, and then every extra pass adds another ray in every pixel (at a different point of the pixel) and
+     * shows the average. After every pass the callback gets a snapshot of the image.
+     * The passes at the full resolution trace the same rays as {@link #renderImage()} (every pass traces only the
+     * pixels that the former passes didn't), so without extra passes the image is the same and the previews cost
+     * only their snapshots. With a checkpoint file (see {@link #setCheckpoint(Path, Duration)}) the sums of the
+     * samples of the whole image are kept after every pass.
+     *
+     * @param extraSamples the number of the extra passes
+     * @param onPass       gets the snapshot of every pass (on the calling thread)
+     * @return this camera
+     * @throws IllegalArgumentException if the number of the extra passes is negative
+     */
+    public Camera renderProgressive(int extraSamples, Consumer<Snapshot> onPass) {
+        checkRenderData();
+        if (extraSamples < 0)
+            throw new IllegalArgumentException("The number of extra samples can't be negative");
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+
+        tracedRays.reset();
+        duplicateRays.reset();
+        Pixel.initialize(nY, nX, 0); // The snapshots of the passes show the progress
+
+        int refinements = Integer.numberOfTrailingZeros(PREVIEW_STEP) + 1; // The passes until a ray in every pixel
+        int passes = refinements + extraSamples;
+        TileScheduler scheduler = new TileScheduler(nX, nY, tileSize);
+        Color[] samples = new Color[nX * nY]; // The sums of the samples of the pixels row after row
+        RenderCheckpoint checkpoint = checkpointFile == null ? null : new RenderCheckpoint(checkpointFile,
+                checkpointInterval, getCheckpointKey(), RenderCheckpoint.Mode.PROGRESSIVE, nX, nY, tileSize,
+                scheduler);
+        int restored = checkpoint == null ? 0 : (int) Math.max(0, checkpoint.restore());
+        if (restored > passes)
+            restored = 0; // A render of more passes - its file is kept until the first pass of this render
+
+        Snapshot snapshot = null;
+        boolean finished = false;
+        try {
+            if (restored > 0) {
+                for (TileScheduler.Tile tile : scheduler.getTiles()) {
+                    Color[] sums = checkpoint.getSums(tile);
+                    int k = 0;
+                    for (int y = tile.y0; y < tile.y1; ++y)
+                        for (int x = tile.x0; x < tile.x1; ++x)
+                            samples[y * nX + x] = sums[k++];
+                }
+                snapshot = snapshot(nX, nY, samples, restored, refinements, passes);
+                onPass.accept(snapshot);
+            }
+            for (int pass = restored + 1; pass <= passes; ++pass) {
+                if (pass <= refinements) {
+                    int step = PREVIEW_STEP >> (pass - 1);
+                    runTiles(new TileScheduler(nX, nY, tileSize),
+                            tile -> traceRefinement(nX, nY, tile, step, samples));
+                } else {
+                    int extra = pass - refinements;
+                    runTiles(new TileScheduler(nX, nY, tileSize), tile -> {
+                        Color[] colors = traceExtraSample(nX, nY, tile, extra);
+                        int k = 0;
+                        for (int y = tile.y0; y < tile.y1; ++y)
+                            for (int x = tile.x0; x < tile.x1; ++x)
+                                samples[y * nX + x] = samples[y * nX + x].add(colors[k++]);
+                    });
                 }
+                if (checkpoint != null)
+                    checkpoint.passDone(pass, samples, Math.max(1, pass - refinements + 1));
+                snapshot = snapshot(nX, nY, samples, pass, refinements, passes);
+                onPass.accept(snapshot);
             }
+            snapshot.writeTo(imageWriter);
+            finished = true;
+        } finally {
+            if (checkpoint != null)
+                checkpoint.close(finished);
         }
         return this;
     }
 
+    /**
+     * Makes the snapshot of a pass of a progressive render
+     *
+     * @param nX          - resolution on X axis (number of pixels in row)
+     * @param nY          - resolution on Y axis (number of pixels in column)
+     * @param samples     - the sums of the samples of the pixels row after row
+     * @param pass        - the number of the pass (from 1)
+     * @param refinements - the number of the passes until every pixel has its own ray
+     * @param passes      - the number of all the passes
+     * @return the snapshot
+     */
+    private static Snapshot snapshot(int nX, int nY, Color[] samples, int pass, int refinements, int passes) {
+        return pass <= refinements
+                ? Snapshot.ofBlocks(nX, nY, samples, PREVIEW_STEP >> (pass - 1), pass, pass == passes)
+                : Snapshot.ofAverages(nX, nY, samples, pass - refinements + 1, pass, pass == passes);
+    }
+
+    /**
+     * Color all the pixels of the image within a time budget: first a ray through the center of every pixel (this
+     * pass is always completed, even after the budget), and then until the budget runs out extra rays through other
+     * points of the pixels (which also send other reflected, refracted and glossy rays) in the tiles whose pixels vary
+     * the most. A tile gets a whole extra ray in every pixel at a time, so the render stops at most one tile of every
+     * thread after the budget, and every pixel is the average of its rays.
+     * The variance of a tile is the variance of the brightness of the samples of its pixels divided by their number
+     * (the variance of the averages). It is unknown before the tile has an extra sample, so every tile gets its first
+     * extra sample before any tile gets a second one. Tiles without any variance or with
+     * {@value #MAX_BUDGET_SAMPLES} samples get no more samples, so the render may end before the budget. Adaptive
+     * supersampling isn't used in this render. With a checkpoint file (see {@link #setCheckpoint(Path, Duration)})
+     * the sums of the samples of a tile are kept after every sample of the tile.
+     *
+     * @param budget the wall-clock time of the render
+     * @return this camera
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public Camera renderImage(Duration budget) {
+        checkRenderData();
+        if (budget.isNegative())
+            throw new IllegalArgumentException("The time budget can't be negative");
+        long start = System.nanoTime();
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        tracedRays.reset();
+        duplicateRays.reset();
+
+        // The base pass, whose progress is reported, only of the tiles that the checkpoint file doesn't have
+        Pixel.initialize(nY, nX, multiThreading ? 60 : 0);
+        TileScheduler scheduler = new TileScheduler(nX, nY, tileSize);
+        TileSamples[] tiles = new TileSamples[scheduler.getTiles().length];
+        RenderCheckpoint checkpoint = checkpointFile == null ? null : new RenderCheckpoint(checkpointFile,
+                checkpointInterval, getCheckpointKey(), RenderCheckpoint.Mode.BUDGET, nX, nY, tileSize, scheduler);
+        // The time that the resumed render spent is a part of the budget
+        long spent = checkpoint == null ? 0 : Math.max(0, checkpoint.restore());
+        long deadline = start + budget.toNanos() - spent;
+        if (checkpoint != null)
+            for (TileScheduler.Tile tile : scheduler.getTiles())
+                if (checkpoint.isDone(tile.index)) {
+                    tiles[tile.index] = new TileSamples(tile, checkpoint);
+                    Pixel.pixelsDone(tile.size());
+                }
+        boolean finished = false;
+        try {
+            runTiles(scheduler, tile -> {
+                if (tiles[tile.index] != null)
+                    return;
+                tiles[tile.index] = new TileSamples(tile, traceCenters(nX, nY, tile));
+                tiles[tile.index].keep(checkpoint, spent + System.nanoTime() - start);
+                Pixel.pixelsDone(tile.size());
+            });
+
+            // The extra samples, the tiles without an extra sample first and then the tile of the highest variance
+            PriorityQueue<TileSamples> queue = new PriorityQueue<>(
+                    Comparator.comparingDouble((TileSamples tile) -> tile.variance).reversed());
+            for (TileSamples tile : tiles)
+                if (tile.variance > 0 && tile.samples < MAX_BUDGET_SAMPLES)
+                    queue.add(tile);
+            // Every worker takes the tile of the highest variance until the time runs out
+            runWorkers(Runtime.getRuntime().availableProcessors(), () -> {
+                while (System.nanoTime() < deadline) {
+                    TileSamples tile;
+                    synchronized (queue) {
+                        tile = queue.poll();
+                    }
+                    if (tile == null)
+                        return;
+                    tile.addSample(traceExtraSample(nX, nY, tile.tile, tile.samples));
+                    tile.keep(checkpoint, spent + System.nanoTime() - start);
+                    if (tile.variance > 0 && tile.samples < MAX_BUDGET_SAMPLES)
+                        synchronized (queue) {
+                            queue.add(tile);
+                        }
+                }
+            });
+
+            for (TileSamples tile : tiles)
+                writeTile(tile.tile, tile.sums, tile.samples);
+            finished = true;
+        } finally {
+            if (checkpoint != null)
+                checkpoint.close(finished);
+        }
+        return this;
+    }
+
+    /**
+     * Checks that the camera has all it needs in order to render
+     *
+     * @throws MissingResourceException if some data is missing
+     */
+    private void checkRenderData() {
+        if (p0 == null || vRight == null
+                || vUp == null || vTo == null || distance == 0
+                || width == 0 || height == 0 || p0 == null
+                || imageWriter == null || rayTracerBase == null) {
+            throw new MissingResourceException("Missing camera data", Camera.class.getName(), null);
+        }
+    }
+
+    /**
+     * Render all the tiles of a scheduler on the threads of the camera, and wait for them
+     *
+     * @param scheduler the scheduler of the tiles
+     * @param render    renders a tile
+     */
+    private void runTiles(TileScheduler scheduler, Consumer<TileScheduler.Tile> render) {
+        runWorkers(scheduler.getTiles().length, scheduler.worker(render)); // A virtual thread for every tile
+    }
+
+    /**
+     * Run copies of a worker on the threads of the camera, and wait for them while the calling thread reports the
+     * progress (see {@link Pixel#printPixel()}) - the workers only count their pixels
+     *
+     * @param virtualThreads the number of the workers on virtual threads (like a thread for every tile)
+     * @param worker         the worker, which takes tasks until there are none left
+     */
+    private void runWorkers(int virtualThreads, Runnable worker) {
+        if (!multiThreading) {
+            worker.run();
+            return;
+        }
+
+        int workers = switch (threadPool) {
+            case PLATFORM -> threadCount;
+            case COMMON -> ForkJoinPool.getCommonPoolParallelism();
+            case VIRTUAL -> virtualThreads;
+        };
+        TileScheduler.runWorkers(threadPool == ThreadPool.COMMON ? ForkJoinPool.commonPool() : getPool(), workers,
+                worker, PROGRESS_INTERVAL, Pixel::printPixel);
+    }
+
+    /**
+     * Returns the threads of the camera. The pool is kept for all the passes and the renders of the camera (its idle
+     * platform threads end by themselves, see {@link TileScheduler#newPlatformPool(int)}), and it is made again only
+     * when the kind or the number of the threads has changed.
+     *
+     * @return the pool of the threads
+     */
+    private synchronized ExecutorService getPool() {
+        int threads = threadPool == ThreadPool.PLATFORM ? threadCount : Runtime.getRuntime().availableProcessors();
+        if (pool == null || poolKind != threadPool || poolThreads != threads) {
+            if (pool != null)
+                pool.shutdown(); // Its threads end after their tasks
+            pool = switch (threadPool) {
+                case PLATFORM -> TileScheduler.newPlatformPool(threads);
+                default -> TileScheduler.newVirtualThreadExecutor(); // There are virtual threads, see setThreadPool
+            };
+            poolKind = threadPool;
+            poolThreads = threads;
+        }
+        return pool;
+    }
+
     /**
      * Print the grid
      *
@@ -231,19 +830,365 @@ public class Camera {
     }
 
     /**
-     * Cast ray from camera in order to color a pixel
+     * Render a tile of pixels into a buffer of its own and then write the buffer into the image.
+     * If the packets are on, the rays of every block of the tile are traced together, and if the ray tracer traces
+     * groups (like the deferred mode of {@link RayTracerBasic}) all the rays of the tile are one group.
+     *
+     * @param nX         - resolution on X axis (number of pixels in row)
+     * @param nY         - resolution on Y axis (number of pixels in column)
+     * @param tile       - the tile
+     * @param checkpoint - keeps the finished tile, null for a render without checkpoints
+     */
+    private void renderTile(int nX, int nY, TileScheduler.Tile tile, RenderCheckpoint checkpoint) {
+        int width = tile.x1 - tile.x0;
+        Color[] buffer;
+        if (adaptiveDepth > 0) {
+            buffer = new Color[tile.size()];
+            sampleAdaptive(nX, nY, tile, buffer);
+        } else if (packetSize == 1 || rayTracerBase.tracesGroups())
+            buffer = traceCenters(nX, nY, tile); // The whole tile is one group for a tracer of groups
+        else {
+            buffer = new Color[tile.size()];
+            for (int y0 = tile.y0; y0 < tile.y1; y0 += packetSize)
+                for (int x0 = tile.x0; x0 < tile.x1; x0 += packetSize) {
+                    int xEnd = Math.min(tile.x1, x0 + packetSize), yEnd = Math.min(tile.y1, y0 + packetSize);
+                    Ray[] rays = new Ray[(xEnd - x0) * (yEnd - y0)];
+                    int k = 0;
+                    for (int y = y0; y < yEnd; ++y)
+                        for (int x = x0; x < xEnd; ++x)
+                            rays[k++] = constructRay(nX, nY, x, y);
+
+                    Color[] colors = rayTracerBase.traceRays(rays);
+                    k = 0;
+                    for (int y = y0; y < yEnd; ++y)
+                        for (int x = x0; x < xEnd; ++x)
+                            buffer[(y - tile.y0) * width + x - tile.x0] = colors[k++];
+                }
+            tracedRays.add(buffer.length);
+        }
+
+        writeTile(tile, buffer, 1);
+        if (adaptiveDepth > 0)
+            evictBorder(nX, nY, tile);
+        if (checkpoint != null)
+            checkpoint.tileDone(tile, buffer);
+        Pixel.pixelsDone(buffer.length);
+    }
+
+    /**
+     * Write the averages of the samples of the pixels of a tile into the image
+     *
+     * @param tile    - the tile
+     * @param sums    - the sums of the samples of the pixels row after row
+     * @param samples - the number of the samples of every pixel
+     */
+    private void writeTile(TileScheduler.Tile tile, Color[] sums, int samples) {
+        int k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x, ++k)
+                imageWriter.writePixel(x, y, samples == 1 ? sums[k] : sums[k].reduce(samples));
+    }
+
+    /**
+     * Color the pixels of a tile by adaptive supersampling - first the corners of all the pixels, and then the splits
+     * of the squares whose corners differ. The samples are kept on a grid of 2^depth points on the side of a pixel,
+     * so a sample on the edge of two squares is traced once. The samples on the borders of the tile are kept for the
+     * tiles around it, and the corners that such a tile has already traced aren't traced again.
+     *
+     * @param nX     - resolution on X axis (number of pixels in row)
+     * @param nY     - resolution on Y axis (number of pixels in column)
+     * @param tile   - the tile
+     * @param buffer - the colors of the pixels of the tile row after row
+     */
+    private void sampleAdaptive(int nX, int nY, TileScheduler.Tile tile, Color[] buffer) {
+        int n = 1 << adaptiveDepth; // The points of the grid on the side of a pixel
+        Map<Long, Color> samples = new HashMap<>(); // The samples inside the tile
+
+        // The corners of the pixels that weren't traced yet, together (in packets if they are on)
+        int width = tile.x1 - tile.x0 + 1, height = tile.y1 - tile.y0 + 1;
+        Ray[] rays = new Ray[width * height];
+        long[] keys = new long[width * height];
+        int k = 0;
+        for (int y = tile.y0; y <= tile.y1; ++y)
+            for (int x = tile.x0; x <= tile.x1; ++x) {
+                long key = gridKey(x * n, y * n);
+                if (!onBorder(nX, nY, x * n, y * n) || !borderSamples.containsKey(key)) {
+                    keys[k] = key;
+                    rays[k++] = constructRay(nX, nY, x - 0.5, y - 0.5);
+                }
+            }
+        Color[] colors = trace(Arrays.copyOf(rays, k));
+        tracedRays.add(k);
+        for (int i = 0; i < k; ++i)
+            if (!onBorder(nX, nY, (int) (keys[i] >> 32), (int) keys[i]))
+                samples.put(keys[i], colors[i]);
+            else if (borderSamples.putIfAbsent(keys[i], colors[i]) != null)
+                duplicateRays.increment(); // The tile on the other side traced it at the same time
+
+        k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x)
+                buffer[k++] = sampleSquare(nX, nY, x * n, y * n, n, samples);
+    }
+
+    /**
+     * Calculate the color of a square of the adaptive supersampling - the average of its corners if they are close
+     * or the square is at the max depth, otherwise the average of its four squares
+     *
+     * @param nX      - resolution on X axis (number of pixels in row)
+     * @param nY      - resolution on Y axis (number of pixels in column)
+     * @param gx      - the column of the top left corner on the grid
+     * @param gy      - the row of the top left corner on the grid
+     * @param size    - the side of the square on the grid
+     * @param samples - the traced samples by their keys on the grid
+     * @return the color of the square
+     */
+    private Color sampleSquare(int nX, int nY, int gx, int gy, int size, Map<Long, Color> samples) {
+        Color c1 = sample(nX, nY, gx, gy, samples), c2 = sample(nX, nY, gx + size, gy, samples);
+        Color c3 = sample(nX, nY, gx, gy + size, samples), c4 = sample(nX, nY, gx + size, gy + size, samples);
+        if (size == 1 || !differ(c1, c2, c3, c4))
+            return c1.add(c2, c3, c4).reduce(4);
+
+        int half = size / 2;
+        return sampleSquare(nX, nY, gx, gy, half, samples)
+                .add(sampleSquare(nX, nY, gx + half, gy, half, samples),
+                        sampleSquare(nX, nY, gx, gy + half, half, samples),
+                        sampleSquare(nX, nY, gx + half, gy + half, half, samples))
+                .reduce(4);
+    }
+
+    /**
+     * Get the color of a point of the grid of the adaptive supersampling, and trace it if it wasn't traced yet - by
+     * this tile or, for a point on the border between tiles, by the tiles around it
+     *
+     * @param nX      - resolution on X axis (number of pixels in row)
+     * @param nY      - resolution on Y axis (number of pixels in column)
+     * @param gx      - the column of the point on the grid
+     * @param gy      - the row of the point on the grid
+     * @param samples - the traced samples inside the tile by their keys on the grid
+     * @return the color of the point
+     */
+    private Color sample(int nX, int nY, int gx, int gy, Map<Long, Color> samples) {
+        if (!onBorder(nX, nY, gx, gy))
+            return samples.computeIfAbsent(gridKey(gx, gy), key -> traceSample(nX, nY, gx, gy));
+
+        // A point on a border is traced outside the shared map, so no other tile waits for the trace
+        long key = gridKey(gx, gy);
+        Color color = borderSamples.get(key);
+        if (color != null)
+            return color;
+        color = traceSample(nX, nY, gx, gy);
+        Color other = borderSamples.putIfAbsent(key, color);
+        if (other == null)
+            return color;
+        duplicateRays.increment(); // The tile on the other side traced it at the same time
+        return other;
+    }
+
+    /**
+     * Trace the ray through a point of the grid of the adaptive supersampling
+     *
+     * @param nX - resolution on X axis (number of pixels in row)
+     * @param nY - resolution on Y axis (number of pixels in column)
+     * @param gx - the column of the point on the grid
+     * @param gy - the row of the point on the grid
+     * @return the color of the point
+     */
+    private Color traceSample(int nX, int nY, int gx, int gy) {
+        double n = 1 << adaptiveDepth;
+        tracedRays.increment();
+        return rayTracerBase.traceRay(constructRay(nX, nY, gx / n - 0.5, gy / n - 0.5));
+    }
+
+    /**
+     * Mark a tile of the adaptive supersampling as done, and remove the samples on its borders whose tiles are all
+     * done - no tile needs them any more, so the shared samples are bounded by the borders of the tiles in progress
      *
      * @param nX   - resolution on X axis (number of pixels in row)
      * @param nY   - resolution on Y axis (number of pixels in column)
-     * @param icol - pixel's column number (pixel index in row)
-     * @param jrow - pixel's row number (pixel index in column)
+     * @param tile - the tile
      */
-    private void castRay(int nX, int nY, int icol, int jrow) {
-        Ray ray = constructRay(nX, nY, jrow, icol);
-        Color pixelColor = this.rayTracerBase.traceRay(ray);
-        imageWriter.writePixel(jrow, icol, pixelColor);
+    private void evictBorder(int nX, int nY, TileScheduler.Tile tile) {
+        doneTiles.set(tile.index, 1);
+        int n = 1 << adaptiveDepth;
+        int left = tile.x0 * n, right = tile.x1 * n, top = tile.y0 * n, bottom = tile.y1 * n;
+        for (int gy = top; gy <= bottom; ++gy) {
+            evictSample(nX, nY, left, gy);
+            evictSample(nX, nY, right, gy);
+        }
+        for (int gx = left + 1; gx < right; ++gx) {
+            evictSample(nX, nY, gx, top);
+            evictSample(nX, nY, gx, bottom);
+        }
+    }
+
+    /**
+     * Remove a sample on a border between tiles of the adaptive supersampling if all the tiles around it are done
+     * (two tiles on an edge, four on a corner)
+     *
+     * @param nX - resolution on X axis (number of pixels in row)
+     * @param nY - resolution on Y axis (number of pixels in column)
+     * @param gx - the column of the point on the grid
+     * @param gy - the row of the point on the grid
+     */
+    private void evictSample(int nX, int nY, int gx, int gy) {
+        if (!onBorder(nX, nY, gx, gy))
+            return;
+        int side = tileSize << adaptiveDepth; // The side of a tile on the grid
+        int tilesX = (nX + tileSize - 1) / tileSize;
+        int column = Math.min(gx / side, tilesX - 1), row = Math.min(gy / side, (nY + tileSize - 1) / tileSize - 1);
+        // The tiles before the point share it if it is on their right or bottom side
+        int firstColumn = gx % side == 0 && gx > 0 ? gx / side - 1 : column;
+        int firstRow = gy % side == 0 && gy > 0 ? gy / side - 1 : row;
+        for (int y = firstRow; y <= row; ++y)
+            for (int x = firstColumn; x <= column; ++x)
+                if (doneTiles.get(y * tilesX + x) == 0)
+                    return;
+        borderSamples.remove(gridKey(gx, gy));
+    }
+
+    /**
+     * Check whether a point of the grid of the adaptive supersampling is on the border between two tiles (not on the
+     * edge of the image)
+     *
+     * @param nX - resolution on X axis (number of pixels in row)
+     * @param nY - resolution on Y axis (number of pixels in column)
+     * @param gx - the column of the point on the grid
+     * @param gy - the row of the point on the grid
+     * @return true if the point is on a border
+     */
+    private boolean onBorder(int nX, int nY, int gx, int gy) {
+        int side = tileSize << adaptiveDepth; // The side of a tile on the grid
+        return gx % side == 0 && gx > 0 && gx < nX << adaptiveDepth
+                || gy % side == 0 && gy > 0 && gy < nY << adaptiveDepth;
+    }
+
+    /**
+     * Calculate the key of a point of the grid of the adaptive supersampling
+     *
+     * @param gx - the column of the point on the grid
+     * @param gy - the row of the point on the grid
+     * @return the key
+     */
+    private static long gridKey(int gx, int gy) {
+        return (long) gx << 32 | gy & 0xffffffffL;
+    }
+
+    /**
+     * Check whether colors differ in a component (of 255) by more than the threshold of the adaptive supersampling
+     *
+     * @param colors - the colors
+     * @return true if they differ
+     */
+    private boolean differ(Color... colors) {
+        int minR = 255, minG = 255, minB = 255, maxR = 0, maxG = 0, maxB = 0;
+        for (Color color : colors) {
+            java.awt.Color rgb = color.getColor();
+            minR = Math.min(minR, rgb.getRed());
+            maxR = Math.max(maxR, rgb.getRed());
+            minG = Math.min(minG, rgb.getGreen());
+            maxG = Math.max(maxG, rgb.getGreen());
+            minB = Math.min(minB, rgb.getBlue());
+            maxB = Math.max(maxB, rgb.getBlue());
+        }
+        return Math.max(maxR - minR, Math.max(maxG - minG, maxB - minB)) > adaptiveThreshold;
     }
-}
 
+    /**
+     * Trace the rays of a tile in one pass of the progressive render - the pixels at the corners of the blocks of the
+     * pass that weren't traced in the former pass (whose blocks are twice as large)
+     *
+     * @param nX      - resolution on X axis (number of pixels in row)
+     * @param nY      - resolution on Y axis (number of pixels in column)
+     * @param tile    - the tile
+     * @param step    - the side of the blocks of the pass
+     * @param samples - the colors of the pixels row after row
+     */
+    private void traceRefinement(int nX, int nY, TileScheduler.Tile tile, int step, Color[] samples) {
+        boolean first = step == PREVIEW_STEP;
+        int count = 0;
+        int[] indices = new int[tile.size()];
+        Ray[] rays = new Ray[tile.size()];
+        for (int y = tile.y0 + Math.floorMod(-tile.y0, step); y < tile.y1; y += step)
+            for (int x = tile.x0 + Math.floorMod(-tile.x0, step); x < tile.x1; x += step)
+                if (first || x % (2 * step) != 0 || y % (2 * step) != 0) {
+                    indices[count] = y * nX + x;
+                    rays[count++] = constructRay(nX, nY, x, y);
+                }
 
+        tracedRays.add(count);
+        Color[] colors = trace(Arrays.copyOf(rays, count));
+        for (int k = 0; k < count; ++k)
+            samples[indices[k]] = colors[k];
+    }
+
+    /**
+     * Trace a ray through the center of every pixel of a tile
+     *
+     * @param nX   - resolution on X axis (number of pixels in row)
+     * @param nY   - resolution on Y axis (number of pixels in column)
+     * @param tile - the tile
+     * @return the colors of the pixels row after row
+     */
+    private Color[] traceCenters(int nX, int nY, TileScheduler.Tile tile) {
+        Ray[] rays = new Ray[tile.size()];
+        int k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x)
+                rays[k++] = constructRay(nX, nY, x, y);
+        tracedRays.add(rays.length);
+        return trace(rays);
+    }
 
+    /**
+     * Trace an extra ray in every pixel of a tile - the points of the extra rays are spread over the pixel by the
+     * Halton sequence in bases 2 and 3
+     *
+     * @param nX     - resolution on X axis (number of pixels in row)
+     * @param nY     - resolution on Y axis (number of pixels in column)
+     * @param tile   - the tile
+     * @param sample - the number of the extra sample (from 1)
+     * @return the colors of the samples row after row
+     */
+    private Color[] traceExtraSample(int nX, int nY, TileScheduler.Tile tile, int sample) {
+        double dx = halton(sample, 2) - 0.5, dy = halton(sample, 3) - 0.5;
+        Ray[] rays = new Ray[tile.size()];
+        int k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x)
+                rays[k++] = constructRay(nX, nY, x + dx, y + dy);
+        tracedRays.add(rays.length);
+        return trace(rays);
+    }
+
+    /**
+     * Trace rays - together if the packets are on or the ray tracer traces groups, otherwise one by one
+     *
+     * @param rays - the rays
+     * @return the colors of the rays
+     */
+    private Color[] trace(Ray[] rays) {
+        if (packetSize > 1 || rayTracerBase.tracesGroups())
+            return rayTracerBase.traceRays(rays);
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = rayTracerBase.traceRay(rays[i]);
+        return colors;
+    }
+
+    /**
+     * Calculates an element of the Halton sequence - the digits of the index in the base mirrored behind the point
+     *
+     * @param index - the index of the element (from 1)
+     * @param base  - the base
+     * @return the element, in [0, 1)
+     */
+    private static double halton(int index, int base) {
+        double result = 0, fraction = 1;
+        for (int i = index; i > 0; i /= base) {
+            fraction /= base;
+            result += fraction * (i % base);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,459 @@
+package renderer;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.RayPacket;
+import primitives.*;
+import scene.Scene;
+
+import renderer.RayTracerBasic.Effect;
+import renderer.RayTracerBasic.GlossyGrid;
+
+import java.util.Arrays;
+
+/**
+ * Class DeferredTracer traces a group of rays (like the rays of a tile of pixels) in waves instead of one ray after
+ * another: the camera rays are traced first, then all the secondary rays that their points send (reflected,
+ * refracted and the rays of the glossy grid), then the rays that those points send and so on.
+ * The rays of every wave are sorted by the octant of their direction and by the cell of their head before they are
+ * traced, so rays that go the same way from the same area visit the same nodes of the hierarchies one after another.
+ * The camera rays share their head, so they are traced in packets of {@link RayPacket#MAX_SIZE} rays like in
+ * {@link RayTracerBasic#traceRays(Ray[])}; the secondary rays have different heads, and a packet of them tests every
+ * ray alone in every node (it was measured slower than the rays one by one), so they are traced one by one in the
+ * sorted order.
+ * The tracer doesn't shade on its own: the local effect, the secondary rays ({@link Effect}), the glossy grid
+ * ({@link GlossyGrid}) and the colors of the pixels are those of {@link RayTracerBasic}, only the order of the rays
+ * is different, so the colors are the same as when the rays are traced alone.
+ * <p>
+ * A waiting ray ({@link Trace}) and a color that waits for its parts ({@link Join}) are plain records that are taken
+ * from pools of the tracer and returned to them. All the rays of the group are one batch, so a wave holds the
+ * secondary rays of the whole group (the camera gives a tile as a group) and its memory is bounded by the group and
+ * its secondary rays. A tracer is used by one thread at a time, and it is reused by {@link RayTracerBasic} for the
+ * next group of rays, with the arrays of its largest group so far.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class DeferredTracer {
+    private static final int CELL_BITS = 10; // The bits of every coordinate of the cell in the sort key
+    private static final int KEY_BITS = 3 + 3 * CELL_BITS; // The bits of the octant and the cell in the sort key
+    private static final int CAPACITY = 2 * RayPacket.MAX_SIZE; // The first size of the arrays of the waves
+
+    // What is done with the color of a point: the color of a pixel (the ambient light is added), a global effect
+    // (scaled by the attenuation of the effect), or a part of a color as it is
+    private static final int PIXEL = 0, EFFECT = 1, PART = 2;
+    // The kinds of the rays: a camera ray, a reflected or a refracted ray, and a ray of a point of the glossy grid
+    private static final int CAMERA = 0, SECONDARY = 1, SAMPLE = 2;
+
+    private final RayTracerBasic tracer;
+    private final Scene scene;
+    private Color[] colors; // The colors of the rays that are traced now
+
+    private Trace[] wave = new Trace[CAPACITY], next = new Trace[CAPACITY]; // The rays of this wave and of the next one
+    private int waveSize = 0, nextSize = 0;
+    private long[] keys = new long[CAPACITY]; // The sort keys of the wave, with the index of the ray in the low bits
+    private Trace[] sorted = new Trace[CAPACITY]; // The rays of the wave in the order of the keys
+    private final GeoPoint[] closest = new GeoPoint[RayPacket.MAX_SIZE]; // The points of a packet
+    private Trace[] freeTraces = new Trace[CAPACITY]; // The pool of the rays
+    private int freeTraceCount = 0;
+    private Join[] freeJoins = new Join[CAPACITY]; // The pool of the joins
+    private int freeJoinCount = 0;
+
+    /**
+     * A ray that waits for its wave, with where the color of its point goes
+     */
+    private static class Trace {
+        private Ray ray;
+        private int kind; // CAMERA, SECONDARY or SAMPLE
+        private Effect effect; // The effect of a secondary ray (null for a camera ray and a point of a glossy grid)
+        private Join parent; // The join that gets the color, null for a camera ray
+        private int slot; // The slot of the color in the join (the index of the pixel of a camera ray)
+    }
+
+    /**
+     * A color that waits for its parts, and combines them when the last one arrives: the local effect of a point
+     * with its reflected and refracted colors, or the average of the points of a glossy grid.
+     * The count of the missing parts starts at one for the code that asks for the parts, so the color isn't
+     * combined before all the parts are asked for.
+     */
+    private static class Join {
+        private boolean glossy; // The average of a glossy grid, or the local effect with the global ones
+        private int missing;
+        private final Color[] parts = new Color[GlossyGrid.SLOTS]; // The colors of the parts
+        // Where the combined color goes
+        private int finish; // PIXEL, EFFECT or PART
+        private Join parent;
+        private int slot;
+        private Double3 kx; // The attenuation factor of the effect (of the glossy grid in the average)
+        // The local effect, and whether the refracted color is added
+        private Color local;
+        private boolean refracted;
+        private GlossyGrid grid; // The glossy grid
+    }
+
+    /**
+     * Constructor
+     *
+     * @param tracer the ray tracer whose colors are calculated
+     */
+    DeferredTracer(RayTracerBasic tracer) {
+        this.tracer = tracer;
+        this.scene = tracer.scene;
+    }
+
+    /**
+     * Traces the rays and all their secondary rays wave after wave
+     *
+     * @param rays the rays
+     * @return the colors of the rays (in the order of the rays)
+     */
+    Color[] trace(Ray[] rays) {
+        colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            enqueue(rays[i], CAMERA, null, null, i);
+        boolean first = true;
+        while (nextSize > 0) {
+            Trace[] swap = wave;
+            wave = next;
+            waveSize = nextSize;
+            next = swap;
+            nextSize = 0;
+            traceWave(first);
+            first = false;
+        }
+        Color[] result = colors;
+        colors = null;
+        return result;
+    }
+
+    /**
+     * Adds a ray to the next wave
+     *
+     * @param ray    the ray
+     * @param kind   CAMERA, SECONDARY or SAMPLE
+     * @param effect the effect of a secondary ray
+     * @param parent the join that gets the color, null for a camera ray
+     * @param slot   the slot of the color in the join, or the index of the pixel
+     */
+    private void enqueue(Ray ray, int kind, Effect effect, Join parent, int slot) {
+        Trace trace = freeTraceCount > 0 ? freeTraces[--freeTraceCount] : new Trace();
+        trace.ray = ray;
+        trace.kind = kind;
+        trace.effect = effect;
+        trace.parent = parent;
+        trace.slot = slot;
+        if (nextSize == next.length)
+            next = Arrays.copyOf(next, 2 * nextSize);
+        next[nextSize++] = trace;
+        if (parent != null)
+            ++parent.missing;
+    }
+
+    /**
+     * Returns a ray to the pool
+     *
+     * @param trace the ray
+     */
+    private void release(Trace trace) {
+        trace.ray = null;
+        trace.effect = null;
+        trace.parent = null;
+        if (freeTraceCount == freeTraces.length)
+            freeTraces = Arrays.copyOf(freeTraces, 2 * freeTraceCount);
+        freeTraces[freeTraceCount++] = trace;
+    }
+
+    /**
+     * Takes a join from the pool
+     *
+     * @param glossy true for the average of a glossy grid
+     * @param finish PIXEL, EFFECT or PART
+     * @param parent the join that gets the combined color
+     * @param slot   the slot of the color in the parent, or the index of the pixel
+     * @param kx     the attenuation factor
+     * @return the join, with one missing part for the code that asks for the parts
+     */
+    private Join join(boolean glossy, int finish, Join parent, int slot, Double3 kx) {
+        Join join = freeJoinCount > 0 ? freeJoins[--freeJoinCount] : new Join();
+        join.glossy = glossy;
+        join.missing = 1;
+        join.finish = finish;
+        join.parent = parent;
+        join.slot = slot;
+        join.kx = kx;
+        return join;
+    }
+
+    /**
+     * Returns a join to the pool
+     *
+     * @param join the join
+     */
+    private void release(Join join) {
+        Arrays.fill(join.parts, null);
+        join.parent = null;
+        join.kx = null;
+        join.local = null;
+        join.grid = null;
+        if (freeJoinCount == freeJoins.length)
+            freeJoins = Arrays.copyOf(freeJoins, 2 * freeJoinCount);
+        freeJoins[freeJoinCount++] = join;
+    }
+
+    /**
+     * Sorts the rays of the wave, finds their closest points and then continues the calculation of every ray
+     *
+     * @param packets true to trace the rays in packets (the camera rays)
+     */
+    private void traceWave(boolean packets) {
+        int n = waveSize;
+        if (keys.length < n) {
+            keys = new long[Math.max(n, 2 * keys.length)];
+            sorted = new Trace[keys.length];
+        }
+        sort(n);
+        for (int i = 0; i < n; ++i)
+            sorted[i] = wave[(int) (keys[i] & (1L << 64 - KEY_BITS - 1) - 1)];
+        Arrays.fill(wave, 0, n, null);
+
+        for (int start = 0; start < n; start += RayPacket.MAX_SIZE) {
+            int size = Math.min(RayPacket.MAX_SIZE, n - start);
+            if (packets) {
+                Ray[] rays = new Ray[size];
+                for (int i = 0; i < size; ++i)
+                    rays[i] = sorted[start + i].ray;
+                RayPacket packet = new RayPacket(rays);
+                scene.geometries.findClosestGeoIntersections(packet);
+                for (int i = 0; i < size; ++i)
+                    closest[i] = packet.getClosest(i);
+            } else
+                for (int i = 0; i < size; ++i)
+                    closest[i] = scene.geometries.findClosestGeoIntersection(sorted[start + i].ray);
+            for (int i = 0; i < size; ++i) {
+                Trace trace = sorted[start + i];
+                sorted[start + i] = null;
+                resume(trace, closest[i]);
+                closest[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Puts the sort keys of the rays of the wave in the keys array, sorted: the octant of the direction and then the
+     * cell of the head in a grid over the heads of the wave (in the Morton order of the cells), with the index of the
+     * ray in the low bits, so rays with the same key keep their order
+     *
+     * @param n the number of the rays of the wave
+     */
+    private void sort(int n) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; ++i) {
+            Point p0 = wave[i].ray.getP0();
+            minX = Math.min(minX, p0.getX());
+            minY = Math.min(minY, p0.getY());
+            minZ = Math.min(minZ, p0.getZ());
+            maxX = Math.max(maxX, p0.getX());
+            maxY = Math.max(maxY, p0.getY());
+            maxZ = Math.max(maxZ, p0.getZ());
+        }
+        double cells = (1 << CELL_BITS) - 1;
+        double scaleX = maxX > minX ? cells / (maxX - minX) : 0;
+        double scaleY = maxY > minY ? cells / (maxY - minY) : 0;
+        double scaleZ = maxZ > minZ ? cells / (maxZ - minZ) : 0;
+
+        for (int i = 0; i < n; ++i) {
+            Point p0 = wave[i].ray.getP0();
+            Vector v = wave[i].ray.getDirection();
+            long octant = (v.getX() < 0 ? 4 : 0) | (v.getY() < 0 ? 2 : 0) | (v.getZ() < 0 ? 1 : 0);
+            long cell = spread((long) ((p0.getX() - minX) * scaleX)) << 2
+                    | spread((long) ((p0.getY() - minY) * scaleY)) << 1
+                    | spread((long) ((p0.getZ() - minZ) * scaleZ));
+            keys[i] = (octant << 3 * CELL_BITS | cell) << 64 - KEY_BITS - 1 | i;
+        }
+        Arrays.sort(keys, 0, n);
+    }
+
+    /**
+     * Spreads the bits of a cell coordinate so that there are two zero bits between every two of them
+     *
+     * @param x the coordinate (of {@link #CELL_BITS} bits)
+     * @return the spread bits
+     */
+    private static long spread(long x) {
+        x &= (1L << CELL_BITS) - 1;
+        x = (x | x << 16) & 0x30000ffL;
+        x = (x | x << 8) & 0x300f00fL;
+        x = (x | x << 4) & 0x30c30c3L;
+        x = (x | x << 2) & 0x9249249L;
+        return x;
+    }
+
+    /**
+     * Continues the calculation of a ray after its closest point was found, and returns the ray to the pool
+     *
+     * @param trace the ray
+     * @param gp    its closest point, null if it hits nothing
+     */
+    private void resume(Trace trace, GeoPoint gp) {
+        Ray ray = trace.ray;
+        Join parent = trace.parent;
+        int slot = trace.slot;
+        Effect effect = trace.effect;
+        int kind = trace.kind;
+        release(trace);
+
+        switch (kind) {
+            case CAMERA -> {
+                if (gp == null)
+                    colors[slot] = scene.background;
+                else {
+                    Effect pixel = tracer.pixelEffect(ray);
+                    shade(gp, ray, pixel.level, pixel.kkx, PIXEL, null, slot, null);
+                }
+            }
+            case SECONDARY -> { // Like calcGlobalEffect of RayTracerBasic
+                if (gp == null)
+                    deliver(parent, slot, scene.background);
+                else {
+                    GlossyGrid grid = tracer.glossyGrid(effect, gp.point);
+                    if (grid != null)
+                        glossy(gp, grid, parent, slot);
+                    else
+                        shade(gp, ray, effect.level, effect.kkx, EFFECT, parent, slot, effect.kx);
+                }
+            }
+            default -> { // Like improvementHelper of RayTracerBasic - a missed point is Color.BLACK
+                if (gp == null)
+                    deliver(parent, slot, Color.BLACK);
+                else
+                    shade(gp, ray, parent.grid.effect.level, parent.grid.effect.kkx, PART, parent, slot, null);
+            }
+        }
+    }
+
+    /**
+     * Calculates the color of an intersection point, like the recursive calcColor of {@link RayTracerBasic}: the
+     * local effect now, and the global effects after their rays are traced
+     *
+     * @param intersection the intersection point
+     * @param ray          the ray
+     * @param level        the recursion level
+     * @param k            the attenuation factor
+     * @param finish       what is done with the color - PIXEL, EFFECT or PART
+     * @param parent       the join that gets the color
+     * @param slot         the slot of the color in the join, or the index of the pixel
+     * @param kx           the attenuation factor of an effect
+     */
+    private void shade(GeoPoint intersection, Ray ray, int level, Double3 k, int finish, Join parent, int slot,
+                       Double3 kx) {
+        Vector inRay = ray.getDirection();
+        Color color = tracer.calcLocalEffect(intersection, inRay, k);
+        if (level == 1) {
+            finish(finish, parent, slot, kx, color);
+            return;
+        }
+
+        // Sends the reflected and the refracted rays, like calcGlobalEffects of RayTracerBasic
+        Vector n = intersection.geometry.getNormal(intersection.point);
+        Effect reflected = tracer.reflectedEffect(intersection, n, inRay, level, k);
+        Effect refracted = tracer.refractedEffect(intersection, n, inRay, level, k);
+        Join join = join(false, finish, parent, slot, kx);
+        join.local = color;
+        join.refracted = refracted != null;
+        join.parts[0] = Color.BLACK;
+        if (reflected != null)
+            enqueue(reflected.ray, SECONDARY, reflected, join, 0);
+        if (refracted != null)
+            enqueue(refracted.ray, SECONDARY, refracted, join, 1);
+        done(join);
+    }
+
+    /**
+     * Asks for the colors of the glossy grid around the point of a secondary ray (the improvement of
+     * {@link RayTracerBasic}): the point itself and the first point of every group
+     *
+     * @param gp     the point of the ray
+     * @param grid   the grid
+     * @param parent the join that gets the average color
+     * @param slot   the slot of the color in the join
+     */
+    private void glossy(GeoPoint gp, GlossyGrid grid, Join parent, int slot) {
+        Effect effect = grid.effect;
+        Join join = join(true, PART, parent, slot, effect.kx);
+        join.grid = grid;
+
+        ++join.missing;
+        shade(gp, effect.ray, effect.level, effect.kkx, PART, join, 0, null);
+        for (int first = 1; first < GlossyGrid.SLOTS; first += GlossyGrid.POINTS)
+            sample(join, first);
+        done(join);
+    }
+
+    /**
+     * Sends the ray of a point of the glossy grid, like improvementHelper of {@link RayTracerBasic}: a point out of
+     * the circle gets {@link Color#BLACK} at once
+     *
+     * @param join the join of the grid
+     * @param slot the slot of the point
+     */
+    private void sample(Join join, int slot) {
+        Ray ray = join.grid.ray(slot);
+        if (ray != null)
+            enqueue(ray, SAMPLE, null, join, slot);
+        else
+            join.parts[slot] = Color.BLACK;
+    }
+
+    /**
+     * Does with a complete color what its finish says
+     *
+     * @param finish PIXEL, EFFECT or PART
+     * @param parent the join that gets the color
+     * @param slot   the slot of the color in the join, or the index of the pixel
+     * @param kx     the attenuation factor of an effect
+     * @param color  the color
+     */
+    private void finish(int finish, Join parent, int slot, Double3 kx, Color color) {
+        switch (finish) {
+            case PIXEL -> colors[slot] = tracer.pixelColor(color);
+            case EFFECT -> deliver(parent, slot, color.scale(kx));
+            default -> deliver(parent, slot, color);
+        }
+    }
+
+    /**
+     * Gives a join one of its parts. When the first point of a group of the glossy grid hits a geometry the other
+     * points of the group are asked for, like in the recursion.
+     *
+     * @param join  the join
+     * @param slot  the slot of the part
+     * @param color the color of the part
+     */
+    private void deliver(Join join, int slot, Color color) {
+        join.parts[slot] = color;
+        if (join.glossy && slot > 0 && (slot - 1) % GlossyGrid.POINTS == 0 && color != Color.BLACK)
+            for (int o = 1; o < GlossyGrid.points(slot); ++o)
+                sample(join, slot + o);
+        done(join);
+    }
+
+    /**
+     * Marks a part of a join as arrived, and combines the parts when it was the last one
+     *
+     * @param join the join
+     */
+    private void done(Join join) {
+        if (--join.missing > 0)
+            return;
+        Color color;
+        if (join.glossy)
+            color = join.grid.average(join.parts);
+        else
+            color = join.local.add(join.refracted ? join.parts[0].add(join.parts[1]) : join.parts[0]);
+
+        int finish = join.finish, slot = join.slot;
+        Join parent = join.parent;
+        Double3 kx = join.kx;
+        release(join);
+        finish(finish, parent, slot, kx, color);
+    }
+}
@@ -84,6 +84,17 @@ class Pixel {
         }
     }
 
+    /**
+     * Finish the processing of several pixels (like a tile) at once
+     *
+     * @param count the number of the pixels
+     */
+    static void pixelsDone(int count) {
+        synchronized (mutexPixels) {
+            pixels += count;
+        }
+    }
+
     /**
      * Wait for all pixels to be done and print the progress percentage - must be
      * run from the main thread
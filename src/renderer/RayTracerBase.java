@@ -1,9 +1,13 @@
 package renderer;
 
+import lighting.LightSource;
 import primitives.Color;
 import primitives.Ray;
 import scene.Scene;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
 /**
  * The RayTracerBase class provides an abstract framework for implementing ray tracing algorithms.
  *
@@ -29,5 +33,46 @@ public abstract class RayTracerBase {
      * @return the color of the intersected object
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Traces a group of coherent rays (like the rays of neighbouring pixels) and determines their colors.
+     * The default implementation traces the rays one by one, subclasses may trace them together.
+     *
+     * @param rays the rays to be traced
+     * @return the colors of the rays (in the order of the rays)
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = traceRay(rays[i]);
+        return colors;
+    }
+
+    /**
+     * Tells whether the ray tracer needs whole groups of rays - the camera then gives {@link #traceRays(Ray[])} all
+     * the camera rays of a tile at once, whatever the size of its packets
+     *
+     * @return true if the rays should be traced in groups as large as the tiles
+     */
+    boolean tracesGroups() {
+        return false;
+    }
+
+    /**
+     * Adds the fingerprint of the ray tracer to a digest - its class and its scene: the background, the ambient
+     * light, the lights and the geometries with their materials (see
+     * {@link geometries.Geometries#fingerprint(MessageDigest)}). Subclasses add the settings that change the
+     * colors of the rays.
+     *
+     * @param digest the digest
+     */
+    protected void fingerprint(MessageDigest digest) {
+        StringBuilder text = new StringBuilder(getClass().getName()).append('\n').append(scene.background)
+                .append('\n').append(scene.ambientLight);
+        for (LightSource light : scene.lights)
+            text.append('\n').append(light);
+        digest.update(text.toString().getBytes(StandardCharsets.UTF_8));
+        scene.geometries.fingerprint(digest);
+    }
 }
 
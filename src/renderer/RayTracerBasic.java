@@ -1,11 +1,14 @@
 package renderer;
 
 import geometries.Intersectable.GeoPoint;
+import geometries.RayPacket;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
 
-import java.util.List;
+import java.security.MessageDigest;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static java.lang.Math.*;
 import static primitives.Util.alignZero;
@@ -32,6 +35,147 @@ public class RayTracerBasic extends RayTracerBase {
     private static final double ACCURACY = 5;
     private static final double RAYS = 5;
 
+    private boolean deferred = false; // Are the secondary rays of a group of rays traced in sorted waves
+    // The tracers of the deferred mode, reused by the next groups of rays (a tracer is used by one thread at a time)
+    private final Queue<DeferredTracer> deferredTracers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * A ray whose color is a part of the color of a point: the ray of a pixel, or a reflected or a refracted ray.
+     * The recursion and {@link DeferredTracer} trace the same effects.
+     */
+    static final class Effect {
+        final Ray ray;
+        final int level; // The recursion level of the point that the ray hits
+        final Double3 kx; // The attenuation factor of the effect (null for the ray of a pixel)
+        final Double3 kkx; // The reflection level affected by k
+
+        /**
+         * Constructor
+         *
+         * @param ray   the ray
+         * @param level the recursion level of the point that the ray hits
+         * @param kx    the attenuation factor of the effect
+         * @param kkx   the reflection level affected by k
+         */
+        private Effect(Ray ray, int level, Double3 kx, Double3 kkx) {
+            this.ray = ray;
+            this.level = level;
+            this.kx = kx;
+            this.kkx = kkx;
+        }
+    }
+
+    /**
+     * The grid of points around the point of a secondary ray (the improvement): the points are on the plane
+     * orthogonal to the ray, in groups - a point on an axis of the grid counts 2 rays and a corner point has 3
+     * mirror points and counts 4 rays, and the mirror points are traced only if the first point of the group
+     * hits a geometry. The colors of the points are kept in slots: the point itself in slot 0, and the points of
+     * every group in {@link #POINTS} slots after it.
+     */
+    static final class GlossyGrid {
+        static final int POINTS = 4; // The slots of a group
+        // i and j of the first point of every group, in the order of the recursion
+        private static final int[][] GROUPS = groups();
+        static final int SLOTS = 1 + POINTS * GROUPS.length; // The slots of the colors of the grid
+        private static final double GAP = ACCURACY / RAYS; // The gap between the points of the grid
+
+        final Effect effect; // The secondary ray
+        private final Point center; // The point that the ray hits
+        private final Vector dir1, dir2; // The directions of the grid
+
+        /**
+         * Constructor
+         *
+         * @param effect the secondary ray
+         * @param center the point that the ray hits
+         */
+        private GlossyGrid(Effect effect, Point center) {
+            Vector v = effect.ray.getDirection();
+            this.effect = effect;
+            this.center = center;
+            // Vector that orthogonal to the ray
+            // in order to create a plane that include the ray's point and find more points in the area
+            this.dir1 = new Vector(new Double3(-1, -1, ((v.getX() + v.getY()) / v.getZ()))).normalize();
+            this.dir2 = v.crossProduct(dir1).normalize();
+        }
+
+        /**
+         * Lists i and j of the first points of the groups, in the order of the recursion
+         *
+         * @return the groups
+         */
+        private static int[][] groups() {
+            int side = (int) Math.ceil(RAYS / 2d);
+            int[][] result = new int[side * side - 1][];
+            int g = 0;
+            for (int i = 0; i < side; i++)
+                for (int j = 0; j < side; j++)
+                    if (i != 0 || j != 0)
+                        result[g++] = new int[]{i, j};
+            return result;
+        }
+
+        /**
+         * Returns the number of the points that are traced in a slot's group if its first point hits a geometry
+         *
+         * @param slot the slot of the first point of the group
+         * @return 1 on an axis of the grid (its mirror point isn't counted), 4 for a corner
+         */
+        static int points(int slot) {
+            int[] group = GROUPS[(slot - 1) / POINTS];
+            return group[0] != 0 && group[1] != 0 ? POINTS : 1;
+        }
+
+        /**
+         * Constructs the ray of the point of a slot, like improvementHelper
+         *
+         * @param slot the slot of the point (not 0)
+         * @return the ray to the point, null if the point is out of the circle
+         */
+        Ray ray(int slot) {
+            int[] group = GROUPS[(slot - 1) / POINTS];
+            int i = group[0], j = group[1];
+            int point = (slot - 1) % POINTS;
+            if (i == 0 || j == 0) { // The first point of a group on an axis is on the minus side
+                i = -i;
+                j = -j;
+            } else {
+                if (point == 1 || point == 3)
+                    i = -i;
+                if (point == 2 || point == 3)
+                    j = -j;
+            }
+            Point p = center;
+            if (i != 0)
+                p = p.add(dir1.scale(i * GAP));
+            if (j != 0)
+                p = p.add(dir2.scale(j * GAP));
+            if (center.distance(p) > ACCURACY) // The target is a circle
+                return null;
+            Point p0 = effect.ray.getP0();
+            return new Ray(p0, p.subtract(p0).normalize());
+        }
+
+        /**
+         * Calculates the color of the secondary ray - the average color of the points of the grid
+         *
+         * @param colors the colors of the slots (a group whose first point is {@link Color#BLACK} isn't counted)
+         * @return the color of the effect
+         */
+        Color average(Color[] colors) {
+            Color ans = colors[0];
+            int num = 1;
+            for (int first = 1; first < SLOTS; first += POINTS)
+                if (colors[first] != Color.BLACK) {
+                    int points = points(first);
+                    for (int o = 0; o < points; ++o)
+                        ans = ans.add(colors[first + o]);
+                    num += points == 1 ? 2 : POINTS;
+                }
+            return ans.scale(effect.kx).reduce(num); // Return the average color od all the rays in the grid
+        }
+    }
+
     /**
      * Constructs a RayTracerBasic object with the given scene
      *
@@ -49,10 +193,43 @@ public class RayTracerBasic extends RayTracerBase {
      */
     @Override
     public Color traceRay(Ray ray) {
-        if (this.findClosestIntersection(ray) != null)
-            return calcColor(this.findClosestIntersection(ray), ray);
+        GeoPoint closestPoint = findClosestIntersection(ray);
+        return closestPoint == null ? scene.background : calcColor(closestPoint, ray);
+    }
 
-        return scene.background;
+    /**
+     * Finds the closest intersections of coherent rays together, as packets of up to {@link RayPacket#MAX_SIZE} rays,
+     * and then calculates the color of every ray alone.
+     * In the deferred mode the secondary rays of all the rays are traced together too, wave after wave
+     * (see {@link #setDeferred(boolean)}).
+     *
+     * @param rays the rays to be traced
+     * @return the colors of the rays
+     */
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        if (deferred) {
+            DeferredTracer deferredTracer = deferredTracers.poll();
+            if (deferredTracer == null)
+                deferredTracer = new DeferredTracer(this);
+            Color[] colors = deferredTracer.trace(rays);
+            deferredTracers.offer(deferredTracer); // A tracer that failed in the middle isn't reused
+            return colors;
+        }
+
+        Color[] colors = new Color[rays.length];
+        for (int start = 0; start < rays.length; start += RayPacket.MAX_SIZE) {
+            int size = Math.min(RayPacket.MAX_SIZE, rays.length - start);
+            Ray[] packetRays = new Ray[size];
+            System.arraycopy(rays, start, packetRays, 0, size);
+            RayPacket packet = new RayPacket(packetRays);
+            scene.geometries.findClosestGeoIntersections(packet);
+            for (int i = 0; i < size; ++i) {
+                GeoPoint closestPoint = packet.getClosest(i);
+                colors[start + i] = closestPoint == null ? scene.background : calcColor(closestPoint, rays[start + i]);
+            }
+        }
+        return colors;
     }
 
 
@@ -80,16 +257,54 @@ public class RayTracerBasic extends RayTracerBase {
      * @return The color of the intersection.
      */
     private Color calcColor(GeoPoint geopoint, Ray ray) {
-        return calcColor(geopoint, ray, MAX_CALC_COLOR_LEVEL, new Double3(INITIAL_K))
-                .add(scene.ambientLight.getIntensity());
+        Effect pixel = pixelEffect(ray);
+        return pixelColor(calcColor(geopoint, ray, pixel.level, pixel.kkx));
     }
 
-    private Color improvementHelper(Point p0, Point p, Ray ray, int level, Double3 kkx) {
-        if (p0.distance(p) <= ACCURACY) { // If the point is in the circle ( in order to make the target a circle)
-            Ray newRay = new Ray(ray.getP0(), p.subtract(ray.getP0()).normalize());
+    /**
+     * Returns the effect of the ray of a pixel - the first level of the recursion
+     *
+     * @param ray the ray of the pixel
+     * @return the effect
+     */
+    Effect pixelEffect(Ray ray) {
+        return new Effect(ray, MAX_CALC_COLOR_LEVEL, null, new Double3(INITIAL_K));
+    }
+
+    /**
+     * Calculates the color of a pixel from the color of the point of its ray - adds the ambient light
+     *
+     * @param color the color of the point
+     * @return the color of the pixel
+     */
+    Color pixelColor(Color color) {
+        return color.add(scene.ambientLight.getIntensity());
+    }
+
+    /**
+     * Returns the glossy grid around the point of a secondary ray, if the improvement is active
+     *
+     * @param effect the secondary ray
+     * @param center the point that the ray hits
+     * @return the grid, null without the improvement
+     */
+    GlossyGrid glossyGrid(Effect effect, Point center) {
+        return improvement ? new GlossyGrid(effect, center) : null;
+    }
+
+    /**
+     * Calculates the color of a point of the glossy grid
+     *
+     * @param grid the grid
+     * @param slot the slot of the point
+     * @return the color, {@link Color#BLACK} if the point is out of the circle or its ray hits nothing
+     */
+    private Color improvementHelper(GlossyGrid grid, int slot) {
+        Ray newRay = grid.ray(slot);
+        if (newRay != null) {
             GeoPoint newP = findClosestIntersection(newRay);
             if (newP != null) {
-                return calcColor(newP, newRay, level - 1, kkx);
+                return calcColor(newP, newRay, grid.effect.level, grid.effect.kkx);
             }
         }
         return Color.BLACK;
@@ -98,82 +313,74 @@ public class RayTracerBasic extends RayTracerBase {
     /**
      * Calculates the global effect of reflection and refraction on a point.
      *
-     * @param ray   The ray.
-     * @param level The recursion level.
-     * @param kx    The attenuation factor.
-     * @param kkx   The reflection level affected by k.
+     * @param effect The reflected or refracted ray with its factors.
      * @return The color of the global effects.
      */
-    private Color calcGlobalEffect(Ray ray, int level, Double3 kx, Double3 kkx) {
+    private Color calcGlobalEffect(Effect effect) {
+        Ray ray = effect.ray;
         GeoPoint gp = findClosestIntersection(ray);
 
         if (gp == null) {
             return scene.background;
         }
 
-
-        if (improvement) { // If we choose to add the improvement
-            int num = 1;
-
-            Color ans = calcColor(gp, ray, level - 1, kkx); // Calc the color in the specific point
-            double gap = (double) ACCURACY / RAYS; // The gap between each point in the grid
-            Vector v = ray.getDirection();
-            // Vector that orthogonal to the ray
-            // in order to create a plane that include the ray's point and find more points in the area
-            Vector dir1 = new Vector(new Double3(-1, -1, ((v.getX() + v.getY()) / v.getZ()))).normalize();
-            Vector dir2 = ray.getDirection().crossProduct(dir1).normalize();
-            Point startGrid = gp.point;
-            Point temp;
-            Color c;
-
-            // Create the grid on the target
+        GlossyGrid grid = glossyGrid(effect, gp.point);
+        if (grid != null) { // If we choose to add the improvement
+            Color[] colors = new Color[GlossyGrid.SLOTS];
+            colors[0] = calcColor(gp, ray, effect.level, effect.kkx); // Calc the color in the specific point
             // Go over the points in the area of the original point and calc their color
-            for (int i = 0; i < RAYS / 2d; i++) {
-                for (int j = 0; j < RAYS / 2d; j++) {
-                    if (j == 0 && i != 0) { // If the point is on dir1 - there are 2 points for every -+i
-                        temp = startGrid.add(dir1.scale(-i * gap));
-                        c = improvementHelper(startGrid, temp, ray, level, kkx);
-                        if (c != Color.BLACK) {
-                            ans = ans.add(c);
-                            temp = startGrid.add(dir1.scale(i * gap));
-                            ans.add(improvementHelper(startGrid, temp, ray, level, kkx));
-                            num = num + 2;
-                        }
-                    } else if (i == 0 && j != 0) { // If the point is on dir2 - there are 2 points for every -+j
-                        temp = startGrid.add(dir2.scale(-j * gap));
-                        c = improvementHelper(startGrid, temp, ray, level, kkx);
-                        if (c != Color.BLACK) {
-                            ans = ans.add(c);
-                            temp = startGrid.add(dir2.scale(j * gap));
-                            ans.add(improvementHelper(startGrid, temp, ray, level, kkx));
-                            num = num + 2;
-                        }
-                    } else if (j != 0 && i != 0) { // Else there are 4 points for every +-i,+-j
-                        temp = startGrid.add(dir1.scale(i * gap)).add(dir2.scale(j * gap));
-                        c = improvementHelper(startGrid, temp, ray, level, kkx);
-                        if (c != Color.BLACK) {
-                            ans = ans.add(c);
-                            temp = startGrid.add(dir1.scale(-i * gap)).add(dir2.scale(j * gap));
-                            ans = ans.add(improvementHelper(startGrid, temp, ray, level, kkx));
-                            temp = startGrid.add(dir1.scale(i * gap)).add(dir2.scale(-j * gap));
-                            ans = ans.add(improvementHelper(startGrid, temp, ray, level, kkx));
-                            temp = startGrid.add(dir1.scale(-i * gap)).add(dir2.scale(-j * gap));
-                            ans = ans.add(improvementHelper(startGrid, temp, ray, level, kkx));
-                            num = num + 4;
-                        }
-                    }
-                }
+            for (int first = 1; first < GlossyGrid.SLOTS; first += GlossyGrid.POINTS) {
+                colors[first] = improvementHelper(grid, first);
+                if (colors[first] != Color.BLACK)
+                    for (int o = 1; o < GlossyGrid.points(first); ++o)
+                        colors[first + o] = improvementHelper(grid, first + o);
             }
-            return ans.scale(kx).reduce(num); // Return the average color od all the rays in the grid
+            return grid.average(colors);
         }
 
-        return calcColor(gp, ray, level - 1, kkx).scale(kx);
+        return calcColor(gp, ray, effect.level, effect.kkx).scale(effect.kx);
     }
 
     public void setImprovement(boolean glossy) {
         this.improvement = glossy;
     }
 
+    /**
+     * Setter of the deferred mode of the secondary rays. In this mode the reflected and refracted rays of a group of
+     * rays (see {@link #traceRays(Ray[])}) aren't traced recursively ray after ray, but queued: every wave of
+     * secondary rays of the whole group is sorted by the octant of the directions and the cells of the heads, so rays
+     * that go the same way visit the same nodes of the hierarchies one after another. The colors are the same as in
+     * the recursive mode.
+     * The mode works only on groups of rays: a ray traced alone ({@link #traceRay(Ray)}) is traced recursively. The
+     * camera gives the tracer all the camera rays of a tile as one group while the mode is on, whatever its packet
+     * size, so the tile size sets the size of the waves; only the splits of the adaptive supersampling are traced
+     * alone.
+     *
+     * @param deferred true to trace the secondary rays in sorted waves
+     * @return this ray tracer
+     */
+    public RayTracerBasic setDeferred(boolean deferred) {
+        this.deferred = deferred;
+        return this;
+    }
+
+    @Override
+    boolean tracesGroups() {
+        return deferred;
+    }
+
+    /**
+     * Adds the fingerprint of the ray tracer to a digest - the fingerprint of its scene, the improvement (of all the
+     * ray tracers) and the deferred mode
+     *
+     * @param digest the digest
+     */
+    @Override
+    protected void fingerprint(MessageDigest digest) {
+        super.fingerprint(digest);
+        digest.update(new byte[]{(byte) (improvement ? 1 : 0), (byte) (deferred ? 1 : 0)});
+    }
+
 
     /**
      * Calculates the global effects of reflection and refraction on a point.
@@ -188,34 +395,49 @@ public class RayTracerBasic extends RayTracerBase {
         Color color = Color.BLACK; // The base color
         Vector n = intersection.geometry.getNormal(intersection.point); // The normal
 
-        // Reflection attenuation of the material
-        Double3 KR = intersection.geometry.getMaterial().KR;
-        //reflection level as affected by k
-        Double3 kKR = KR.product(k);
-
-        if (!kKR.lowerThan(MIN_CALC_COLOR_K)) { // If the reflection level is not lower than the minimum
-            // Construct a reflection  ray from the point
-            Ray reflectedRay = constructReflectedRay(n, intersection.point, inRay);
-
-            // Add this color to the point by recursively calling calcGlobalEffect
-            color = calcGlobalEffect(reflectedRay, level, KR, kKR);
-        }
-
+        Effect reflected = reflectedEffect(intersection, n, inRay, level, k);
+        if (reflected != null) // If the reflection level is not lower than the minimum
+            color = calcGlobalEffect(reflected); // Add this color to the point by recursively calling calcGlobalEffect
 
-        // Transparency  attenuation factor of the material
-        Double3 KT = intersection.geometry.getMaterial().KT;
-        // Transparency level
-        Double3 kKT = KT.product(k);
+        Effect refracted = refractedEffect(intersection, n, inRay, level, k);
+        if (refracted != null) // If the transparency level is not lower than the minimum
+            color = color.add(calcGlobalEffect(refracted));
 
-        if (!kKT.lowerThan(MIN_CALC_COLOR_K)) {// If the transparency level is not lower than the minimum
-            // Construct a refracted ray from the point
-            Ray refractedRay = constructRefractedRay(n, intersection.point, inRay);
+        return color;
+    }
 
-            // Add to the color to the point by recursively calling calcGlobalEffect
-            color = color.add(calcGlobalEffect(refractedRay, level, KT, kKT));
-        }
+    /**
+     * Returns the reflected ray of an intersection point, if its effect isn't too weak
+     *
+     * @param intersection The intersection point.
+     * @param n            The normal at the point.
+     * @param inRay        The direction of the incoming ray.
+     * @param level        The recursion level of the point.
+     * @param k            The attenuation factor.
+     * @return The effect of the reflected ray, null if the reflection level is lower than the minimum.
+     */
+    Effect reflectedEffect(GeoPoint intersection, Vector n, Vector inRay, int level, Double3 k) {
+        Double3 KR = intersection.geometry.getMaterial().KR; // Reflection attenuation of the material
+        Double3 kKR = KR.product(k); // Reflection level as affected by k
+        return kKR.lowerThan(MIN_CALC_COLOR_K) ? null
+                : new Effect(constructReflectedRay(n, intersection.point, inRay), level - 1, KR, kKR);
+    }
 
-        return color;
+    /**
+     * Returns the refracted ray of an intersection point, if its effect isn't too weak
+     *
+     * @param intersection The intersection point.
+     * @param n            The normal at the point.
+     * @param inRay        The direction of the incoming ray.
+     * @param level        The recursion level of the point.
+     * @param k            The attenuation factor.
+     * @return The effect of the refracted ray, null if the transparency level is lower than the minimum.
+     */
+    Effect refractedEffect(GeoPoint intersection, Vector n, Vector inRay, int level, Double3 k) {
+        Double3 KT = intersection.geometry.getMaterial().KT; // Transparency attenuation factor of the material
+        Double3 kKT = KT.product(k); // Transparency level
+        return kKT.lowerThan(MIN_CALC_COLOR_K) ? null
+                : new Effect(constructRefractedRay(n, intersection.point, inRay), level - 1, KT, kKT);
     }
 
 
@@ -227,7 +449,7 @@ public class RayTracerBasic extends RayTracerBase {
      * @param k            The attenuation factor.
      * @return The color of the local effect.
      */
-    private Color calcLocalEffect(GeoPoint intersection, Vector v, Double3 k) {
+    Color calcLocalEffect(GeoPoint intersection, Vector v, Double3 k) {
         Vector n = intersection.geometry.getNormal(intersection.point);
 
         double nv = alignZero(n.dotProduct(v));
@@ -272,26 +494,12 @@ public class RayTracerBasic extends RayTracerBase {
     private boolean unshaded(GeoPoint gp, Vector l, Vector n, LightSource lightSource, double nv) {
         Vector lightDirection = l.scale(-1); // Vector from the point to the light source
 
-        Ray lightRay = new Ray(gp.point, lightDirection, n);
-
-        double lightDistance = lightSource.getDistance(gp.point);
-        // Finding only points that are closer to the point than the light
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-
-        // If there are no intersections return true (there is no shadow)
-        if (intersections == null) {
-            return true;
-        }
-
-        // For each intersection point
-        for (GeoPoint intersection : intersections) {
-            // If the material is not transparent return false
-            if (intersection.geometry.getMaterial().KT == Double3.ZERO) {
-                return false;
-            }
+        Ray lightRay = new Ray(gp.point, n, lightDirection);
 
-        }
-        return true;
+        // Only geometries that are closer to the point than the light can shade it,
+        // and the search stops at the first geometry that is not transparent
+        double lightDistance = lightSource.getDistance(lightRay.getP0());
+        return !scene.geometries.findTransparency(lightRay, lightDistance).equals(Double3.ZERO);
     }
 
 
@@ -367,8 +575,7 @@ public class RayTracerBasic extends RayTracerBase {
      * @return the closest point
      */
     private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> geoPoints = scene.geometries.findGeoIntersections(ray);
-        return ray.findClosestGeoPoint(geoPoints);
+        return scene.geometries.findClosestGeoIntersection(ray);
     }
 
     /**
@@ -385,15 +592,7 @@ public class RayTracerBasic extends RayTracerBase {
         Vector epsVector = n.scale(n.dotProduct(lightDir) > 0 ? DELTA : -DELTA);
         Point point = gp.point.add(epsVector);
         Ray lightRay = new Ray(point, n, lightDir);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-        Double3 KTr = new Double3(1);
-        if (intersections != null) {
-            for (GeoPoint gp2 : intersections) {
-                if (point.distance(gp2.point) < ls.getDistance(point)) {
-                    KTr = gp2.geometry.getMaterial().KT.product(KTr);
-                }
-            }
-        }
-        return KTr;
+        // Multiply the KT of the blockers between the point and the light only, stopping at an opaque one
+        return scene.geometries.findTransparency(lightRay, ls.getDistance(lightRay.getP0()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,569 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class RenderCheckpoint keeps the samples of the tiles of a render in a binary file, so a render that was stopped
+ * (or whose JVM died) resumes from them instead of from the start.
+ * The file keeps a header (the kind of the render, the resolution, the size of the tiles, the key of the render -
+ * a SHA-256 digest of the camera, its ray tracer and its scene - and the progress of the render) and a record of
+ * every tile that was kept: the index of the tile and its pixels row after row. A finished tile of an image (see
+ * {@link Mode#IMAGE}) keeps the 8-bit RGB that is written into the image, and its record is appended to the file
+ * once - a crash in the middle of an append cuts only the last record, which isn't resumed. A pixel of a render that
+ * adds samples to its pixels keeps the sums of the RGB of its samples and their number (and more sums of its own,
+ * see {@link Mode}) as doubles, so a resumed render goes on from the same sums as a render that was never stopped;
+ * such a file is written aside and then moved to its name, so a crash in the middle of a write leaves the former
+ * file whole.
+ * The render threads never wait for the file or for each other: a tile is encoded into a record of its own, which
+ * is never changed once it is handed over, and when the interval has passed the writing of the file is handed to a
+ * thread of its own (the samples that come while the file is written wait for the next write).
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class RenderCheckpoint {
+    private static final int MAGIC = 0x4B504352; // Marks a checkpoint file
+    private static final int VERSION = 4; // The version of the file layout
+    private static final int KEY_INTS = 8; // The ints of the key (a SHA-256 digest)
+    // The bytes of the header: magic, version, mode, nX, nY, tile size, the key and the progress
+    private static final int HEADER = (6 + KEY_INTS) * Integer.BYTES + Long.BYTES;
+    private static final int COLOR = 4; // The sums of the red, the green and the blue, and the number of the samples
+
+    /**
+     * The renders that keep checkpoints, and the sums that every pixel keeps besides its colors
+     */
+    enum Mode {
+        /**
+         * {@link Camera#renderImage()} - a tile is kept once it is finished, as the 8-bit RGB of its pixels
+         */
+        IMAGE(0),
+        /**
+         * {@link Camera#renderProgressive(int, java.util.function.Consumer)} - the whole image is kept after every
+         * pass, and the progress is the number of the passes
+         */
+        PROGRESSIVE(0),
+        /**
+         * {@link Camera#renderImage(Duration)} - a tile is kept after every sample, every pixel keeps the sums of the
+         * brightness of its samples and of their squares too, and the progress is the time that the render spent
+         */
+        BUDGET(2);
+
+        private final int extras; // The sums of a pixel besides its colors
+
+        /**
+         * Constructor
+         *
+         * @param extras the sums of a pixel besides its colors
+         */
+        Mode(int extras) {
+            this.extras = extras;
+        }
+    }
+
+    private final Logger logger = Logger.getLogger("RenderCheckpoint");
+    private final Path file;
+    private final long interval; // The nanoseconds between the writes of the file
+    private final int[] key = new int[KEY_INTS]; // Identifies the render
+    private final Mode mode;
+    private final int nX, nY, tileSize;
+    private final int channels; // The doubles of a pixel of a render that adds samples
+    private final TileScheduler.Tile[] tiles;
+    private final AtomicIntegerArray done; // 1 for a tile with samples, set after its samples
+    // The last record of every tile of a render that adds samples (of the render that is resumed, or of this one)
+    private final AtomicReferenceArray<ByteBuffer> records;
+    private final AtomicLong progress = new AtomicLong(); // The highest progress of the render
+    private final Queue<ByteBuffer> pending = new ConcurrentLinkedQueue<>(); // The records that an image misses
+    private final Object passes = new Object(); // Guards the references to the buffers of the passes
+    private ByteBuffer lastPass = null; // The file of the last pass that isn't written yet, guarded by the passes
+    private ByteBuffer spare = null; // A buffer of a pass that nobody holds, guarded by the passes
+    private final AtomicBoolean writing = new AtomicBoolean(); // True while a write is waiting or running
+    private final ExecutorService writer;
+    private volatile long lastWrite = System.nanoTime();
+    private long kept = -1; // The bytes of the whole records of the image file, -1 before it has a header
+
+    /**
+     * Constructor
+     *
+     * @param file      the checkpoint file
+     * @param interval  the time between the writes of the file
+     * @param key       identifies the render (a SHA-256 digest) - a file of another key isn't resumed
+     * @param mode      the render
+     * @param nX        the number of the columns of the image
+     * @param nY        the number of the rows of the image
+     * @param tileSize  the side of the tiles
+     * @param scheduler the scheduler of the tiles of the render
+     */
+    RenderCheckpoint(Path file, Duration interval, byte[] key, Mode mode, int nX, int nY, int tileSize,
+                     TileScheduler scheduler) {
+        if (key.length != KEY_INTS * Integer.BYTES)
+            throw new IllegalArgumentException("The key of a checkpoint must be a SHA-256 digest");
+        this.file = file.toAbsolutePath();
+        this.interval = interval.toNanos();
+        ByteBuffer.wrap(key).asIntBuffer().get(this.key);
+        this.mode = mode;
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        this.tiles = scheduler.getTiles();
+        channels = COLOR + mode.extras;
+        done = new AtomicIntegerArray(tiles.length);
+        records = new AtomicReferenceArray<>(tiles.length);
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "Checkpoint writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the checkpoint file of an image (if there is one of the same render) and writes its tiles into
+     * the image, see {@link #isDone(int)} for its tiles
+     *
+     * @param imageWriter the image
+     * @return the number of the restored pixels
+     * @throws IllegalStateException on I/O error
+     */
+    int restore(ImageWriter imageWriter) {
+        if (!Files.exists(file))
+            return 0;
+        int restored = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            if (!read(channel, header) || readHeader(header.flip()) < 0)
+                return 0; // The file of another render - it is written over
+            kept = HEADER;
+            ByteBuffer index = ByteBuffer.allocate(Integer.BYTES);
+            while (read(channel, index.clear())) {
+                int i = index.getInt(0);
+                if (i < 0 || i >= tiles.length)
+                    break;
+                TileScheduler.Tile tile = tiles[i];
+                ByteBuffer pixels = ByteBuffer.allocate(Integer.BYTES * tile.size());
+                if (!read(channel, pixels))
+                    break; // A cut record - it is written over by the next append
+                pixels.flip();
+                for (int y = tile.y0; y < tile.y1; ++y)
+                    for (int x = tile.x0; x < tile.x1; ++x)
+                        imageWriter.writePixel(x, y, new Color(new java.awt.Color(pixels.getInt())));
+                done.set(i, 1);
+                restored += tile.size();
+                kept += Integer.BYTES + pixels.limit();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't read checkpoint file " + file, e);
+        }
+        return restored;
+    }
+
+    /**
+     * Reads the checkpoint file of a render that adds samples (if there is one of the same render), see
+     * {@link #isDone(int)} for its tiles
+     *
+     * @return the progress of the render that is resumed, or -1 if there is none
+     * @throws IllegalStateException on I/O error
+     */
+    long restore() {
+        if (!Files.exists(file))
+            return -1;
+        ByteBuffer in;
+        try {
+            in = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't read checkpoint file " + file, e);
+        }
+        long restored = readHeader(in);
+        if (restored < 0)
+            return -1; // The file of another render - it is written over
+        progress.set(restored);
+        while (in.remaining() >= Integer.BYTES) {
+            int index = in.getInt(in.position());
+            if (index < 0 || index >= tiles.length || in.remaining() < recordSize(tiles[index]))
+                break; // A cut file - the whole tiles that were read are kept
+            int size = recordSize(tiles[index]);
+            records.set(index, in.slice(in.position(), size));
+            in.position(in.position() + size);
+            done.set(index, 1);
+        }
+        return restored;
+    }
+
+    /**
+     * Checks whether a tile has samples (of this render or of the render that is resumed)
+     *
+     * @param index the index of the tile
+     * @return true if the tile has samples
+     */
+    boolean isDone(int index) {
+        return done.get(index) == 1;
+    }
+
+    /**
+     * Returns the sums of the colors of the samples of the pixels of a restored tile
+     *
+     * @param tile the tile
+     * @return the sums row after row, null for a pixel without samples
+     */
+    Color[] getSums(TileScheduler.Tile tile) {
+        ByteBuffer record = records.get(tile.index);
+        Color[] sums = new Color[tile.size()];
+        for (int k = 0; k < sums.length; ++k) {
+            int i = Integer.BYTES + k * channels * Double.BYTES;
+            if (record.getDouble(i + 3 * Double.BYTES) > 0)
+                sums[k] = new Color(record.getDouble(i), record.getDouble(i + Double.BYTES),
+                        record.getDouble(i + 2 * Double.BYTES));
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the number of the samples of the pixels of a restored tile or one of their own sums
+     *
+     * @param tile    the tile
+     * @param channel 0 for the number of the samples, and from 1 for the sums of the pixels besides their colors
+     * @return the numbers row after row
+     */
+    double[] getChannel(TileScheduler.Tile tile, int channel) {
+        ByteBuffer record = records.get(tile.index);
+        double[] sums = new double[tile.size()];
+        for (int k = 0; k < sums.length; ++k)
+            sums[k] = record.getDouble(Integer.BYTES + (k * channels + 3 + channel) * Double.BYTES);
+        return sums;
+    }
+
+    /**
+     * Keeps a finished tile of an image, and hands an append to the file to the writer thread if the interval has
+     * passed since the last write and no write is waiting
+     *
+     * @param tile   the tile
+     * @param colors the colors of the pixels of the tile row after row
+     */
+    void tileDone(TileScheduler.Tile tile, Color[] colors) {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * (1 + colors.length)).putInt(tile.index);
+        for (Color color : colors)
+            record.putInt(color.getColor().getRGB());
+        pending.add(record.flip());
+        done.set(tile.index, 1);
+        writeLater();
+    }
+
+    /**
+     * Keeps the samples of a tile, and hands a write of the file to the writer thread if the interval has passed
+     * since the last write and no write is waiting
+     *
+     * @param tile     the tile
+     * @param progress the progress of the render - the file keeps the highest progress that it got
+     * @param sums     the sums of the colors of the samples of the pixels of the tile row after row
+     * @param samples  the number of the samples of every pixel
+     * @param extras   the sums of the pixels besides their colors (see {@link Mode}) row after row
+     */
+    void tileDone(TileScheduler.Tile tile, long progress, Color[] sums, int samples, double[]... extras) {
+        ByteBuffer record = ByteBuffer.allocate(recordSize(tile));
+        putTile(record, tile, sums, false, samples, extras);
+        records.set(tile.index, record.flip());
+        this.progress.accumulateAndGet(progress, Math::max); // The workers keep their tiles in any order
+        done.set(tile.index, 1);
+        writeLater();
+    }
+
+    /**
+     * Keeps the samples of the whole image after a pass, and hands a write of the file to the writer thread if the
+     * interval has passed since the last write and no write is waiting. The image is copied into a buffer that the
+     * writer doesn't hold, so the copy never waits for a write and a write never sees half a pass.
+     *
+     * @param pass    the number of the pass
+     * @param sums    the sums of the colors of the samples of the pixels row after row, null for a pixel without
+     *                samples
+     * @param samples the number of the samples of every pixel that has samples
+     */
+    void passDone(int pass, Color[] sums, int samples) {
+        ByteBuffer content;
+        synchronized (passes) {
+            content = spare;
+            spare = null;
+        }
+        if (content == null) {
+            int size = HEADER;
+            for (TileScheduler.Tile tile : tiles)
+                size += recordSize(tile);
+            content = ByteBuffer.allocate(size);
+        }
+        content.clear();
+        content.put(header(pass));
+        for (TileScheduler.Tile tile : tiles)
+            putTile(content, tile, sums, true, samples);
+        content.flip();
+        synchronized (passes) {
+            if (lastPass != null)
+                spare = lastPass; // A pass that wasn't written is left behind
+            lastPass = content;
+        }
+        progress.set(pass);
+        for (TileScheduler.Tile tile : tiles)
+            done.set(tile.index, 1);
+        writeLater();
+    }
+
+    /**
+     * Returns the bytes of the record of a tile of a render that adds samples
+     *
+     * @param tile the tile
+     * @return the bytes of the index and the sums of the tile
+     */
+    private int recordSize(TileScheduler.Tile tile) {
+        return Integer.BYTES + Double.BYTES * channels * tile.size();
+    }
+
+    /**
+     * Puts the record of a tile of a render that adds samples into a buffer
+     *
+     * @param buffer  the buffer
+     * @param tile    the tile
+     * @param sums    the sums of the colors of the pixels, null for a pixel without samples
+     * @param image   true if the sums are of the whole image, false if they are of the tile
+     * @param samples the number of the samples of every pixel that has samples
+     * @param extras  the sums of the pixels besides their colors, of the tile
+     */
+    private void putTile(ByteBuffer buffer, TileScheduler.Tile tile, Color[] sums, boolean image, int samples,
+                         double[]... extras) {
+        buffer.putInt(tile.index);
+        double[] pixel = new double[channels];
+        int k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x, ++k) {
+                Color sum = sums[image ? y * nX + x : k];
+                if (sum == null)
+                    Arrays.fill(pixel, 0);
+                else {
+                    sum.copyTo(pixel, 0);
+                    pixel[3] = samples;
+                    for (int e = 0; e < extras.length; ++e)
+                        pixel[COLOR + e] = extras[e][k];
+                }
+                for (double value : pixel)
+                    buffer.putDouble(value);
+            }
+    }
+
+    /**
+     * Hands a write of the file to the writer thread if the interval has passed since the last write and no write is
+     * waiting
+     */
+    private void writeLater() {
+        if (System.nanoTime() - lastWrite >= interval && writing.compareAndSet(false, true))
+            writer.execute(() -> {
+                try {
+                    write();
+                } catch (IllegalStateException e) {
+                    // The render goes on - the next write tries again
+                    logger.log(Level.WARNING, "Checkpoint not written", e);
+                } finally {
+                    lastWrite = System.nanoTime();
+                    writing.set(false);
+                }
+            });
+    }
+
+    /**
+     * Ends the checkpoints of the render after the last write has ended: the file of a finished render is deleted,
+     * and the file of a render that failed gets all the samples that were kept (a failure of this write is only
+     * logged, so the failure of the render isn't hidden)
+     *
+     * @param finished true if the render is finished
+     * @throws IllegalStateException on I/O error
+     */
+    void close(boolean finished) {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!finished)
+            try {
+                write();
+            } catch (IllegalStateException e) {
+                // The failure of the render is the one that reaches the caller
+                logger.log(Level.SEVERE, "Checkpoint not written", e);
+            }
+        else
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new IllegalStateException("I/O error - can't delete checkpoint file " + file, e);
+            }
+    }
+
+    /**
+     * Writes the samples that were kept since the last write into the checkpoint file
+     *
+     * @throws IllegalStateException on I/O error
+     */
+    private void write() {
+        try {
+            switch (mode) {
+                case IMAGE -> append();
+                case PROGRESSIVE -> writePass();
+                case BUDGET -> {
+                    ByteBuffer[] content = new ByteBuffer[tiles.length + 1];
+                    content[0] = header(progress.get());
+                    int count = 1;
+                    for (int i = 0; i < tiles.length; ++i) {
+                        ByteBuffer record = records.get(i);
+                        if (record != null)
+                            content[count++] = record.duplicate(); // The record is read by getSums too
+                    }
+                    replace(Arrays.copyOf(content, count));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't write checkpoint file " + file, e);
+        }
+    }
+
+    /**
+     * Appends the records of the finished tiles that the image file misses - a record is dropped only after it was
+     * written, and a cut record is written over
+     *
+     * @throws IOException on I/O error
+     */
+    private void append() throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (kept < 0) {
+                channel.truncate(0);
+                write(channel, header(0));
+                kept = HEADER;
+            }
+            channel.truncate(kept).position(kept);
+            for (ByteBuffer record; (record = pending.peek()) != null; pending.remove()) {
+                write(channel, record.duplicate());
+                kept += record.limit();
+            }
+        }
+    }
+
+    /**
+     * Writes the file of the last pass, unless it was already written
+     *
+     * @throws IOException on I/O error
+     */
+    private void writePass() throws IOException {
+        ByteBuffer content;
+        synchronized (passes) {
+            content = lastPass;
+            lastPass = null;
+        }
+        if (content == null)
+            return;
+        boolean written = false;
+        try {
+            replace(content);
+            written = true;
+        } finally {
+            synchronized (passes) {
+                if (!written && lastPass == null)
+                    lastPass = content; // The next write tries again
+                else
+                    spare = content;
+            }
+        }
+    }
+
+    /**
+     * Writes a file aside and then moves it to the name of the checkpoint file
+     *
+     * @param content the content of the file
+     * @throws IOException on I/O error
+     */
+    private void replace(ByteBuffer... content) throws IOException {
+        Path directory = file.getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "checkpoint", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (ByteBuffer buffer : content)
+                    write(channel, buffer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp); // Left only if the writing or the move failed
+        }
+    }
+
+    /**
+     * Returns the header of the file
+     *
+     * @param progress the progress of the render
+     * @return the header, ready to be read
+     */
+    private ByteBuffer header(long progress) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(mode.ordinal()).putInt(nX).putInt(nY).putInt(tileSize);
+        for (int k : key)
+            header.putInt(k);
+        return header.putLong(progress).flip();
+    }
+
+    /**
+     * Reads the header of a file
+     *
+     * @param in the file
+     * @return the progress of the render of the file, or -1 if it is the file of another render
+     */
+    private long readHeader(ByteBuffer in) {
+        if (in.remaining() < HEADER || in.getInt() != MAGIC || in.getInt() != VERSION
+                || in.getInt() != mode.ordinal() || in.getInt() != nX || in.getInt() != nY || in.getInt() != tileSize)
+            return -1;
+        for (int k : key)
+            if (in.getInt() != k)
+                return -1;
+        return in.getLong();
+    }
+
+    /**
+     * Reads bytes from a channel until a buffer is full
+     *
+     * @param channel the channel
+     * @param buffer  the buffer
+     * @return false if the channel ended before the buffer was full
+     * @throws IOException on I/O error
+     */
+    private static boolean read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Writes a whole buffer into a channel
+     *
+     * @param channel the channel
+     * @param buffer  the buffer
+     * @throws IOException on I/O error
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,156 @@
+package renderer;
+
+import primitives.Color;
+
+/**
+ * Class Snapshot is an immutable copy of the image after a pass of a progressive render
+ * (see {@link Camera#renderProgressive(int, java.util.function.Consumer)}).
+ * In the first passes every sample colors a square block of pixels, from the full resolution on every pixel has its
+ * own color, and after the extra passes every pixel is the average of its samples.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+public final class Snapshot {
+    private final int nX;
+    private final int nY;
+    private final int pass;
+    private final int step;
+    private final int samples;
+    private final boolean last;
+    private final Color[] colors; // The colors of the pixels row after row
+
+    /**
+     * Constructor - the colors array is kept as is, so it must not be changed after the snapshot is made
+     *
+     * @param nX      the number of the columns of the image
+     * @param nY      the number of the rows of the image
+     * @param pass    the number of the pass (from 1)
+     * @param step    the side of the blocks of pixels that share a sample
+     * @param samples the number of the samples of every pixel
+     * @param last    true if this is the last pass
+     * @param colors  the colors of the pixels row after row
+     */
+    private Snapshot(int nX, int nY, int pass, int step, int samples, boolean last, Color[] colors) {
+        this.nX = nX;
+        this.nY = nY;
+        this.pass = pass;
+        this.step = step;
+        this.samples = samples;
+        this.last = last;
+        this.colors = colors;
+    }
+
+    /**
+     * Makes a snapshot of a pass at a low resolution - every pixel gets the sample at the top left corner of its
+     * block
+     *
+     * @param nX      the number of the columns of the image
+     * @param nY      the number of the rows of the image
+     * @param sampled the samples row after row (only the corners of the blocks are read)
+     * @param step    the side of the blocks
+     * @param pass    the number of the pass
+     * @param last    true if this is the last pass
+     * @return the snapshot
+     */
+    static Snapshot ofBlocks(int nX, int nY, Color[] sampled, int step, int pass, boolean last) {
+        Color[] colors = new Color[nX * nY];
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                colors[y * nX + x] = sampled[(y - y % step) * nX + x - x % step];
+        return new Snapshot(nX, nY, pass, step, 1, last, colors);
+    }
+
+    /**
+     * Makes a snapshot of a pass with several samples in every pixel - every pixel gets the average of its samples
+     *
+     * @param nX      the number of the columns of the image
+     * @param nY      the number of the rows of the image
+     * @param sums    the sums of the samples of the pixels row after row
+     * @param samples the number of the samples of every pixel
+     * @param pass    the number of the pass
+     * @param last    true if this is the last pass
+     * @return the snapshot
+     */
+    static Snapshot ofAverages(int nX, int nY, Color[] sums, int samples, int pass, boolean last) {
+        Color[] colors = new Color[nX * nY];
+        for (int i = 0; i < colors.length; ++i)
+            colors[i] = sums[i].reduce(samples);
+        return new Snapshot(nX, nY, pass, 1, samples, last, colors);
+    }
+
+    /**
+     * Getter of the width of the image
+     *
+     * @return the number of the columns
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * Getter of the height of the image
+     *
+     * @return the number of the rows
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * Getter of the number of the pass
+     *
+     * @return the number of the pass, from 1
+     */
+    public int getPass() {
+        return pass;
+    }
+
+    /**
+     * Getter of the side of the blocks of pixels that share a sample
+     *
+     * @return the side of the blocks, 1 from the full resolution on
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Getter of the number of the samples of every pixel
+     *
+     * @return the number of the samples, 1 until the extra passes
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Checks whether this is the last pass, so the snapshot is the final image
+     *
+     * @return true if this is the last pass
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    /**
+     * Getter of the color of a pixel
+     *
+     * @param x the column of the pixel
+     * @param y the row of the pixel
+     * @return the color
+     */
+    public Color getColor(int x, int y) {
+        return colors[y * nX + x];
+    }
+
+    /**
+     * Writes the snapshot into an image writer of the same size
+     *
+     * @param imageWriter the image writer
+     */
+    public void writeTo(ImageWriter imageWriter) {
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                imageWriter.writePixel(x, y, colors[y * nX + x]);
+    }
+}
@@ -0,0 +1,216 @@
+package renderer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Class TileScheduler divides the image into square tiles and hands them out to workers on an executor.
+ * Every worker takes the next tile from an atomic counter until no tiles are left, so the workers don't wait for each
+ * other and a worker that got cheap tiles simply takes more of them.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class TileScheduler {
+    static final long IDLE_TIME = 30; // The seconds that a platform thread waits for a task before it ends
+
+    private final Tile[] tiles;
+    private final AtomicInteger next = new AtomicInteger(); // The index of the next tile to hand out
+
+    /**
+     * A rectangle of pixels of the image: the columns x0 (inclusive) to x1 (exclusive) and the rows y0 (inclusive)
+     * to y1 (exclusive)
+     */
+    static class Tile {
+        final int index;
+        final int x0, y0, x1, y1;
+
+        /**
+         * Constructor
+         *
+         * @param index the index of the tile (in the order of the rows of the tiles)
+         * @param x0    the first column
+         * @param y0    the first row
+         * @param x1    the column after the last
+         * @param y1    the row after the last
+         */
+        Tile(int index, int x0, int y0, int x1, int y1) {
+            this.index = index;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        /**
+         * Getter of the number of the pixels of the tile
+         *
+         * @return the width times the height
+         */
+        int size() {
+            return (x1 - x0) * (y1 - y0);
+        }
+    }
+
+    /**
+     * Constructor - divides the image into tiles, the last tiles of every row and column may be smaller
+     *
+     * @param nX       the number of the columns of the image
+     * @param nY       the number of the rows of the image
+     * @param tileSize the side of the tiles
+     */
+    TileScheduler(int nX, int nY, int tileSize) {
+        int tilesX = (nX + tileSize - 1) / tileSize;
+        int tilesY = (nY + tileSize - 1) / tileSize;
+        tiles = new Tile[tilesX * tilesY];
+        for (int i = 0; i < tiles.length; ++i) {
+            int x0 = i % tilesX * tileSize, y0 = i / tilesX * tileSize;
+            tiles[i] = new Tile(i, x0, y0, Math.min(nX, x0 + tileSize), Math.min(nY, y0 + tileSize));
+        }
+    }
+
+    /**
+     * Getter of the tiles
+     *
+     * @return the tiles in the order of their indices
+     */
+    Tile[] getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Hands out the next tile
+     *
+     * @return the tile, null if all the tiles were handed out
+     */
+    Tile nextTile() {
+        int index = next.getAndIncrement();
+        return index < tiles.length ? tiles[index] : null;
+    }
+
+    /**
+     * Renders all the tiles by workers that take them one after another, and returns when all the tiles are done.
+     * With as many workers as tiles every worker renders about one tile (a thread for every tile).
+     *
+     * @param executor runs the workers
+     * @param workers  the number of the workers
+     * @param render   renders a tile
+     * @throws RuntimeException the first exception of a worker, after all the workers stopped
+     */
+    void run(Executor executor, int workers, Consumer<Tile> render) {
+        runWorkers(executor, workers, worker(render), Long.MAX_VALUE, () -> {
+        });
+    }
+
+    /**
+     * Creates a worker that renders the next tile until all the tiles were handed out
+     *
+     * @param render renders a tile
+     * @return the worker
+     */
+    Runnable worker(Consumer<Tile> render) {
+        return () -> {
+            try {
+                for (Tile tile = nextTile(); tile != null; tile = nextTile())
+                    render.accept(tile);
+            } catch (RuntimeException e) {
+                next.set(tiles.length); // The other workers stop after their current tiles
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Runs copies of a worker on an executor and waits for all of them. The calling thread doesn't work - it reports
+     * the progress every interval while it waits (so the progress is reported by one thread), and once more at the
+     * end.
+     *
+     * @param executor runs the workers
+     * @param workers  the number of the copies of the worker
+     * @param worker   the worker
+     * @param interval the milliseconds between the reports of the progress
+     * @param progress reports the progress
+     * @throws RuntimeException the first exception of a worker, after all the workers stopped
+     */
+    static void runWorkers(Executor executor, int workers, Runnable worker, long interval, Runnable progress) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; ++i)
+            futures[i] = CompletableFuture.runAsync(worker, executor);
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
+        try {
+            while (true)
+                try {
+                    all.get(interval, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    progress.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // The workers can't be left behind, so wait without reports
+                    all.join();
+                    break;
+                }
+        } catch (CompletionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new CompletionException(e.getCause());
+        }
+        progress.run();
+    }
+
+    /**
+     * Creates a pool of platform threads of a fixed size. The threads are daemons, so a pool that wasn't shut down
+     * doesn't keep the JVM alive, and a thread that has waited {@link #IDLE_TIME} seconds for a task ends (it is
+     * started again by the next task), so a pool that is kept between renders holds no threads between them.
+     *
+     * @param threads the number of the threads
+     * @return the pool
+     */
+    static ExecutorService newPlatformPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_TIME, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "Render worker " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Checks whether the JVM has virtual threads (Java 21 and later)
+     *
+     * @return true if it has
+     */
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread for every task. Virtual threads came after Java 17, so the
+     * executor is created by reflection.
+     *
+     * @return the executor, null if the JVM has no virtual threads
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
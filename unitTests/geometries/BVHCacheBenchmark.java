@@ -0,0 +1,62 @@
+package geometries;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of reading a packed hierarchy from its cache file {@link BVHCache} against building it:
+ * the times of the build, of the first load (that writes the file) and of a load from the file are printed.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BVHCacheBenchmark {
+    private static final int GEOMETRIES = 200000;
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    Path directory; // The directory of the cache files
+
+    /**
+     * Times the build and the loads of the same hierarchy
+     */
+    @Test
+    void benchmarkLoad() {
+        Random random = new Random(1533);
+        List<Intersectable> geometries = List.of(BVHTests.randomGeometries(random, GEOMETRIES));
+        BVHCache cache = new BVHCache(directory);
+
+        long build = Long.MAX_VALUE, read = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            new FlatBVH(geometries);
+            build = Math.min(build, System.nanoTime() - start);
+        }
+        long start = System.nanoTime();
+        FlatBVH written = cache.load(geometries);
+        long write = System.nanoTime() - start;
+        FlatBVH loaded = null;
+        for (int round = 0; round < ROUNDS; ++round) {
+            start = System.nanoTime();
+            loaded = cache.load(geometries);
+            read = Math.min(read, System.nanoTime() - start);
+        }
+        assertArrayEquals(written.getSlots(), loaded.getSlots(), "The read hierarchy is not the written one");
+
+        System.out.printf("Packed hierarchy of %d geometries:%n", GEOMETRIES);
+        System.out.printf("  build          %7.1f ms%n", build / 1e6);
+        System.out.printf("  build and write %6.1f ms%n", write / 1e6);
+        System.out.printf("  read           %7.1f ms (x%.1f faster than the build)%n", read / 1e6,
+                (double) build / read);
+    }
+}
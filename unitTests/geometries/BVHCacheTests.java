@@ -0,0 +1,112 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.randomRay;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.BVHCache class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class BVHCacheTests {
+    @TempDir
+    Path directory; // A new directory for every test
+
+    /**
+     * Test method for {@link BVHCache#load(List)}.
+     */
+    @Test
+    void testLoad() throws IOException {
+        Random random = new Random(1533);
+        List<Intersectable> geometries = List.of(randomGeometries(random, 1000));
+        BVHCache cache = new BVHCache(directory);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The first load builds the hierarchy and writes its file
+        FlatBVH built = cache.load(geometries);
+        Path file = cache.getFile(geometries.toArray(new Intersectable[0]));
+        assertTrue(Files.exists(file), "The file wasn't written");
+
+        // TC02: The second load reads the same hierarchy from the file
+        FlatBVH read = cache.load(geometries);
+        assertNotSame(built, read, "The hierarchy wasn't read");
+        assertArrayEquals(built.getSlots(), read.getSlots(), "Wrong slots read");
+        assertArrayEquals(built.getBounds(), read.getBounds(), "Wrong boxes read");
+        assertArrayEquals(built.getItems(), read.getItems(), "Wrong order of the leaves read");
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = randomRay(random);
+            assertEquals(built.findClosestGeoIntersection(ray), read.findClosestGeoIntersection(ray),
+                    "The read hierarchy disagrees on the closest point");
+        }
+
+        // TC03: A moved geometry gets another file
+        List<Intersectable> moved = new ArrayList<>(geometries);
+        moved.set(0, new Sphere(new Point(500, 500, 500), 1));
+        assertNotEquals(file, cache.getFile(moved.toArray(new Intersectable[0])), "A changed group has the same file");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A damaged file is built and written again
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertArrayEquals(built.getSlots(), cache.load(geometries).getSlots(), "Damaged file wasn't built again");
+        assertArrayEquals(built.getSlots(), cache.load(geometries).getSlots(), "Damaged file wasn't written again");
+
+        // TC12: A file that can't be read or written (a directory in its place) leaves only a log - the hierarchy
+        // is built, and the file that was written aside is deleted
+        List<Intersectable> blocked = geometries.subList(0, 100);
+        Files.createDirectories(cache.getFile(blocked.toArray(new Intersectable[0])).resolve("blocked"));
+        assertArrayEquals(new FlatBVH(blocked).getSlots(), cache.load(blocked).getSlots(),
+                "The hierarchy of a blocked file wasn't built");
+        try (var files = Files.list(directory)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")), "A file written aside was left");
+        }
+
+        // TC13: Unbounded geometry is kept out of the file and still intersected
+        List<Intersectable> withPlane =
+                List.of(geometries.get(0), new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)));
+        cache.load(withPlane);
+        assertEquals(List.of(new Point(0, 0, -200)),
+                cache.load(withPlane).findIntersections(new Ray(new Point(0, 0, 500), new Vector(0, 0, -1))),
+                "Unbounded geometry is not intersected");
+
+        // TC14: Empty group
+        cache.load(List.of());
+        assertNull(cache.load(List.of()).getBoundingBox(), "Empty hierarchy has a box");
+    }
+
+    /**
+     * Test method for {@link Geometries#setCache(BVHCache)}.
+     */
+    @Test
+    void testGeometriesCache() throws IOException {
+        Random random = new Random(9418);
+        Intersectable[] geometries = randomGeometries(random, 200);
+        Geometries group = new Geometries(geometries).setAccelerator(Geometries.Accelerator.FLAT_BVH)
+                .setCache(new BVHCache(directory));
+        Geometries list = new Geometries(geometries).setAccelerator(Geometries.Accelerator.NONE);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The group is traced through the cached hierarchy, whose file is written on the first ray
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = randomRay(random);
+            assertEquals(list.findClosestGeoIntersection(ray), group.findClosestGeoIntersection(ray),
+                    "Wrong closest intersection");
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Wrong number of cache files");
+        }
+    }
+}
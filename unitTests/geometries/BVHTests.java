@@ -0,0 +1,249 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.BVH class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class BVHTests {
+
+    /**
+     * Builds a group of random small triangles and spheres in the cube [-100,100]^3
+     *
+     * @param random the random generator
+     * @param count  the number of geometries
+     * @return the geometries
+     */
+    static Intersectable[] randomGeometries(Random random, int count) {
+        Intersectable[] geometries = new Intersectable[count];
+        for (int i = 0; i < count; ++i) {
+            Point p = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100);
+            geometries[i] = i % 3 == 0 ? new Sphere(p, 1 + random.nextDouble() * 5)
+                    : new Triangle(p, p.add(new Vector(10, random.nextDouble(), 1)),
+                    p.add(new Vector(random.nextDouble(), 10, 2)));
+        }
+        return geometries;
+    }
+
+    /**
+     * Builds a random ray from the cube [-150,150]^3 towards the center area
+     *
+     * @param random the random generator
+     * @return the ray
+     */
+    static Ray randomRay(Random random) {
+        Point p0 = new Point(random.nextDouble() * 300 - 150, random.nextDouble() * 300 - 150, 150);
+        Point target = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100, -100);
+        return new Ray(p0, target.subtract(p0));
+    }
+
+    /**
+     * Checks that an acceleration structure agrees with the flat list of its geometries on random rays - the same
+     * intersections, the same closest point before a random max distance and the same transparency. The geometries
+     * are random small triangles and spheres (most of them transparent, so the transparency passes several of them)
+     * and an unbounded plane, and an empty structure has no box and no intersections.
+     *
+     * @param random the random generator
+     * @param build  builds the structure over a list of geometries
+     */
+    static void assertSameAsList(Random random, Function<List<Intersectable>, Intersectable> build) {
+        Intersectable[] geometries = new Intersectable[501];
+        System.arraycopy(randomGeometries(random, 500), 0, geometries, 0, 500);
+        for (int i = 0; i < 500; ++i)
+            ((Geometry) geometries[i]).setMaterial(new Material().setKT(i % 5 == 0 ? 0 : 0.9));
+        geometries[500] = new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)).setMaterial(new Material().setKT(0.5));
+        Geometries list = new Geometries(geometries).setAccelerator(Geometries.Accelerator.NONE);
+        Intersectable structure = build.apply(List.of(geometries));
+        assertNull(structure.getBoundingBox(), "A structure with a plane must be unbounded");
+
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = randomRay(random);
+            List<GeoPoint> expected = list.findGeoIntersections(ray);
+            List<GeoPoint> result = structure.findGeoIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), result == null ? 0 : result.size(),
+                    "Wrong number of intersections");
+            double maxDistance = random.nextDouble() * 500;
+            assertEquals(list.findClosestGeoIntersection(ray, maxDistance),
+                    structure.findClosestGeoIntersection(ray, maxDistance), "Wrong closest intersection");
+            assertEquals(list.findTransparency(ray, maxDistance), structure.findTransparency(ray, maxDistance),
+                    "Wrong transparency");
+        }
+
+        Intersectable empty = build.apply(List.of());
+        assertNull(empty.getBoundingBox(), "An empty structure has a box");
+        assertNull(empty.findGeoIntersections(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))),
+                "An empty structure has intersections");
+    }
+
+    /**
+     * Checks that an acceleration structure that refers to a geometry from several of its cells tests it only once for
+     * a ray (mailboxing): a big sphere among small geometries is intersected twice, a transparent square over many
+     * cells attenuates a slanted ray once, and 100 nested transparent shells (more geometries than a mailbox holds at
+     * first) are intersected and attenuate a ray as in the flat list.
+     *
+     * @param random the random generator
+     * @param build  builds the structure over a list of geometries
+     */
+    static void assertTestedOnce(Random random, Function<List<Intersectable>, Intersectable> build) {
+        Ray down = new Ray(new Point(0, 0, 500), new Vector(0, 0, -1));
+        Sphere big = new Sphere(new Point(0, 0, 0), 50);
+        Intersectable[] items = new Intersectable[101];
+        System.arraycopy(randomGeometries(random, 100), 0, items, 0, 100);
+        items[100] = big;
+        assertEquals(2, build.apply(List.of(items)).findGeoIntersections(down).stream()
+                .filter(gp -> gp.geometry == big).count(), "Big sphere intersected more than twice");
+
+        Intersectable[] square = new Intersectable[30];
+        for (int i = 0; i < 29; ++i)
+            square[i] = new Sphere(new Point(i * 4 - 56, 40, 0), 1);
+        square[29] = new Polygon(new Point(-60, -60, 0), new Point(60, -60, 0), new Point(60, 60, 0),
+                new Point(-60, 60, 0)).setMaterial(new Material().setKT(0.5));
+        assertEquals(new Double3(0.5), build.apply(List.of(square))
+                        .findTransparency(new Ray(new Point(-50, -50, 10), new Vector(100, 80, -20)), 200),
+                "Square must attenuate the ray once");
+
+        Intersectable[] shells = new Intersectable[200];
+        System.arraycopy(randomGeometries(random, 100), 0, shells, 0, 100);
+        for (int i = 100; i < shells.length; ++i)
+            shells[i] = new Sphere(new Point(0, 0, 0), i - 60).setMaterial(new Material().setKT(0.99));
+        Geometries list = new Geometries(shells).setAccelerator(Geometries.Accelerator.NONE);
+        Intersectable structure = build.apply(List.of(shells));
+        assertEquals(list.findGeoIntersections(down).size(), structure.findGeoIntersections(down).size(),
+                "A shell wasn't intersected exactly twice");
+        Double3 expected = list.findTransparency(down, 1000);
+        assertNotEquals(Double3.ZERO, expected, "The ray must pass the random geometries");
+        assertEquals(expected, structure.findTransparency(down, 1000), "A shell didn't attenuate the ray exactly twice");
+    }
+
+    /**
+     * Test method for {@link BVH#findGeoIntersections(Ray)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        Random random = new Random(5783);
+        Intersectable[] geometries = randomGeometries(random, 500);
+        Geometries flat = new Geometries(geometries).setAccelerator(Geometries.Accelerator.NONE);
+        BVH bvh = new BVH(List.of(geometries));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hierarchy finds the same intersections as the flat list
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = randomRay(random);
+            List<GeoPoint> expected = flat.findGeoIntersections(ray);
+            List<GeoPoint> result = bvh.findGeoIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), result == null ? 0 : result.size(),
+                    "Wrong number of intersections");
+            assertEquals(ray.findClosestGeoPoint(expected), ray.findClosestGeoPoint(result),
+                    "Wrong closest intersection");
+        }
+
+        // TC02: Ray that misses the whole hierarchy
+        assertNull(bvh.findGeoIntersections(new Ray(new Point(0, 0, 500), new Vector(0, 0, 1))),
+                "Ray outside the hierarchy");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Unbounded geometry is kept out of the tree and still intersected
+        Plane plane = new Plane(new Point(0, 0, -200), new Vector(0, 0, 1));
+        BVH withPlane = new BVH(List.of(geometries[0], plane));
+        assertNull(withPlane.getBoundingBox(), "Hierarchy with a plane must be unbounded");
+        assertEquals(List.of(new Point(0, 0, -200)),
+                withPlane.findIntersections(new Ray(new Point(0, 0, 500), new Vector(0, 0, -1))),
+                "Unbounded geometry is not intersected");
+
+        // TC12: Empty hierarchy
+        assertNull(new BVH(List.of()).findGeoIntersections(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))),
+                "Empty hierarchy");
+    }
+
+    /**
+     * Test method for {@link BVH#findClosestGeoIntersection(Ray, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Random random = new Random(9418);
+        Intersectable[] geometries = randomGeometries(random, 500);
+        Geometries flat = new Geometries(geometries).setAccelerator(Geometries.Accelerator.NONE);
+        BVH bvh = new BVH(List.of(geometries));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hierarchy finds the same closest point as the flat list
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = randomRay(random);
+            GeoPoint expected = ray.findClosestGeoPoint(flat.findGeoIntersections(ray));
+            assertEquals(expected, bvh.findClosestGeoIntersection(ray), "Wrong closest intersection");
+            assertEquals(expected, flat.findClosestGeoIntersection(ray), "Wrong closest intersection of the list");
+        }
+
+        // TC02: The closest point is farther than the max distance
+        Sphere sphere = new Sphere(new Point(0, 0, -10), 1);
+        BVH single = new BVH(List.of(sphere, new Sphere(new Point(0, 0, -20), 1)));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+        assertNull(single.findClosestGeoIntersection(ray, 5), "Point beyond the max distance");
+
+        // TC03: The closest point is closer than the max distance
+        assertEquals(new GeoPoint(sphere, new Point(0, 0, -9)), single.findClosestGeoIntersection(ray, 15),
+                "Wrong closest point before the max distance");
+    }
+
+    /**
+     * Test method for {@link BVH#refit()}.
+     */
+    @Test
+    void testRefit() {
+        Random random = new Random(1533);
+        // Small meshes of one face that can be moved
+        TriangleMesh[] meshes = new TriangleMesh[300];
+        for (int i = 0; i < meshes.length; ++i) {
+            double x = random.nextDouble() * 200 - 100, y = random.nextDouble() * 200 - 100;
+            double z = random.nextDouble() * 200 - 100;
+            meshes[i] = new TriangleMesh(new double[]{x, y, z, x + 10, y, z + 1, x, y + 10, z + 2}, new int[]{0, 1, 2});
+        }
+        Geometries flat = new Geometries(meshes).setAccelerator(Geometries.Accelerator.NONE);
+        BVH bvh = new BVH(List.of(meshes));
+        BVH.Node root = bvh.getRoot();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A small move keeps the tree, and the refit tree finds the moved faces
+        for (TriangleMesh mesh : meshes)
+            move(mesh, new Vector(random.nextDouble() * 2, random.nextDouble() * 2, 1));
+        assertTrue(bvh.refit(), "A small move needs a new tree");
+        assertSame(root, bvh.getRoot(), "Refit changed the tree");
+        for (int i = 0; i < 1000; ++i) {
+            Ray ray = randomRay(random);
+            assertEquals(ray.findClosestGeoPoint(flat.findGeoIntersections(ray)), bvh.findClosestGeoIntersection(ray),
+                    "Wrong closest intersection after refit");
+        }
+
+        // TC02: Scattering the meshes makes the tree too bad
+        for (TriangleMesh mesh : meshes)
+            move(mesh, new Vector(random.nextDouble() * 400 - 200, random.nextDouble() * 400 - 200,
+                    random.nextDouble() * 400 - 200));
+        assertFalse(bvh.refit(), "Scattered geometries must need a new tree");
+    }
+
+    /**
+     * Moves all the vertices of a mesh
+     *
+     * @param mesh   the mesh
+     * @param offset the move
+     */
+    private static void move(TriangleMesh mesh, Vector offset) {
+        for (int i = 0; i < mesh.getVerticesCount(); ++i)
+            mesh.setVertex(i, mesh.getVertex(i).add(offset));
+    }
+}
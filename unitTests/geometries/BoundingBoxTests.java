@@ -0,0 +1,99 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.BoundingBox class and the bounding boxes of the geometries
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class BoundingBoxTests {
+    private final BoundingBox box = new BoundingBox(new Point(-1, -1, -1), new Point(1, 1, 1));
+
+    /**
+     * Test method for {@link BoundingBox#intersects(Ray, double)}.
+     */
+    @Test
+    void testIntersects() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the box
+        assertTrue(box.intersects(new Ray(new Point(-5, 0.5, 0), new Vector(1, 0.1, 0)), Double.POSITIVE_INFINITY),
+                "Ray crosses the box");
+
+        // TC02: Ray misses the box
+        assertFalse(box.intersects(new Ray(new Point(-5, 3, 0), new Vector(1, 0.1, 0)), Double.POSITIVE_INFINITY),
+                "Ray misses the box");
+
+        // TC03: Ray starts after the box
+        assertFalse(box.intersects(new Ray(new Point(5, 0, 0), new Vector(1, 0, 0)), Double.POSITIVE_INFINITY),
+                "Ray starts after the box");
+
+        // TC04: Ray starts inside the box
+        assertTrue(box.intersects(new Ray(new Point(0, 0, 0), new Vector(1, 2, 3)), Double.POSITIVE_INFINITY),
+                "Ray starts inside the box");
+
+        // TC05: The box is farther than the max distance
+        assertFalse(box.intersects(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)), 3),
+                "Box beyond the max distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to an axis on the face of the box
+        assertTrue(box.intersects(new Ray(new Point(-5, 1, 0), new Vector(1, 0, 0)), Double.POSITIVE_INFINITY),
+                "Ray on the face of the box");
+
+        // TC12: Flat box (of a triangle on the xy plane)
+        BoundingBox flat = new BoundingBox(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0));
+        assertTrue(flat.intersects(new Ray(new Point(0.2, 0.2, 1), new Vector(0, 0, -1)), Double.POSITIVE_INFINITY),
+                "Ray through a flat box");
+    }
+
+    /**
+     * Test method for {@link BoundingBox#union(BoundingBox)}.
+     */
+    @Test
+    void testUnion() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Union of two separated boxes
+        BoundingBox union = box.union(new BoundingBox(new Point(2, 3, 4), new Point(5, 5, 5)));
+        assertEquals(new Point(-1, -1, -1), union.getMin(), "Wrong min of union");
+        assertEquals(new Point(5, 5, 5), union.getMax(), "Wrong max of union");
+    }
+
+    /**
+     * Test method for {@link Intersectable#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box of a sphere
+        BoundingBox sphereBox = new Sphere(new Point(1, 2, 3), 2).getBoundingBox();
+        assertEquals(new Point(-1, 0, 1), sphereBox.getMin(), "Wrong min of sphere box");
+        assertEquals(new Point(3, 4, 5), sphereBox.getMax(), "Wrong max of sphere box");
+
+        // TC02: Box of a cylinder along the z axis
+        BoundingBox cylinderBox = new Cylinder(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)), 3)
+                .getBoundingBox();
+        assertEquals(new Point(-1, -1, 0), cylinderBox.getMin(), "Wrong min of cylinder box");
+        assertEquals(new Point(1, 1, 3), cylinderBox.getMax(), "Wrong max of cylinder box");
+
+        // TC03: Box of a group is the union of its geometries
+        Geometries geometries = new Geometries(new Sphere(new Point(0, 0, 0), 1),
+                new Triangle(new Point(5, 0, 0), new Point(6, 0, 0), new Point(5, 2, -3)));
+        assertEquals(new Point(-1, -1, -3), geometries.getBoundingBox().getMin(), "Wrong min of group box");
+        assertEquals(new Point(6, 2, 1), geometries.getBoundingBox().getMax(), "Wrong max of group box");
+
+        // TC04: Infinite geometries have no box
+        assertNull(new Plane(new Point(0, 0, 0), new Vector(0, 0, 1)).getBoundingBox(), "Plane has a box");
+        assertNull(new Tube(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))).getBoundingBox(), "Tube has a box");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A group with an infinite geometry is unbounded
+        geometries.add(new Plane(new Point(0, 0, 0), new Vector(0, 0, 1)));
+        assertNull(geometries.getBoundingBox(), "Group with a plane has a box");
+    }
+}
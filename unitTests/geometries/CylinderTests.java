@@ -5,6 +5,8 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -44,4 +46,44 @@ class CylinderTests {
         assertEquals(new Vector(0, 1, 0), cyl.getNormal(new Point(0, 1, 2)), "Bad normal to edge with upper base");
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Cylinder#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Cylinder cyl = new Cylinder(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)), 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the side twice
+        assertEquals(List.of(new Point(-1, 0, 1), new Point(1, 0, 1)),
+                cyl.findIntersections(new Ray(new Point(-3, 0, 1), new Vector(1, 0, 0))), "Bad side intersections");
+
+        // TC02: Ray crosses both bases
+        assertEquals(List.of(new Point(0.5, 0, 2), new Point(0.5, 0, 0)),
+                cyl.findIntersections(new Ray(new Point(0.5, 0, 5), new Vector(0, 0, -1))), "Bad bases intersections");
+
+        // TC03: Ray crosses a base and the side
+        assertEquals(List.of(new Point(0, 0, 2), new Point(1, 0, 1)),
+                cyl.findIntersections(new Ray(new Point(-1, 0, 3), new Vector(1, 0, -1))),
+                "Bad base and side intersections");
+
+        // TC04: Ray crosses the tube of the cylinder above the cylinder
+        assertNull(cyl.findIntersections(new Ray(new Point(-3, 0, 3), new Vector(1, 0, 0))),
+                "Ray above the cylinder");
+
+        // TC05: Ray starts inside the cylinder
+        assertEquals(List.of(new Point(0, 0, 2)),
+                cyl.findIntersections(new Ray(new Point(0, 0, 1), new Vector(0, 0, 1))),
+                "Bad intersection from inside the cylinder");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray on the continuation of the side (parallel to the axis on the tube)
+        assertNull(cyl.findIntersections(new Ray(new Point(1, 0, 5), new Vector(0, 0, -1))),
+                "Ray on the side of the cylinder");
+
+        // TC12: Ray in the plane of a base
+        assertNull(cyl.findIntersections(new Ray(new Point(-3, 0, 2), new Vector(1, 0, 0))),
+                "Ray in the plane of a base");
+    }
+}
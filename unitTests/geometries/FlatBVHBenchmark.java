@@ -0,0 +1,65 @@
+package geometries;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the hierarchy packed into arrays {@link FlatBVH} against the tree of node objects {@link BVH}
+ * that it is packed from: the trace times of the same rays are printed.
+ * The test fails only if the two layouts disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FlatBVHBenchmark {
+    private static final int GEOMETRIES = 200000;
+    private static final int RAYS = 100000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Times the tracing through the two layouts of the same tree
+     */
+    @Test
+    void benchmarkTrace() {
+        Random random = new Random(1533);
+        List<Intersectable> geometries = List.of(BVHTests.randomGeometries(random, GEOMETRIES));
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; ++i)
+            rays[i] = BVHTests.randomRay(random);
+
+        BVH tree = new BVH(geometries);
+        long start = System.nanoTime();
+        FlatBVH flat = new FlatBVH(tree);
+        long pack = System.nanoTime() - start;
+
+        long treeTrace = Long.MAX_VALUE, flatTrace = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            start = System.nanoTime();
+            for (Ray ray : rays)
+                tree.findClosestGeoIntersection(ray);
+            treeTrace = Math.min(treeTrace, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Ray ray : rays)
+                flat.findClosestGeoIntersection(ray);
+            flatTrace = Math.min(flatTrace, System.nanoTime() - start);
+        }
+        for (Ray ray : rays)
+            assertEquals(tree.findClosestGeoIntersection(ray), flat.findClosestGeoIntersection(ray),
+                    "The layouts disagree on the closest point");
+
+        System.out.printf("BVH layouts over %d geometries (packing took %.1f ms):%n", GEOMETRIES, pack / 1e6);
+        System.out.printf("  nodes  trace %6.1f ns/ray%n", (double) treeTrace / RAYS);
+        System.out.printf("  arrays trace %6.1f ns/ray%n", (double) flatTrace / RAYS);
+        System.out.printf("  speedup x%.2f%n", (double) treeTrace / flatTrace);
+    }
+}
@@ -0,0 +1,56 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.assertSameAsList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.FlatBVH class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class FlatBVHTests {
+
+    /**
+     * Test method for {@link FlatBVH#FlatBVH(BVH)}.
+     */
+    @Test
+    void testConstructor() {
+        Random random = new Random(1533);
+        Intersectable[] geometries = randomGeometries(random, 500);
+        FlatBVH flat = new FlatBVH(List.of(geometries));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every geometry is in exactly one leaf
+        assertEquals(geometries.length, flat.getItems().length, "Wrong number of geometries in the leaves");
+        assertTrue(List.of(flat.getItems()).containsAll(List.of(geometries)), "Geometry is missing from the leaves");
+
+        // TC02: The linear hierarchy is packed as well
+        assertEquals(geometries.length, new FlatBVH(BVH.linear(List.of(geometries))).getItems().length,
+                "Wrong number of geometries in the leaves of the linear hierarchy");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single leaf has no inner nodes
+        FlatBVH leaf = new FlatBVH(List.of(geometries[0], geometries[1]));
+        assertEquals(0, leaf.getInnerCount(), "A single leaf has inner nodes");
+        assertEquals(geometries[0].getBoundingBox().union(geometries[1].getBoundingBox()).toString(),
+                leaf.getBoundingBox().toString(), "Wrong box of a single leaf");
+    }
+
+    /**
+     * Test method for {@link FlatBVH#findGeoIntersections(Ray)},
+     * {@link FlatBVH#findClosestGeoIntersection(Ray, double)} and {@link FlatBVH#findTransparency(Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The packed hierarchy agrees with the flat list
+        assertSameAsList(new Random(5783), FlatBVH::new);
+    }
+}
@@ -4,10 +4,16 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -52,4 +58,113 @@ class GeometriesTests {
         List<Point> result5 = geometries1.findIntersections(new Ray(new Point(0, 1d/2, 5), new Vector(0, 0, -1)));
         assertEquals( 4, result5.size(),"All geometries are cut");
     }
-}
\ No newline at end of file
+
+    /**
+     * test method for {@link geometries.Geometries#findTransparency(primitives.Ray, double)}
+     */
+    @Test
+    void testFindTransparency() {
+        Sphere glass = (Sphere) new Sphere(new Point(0, 0, -10), 1).setMaterial(new Material().setKT(0.5));
+        Triangle opaque = new Triangle(new Point(-5, -5, -20), new Point(5, -5, -20), new Point(0, 5, -20));
+        Plane far = (Plane) new Plane(new Point(0, 0, -30), new Vector(0, 0, 1)).setMaterial(new Material().setKT(0.2));
+        Geometries geometries = new Geometries(glass, opaque, far);
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Only the transparent sphere is before the light (the ray crosses it twice)
+        assertEquals(new Double3(0.25), geometries.findTransparency(ray, 15), "Wrong transparency of the sphere");
+
+        // TC02: An opaque triangle blocks the light
+        assertEquals(Double3.ZERO, geometries.findTransparency(ray, 100), "Opaque geometry doesn't block the light");
+
+        // TC03: The light is before all the geometries
+        assertEquals(Double3.ONE, geometries.findTransparency(ray, 5), "Geometry behind the light blocks it");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The light is inside the sphere (only the first point is counted)
+        assertEquals(new Double3(0.5), geometries.findTransparency(ray, 10), "Wrong transparency inside the sphere");
+    }
+
+    /**
+     * test method for {@link geometries.Geometries#refit()}
+     */
+    @Test
+    void testRefit() {
+        TriangleMesh moving = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 2});
+        Geometries geometries = new Geometries(moving);
+        for (int i = 1; i <= 5; ++i)
+            geometries.add(new Sphere(new Point(10 * i, 0, 0), 1));
+        Ray ray = new Ray(new Point(0.2, 0.2, 10), new Vector(0, 0, -1));
+        assertEquals(List.of(new Point(0.2, 0.2, 0)), geometries.findIntersections(ray), "Wrong intersection");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A moved geometry is found in its new place after refit
+        for (int i = 0; i < 3; ++i)
+            moving.setVertex(i, moving.getVertex(i).add(new Vector(0, 0, -2)));
+        geometries.refit();
+        assertEquals(List.of(new Point(0.2, 0.2, -2)), geometries.findIntersections(ray),
+                "Moved geometry wasn't refit");
+        assertEquals(-2, geometries.getBoundingBox().getMin().getZ(), 1e-10, "Box of the group wasn't refit");
+    }
+
+    /**
+     * Calculates the fingerprint of a group
+     *
+     * @param geometries the group
+     * @return the SHA-256 of the fingerprint
+     */
+    private static byte[] fingerprint(Geometries geometries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            geometries.fingerprint(digest);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds a group of a plane and a sphere
+     *
+     * @param height the height of the plane
+     * @param kD     the diffusion factor of the sphere
+     * @return the group
+     */
+    private static Geometries scene(double height, double kD) {
+        return new Geometries(new Plane(new Point(0, 0, height), new Vector(0, 0, 1)),
+                new Geometries(new Sphere(new Point(0, 0, 5), 2).setMaterial(new Material().setKD(kD))));
+    }
+
+    /**
+     * test method for {@link geometries.Geometries#fingerprint(MessageDigest)}
+     */
+    @Test
+    void testFingerprint() {
+        byte[] expected = fingerprint(scene(0, 0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The same scene has the same fingerprint
+        assertArrayEquals(expected, fingerprint(scene(0, 0.5)), "The same scene has another fingerprint");
+        // TC02: A moved plane (unbounded) changes the fingerprint
+        assertFalse(Arrays.equals(expected, fingerprint(scene(1, 0.5))), "A moved plane kept the fingerprint");
+        // TC03: Another material of a nested geometry changes the fingerprint
+        assertFalse(Arrays.equals(expected, fingerprint(scene(0, 0.6))), "A new material kept the fingerprint");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Another emission changes the fingerprint
+        Geometries dark = scene(0, 0.5);
+        dark.add(new Tube(1, new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))));
+        Geometries glowing = scene(0, 0.5);
+        glowing.add(new Tube(1, new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))).setEmission(new Color(1, 0, 0)));
+        assertFalse(Arrays.equals(fingerprint(dark), fingerprint(glowing)), "A new emission kept the fingerprint");
+        // TC12: A group traced through a structure has the fingerprint of its geometries
+        Geometries big = scene(0, 0.5);
+        Geometries flat = scene(0, 0.5).setAccelerator(Geometries.Accelerator.NONE);
+        for (int i = 1; i <= 5; ++i) {
+            big.add(new Sphere(new Point(10 * i, 0, 0), 1));
+            flat.add(new Sphere(new Point(10 * i, 0, 0), 1));
+        }
+        big.findIntersections(new Ray(new Point(0, 0, 20), new Vector(0, 0, -1)));
+        assertArrayEquals(fingerprint(flat), fingerprint(big), "The structure changed the fingerprint");
+    }
+}
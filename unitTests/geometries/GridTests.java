@@ -0,0 +1,58 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.assertSameAsList;
+import static geometries.BVHTests.assertTestedOnce;
+
+/**
+ * Unit tests for geometries.Grid class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class GridTests {
+
+    /**
+     * Test method for {@link Grid#Grid(List)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The number of cells grows with the number of the geometries
+        Random random = new Random(1533);
+        int[] small = new Grid(List.of(randomGeometries(random, 10))).getResolution();
+        int[] big = new Grid(List.of(randomGeometries(random, 1000))).getResolution();
+        assertTrue(small[0] * small[1] * small[2] < big[0] * big[1] * big[2], "Cells don't grow with the geometries");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Flat group (a terrain on the xy plane) has one cell on z
+        Intersectable[] terrain = new Intersectable[50];
+        for (int i = 0; i < terrain.length; ++i)
+            terrain[i] = new Triangle(new Point(i, 0, 0), new Point(i + 1, 0, 0), new Point(i, 1, 0));
+        assertEquals(1, new Grid(List.of(terrain)).getResolution()[2], "Flat axis must have one cell");
+    }
+
+    /**
+     * Test method for {@link Grid#findGeoIntersections(Ray)}, {@link Grid#findClosestGeoIntersection(Ray, double)}
+     * and {@link Grid#findTransparency(Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        Random random = new Random(5783);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The grid agrees with the flat list
+        assertSameAsList(random, Grid::new);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A geometry in many cells is tested once for a ray (mailboxing)
+        assertTestedOnce(random, Grid::new);
+    }
+}
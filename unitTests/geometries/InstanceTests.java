@@ -0,0 +1,155 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Instance class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class InstanceTests {
+    // A unit sphere, placed by a scaling by 2 and a translation, so it is the sphere of center (0,0,-10) and radius 2
+    private final Sphere unit = new Sphere(new Point(0, 0, 0), 1);
+    private final Instance instance = new Instance(unit,
+            Transform.scaling(2).then(Transform.translation(new Vector(0, 0, -10))));
+
+    /**
+     * Test method for {@link Instance#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box of the transformed object
+        BoundingBox box = instance.getBoundingBox();
+        assertEquals(new Point(-2, -2, -12), box.getMin(), "Wrong min corner");
+        assertEquals(new Point(2, 2, -8), box.getMax(), "Wrong max corner");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Instance of an unbounded object
+        assertNull(new Instance(new Plane(new Point(0, 0, 0), new Vector(0, 0, 1)), Transform.scaling(2))
+                .getBoundingBox(), "Instance of a plane has a box");
+    }
+
+    /**
+     * Test method for {@link Instance#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the transformed object
+        List<GeoPoint> result = instance.findGeoIntersections(new Ray(new Point(0, 0, 0), new Vector(0, 0, -1)));
+        assertEquals(2, result.size(), "Wrong number of points");
+        List<Point> points = List.of(result.get(0).point, result.get(1).point);
+        assertTrue(points.contains(new Point(0, 0, -8)) && points.contains(new Point(0, 0, -12)),
+                "Wrong intersection points");
+        assertSame(unit, ((Instance.Part) result.get(0).geometry).getGeometry(), "Wrong geometry of the point");
+
+        // TC02: Ray misses the transformed object but crosses the object itself
+        assertNull(instance.findIntersections(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0))),
+                "Ray misses the instance");
+    }
+
+    /**
+     * Test method for {@link Instance#findClosestGeoIntersection(Ray, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The closest point is the near side of the transformed sphere
+        assertEquals(new Point(0, 0, -8), instance.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+        // TC02: The max distance is measured in the scene, not in the object space
+        assertEquals(new Point(0, 0, -8), instance.findClosestGeoIntersection(ray, 9).point,
+                "Point closer than the max distance not found");
+        assertNull(instance.findClosestGeoIntersection(ray, 7), "Point beyond the max distance");
+    }
+
+    /**
+     * Test method for {@link Instance#findTransparency(Ray, double)}.
+     */
+    @Test
+    void testFindTransparency() {
+        unit.setMaterial(new Material().setKT(0.5));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Light between the two sides of the transformed sphere
+        assertEquals(new Double3(0.5), instance.findTransparency(ray, 10), "Wrong transparency through one side");
+
+        // TC02: Light beyond the transformed sphere
+        assertEquals(new Double3(0.25), instance.findTransparency(ray, 20), "Wrong transparency through two sides");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Light before the transformed sphere
+        assertEquals(Double3.ONE, instance.findTransparency(ray, 7), "Blocked by a point beyond the light");
+    }
+
+    /**
+     * Test method for {@link Instance.Part#getNormal(Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Normal of a uniformly scaled sphere
+        GeoPoint gp = instance.findClosestGeoIntersection(new Ray(new Point(5, 0, -10), new Vector(-1, 0, 0)));
+        assertEquals(new Vector(1, 0, 0), gp.geometry.getNormal(gp.point), "Wrong normal");
+
+        // TC02: Normal of a stretched sphere (an ellipse x^2/4 + y^2 = 1 on the xy plane) is not the stretched normal
+        Instance ellipsoid = new Instance(unit, Transform.scaling(2, 1, 1));
+        Point p = new Point(Math.sqrt(2), Math.sqrt(0.5), 0);
+        gp = ellipsoid.findClosestGeoIntersection(new Ray(p.add(new Vector(1, 1, 0)), new Vector(-1, -1, 0)));
+        assertEquals(p, gp.point, "Wrong point on the stretched sphere");
+        assertEquals(new Vector(p.getX() / 2, 2 * p.getY(), 0).normalize(), gp.geometry.getNormal(gp.point),
+                "Wrong normal of the stretched sphere");
+
+        // TC03: The part shares the material of the geometry
+        assertSame(unit.getMaterial(), gp.geometry.getMaterial(), "Part doesn't share the material");
+    }
+
+    /**
+     * Test of a hierarchy over many instances of one shared group
+     */
+    @Test
+    void testHierarchyOfInstances() {
+        Random random = new Random(9418);
+        Geometries shared = new Geometries(unit);
+        List<Intersectable> instances = new LinkedList<>();
+        Geometries reference = new Geometries();
+        for (int i = 0; i < 100; ++i) {
+            Vector move = new Vector(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20,
+                    random.nextDouble() * 40 - 20);
+            double scale = 0.5 + random.nextDouble();
+            instances.add(new Instance(shared, Transform.scaling(scale).then(Transform.translation(move))));
+            reference.add(new Sphere(new Point(0, 0, 0).add(move), scale));
+        }
+        BVH bvh = new BVH(instances);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hierarchy of instances finds the points of the equivalent spheres
+        Point eye = new Point(0, 0, 60);
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = new Ray(eye, new Vector(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, -60));
+            GeoPoint expected = reference.findClosestGeoIntersection(ray);
+            GeoPoint closest = bvh.findClosestGeoIntersection(ray);
+            // The points are found in different spaces, so they are compared with a tolerance
+            assertEquals(expected == null, closest == null, "Wrong hit of ray " + ray);
+            if (expected != null)
+                assertEquals(0, expected.point.distance(closest.point), 1e-9, "Wrong closest point of ray " + ray);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the kd-tree against the BVH (and the grid) on secondary rays - rays that start on the surfaces
+ * of the scene in random directions, like the reflected and refracted rays of
+ * {@code RayTracerBasic.calcGlobalEffects}. The build times and the trace times of every scene are printed
+ * with the faster structure - the test fails only if the structures disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class KDTreeBenchmark {
+    private static final int RAYS = 100000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Builds a height field of triangles (a terrain) on the xz plane
+     *
+     * @param random the random generator
+     * @param size   the number of squares on every side
+     * @return the triangles
+     */
+    private static Intersectable[] terrain(Random random, int size) {
+        double[][] height = new double[size + 1][size + 1];
+        for (double[] row : height)
+            for (int j = 0; j < row.length; ++j)
+                row[j] = random.nextDouble() * 3;
+        Intersectable[] triangles = new Intersectable[2 * size * size];
+        int k = 0;
+        for (int i = 0; i < size; ++i)
+            for (int j = 0; j < size; ++j) {
+                Point p00 = new Point(i, height[i][j], j), p10 = new Point(i + 1, height[i + 1][j], j);
+                Point p01 = new Point(i, height[i][j + 1], j + 1), p11 = new Point(i + 1, height[i + 1][j + 1], j + 1);
+                triangles[k++] = new Triangle(p00, p10, p11);
+                triangles[k++] = new Triangle(p00, p11, p01);
+            }
+        return triangles;
+    }
+
+    /**
+     * Creates secondary rays: every ray starts at the hit point of a primary ray and goes in a random direction
+     *
+     * @param random    the random generator
+     * @param reference the structure to find the hit points of the primary rays
+     * @param eye       the head of the primary rays
+     * @param target    the center of the area that the primary rays go to
+     * @param spread    the size of that area
+     * @return the secondary rays
+     */
+    private static Ray[] secondaryRays(Random random, Intersectable reference, Point eye, Point target, double spread) {
+        List<Ray> rays = new LinkedList<>();
+        while (rays.size() < RAYS) {
+            Point aim = target.add(new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5).scale(spread));
+            GeoPoint hit = reference.findClosestGeoIntersection(new Ray(eye, aim.subtract(eye)));
+            if (hit == null)
+                continue;
+            Vector direction = new Vector(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+            Vector n = hit.geometry.getNormal(hit.point);
+            rays.add(new Ray(hit.point, direction, n));
+        }
+        return rays.toArray(new Ray[0]);
+    }
+
+    /**
+     * Measures one structure on one scene
+     *
+     * @param name       the name of the structure
+     * @param builder    builds the structure over the geometries
+     * @param geometries the geometries of the scene
+     * @param rays       the rays
+     * @param expected   the closest points of the rays
+     * @param fill       true to fill the closest points, false to check them
+     * @return the best trace time in nanoseconds
+     */
+    private static long measure(String name, Function<List<Intersectable>, Intersectable> builder,
+                                List<Intersectable> geometries, Ray[] rays, GeoPoint[] expected, boolean fill) {
+        long build = Long.MAX_VALUE, trace = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            Intersectable structure = builder.apply(geometries);
+            build = Math.min(build, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < rays.length; ++i) {
+                GeoPoint closest = structure.findClosestGeoIntersection(rays[i]);
+                if (fill)
+                    expected[i] = closest;
+                else if (round == 0)
+                    assertEquals(expected[i] == null ? null : expected[i].point,
+                            closest == null ? null : closest.point, name + " disagrees on the closest point");
+            }
+            trace = Math.min(trace, System.nanoTime() - start);
+        }
+        System.out.printf("  %-8s build %8.1f ms, trace %7.1f ns/ray%n", name, build / 1e6,
+                (double) trace / rays.length);
+        return trace;
+    }
+
+    /**
+     * Measures all the structures on one scene and prints the faster one of the kd-tree and the BVH
+     *
+     * @param scene      the name of the scene
+     * @param geometries the geometries of the scene
+     * @param rays       the secondary rays
+     */
+    private static void compare(String scene, Intersectable[] geometries, Ray[] rays) {
+        List<Intersectable> list = List.of(geometries);
+        GeoPoint[] expected = new GeoPoint[rays.length];
+        System.out.printf("%s (%d geometries, %d secondary rays):%n", scene, geometries.length, rays.length);
+        long bvh = measure("BVH", BVH::new, list, rays, expected, true);
+        long kd = measure("kd-tree", KDTree::new, list, rays, expected, false);
+        measure("grid", Grid::new, list, rays, expected, false);
+        System.out.printf("  faster: %s (x%.2f)%n", kd < bvh ? "kd-tree" : "BVH",
+                (double) Math.max(kd, bvh) / Math.min(kd, bvh));
+    }
+
+    /**
+     * Compares the structures on a scene of spread geometries and on a terrain
+     */
+    @Test
+    void benchmarkSecondaryRays() {
+        Random random = new Random(5783);
+
+        Intersectable[] spread = BVHTests.randomGeometries(random, 5000);
+        compare("Spread triangles and spheres", spread,
+                secondaryRays(random, new BVH(List.of(spread)), new Point(0, 0, 400), new Point(0, 0, 0), 200));
+
+        Intersectable[] terrain = terrain(random, 100);
+        compare("Terrain", terrain,
+                secondaryRays(random, new BVH(List.of(terrain)), new Point(50, 40, -30), new Point(50, 0, 50), 100));
+    }
+}
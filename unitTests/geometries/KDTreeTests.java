@@ -0,0 +1,57 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.assertSameAsList;
+import static geometries.BVHTests.assertTestedOnce;
+
+/**
+ * Unit tests for geometries.KDTree class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class KDTreeTests {
+
+    /**
+     * Test method for {@link KDTree#KDTree(List)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Spread geometries are split, and the depth is limited by the number of the geometries
+        KDTree tree = new KDTree(List.of(randomGeometries(new Random(1533), 1000)));
+        assertFalse(tree.getRoot().isLeaf(), "Spread geometries must be split");
+        assertTrue(tree.getDepth() <= 1 + Math.round(8 + 1.3 * Math.log(1000) / Math.log(2)), "Tree is too deep");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Geometries in the same place can't be separated - the root is a leaf
+        Intersectable[] same = new Intersectable[10];
+        for (int i = 0; i < same.length; ++i)
+            same[i] = new Sphere(new Point(1, 2, 3), 1);
+        assertTrue(new KDTree(List.of(same)).getRoot().isLeaf(), "Geometries in the same place were split");
+    }
+
+    /**
+     * Test method for {@link KDTree#findGeoIntersections(Ray)}, {@link KDTree#findClosestGeoIntersection(Ray, double)}
+     * and {@link KDTree#findTransparency(Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        Random random = new Random(5783);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The tree agrees with the flat list
+        assertSameAsList(random, KDTree::new);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A geometry in many cells is tested once for a ray (mailboxing)
+        assertTestedOnce(random, KDTree::new);
+    }
+}
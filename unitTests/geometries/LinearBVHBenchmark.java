@@ -0,0 +1,77 @@
+package geometries;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the parallel linear BVH build against the surface area heuristic build of {@link BVH}:
+ * the build times, the SAH cost of the trees and the trace times of the same rays are printed.
+ * The test fails only if the two trees disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LinearBVHBenchmark {
+    private static final int GEOMETRIES = 200000;
+    private static final int RAYS = 100000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Times the two builds and the tracing through the two trees
+     */
+    @Test
+    void benchmarkBuild() {
+        Random random = new Random(1533);
+        List<Intersectable> geometries = List.of(BVHTests.randomGeometries(random, GEOMETRIES));
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; ++i)
+            rays[i] = BVHTests.randomRay(random);
+
+        long sahBuild = Long.MAX_VALUE, linearBuild = Long.MAX_VALUE;
+        BVH sah = null, linear = null;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            sah = new BVH(geometries);
+            sahBuild = Math.min(sahBuild, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            linear = BVH.linear(geometries);
+            linearBuild = Math.min(linearBuild, System.nanoTime() - start);
+        }
+
+        long sahTrace = Long.MAX_VALUE, linearTrace = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (Ray ray : rays)
+                sah.findClosestGeoIntersection(ray);
+            sahTrace = Math.min(sahTrace, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Ray ray : rays)
+                linear.findClosestGeoIntersection(ray);
+            linearTrace = Math.min(linearTrace, System.nanoTime() - start);
+        }
+        for (Ray ray : rays)
+            assertEquals(sah.findClosestGeoIntersection(ray), linear.findClosestGeoIntersection(ray),
+                    "The trees disagree on the closest point");
+
+        System.out.printf("BVH build of %d geometries on %d threads:%n", GEOMETRIES,
+                ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("  SAH    build %7.1f ms, SAH cost %6.1f, trace %6.1f ns/ray%n", sahBuild / 1e6,
+                sah.cost(), (double) sahTrace / RAYS);
+        System.out.printf("  linear build %7.1f ms, SAH cost %6.1f, trace %6.1f ns/ray%n", linearBuild / 1e6,
+                linear.cost(), (double) linearTrace / RAYS);
+        System.out.printf("  build speedup x%.2f, trace slowdown x%.2f%n", (double) sahBuild / linearBuild,
+                (double) linearTrace / sahTrace);
+    }
+}
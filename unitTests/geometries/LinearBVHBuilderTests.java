@@ -0,0 +1,106 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.randomRay;
+
+/**
+ * Unit tests for geometries.LinearBVHBuilder class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class LinearBVHBuilderTests {
+
+    /**
+     * Test method for {@link LinearBVHBuilder#build()}.
+     */
+    @Test
+    void testBuild() {
+        Random random = new Random(1533);
+        // More geometries than a chunk, so the build is forked
+        Intersectable[] geometries = randomGeometries(random, 40000);
+        BVH linear = BVH.linear(List.of(geometries));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every geometry is in exactly one leaf
+        assertEquals(geometries.length, countItems(linear.getRoot()), "Wrong number of geometries in the leaves");
+
+        // TC02: The box of every node contains the boxes of its children
+        assertTrue(contains(linear.getRoot()), "Node box doesn't contain its children");
+
+        // TC03: The tree is worse than the SAH tree, but not by much
+        double sah = new BVH(List.of(geometries)).cost();
+        assertTrue(linear.cost() >= sah * 0.9 && linear.cost() < sah * 3, "Bad quality of the linear tree");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Geometries with the same center (equal codes) are split in the middle
+        Intersectable[] same = new Intersectable[10];
+        for (int i = 0; i < same.length; ++i)
+            same[i] = new Sphere(new Point(1, 2, 3), i + 1);
+        assertEquals(same.length, countItems(BVH.linear(List.of(same)).getRoot()), "Equal codes lost geometries");
+
+        // TC12: Empty hierarchy
+        assertNull(BVH.linear(List.of()).getRoot(), "Empty hierarchy has a root");
+    }
+
+    /**
+     * Test method for {@link BVH#findClosestGeoIntersection(Ray)} of a linear hierarchy.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Random random = new Random(9418);
+        Intersectable[] geometries = randomGeometries(random, 500);
+        Geometries flat = new Geometries(geometries).setAccelerator(Geometries.Accelerator.NONE);
+        BVH linear = BVH.linear(List.of(geometries));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The linear hierarchy finds the same closest point as the flat list
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = randomRay(random);
+            GeoPoint expected = ray.findClosestGeoPoint(flat.findGeoIntersections(ray));
+            assertEquals(expected, linear.findClosestGeoIntersection(ray), "Wrong closest intersection");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Unbounded geometry is kept out of the tree and still intersected
+        BVH withPlane = BVH.linear(List.of(geometries[0], new Plane(new Point(0, 0, -200), new Vector(0, 0, 1))));
+        assertEquals(List.of(new Point(0, 0, -200)),
+                withPlane.findIntersections(new Ray(new Point(0, 0, 500), new Vector(0, 0, -1))),
+                "Unbounded geometry is not intersected");
+    }
+
+    /**
+     * Counts the geometries in the leaves of a subtree
+     *
+     * @param node the root of the subtree
+     * @return the number of the geometries
+     */
+    private static int countItems(BVH.Node node) {
+        return node.isLeaf() ? node.items.length : countItems(node.left) + countItems(node.right);
+    }
+
+    /**
+     * Checks that the box of every node of a subtree contains the boxes of its children
+     *
+     * @param node the root of the subtree
+     * @return true if all the boxes are right
+     */
+    private static boolean contains(BVH.Node node) {
+        if (node.isLeaf())
+            return true;
+        for (BVH.Node child : new BVH.Node[]{node.left, node.right})
+            for (int axis = 0; axis < 3; ++axis)
+                if (child.box.min(axis) < node.box.min(axis) || child.box.max(axis) > node.box.max(axis))
+                    return false;
+        return contains(node.left) && contains(node.right);
+    }
+}
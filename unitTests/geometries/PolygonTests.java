@@ -2,6 +2,7 @@ package geometries;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -9,8 +10,11 @@ import static primitives.Util.isZero;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import geometries.Polygon;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
 /** Testing Polygons
@@ -84,4 +88,52 @@ public class PolygonTests {
             assertTrue(isZero(result.dotProduct(pts[i].subtract(pts[i == 0 ? 3 : i - 1]))),
                     "Polygon's normal is not orthogonal to one of the edges");
     }
+
+    /** Test method for {@link Polygon#findIntersections(Ray)}. */
+    @Test
+    public void testFindIntersections() {
+        // A square on the plane x = 1 (projected by dropping the x axis) with reversed order of vertices
+        Polygon square = new Polygon(new Point(1, 0, 0), new Point(1, 0, 2), new Point(1, 2, 2), new Point(1, 2, 0));
+        // A pentagon on a slanted plane
+        Polygon pentagon = new Polygon(new Point(0, 0, 0), new Point(2, 0, 1), new Point(3, 2, 1.5),
+                new Point(1, 3, 0.5), new Point(-1, 2, -0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Intersection point inside the polygon
+        assertEquals(List.of(new Point(1, 0.5, 1.5)),
+                square.findIntersections(new Ray(new Point(3, 0.5, 1.5), new Vector(-1, 0, 0))),
+                "Bad intersection inside the square");
+        assertEquals(List.of(new Point(1, 1, 0.5)),
+                pentagon.findIntersections(new Ray(new Point(1, 1, 5), new Vector(0, 0, -1))),
+                "Bad intersection inside the pentagon");
+
+        // TC02: Intersection point outside the polygon against an edge
+        assertNull(square.findIntersections(new Ray(new Point(3, 1, 3), new Vector(-1, 0, 0))),
+                "Intersection outside against an edge");
+
+        // TC03: Intersection point outside the polygon against a vertex
+        assertNull(square.findIntersections(new Ray(new Point(3, 3, 3), new Vector(-1, 0, 0))),
+                "Intersection outside against a vertex");
+
+        // TC04: The polygon is behind the ray
+        assertNull(square.findIntersections(new Ray(new Point(3, 1, 1), new Vector(1, 0, 0))),
+                "Polygon behind the ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Intersection point on an edge
+        assertNull(square.findIntersections(new Ray(new Point(3, 1, 2), new Vector(-1, 0, 0))),
+                "Intersection on an edge");
+
+        // TC12: Intersection point on a vertex
+        assertNull(square.findIntersections(new Ray(new Point(3, 2, 2), new Vector(-1, 0, 0))),
+                "Intersection on a vertex");
+
+        // TC13: Intersection point on the continuation of an edge
+        assertNull(square.findIntersections(new Ray(new Point(3, 3, 2), new Vector(-1, 0, 0))),
+                "Intersection on an edge continuation");
+
+        // TC14: Ray parallel to the polygon
+        assertNull(square.findIntersections(new Ray(new Point(3, 1, 1), new Vector(0, 1, 0))),
+                "Ray parallel to the polygon");
+    }
 }
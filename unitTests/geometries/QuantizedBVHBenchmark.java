@@ -0,0 +1,80 @@
+package geometries;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the quantized hierarchies {@link QuantizedBVH} against the full one {@link FlatBVH} of the same
+ * tree: the memory of the nodes and the trace times of the same rays are printed for every layout.
+ * The test fails only if the layouts disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class QuantizedBVHBenchmark {
+    private static final int GEOMETRIES = 200000;
+    private static final int RAYS = 100000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Measures one layout
+     *
+     * @param name      the name of the layout
+     * @param structure the layout
+     * @param bytes     the memory of its nodes
+     * @param rays      the rays
+     * @param full      the memory of the full layout
+     * @param fullTrace the trace time of the full layout, 0 to measure the full layout itself
+     * @return the best trace time in nanoseconds
+     */
+    private static long measure(String name, Intersectable structure, long bytes, Ray[] rays, long full,
+                                long fullTrace) {
+        long trace = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (Ray ray : rays)
+                structure.findClosestGeoIntersection(ray);
+            trace = Math.min(trace, System.nanoTime() - start);
+        }
+        System.out.printf("  %-7s nodes %7.2f MB (saved %4.1f%%), trace %6.1f ns/ray (lost %5.1f%%)%n", name,
+                bytes / 1e6, 100.0 * (full - bytes) / full, (double) trace / rays.length,
+                fullTrace == 0 ? 0 : 100.0 * (trace - fullTrace) / fullTrace);
+        return trace;
+    }
+
+    /**
+     * Compares the memory and the trace times of the layouts
+     */
+    @Test
+    void benchmarkMemory() {
+        Random random = new Random(1533);
+        List<Intersectable> geometries = List.of(BVHTests.randomGeometries(random, GEOMETRIES));
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; ++i)
+            rays[i] = BVHTests.randomRay(random);
+
+        BVH tree = new BVH(geometries);
+        FlatBVH flat = new FlatBVH(tree);
+        QuantizedBVH quantized16 = new QuantizedBVH(tree, 16), quantized8 = new QuantizedBVH(tree, 8);
+        for (Ray ray : rays) {
+            var expected = flat.findClosestGeoIntersection(ray);
+            assertEquals(expected, quantized16.findClosestGeoIntersection(ray), "16 bits disagree on the closest point");
+            assertEquals(expected, quantized8.findClosestGeoIntersection(ray), "8 bits disagree on the closest point");
+        }
+
+        long full = flat.getNodesBytes();
+        System.out.printf("BVH node layouts over %d geometries:%n", GEOMETRIES);
+        long fullTrace = measure("full", flat, full, rays, full, 0);
+        measure("16-bit", quantized16, quantized16.getNodesBytes(), rays, full, fullTrace);
+        measure("8-bit", quantized8, quantized8.getNodesBytes(), rays, full, fullTrace);
+    }
+}
@@ -0,0 +1,69 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.assertSameAsList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.QuantizedBVH class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class QuantizedBVHTests {
+
+    /**
+     * Test method for {@link QuantizedBVH#QuantizedBVH(BVH, int)}.
+     */
+    @Test
+    void testConstructor() {
+        Random random = new Random(1533);
+        BVH bvh = new BVH(List.of(randomGeometries(random, 1000)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The quantized boxes take less memory than the full ones
+        long full = new FlatBVH(bvh).getNodesBytes();
+        long bytes16 = new QuantizedBVH(bvh, 16).getNodesBytes(), bytes8 = new QuantizedBVH(bvh, 8).getNodesBytes();
+        assertTrue(bytes16 < full / 2, "16-bit boxes don't save memory");
+        assertTrue(bytes8 < bytes16, "8-bit boxes don't save memory");
+
+        // TC02: Wrong number of bits
+        assertThrows(IllegalArgumentException.class, () -> new QuantizedBVH(bvh, 12), "Constructed 12-bit boxes");
+    }
+
+    /**
+     * Test method for {@link QuantizedBVH#findGeoIntersections(Ray)},
+     * {@link QuantizedBVH#findClosestGeoIntersection(Ray, double)} and
+     * {@link QuantizedBVH#findTransparency(Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        Random random = new Random(5783);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The rounded boxes of 8 bits don't lose any intersection
+        assertSameAsList(random, items -> new QuantizedBVH(items, 8));
+
+        // TC02: The rounded boxes of 16 bits don't lose any intersection
+        assertSameAsList(random, items -> new QuantizedBVH(items, 16));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Flat triangles (boxes of no thickness) hit exactly on their planes
+        Intersectable[] flat = new Intersectable[50];
+        for (int i = 0; i < flat.length; ++i)
+            flat[i] = new Triangle(new Point(i, 0, 0), new Point(i + 1, 0, 0), new Point(i, 1, 0));
+        QuantizedBVH flatQuantized = new QuantizedBVH(List.of(flat), 8);
+        for (int i = 0; i < flat.length; ++i) {
+            Ray ray = new Ray(new Point(i + 0.25, 0.25, 10), new Vector(0, 0, -1));
+            assertEquals(new Point(i + 0.25, 0.25, 0), flatQuantized.findClosestGeoIntersection(ray).point,
+                    "Flat triangle lost");
+        }
+    }
+}
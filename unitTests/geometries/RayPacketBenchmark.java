@@ -0,0 +1,88 @@
+package geometries;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Ray;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of tracing coherent rays as packets ({@link RayPacket}) against tracing them one by one through the
+ * same hierarchy, for packets of 2x2 and 4x4 rays that are close (like camera rays) and far apart.
+ * The test fails only if the packets disagree with the single rays.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RayPacketBenchmark {
+    private static final int GEOMETRIES = 200000;
+    private static final int RAYS = 64000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Builds the packets
+     *
+     * @param random the random generator
+     * @param side   the side of the square of the rays of a packet
+     * @param spread the distance between the targets of neighbouring rays
+     * @return the packets
+     */
+    private static RayPacket[] packets(Random random, int side, double spread) {
+        RayPacket[] packets = new RayPacket[RAYS / (side * side)];
+        for (int i = 0; i < packets.length; ++i)
+            packets[i] = RayPacketTests.coherentPacket(random, side, spread);
+        return packets;
+    }
+
+    /**
+     * Measures the single rays and the packets
+     *
+     * @param name    the name of the case
+     * @param bvh     the hierarchy
+     * @param packets the packets
+     */
+    private static void measure(String name, BVH bvh, RayPacket[] packets) {
+        for (RayPacket packet : packets) {
+            bvh.findClosestGeoIntersections(packet);
+            for (int i = 0; i < packet.size(); ++i)
+                assertEquals(bvh.findClosestGeoIntersection(packet.getRay(i)), packet.getClosest(i),
+                        "The packet disagrees with the single ray");
+        }
+
+        long single = Long.MAX_VALUE, packed = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (RayPacket packet : packets)
+                for (int i = 0; i < packet.size(); ++i)
+                    bvh.findClosestGeoIntersection(packet.getRay(i));
+            single = Math.min(single, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (RayPacket packet : packets)
+                bvh.findClosestGeoIntersections(new RayPacket(packet.rays));
+            packed = Math.min(packed, System.nanoTime() - start);
+        }
+        System.out.printf("  %-14s single %6.1f ns/ray, packets %6.1f ns/ray (speedup %.2fx)%n", name,
+                (double) single / RAYS, (double) packed / RAYS, (double) single / packed);
+    }
+
+    /**
+     * Compares the trace times of single rays and packets
+     */
+    @Test
+    void benchmarkPackets() {
+        Random random = new Random(1533);
+        BVH bvh = new BVH(List.of(BVHTests.randomGeometries(random, GEOMETRIES)));
+
+        System.out.printf("Ray packets through a hierarchy over %d geometries:%n", GEOMETRIES);
+        measure("2x2 coherent", bvh, packets(random, 2, 0.2));
+        measure("4x4 coherent", bvh, packets(random, 4, 0.2));
+        measure("4x4 divergent", bvh, packets(random, 4, 20));
+    }
+}
@@ -0,0 +1,199 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.randomRay;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.RayPacket class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class RayPacketTests {
+    /**
+     * Builds a packet of coherent rays - from one head towards a small square of targets, like the rays of a block
+     * of pixels
+     *
+     * @param random the random generator
+     * @param side   the side of the square of the rays
+     * @param spread the distance between the targets of neighbouring rays
+     * @return the packet
+     */
+    static RayPacket coherentPacket(Random random, int side, double spread) {
+        Ray center = randomRay(random);
+        Point p0 = center.getP0();
+        Point target = center.getPoint(250);
+        Ray[] rays = new Ray[side * side];
+        for (int i = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j)
+                rays[i * side + j] = new Ray(p0, target.add(new Vector(i * spread + 1e-3, j * spread + 1e-3, 0))
+                        .subtract(p0));
+        return new RayPacket(rays);
+    }
+
+    /**
+     * Checks that every ray of a packet found the same closest point as it finds alone
+     *
+     * @param structure the traced intersectable
+     * @param packet    the packet that was traced through it
+     */
+    private static void assertSingleRays(Intersectable structure, RayPacket packet) {
+        for (int i = 0; i < packet.size(); ++i)
+            assertEquals(structure.findClosestGeoIntersection(packet.getRay(i)), packet.getClosest(i),
+                    "The packet disagrees with the single ray on the closest point");
+    }
+
+    /**
+     * Test method for {@link RayPacket#RayPacket(Ray...)}.
+     */
+    @Test
+    void testConstructor() {
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: One ray
+        assertEquals(1, new RayPacket(ray).size(), "Wrong size of a packet of one ray");
+        // TC12: The maximal number of rays
+        Ray[] rays = new Ray[RayPacket.MAX_SIZE];
+        Arrays.fill(rays, ray);
+        RayPacket full = new RayPacket(rays);
+        assertEquals(RayPacket.MAX_SIZE, full.size(), "Wrong size of a full packet");
+        assertEquals(-1, full.all(), "Wrong mask of a full packet");
+        // TC13: No rays
+        assertThrows(IllegalArgumentException.class, RayPacket::new, "A packet without rays was created");
+        // TC14: Too many rays
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(new Ray[RayPacket.MAX_SIZE + 1]),
+                "A packet of too many rays was created");
+    }
+
+    /**
+     * Test method for {@link RayPacket#mayHit(BoundingBox, int)}.
+     */
+    @Test
+    void testMayHit() {
+        Random random = new Random(1533);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The packet test never drops a box that one of the rays hits, and drops most of the missed boxes
+        int missed = 0, dropped = 0;
+        for (int i = 0; i < 2000; ++i) {
+            RayPacket packet = coherentPacket(random, 4, 2);
+            // Rays around an axis have directions of both signs
+            if (!packet.isCoherent())
+                continue;
+            Point p = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100);
+            BoundingBox box = new BoundingBox(p, p.add(new Vector(random.nextDouble() * 20 + 1e-3,
+                    random.nextDouble() * 20 + 1e-3, random.nextDouble() * 20 + 1e-3)));
+            boolean hit = packet.hits(box, packet.all()) != 0;
+            assertTrue(!hit || packet.mayHit(box, packet.all()), "A box that is hit was dropped");
+            if (!hit) {
+                ++missed;
+                if (!packet.mayHit(box, packet.all()))
+                    ++dropped;
+            }
+        }
+        assertTrue(dropped > missed * 0.9, "Too few missed boxes were dropped");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rays from different heads aren't coherent
+        assertFalse(new RayPacket(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)),
+                new Ray(new Point(1, 0, 0), new Vector(0, 0, 1))).isCoherent(), "Rays from two heads are coherent");
+        // TC12: Rays in opposite directions aren't coherent
+        assertFalse(new RayPacket(new Ray(new Point(0, 0, 0), new Vector(1, 1, 1)),
+                new Ray(new Point(0, 0, 0), new Vector(-1, 1, 1))).isCoherent(), "Opposite rays are coherent");
+    }
+
+    /**
+     * Test method for {@link Intersectable#findClosestGeoIntersections(RayPacket)}.
+     */
+    @Test
+    void testFindClosestGeoIntersections() {
+        Random random = new Random(9418);
+        Intersectable[] geometries = randomGeometries(random, 1000);
+        BVH bvh = new BVH(List.of(geometries));
+        Geometries list = new Geometries(geometries).setAccelerator(Geometries.Accelerator.NONE);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Coherent 4x4 packets through the hierarchy
+        for (int i = 0; i < 300; ++i) {
+            RayPacket packet = coherentPacket(random, 4, 0.5);
+            bvh.findClosestGeoIntersections(packet);
+            assertSingleRays(bvh, packet);
+        }
+        // TC02: Diverging packets through the hierarchy - the rays go on alone
+        for (int i = 0; i < 300; ++i) {
+            RayPacket packet = new RayPacket(randomRay(random), randomRay(random), randomRay(random),
+                    randomRay(random));
+            bvh.findClosestGeoIntersections(packet);
+            assertSingleRays(bvh, packet);
+        }
+        // TC03: Coherent 2x2 packets through a flat group
+        for (int i = 0; i < 100; ++i) {
+            RayPacket packet = coherentPacket(random, 2, 2);
+            list.findClosestGeoIntersections(packet);
+            assertSingleRays(list, packet);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A packet that misses everything
+        RayPacket missing = new RayPacket(new Ray(new Point(0, 0, 500), new Vector(0, 0, 1)),
+                new Ray(new Point(1, 0, 500), new Vector(0, 0, 1)));
+        bvh.findClosestGeoIntersections(missing);
+        assertNull(missing.getClosest(0), "A missing ray has a point");
+        assertNull(missing.getClosest(1), "A missing ray has a point");
+
+        // TC12: An unbounded geometry with the hierarchy
+        Plane plane = new Plane(new Point(0, 0, -500), new Vector(0, 0, 1));
+        Geometries group = new Geometries(geometries);
+        group.add(plane);
+        RayPacket packet = new RayPacket(new Ray(new Point(300, 300, 500), new Vector(0, 0, -1)),
+                new Ray(new Point(301, 300, 500), new Vector(0, 0, -1)));
+        group.findClosestGeoIntersections(packet);
+        assertEquals(new GeoPoint(plane, new Point(300, 300, -500)), packet.getClosest(0), "Wrong point on the plane");
+        assertEquals(new GeoPoint(plane, new Point(301, 300, -500)), packet.getClosest(1), "Wrong point on the plane");
+    }
+
+    /**
+     * Test method for the packet intersection of {@link Sphere} and {@link Polygon}.
+     */
+    @Test
+    void testGeometries() {
+        Sphere sphere = new Sphere(new Point(0, 0, 0), 1);
+        Triangle triangle = new Triangle(new Point(-1, -1, 0), new Point(2, -1, 0), new Point(-1, 2, 0));
+        Polygon square = new Polygon(new Point(-1, -1, 0), new Point(1, -1, 0), new Point(1, 1, 0),
+                new Point(-1, 1, 0));
+        Vector down = new Vector(0, 0, -1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays that hit and miss every geometry
+        for (Intersectable geometry : List.of(sphere, triangle, square)) {
+            RayPacket packet = new RayPacket(new Ray(new Point(0, 0, 5), down), new Ray(new Point(0.5, 0.5, 5), down),
+                    new Ray(new Point(5, 5, 5), down), new Ray(new Point(0, 0, -5), down));
+            geometry.findClosestGeoIntersections(packet);
+            assertSingleRays(geometry, packet);
+            assertNotNull(packet.getClosest(0), "A hit wasn't found");
+            assertNull(packet.getClosest(2), "A missing ray has a point");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A closer point that was found before isn't replaced
+        RayPacket packet = new RayPacket(new Ray(new Point(0, 0, 5), down));
+        triangle.findClosestGeoIntersections(packet);
+        sphere.findClosestGeoIntersections(packet);
+        assertEquals(new GeoPoint(sphere, new Point(0, 0, 1)), packet.getClosest(0), "The closer point was lost");
+        sphere.findClosestGeoIntersections(packet);
+        triangle.findClosestGeoIntersections(packet);
+        assertEquals(new GeoPoint(sphere, new Point(0, 0, 1)), packet.getClosest(0), "A farther point was kept");
+    }
+}
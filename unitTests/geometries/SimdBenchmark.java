@@ -0,0 +1,107 @@
+package geometries;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the SIMD intersection of triangles ({@link Simd}) against the scalar one, on scenes of triangles:
+ * a hierarchy over random triangles and a mesh (both with a few triangles in a leaf).
+ * The JVM must run with {@code --add-modules jdk.incubator.vector} to measure the SIMD kernel, otherwise only the
+ * scalar times are printed. The test fails only if the kernels disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SimdBenchmark {
+    private static final int TRIANGLES = 200000;
+    private static final int RAYS = 100000;
+    private static final int MESH_SIZE = 100; // The cells on a side of the mesh (2 faces in a cell)
+    private static final int MESH_RAYS = 2000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * Measures the trace time of rays through an intersectable
+     *
+     * @param structure the intersectable
+     * @param rays      the rays
+     * @return the best trace time of the rounds in nanoseconds per ray
+     */
+    private static double measure(Intersectable structure, Ray[] rays) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (Ray ray : rays)
+                structure.findClosestGeoIntersection(ray);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / rays.length;
+    }
+
+    /**
+     * Compares the kernels on one scene
+     *
+     * @param name      the name of the scene
+     * @param structure the scene
+     * @param rays      the rays
+     */
+    private static void compare(String name, Intersectable structure, Ray[] rays) {
+        Simd.setEnabled(true);
+        for (Ray ray : rays) {
+            Simd.setEnabled(false);
+            var expected = structure.findClosestGeoIntersection(ray);
+            Simd.setEnabled(true);
+            assertEquals(expected, structure.findClosestGeoIntersection(ray), "The kernels disagree");
+        }
+
+        Simd.setEnabled(false);
+        double scalar = measure(structure, rays);
+        if (!Simd.isAvailable()) {
+            System.out.printf("  %-24s scalar %8.1f ns/ray (SIMD not available)%n", name, scalar);
+            return;
+        }
+        Simd.setEnabled(true);
+        double simd = measure(structure, rays);
+        Simd.setEnabled(false);
+        System.out.printf("  %-24s scalar %8.1f ns/ray, SIMD %8.1f ns/ray (speedup %.2fx)%n", name, scalar, simd,
+                scalar / simd);
+    }
+
+    /**
+     * Compares the scalar and the SIMD kernels on the scenes
+     */
+    @Test
+    void benchmarkKernels() {
+        Random random = new Random(1533);
+        Intersectable[] triangles = new Intersectable[TRIANGLES];
+        for (int i = 0; i < TRIANGLES; ++i) {
+            Point p = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100);
+            triangles[i] = new Triangle(p, p.add(new Vector(10, random.nextDouble(), 1)),
+                    p.add(new Vector(random.nextDouble(), 10, 2)));
+        }
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; ++i)
+            rays[i] = BVHTests.randomRay(random);
+
+        TriangleMesh mesh = SimdTests.grid(random, MESH_SIZE);
+        Ray[] meshRays = new Ray[MESH_RAYS];
+        for (int i = 0; i < MESH_RAYS; ++i)
+            meshRays[i] = new Ray(new Point(random.nextDouble() * MESH_SIZE, random.nextDouble() * MESH_SIZE, 10),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+
+        System.out.printf("Triangle kernels (%s):%n", Simd.isAvailable() ? "SIMD available" : "scalar only");
+        compare(TRIANGLES + " triangles BVH", new BVH(List.of(triangles)), rays);
+        compare(2 * MESH_SIZE * MESH_SIZE + " faces mesh", mesh, meshRays);
+    }
+}
@@ -0,0 +1,197 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static geometries.BVHTests.randomGeometries;
+import static geometries.BVHTests.randomRay;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Simd class and the triangle kernels.
+ * When the JVM runs without the Vector API module the scalar kernel is tested in place of the SIMD one.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class SimdTests {
+    /**
+     * Turns the SIMD kernel off after every test
+     */
+    @AfterEach
+    void turnOff() {
+        Simd.setEnabled(false);
+    }
+
+    /**
+     * Builds random triangles around the center of the scene
+     *
+     * @param random the random generator
+     * @param count  the number of the triangles
+     * @return the triangles
+     */
+    private static Triangle[] randomTriangles(Random random, int count) {
+        Triangle[] triangles = new Triangle[count];
+        for (int i = 0; i < count; ++i) {
+            Point p = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100);
+            triangles[i] = new Triangle(p, p.add(new Vector(30, random.nextDouble(), 1)),
+                    p.add(new Vector(random.nextDouble(), 30, 2)));
+        }
+        return triangles;
+    }
+
+    /**
+     * Builds a square mesh of n x n cells of size 1 from the origin (two faces in every cell), with random heights
+     * of the vertices in [0, 1)
+     *
+     * @param random the random generator
+     * @param n      the number of the cells on a side
+     * @return the mesh
+     */
+    static TriangleMesh grid(Random random, int n) {
+        double[] vertices = new double[3 * (n + 1) * (n + 1)];
+        for (int i = 0; i <= n; ++i)
+            for (int j = 0; j <= n; ++j) {
+                int k = 3 * (i * (n + 1) + j);
+                vertices[k] = j;
+                vertices[k + 1] = i;
+                vertices[k + 2] = random.nextDouble();
+            }
+        int[] indices = new int[6 * n * n];
+        int f = 0;
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j) {
+                int a = i * (n + 1) + j, b = a + 1, c = a + n + 2, d = a + n + 1;
+                indices[f++] = a;
+                indices[f++] = b;
+                indices[f++] = c;
+                indices[f++] = a;
+                indices[f++] = c;
+                indices[f++] = d;
+            }
+        return new TriangleMesh(vertices, indices);
+    }
+
+    /**
+     * Test method for {@link Simd#setEnabled(boolean)}.
+     */
+    @Test
+    void testSetEnabled() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The switch is on only if the kernel is available
+        Simd.setEnabled(true);
+        assertEquals(Simd.isAvailable(), Simd.isEnabled(), "The switch doesn't follow the availability");
+        assertEquals(Simd.isAvailable(), Simd.kernel().getClass() != TriangleKernel.class, "Wrong kernel");
+
+        // TC02: The switch is off
+        Simd.setEnabled(false);
+        assertFalse(Simd.isEnabled(), "The switch is still on");
+        assertSame(TriangleKernel.class, Simd.kernel().getClass(), "The SIMD kernel is used when it is off");
+    }
+
+    /**
+     * Test method for {@link TriangleKernel#closest}.
+     */
+    @Test
+    void testClosest() {
+        Random random = new Random(1533);
+        Simd.setEnabled(true);
+        TriangleKernel kernel = Simd.kernel();
+        TriangleKernel scalar = new TriangleKernel();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Groups of any size (full and partial passes) find the closest triangle like the triangles themselves
+        for (int size = 1; size <= 19; ++size) {
+            Triangle[] triangles = randomTriangles(random, size);
+            TriangleArrays arrays = new TriangleArrays(triangles);
+            Geometries list = new Geometries(triangles).setAccelerator(Geometries.Accelerator.NONE);
+            for (int i = 0; i < 200; ++i) {
+                Ray ray = randomRay(random);
+                Point p0 = ray.getP0();
+                Vector v = ray.getDirection();
+                int expected = scalar.closest(arrays, 0, arrays.size, p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(),
+                        v.getZ(), Double.POSITIVE_INFINITY);
+                assertEquals(expected, kernel.closest(arrays, 0, arrays.size, p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(),
+                        v.getZ(), Double.POSITIVE_INFINITY), "The kernels disagree on the closest triangle");
+                GeoPoint closest = list.findClosestGeoIntersection(ray);
+                assertEquals(closest == null ? null : closest.geometry, expected == -1 ? null : triangles[expected],
+                        "Wrong closest triangle");
+            }
+        }
+
+        // TC02: A range in the middle of the arrays (not aligned to the lanes) finds the closest triangle of the range
+        Triangle[] many = randomTriangles(random, 40);
+        TriangleArrays all = new TriangleArrays(many);
+        for (int i = 0; i < 200; ++i) {
+            Ray ray = randomRay(random);
+            Point p0 = ray.getP0();
+            Vector v = ray.getDirection();
+            int from = random.nextInt(20), to = from + 1 + random.nextInt(20);
+            assertEquals(scalar.closest(all, from, to, p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ(),
+                            Double.POSITIVE_INFINITY),
+                    kernel.closest(all, from, to, p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ(),
+                            Double.POSITIVE_INFINITY), "The kernels disagree on the closest triangle of a range");
+        }
+
+        // =============== Boundary Values Tests ==================
+        TriangleArrays arrays = new TriangleArrays(new Intersectable[]{
+                new Triangle(new Point(0, 0, 0), new Point(2, 0, 0), new Point(0, 2, 0)),
+                new Sphere(new Point(0, 0, 5), 1)});
+        // TC11: Only the triangles are packed
+        assertEquals(1, arrays.size, "Wrong number of packed triangles");
+        assertEquals(1, arrays.others.length, "Wrong number of other intersectables");
+        // TC12: A ray on an edge of the triangle
+        assertEquals(-1, kernel.closest(arrays, 0, arrays.size, 1, 0, 5, 0, 0, -1, Double.POSITIVE_INFINITY), "A ray on an edge hit");
+        // TC13: A ray in the triangle that starts after the max distance
+        assertEquals(-1, kernel.closest(arrays, 0, arrays.size, 0.5, 0.5, 5, 0, 0, -1, 5), "A farther triangle hit");
+        assertEquals(0, kernel.closest(arrays, 0, arrays.size, 0.5, 0.5, 5, 0, 0, -1, 5.1), "A closer triangle missed");
+        // TC14: A ray that starts on the triangle
+        assertEquals(-1, kernel.closest(arrays, 0, arrays.size, 0.5, 0.5, 0, 0, 0, -1, Double.POSITIVE_INFINITY),
+                "A ray from the triangle hit it");
+        // TC15: A ray parallel to the triangle
+        assertEquals(-1, kernel.closest(arrays, 0, arrays.size, -1, 0.5, 0, 1, 0, 0, Double.POSITIVE_INFINITY), "A parallel ray hit");
+    }
+
+    /**
+     * Test method for the SIMD kernel in {@link BVH} and {@link TriangleMesh}.
+     */
+    @Test
+    void testStructures() {
+        Random random = new Random(9418);
+        Intersectable[] geometries = randomGeometries(random, 2000);
+        BVH bvh = new BVH(List.of(geometries));
+        TriangleMesh mesh = grid(random, 30);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hierarchy and the mesh find the same closest points with the SIMD kernel and without it
+        for (int i = 0; i < 1000; ++i) {
+            Ray ray = randomRay(random);
+            Ray meshRay = new Ray(new Point(random.nextDouble() * 40 - 5, random.nextDouble() * 40 - 5, 10),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            Simd.setEnabled(false);
+            GeoPoint expected = bvh.findClosestGeoIntersection(ray);
+            GeoPoint expectedMesh = mesh.findClosestGeoIntersection(meshRay);
+            Simd.setEnabled(true);
+            assertEquals(expected, bvh.findClosestGeoIntersection(ray), "The hierarchy disagrees with SIMD");
+            assertEquals(expectedMesh, mesh.findClosestGeoIntersection(meshRay), "The mesh disagrees with SIMD");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A moved vertex of the mesh is seen by the SIMD kernel
+        Ray ray = new Ray(new Point(0.2, 0.1, 10), new Vector(0, 0, -1));
+        Simd.setEnabled(true);
+        GeoPoint before = mesh.findClosestGeoIntersection(ray);
+        mesh.setVertex(0, new Point(0, 0, 4));
+        GeoPoint after = mesh.findClosestGeoIntersection(ray);
+        assertNotEquals(before.point, after.point, "The SIMD kernel missed the moved vertex");
+        Simd.setEnabled(false);
+        assertEquals(mesh.findClosestGeoIntersection(ray), after, "The SIMD kernel disagrees after the move");
+    }
+}
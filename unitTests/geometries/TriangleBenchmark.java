@@ -0,0 +1,113 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static primitives.Util.isZero;
+
+/**
+ * Benchmark of the precomputed (Moller-Trumbore) triangle intersection against the former
+ * plane-then-edges implementation, on the same random triangles and rays.
+ * The times are printed - the test fails only if the two implementations disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TriangleBenchmark {
+    private static final int TRIANGLES = 1000;
+    private static final int RAYS = 2000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * The former intersection of a triangle: intersect the plane, then check the point by 3 cross products
+     *
+     * @param triangle the triangle
+     * @param ray      the ray
+     * @return list of intersection points
+     */
+    private static List<GeoPoint> legacyIntersections(Triangle triangle, Ray ray) {
+        List<GeoPoint> intersections = triangle.plane.findGeoIntersectionsHelper(ray);
+        if (intersections == null)
+            return null;
+
+        Point p0 = ray.getP0();
+        Vector v = ray.getDirection();
+        Vector v1 = triangle.vertices.get(0).subtract(p0);
+        Vector v2 = triangle.vertices.get(1).subtract(p0);
+        Vector v3 = triangle.vertices.get(2).subtract(p0);
+        double vn1 = v.dotProduct(v1.crossProduct(v2));
+        double vn2 = v.dotProduct(v2.crossProduct(v3));
+        double vn3 = v.dotProduct(v3.crossProduct(v1));
+        if (isZero(vn1) || isZero(vn2) || isZero(vn3))
+            return null;
+        for (GeoPoint gp : intersections)
+            gp.geometry = triangle;
+        return (vn1 > 0 && vn2 > 0 && vn3 > 0) || (vn1 < 0 && vn2 < 0 && vn3 < 0) ? intersections : null;
+    }
+
+    /**
+     * Times both implementations and checks that they find the same points
+     */
+    @Test
+    void benchmarkTriangleIntersection() {
+        Random random = new Random(1533);
+        Triangle[] triangles = new Triangle[TRIANGLES];
+        for (int i = 0; i < TRIANGLES; ++i) {
+            Point p = new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10,
+                    random.nextDouble() * -20);
+            triangles[i] = new Triangle(p, p.add(new Vector(3, random.nextDouble(), 1)),
+                    p.add(new Vector(random.nextDouble(), 3, 2)));
+        }
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; ++i)
+            rays[i] = new Ray(new Point(0, 0, 10),
+                    new Vector(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, -1));
+
+        // Both implementations must find the same points
+        int hits = 0;
+        for (Ray ray : rays) {
+            for (Triangle triangle : triangles) {
+                List<GeoPoint> expected = legacyIntersections(triangle, ray);
+                List<GeoPoint> result = triangle.findGeoIntersectionsHelper(ray);
+                assertEquals(expected == null, result == null, "Implementations disagree on a hit");
+                if (result != null) {
+                    ++hits;
+                    assertTrue(expected.get(0).point.distance(result.get(0).point) < 1e-9, "Different points");
+                }
+            }
+        }
+        assertTrue(hits > 0, "The benchmark has no hits");
+
+        long legacy = Long.MAX_VALUE, precomputed = Long.MAX_VALUE;
+        int count = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (Ray ray : rays)
+                for (Triangle triangle : triangles)
+                    if (legacyIntersections(triangle, ray) != null) ++count;
+            legacy = Math.min(legacy, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Ray ray : rays)
+                for (Triangle triangle : triangles)
+                    if (triangle.findGeoIntersectionsHelper(ray) != null) ++count;
+            precomputed = Math.min(precomputed, System.nanoTime() - start);
+        }
+
+        double tests = (double) TRIANGLES * RAYS;
+        System.out.printf("Triangle intersection (%d hits in %d tests): plane+edges %.1f ns, precomputed %.1f ns, "
+                        + "speedup x%.2f%n", count / (2 * ROUNDS), (long) tests, legacy / tests,
+                precomputed / tests, (double) legacy / precomputed);
+    }
+}
@@ -0,0 +1,295 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.TriangleMesh class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class TriangleMeshTests {
+    // A unit square on the xy plane made of two faces that share the diagonal
+    private final TriangleMesh square = new TriangleMesh(
+            List.of(new Point(0, 0, 0), new Point(1, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)),
+            0, 1, 2, 0, 2, 3);
+
+    /**
+     * Test method for {@link TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct mesh with shared vertices
+        assertEquals(4, square.getVerticesCount(), "Wrong number of vertices");
+        assertEquals(2, square.getFacesCount(), "Wrong number of faces");
+
+        // TC02: Face with a vertex index out of range
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 3}),
+                "Constructed a mesh with a wrong vertex index");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Vertices array that is not made of triads
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1}, new int[]{}),
+                "Constructed a mesh with a partial vertex");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the first face
+        Ray ray = new Ray(new Point(0.75, 0.25, 1), new Vector(0, 0, -1));
+        List<GeoPoint> result = square.findGeoIntersections(ray);
+        assertEquals(1, result.size(), "Wrong number of points");
+        assertEquals(new Point(0.75, 0.25, 0), result.get(0).point, "Wrong intersection point");
+        assertEquals(0, ((TriangleMesh.Face) result.get(0).geometry).getIndex(), "Wrong face");
+
+        // TC02: Ray crosses the second face
+        result = square.findGeoIntersections(new Ray(new Point(0.25, 0.75, 1), new Vector(0, 0, -1)));
+        assertEquals(1, ((TriangleMesh.Face) result.get(0).geometry).getIndex(), "Wrong face");
+
+        // TC03: Ray misses the mesh
+        assertNull(square.findIntersections(new Ray(new Point(2, 2, 1), new Vector(0, 0, -1))), "Ray misses");
+
+        // TC04: Ray starts after the mesh
+        assertNull(square.findIntersections(new Ray(new Point(0.5, 0.2, -1), new Vector(0, 0, -1))),
+                "Ray starts after the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray through the outer edge of the mesh
+        assertNull(square.findIntersections(new Ray(new Point(0.5, 0, 1), new Vector(0, 0, -1))),
+                "Ray through an edge");
+
+        // TC12: Ray through a vertex
+        assertNull(square.findIntersections(new Ray(new Point(1, 1, 1), new Vector(0, 0, -1))),
+                "Ray through a vertex");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#findClosestGeoIntersection(Ray, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        // Two squares one above the other
+        TriangleMesh twoLayers = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, 1, 0, 1, 0, 1, 1},
+                new int[]{0, 1, 2, 3, 4, 5});
+        Ray ray = new Ray(new Point(0.2, 0.2, 5), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The upper face is the closest
+        GeoPoint closest = twoLayers.findClosestGeoIntersection(ray);
+        assertEquals(new Point(0.2, 0.2, 1), closest.point, "Wrong closest point");
+        assertEquals(1, ((TriangleMesh.Face) closest.geometry).getIndex(), "Wrong closest face");
+
+        // TC02: Both faces are beyond the max distance
+        assertNull(twoLayers.findClosestGeoIntersection(ray, 3), "Face beyond the max distance");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh.Face}.
+     */
+    @Test
+    void testFace() {
+        Material material = new Material().setKD(0.3);
+        square.setEmission(new Color(10, 20, 30)).setMaterial(material);
+        GeoPoint gp = square.findClosestGeoIntersection(new Ray(new Point(0.7, 0.2, 1), new Vector(0, 0, -1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The face shares the emission and the material of the mesh
+        assertSame(material, gp.geometry.getMaterial(), "Face doesn't share the material");
+        assertEquals(square.getEmission().toString(), gp.geometry.getEmission().toString(),
+                "Face doesn't share the emission");
+
+        // TC02: Normal of the face
+        assertEquals(new Vector(0, 0, 1), gp.geometry.getNormal(gp.point), "Bad normal to face");
+        assertEquals(new Vector(0, 0, 1), square.getNormal(new Point(0.2, 0.7, 0)), "Bad normal to mesh");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#setVertex(int, Point)}.
+     */
+    @Test
+    void testSetVertex() {
+        TriangleMesh mesh = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 2});
+        Ray ray = new Ray(new Point(1.5, 0.2, 1), new Vector(0, 0, -1));
+        assertNull(mesh.findIntersections(ray), "Ray outside the face");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Moving a vertex grows the box and the face
+        mesh.setVertex(1, new Point(2, 0, 0));
+        assertEquals(new Point(2, 1, 0), mesh.getBoundingBox().getMax(), "Box wasn't updated");
+        assertEquals(List.of(new Point(1.5, 0.2, 0)), mesh.findIntersections(ray), "Moved face isn't intersected");
+    }
+
+    /**
+     * Builds a mesh of random small faces in the cube [-100,100]^3, every face with vertices of its own
+     *
+     * @param random the random generator
+     * @param count  the number of faces
+     * @return the mesh
+     */
+    private static TriangleMesh randomMesh(Random random, int count) {
+        double[] vertices = new double[9 * count];
+        int[] indices = new int[3 * count];
+        for (int face = 0; face < count; ++face) {
+            double x = random.nextDouble() * 200 - 100, y = random.nextDouble() * 200 - 100;
+            double z = random.nextDouble() * 200 - 100;
+            System.arraycopy(new double[]{x, y, z, x + 10, y + random.nextDouble(), z + 1,
+                    x + random.nextDouble(), y + 10, z + 2}, 0, vertices, 9 * face, 9);
+            for (int k = 0; k < 3; ++k)
+                indices[3 * face + k] = 3 * face + k;
+        }
+        return new TriangleMesh(vertices, indices);
+    }
+
+    /**
+     * Checks that the hierarchy of a mesh finds what a test of every face finds
+     *
+     * @param mesh   the mesh
+     * @param random the random generator of the rays
+     */
+    private static void assertLikeAllFaces(TriangleMesh mesh, Random random) {
+        for (int r = 0; r < 300; ++r) {
+            Ray ray = BVHTests.randomRay(random);
+            Set<Integer> expected = new HashSet<>();
+            int closest = -1;
+            double distance = Double.POSITIVE_INFINITY;
+            for (int face = 0; face < mesh.getFacesCount(); ++face) {
+                double t = mesh.intersect(face, ray);
+                if (t > 0) {
+                    expected.add(face);
+                    if (t < distance) {
+                        distance = t;
+                        closest = face;
+                    }
+                }
+            }
+
+            List<GeoPoint> all = mesh.findGeoIntersections(ray);
+            Set<Integer> found = new HashSet<>();
+            if (all != null)
+                for (GeoPoint gp : all)
+                    found.add(((TriangleMesh.Face) gp.geometry).getIndex());
+            assertEquals(expected, found, "Wrong faces crossed by the ray");
+            GeoPoint gp = mesh.findClosestGeoIntersection(ray);
+            assertEquals(closest, gp == null ? -1 : ((TriangleMesh.Face) gp.geometry).getIndex(),
+                    "Wrong closest face");
+            assertEquals(new Double3(Math.pow(0.5, expected.size())),
+                    mesh.findTransparency(ray, Double.POSITIVE_INFINITY), "Wrong transparency");
+        }
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#getHierarchy()}.
+     */
+    @Test
+    void testHierarchy() {
+        Random random = new Random(1533);
+        TriangleMesh mesh = randomMesh(random, 3000);
+        mesh.setMaterial(new Material().setKT(0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hierarchy finds the faces, the closest face and the transparency that all the faces give
+        assertLikeAllFaces(mesh, random);
+        assertTrue(mesh.getHierarchy().getDepth() < 40, "The hierarchy isn't balanced");
+
+        // TC02: After vertices have moved the refit hierarchy still agrees with all the faces
+        for (int vertex = 0; vertex < mesh.getVerticesCount(); vertex += 7)
+            mesh.setVertex(vertex, mesh.getVertex(vertex).add(new Vector(random.nextDouble() * 30 - 15,
+                    random.nextDouble() * 30 - 15, random.nextDouble() * 30 - 15)));
+        assertLikeAllFaces(mesh, random);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Faces with one center - the hierarchy is split at the middle
+        double[] vertices = {-50, -50, 0, 50, -50, 0, 0, 50, 0};
+        int[] indices = new int[3 * 20];
+        for (int i = 0; i < indices.length; ++i)
+            indices[i] = i % 3;
+        TriangleMesh same = new TriangleMesh(vertices, indices);
+        assertTrue(same.getHierarchy().getNodeCount() > 1, "The faces of one center weren't split");
+        assertEquals(20, same.findGeoIntersections(new Ray(new Point(0, 0, 100), new Vector(0, 0, -1))).size(),
+                "Wrong number of points on faces of one center");
+
+        // TC12: A mesh without faces
+        TriangleMesh empty = new TriangleMesh(vertices, new int[0]);
+        assertNull(empty.findGeoIntersections(new Ray(new Point(0, 0, 100), new Vector(0, 0, -1))),
+                "A mesh without faces was intersected");
+        assertEquals(0, empty.getHierarchy().getNodeCount(), "A mesh without faces has nodes");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#getNormal(Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        Random random = new Random(9418);
+        TriangleMesh mesh = randomMesh(random, 3000);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The normal of the mesh at a hit point is the normal of the face that was hit
+        for (int r = 0; r < 300; ++r) {
+            GeoPoint gp = mesh.findClosestGeoIntersection(BVHTests.randomRay(random));
+            if (gp != null)
+                assertEquals(gp.geometry.getNormal(gp.point), mesh.getNormal(gp.point), "Bad normal to mesh");
+        }
+
+        // TC02: A point that is not on the mesh
+        assertThrows(IllegalArgumentException.class, () -> square.getNormal(new Point(0.2, 0.7, 1)),
+                "Found a normal at a point out of the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A point on the edge that two faces share
+        assertEquals(new Vector(0, 0, 1), square.getNormal(new Point(0.5, 0.5, 0)), "Bad normal on a shared edge");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#readObj(Path)}.
+     */
+    @Test
+    void testReadObj() throws IOException {
+        Path file = Files.createTempFile("mesh", ".obj");
+        try {
+            Files.writeString(file, """
+                    # unit square
+                    v 0 0 0
+                    v 1 0 0
+                    v 1 1 0
+                    v 0 1 0
+                    vn 0 0 1
+                    f 1//1 2//1 3//1 4//1
+                    """);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: A quad is split into two faces
+            TriangleMesh mesh = TriangleMesh.readObj(file);
+            assertEquals(4, mesh.getVerticesCount(), "Wrong number of vertices");
+            assertEquals(2, mesh.getFacesCount(), "Wrong number of faces");
+            assertEquals(List.of(new Point(0.25, 0.75, 0)),
+                    mesh.findIntersections(new Ray(new Point(0.25, 0.75, 1), new Vector(0, 0, -1))),
+                    "Wrong intersection with read mesh");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import primitives.Point;
 import primitives.Vector;
 import primitives.Ray;
 
+import java.util.List;
+
 /**
  * Unit tests for geometries.Tube class
  *
@@ -34,4 +36,46 @@ class TubeTests {
         assertEquals(tube.getNormal(new Point(1, 0, 0)).normalize(), new Vector(1,0,0),
                 "Point The point is in front of the head of the Ray");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Tube#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Tube tube = new Tube(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the tube (2 points)
+        List<Point> result = tube.findIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 1)));
+        assertEquals(List.of(new Point(-1, 0, 2), new Point(1, 0, 4)), result, "Bad intersections with tube");
+
+        // TC02: Ray starts inside the tube (1 point)
+        assertEquals(List.of(new Point(1, 0, 5)), tube.findIntersections(new Ray(new Point(0, 0, 4),
+                new Vector(1, 0, 1))), "Bad intersection from inside the tube");
+
+        // TC03: Ray starts after the tube (0 points)
+        assertNull(tube.findIntersections(new Ray(new Point(2, 0, 0), new Vector(1, 0, 1))),
+                "Ray after the tube");
+
+        // TC04: Ray misses the tube (0 points)
+        assertNull(tube.findIntersections(new Ray(new Point(-2, 2, 0), new Vector(1, 0, 0))),
+                "Ray misses the tube");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to the axis inside the tube
+        assertNull(tube.findIntersections(new Ray(new Point(0.5, 0, 0), new Vector(0, 0, 1))),
+                "Ray parallel to the axis");
+
+        // TC12: Ray tangent to the tube
+        assertNull(tube.findIntersections(new Ray(new Point(-2, 1, 0), new Vector(1, 0, 0))),
+                "Ray tangent to the tube");
+
+        // TC13: Ray starts on the tube and goes inside (1 point)
+        assertEquals(List.of(new Point(1, 0, 0)), tube.findIntersections(new Ray(new Point(-1, 0, 0),
+                new Vector(1, 0, 0))), "Bad intersection from the tube surface");
+
+        // TC14: Ray crosses the axis orthogonally from outside (2 points)
+        assertEquals(2, tube.findIntersections(new Ray(new Point(0, -3, 7), new Vector(0, 1, 0))).size(),
+                "Bad intersections through the axis");
+    }
+}
@@ -0,0 +1,84 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for primitives.Transform class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class TransformTests {
+    // Scaling by 2 on x, then a rotation of 90 degrees about z, then a translation
+    private final Transform transform = Transform.scaling(2, 1, 1)
+            .then(Transform.rotation(new Vector(0, 0, 1), 90))
+            .then(Transform.translation(new Vector(1, 2, 3)));
+
+    /**
+     * Test method for {@link Transform#scaling(double, double, double)}.
+     */
+    @Test
+    void testScaling() {
+        // =============== Boundary Values Tests ==================
+        // TC11: Scaling by zero can't be inverted
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1),
+                "Created a scaling by zero");
+    }
+
+    /**
+     * Test method for {@link Transform#apply(Point)}.
+     */
+    @Test
+    void testApply() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point moved by the combined transformation: (1,1,1) -> (2,1,1) -> (-1,2,1) -> (0,4,4)
+        assertEquals(new Point(0, 4, 4), transform.apply(new Point(1, 1, 1)), "Wrong transformed point");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The origin is moved by the translation only
+        assertEquals(new Point(1, 2, 3), transform.apply(new Point(0, 0, 0)), "Wrong transformed origin");
+    }
+
+    /**
+     * Test method for {@link Transform#applyToVector(Vector)}.
+     */
+    @Test
+    void testApplyToVector() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Vector isn't moved by the translation
+        assertEquals(new Vector(-1, 2, 1), transform.applyToVector(new Vector(1, 1, 1)),
+                "Wrong transformed vector");
+    }
+
+    /**
+     * Test method for {@link Transform#applyToNormal(Vector)}.
+     */
+    @Test
+    void testApplyToNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The normal of a stretched surface stays orthogonal to it
+        Transform stretch = Transform.scaling(2, 1, 1);
+        Vector normal = new Vector(1, 1, 0).normalize(); // The normal of the plane x + y = 1
+        Vector tangent = new Vector(1, -1, 0); // A vector on that plane
+        Vector result = stretch.applyToNormal(normal);
+        assertEquals(0, result.dotProduct(stretch.applyToVector(tangent)), 0.00001,
+                "Transformed normal is not orthogonal to the surface");
+        assertEquals(1, result.length(), 0.00001, "Transformed normal is not normalized");
+    }
+
+    /**
+     * Test method for {@link Transform#inverse()}.
+     */
+    @Test
+    void testInverse() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The inverse cancels the transformation
+        Point p = new Point(3, -2, 5);
+        assertEquals(p, transform.inverse().apply(transform.apply(p)), "Inverse doesn't cancel the transformation");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The inverse of the identity is the identity
+        assertEquals(p, Transform.IDENTITY.inverse().apply(p), "Wrong inverse of the identity");
+    }
+}
@@ -0,0 +1,63 @@
+package renderer;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Report of the adaptive supersampling of {@link Camera} on the scenes of {@link ReflectionRefractionTests}: the
+ * camera rays that it traces against the rays of uniform supersampling at the same max depth, and its render time
+ * against one ray in every pixel.
+ * The test fails only if the adaptive supersampling traces more rays than the uniform one.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AdaptiveSamplingBenchmark {
+    private static final int RESOLUTION = 300;
+    private static final double THRESHOLD = 8;
+
+    /**
+     * Reports the rays and the times of one scene
+     *
+     * @param name   the name of the scene
+     * @param camera builds the camera of the scene
+     */
+    private static void report(String name, Supplier<Camera> camera) {
+        long plain = Long.MAX_VALUE, start;
+        for (int round = 0; round < 2; ++round) { // The first round warms the code up
+            start = System.nanoTime();
+            camera.get().setImageWriter(new ImageWriter(name, RESOLUTION, RESOLUTION)).renderImage();
+            plain = Math.min(plain, System.nanoTime() - start);
+        }
+
+        for (int depth = 1; depth <= 3; ++depth) {
+            Camera adaptive = camera.get().setImageWriter(new ImageWriter(name, RESOLUTION, RESOLUTION))
+                    .setAdaptiveSampling(depth, THRESHOLD);
+            start = System.nanoTime();
+            adaptive.renderImage();
+            long time = System.nanoTime() - start;
+            long traced = adaptive.getTracedRays(), uniform = adaptive.getUniformRays();
+            assertTrue(traced <= uniform, "The adaptive supersampling traced more rays than the uniform one");
+            System.out.printf("  %-28s depth %d: %9d rays of %9d uniform (%4.1f%% saved), %5.2fx the time of one ray%n",
+                    name, depth, traced, uniform, 100.0 * (uniform - traced) / uniform, (double) time / plain);
+        }
+    }
+
+    /**
+     * Reports the rays saved by the adaptive supersampling
+     */
+    @Test
+    void benchmarkAdaptiveSampling() {
+        System.out.printf("Adaptive supersampling of %dx%d images (threshold %.0f):%n", RESOLUTION, RESOLUTION,
+                THRESHOLD);
+        report("twoSpheres", CameraTests::twoSpheres);
+        report("trianglesTransparentSphere", ThreadPoolBenchmark::trianglesTransparentSphere);
+    }
+}
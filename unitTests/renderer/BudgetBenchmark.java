@@ -0,0 +1,61 @@
+package renderer;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Report of the render of {@link Camera} with a time budget on the scenes of {@link ReflectionRefractionTests}: how
+ * long it takes against its budget and how many extra samples it fits into the budget.
+ * The base pass is guaranteed, so a budget shorter than the base pass is overrun by it.
+ * The test fails only if the render ends far after both its budget and the base pass.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BudgetBenchmark {
+    private static final int RESOLUTION = 300;
+    private static final long SLACK_MILLIS = 500; // The time that the last samples and the output may take
+
+    /**
+     * Reports the renders of one scene with several budgets
+     *
+     * @param name   the name of the scene
+     * @param camera builds the camera of the scene
+     */
+    private static void report(String name, Supplier<Camera> camera) {
+        long base = Long.MAX_VALUE;
+        for (int round = 0; round < 2; ++round) { // The first round warms the code up
+            long start = System.nanoTime();
+            camera.get().setImageWriter(new ImageWriter(name, RESOLUTION, RESOLUTION)).renderImage(Duration.ZERO);
+            base = Math.min(base, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        for (long millis : new long[]{250, 1000, 3000}) {
+            Camera renderer = camera.get().setImageWriter(new ImageWriter(name, RESOLUTION, RESOLUTION));
+            long start = System.nanoTime();
+            renderer.renderImage(Duration.ofMillis(millis));
+            long time = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(time <= Math.max(millis, base) + SLACK_MILLIS, "The render ended far after its budget");
+            System.out.printf("  %-28s base pass %4d ms, budget %5d ms: %5d ms, %5.2f rays per pixel%n", name, base, millis, time,
+                    (double) renderer.getTracedRays() / (RESOLUTION * RESOLUTION));
+        }
+    }
+
+    /**
+     * Reports the renders with a time budget
+     */
+    @Test
+    void benchmarkBudget() {
+        System.out.printf("Renders of %dx%d images with a time budget:%n", RESOLUTION, RESOLUTION);
+        report("twoSpheres", CameraTests::twoSpheres);
+        report("trianglesTransparentSphere", ThreadPoolBenchmark::trianglesTransparentSphere);
+    }
+}
@@ -1,10 +1,25 @@
 package renderer;
 
+import static java.awt.Color.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.SpotLight;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import primitives.*;
+import scene.Scene;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Testing Camera Class
@@ -15,6 +30,49 @@ import primitives.*;
 class CameraTests {
     static final Point ZERO_POINT = new Point(0, 0, 0);
 
+    /**
+     * An image writer that keeps the colors of the pixels instead of writing them into a file
+     */
+    static class PixelKeeper extends ImageWriter {
+        final int[] pixels;
+        private final int nX;
+
+        /**
+         * Constructor
+         *
+         * @param nX the number of the columns
+         * @param nY the number of the rows
+         */
+        PixelKeeper(int nX, int nY) {
+            super("pixel keeper", nX, nY);
+            this.nX = nX;
+            pixels = new int[nX * nY];
+        }
+
+        @Override
+        public void writePixel(int xIndex, int yIndex, Color color) {
+            pixels[yIndex * nX + xIndex] = color.getColor().getRGB();
+        }
+    }
+
+    /**
+     * Builds the camera of the transparent sphere in a sphere
+     *
+     * @return the camera with its ray tracer
+     */
+    static Camera twoSpheres() {
+        Scene scene = new Scene.SceneBuilder("Test scene").build();
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -50), 50d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.4).setKS(0.3).setNShininess(100).setKT(0.3)),
+                new Sphere(new Point(0, 0, -50), 25d).setEmission(new Color(RED))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, -100, 500), new Vector(-1, -1, -2))
+                .setKL(0.0004).setKQ(0.0000006));
+        return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(150, 150).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene));
+    }
+
     /**
      * Test method for
      * {@link renderer.Camera#constructRay(int, int, int, int)}.
@@ -56,4 +114,384 @@ class CameraTests {
 
     }
 
+    /**
+     * Test method for {@link renderer.Camera#renderProgressive(int, java.util.function.Consumer)}.
+     */
+    @Test
+    void testRenderProgressive() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        PixelKeeper expected = new PixelKeeper(40, 40);
+        twoSpheres().setImageWriter(expected).renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Without extra samples the passes refine 8x8 blocks to single pixels, and the image is the same
+        PixelKeeper image = new PixelKeeper(40, 40);
+        twoSpheres().setImageWriter(image).renderProgressive(0, snapshots::add);
+        assertArrayEquals(expected.pixels, image.pixels, "The progressive image differs from the plain one");
+        assertEquals(4, snapshots.size(), "Wrong number of passes");
+        for (int pass = 0; pass < 4; ++pass) {
+            assertEquals(pass + 1, snapshots.get(pass).getPass(), "Wrong number of a pass");
+            assertEquals(8 >> pass, snapshots.get(pass).getStep(), "Wrong block of a pass");
+            assertEquals(pass == 3, snapshots.get(pass).isLast(), "Wrong last pass");
+        }
+        Snapshot preview = snapshots.get(0);
+        for (int y = 0; y < 40; ++y)
+            for (int x = 0; x < 40; ++x)
+                assertEquals(preview.getColor(x - x % 8, y - y % 8).toString(), preview.getColor(x, y).toString(),
+                        "A block of the preview isn't of one color");
+
+        // TC02: The extra passes average several samples in every pixel
+        snapshots.clear();
+        twoSpheres().setImageWriter(new ImageWriter("progressive", 40, 40))
+                .renderProgressive(2, snapshots::add);
+        assertEquals(6, snapshots.size(), "Wrong number of passes with extra samples");
+        assertEquals(3, snapshots.get(5).getSamples(), "Wrong number of samples in the last pass");
+        assertFalse(snapshots.get(3).isLast(), "The full resolution pass is last before the extra passes");
+        assertTrue(snapshots.get(5).isLast(), "The last extra pass isn't last");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: An image whose size isn't a multiple of the blocks
+        snapshots.clear();
+        expected = new PixelKeeper(13, 10);
+        twoSpheres().setImageWriter(expected).renderImage();
+        image = new PixelKeeper(13, 10);
+        twoSpheres().setImageWriter(image).setTileSize(5).renderProgressive(0, snapshots::add);
+        assertArrayEquals(expected.pixels, image.pixels, "The progressive image of an odd size differs");
+        // TC12: A negative number of extra samples
+        Camera camera = twoSpheres().setImageWriter(image);
+        assertThrows(IllegalArgumentException.class, () -> camera.renderProgressive(-1, snapshot -> {
+        }), "A negative number of extra samples is accepted");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setAdaptiveSampling(int, double)}.
+     */
+    @Test
+    void testAdaptiveSampling() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: An empty scene - only the shared corners of the pixels are traced
+        Scene empty = new Scene.SceneBuilder("Empty").setBackground(new Color(30, 60, 90)).build();
+        PixelKeeper image = new PixelKeeper(20, 10);
+        Camera camera = new Camera(ZERO_POINT, new Vector(0, 0, -1), new Vector(0, 1, 0)).setVPSize(20, 10)
+                .setVPDistance(10).setRayTracer(new RayTracerBasic(empty)).setImageWriter(image).setTileSize(32)
+                .setAdaptiveSampling(3, 5).renderImage();
+        assertEquals(21 * 11, camera.getTracedRays(), "Wrong number of rays in an empty scene");
+        assertEquals(20 * 10 * 64, camera.getUniformRays(), "Wrong number of uniform rays");
+        for (int pixel : image.pixels)
+            assertEquals(new Color(30, 60, 90).getColor().getRGB(), pixel, "Wrong color in an empty scene");
+
+        // TC02: Only the edges of the spheres are split - more rays than the corners and fewer than uniform sampling
+        camera = twoSpheres().setImageWriter(new ImageWriter("adaptive", 40, 40))
+                .setAdaptiveSampling(2, 10).renderImage();
+        assertTrue(camera.getTracedRays() > 41 * 41, "No square was split");
+        assertTrue(camera.getTracedRays() < camera.getUniformRays(), "Adaptive sampling saved no rays");
+        // TC03: Small tiles share the samples on their borders - the same image and the same rays as one tile
+        PixelKeeper whole = new PixelKeeper(40, 40);
+        long wholeRays = twoSpheres().setImageWriter(whole).setTileSize(64)
+                .setAdaptiveSampling(2, 10).renderImage().getTracedRays();
+        PixelKeeper tiled = new PixelKeeper(40, 40);
+        camera = twoSpheres().setImageWriter(tiled).setTileSize(4).setAdaptiveSampling(2, 10)
+                .renderImage();
+        assertArrayEquals(whole.pixels, tiled.pixels, "The tiles changed the image");
+        assertEquals(wholeRays, camera.getTracedRays() - camera.getDuplicateRays(),
+                "The samples on the borders of the tiles were traced again");
+        // TC04: The samples on a border are dropped when the tiles around it are done - one worker keeps only the
+        // borders around its row of tiles, far fewer than all the borders
+        int[] maxShared = {0};
+        Camera[] shared = new Camera[1];
+        shared[0] = twoSpheres().setTileSize(4).setThreadCount(1).setAdaptiveSampling(2, 10)
+                .setImageWriter(new PixelKeeper(40, 40) {
+                    @Override
+                    public void writePixel(int xIndex, int yIndex, Color color) {
+                        maxShared[0] = Math.max(maxShared[0], shared[0].getBorderSamples());
+                    }
+                });
+        shared[0].renderImage();
+        assertTrue(maxShared[0] > 0, "No samples were shared on the borders");
+        assertTrue(maxShared[0] < 2 * 9 * 161 / 4, "The samples of the done tiles were kept");
+        assertEquals(0, shared[0].getBorderSamples(), "The shared samples were kept after the render");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Depth 0 traces a ray through the center of every pixel
+        camera = twoSpheres().setImageWriter(new ImageWriter("adaptive", 40, 40))
+                .setAdaptiveSampling(0, 10).renderImage();
+        assertEquals(40 * 40, camera.getTracedRays(), "Wrong number of rays without adaptive sampling");
+        assertEquals(40 * 40, camera.getUniformRays(), "Wrong number of uniform rays without adaptive sampling");
+        // TC12: Wrong depth and threshold
+        Camera wrong = twoSpheres();
+        assertThrows(IllegalArgumentException.class, () -> wrong.setAdaptiveSampling(-1, 10), "Negative depth");
+        assertThrows(IllegalArgumentException.class, () -> wrong.setAdaptiveSampling(11, 10), "Too deep");
+        assertThrows(IllegalArgumentException.class, () -> wrong.setAdaptiveSampling(2, -1), "Negative threshold");
+    }
+
+    /**
+     * Builds the camera of a transparent sphere in a sphere in front of a mirror sphere and a mirror floor, with a ray
+     * tracer that keeps the sizes of the groups of rays that the camera gives it
+     *
+     * @param deferred true for the deferred mode of the ray tracer
+     * @param groups   gets the size of every group of rays
+     * @return the camera with its ray tracer
+     */
+    static Camera mirrors(boolean deferred, List<Integer> groups) {
+        Scene scene = new Scene.SceneBuilder("Mirrors").build();
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -50), 50d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.4).setKS(0.3).setNShininess(100).setKT(0.5)),
+                new Sphere(new Point(0, 0, -50), 25d).setEmission(new Color(RED))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)),
+                new Sphere(new Point(60, 50, -150), 40d).setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKD(0.2).setKS(0.2).setNShininess(50).setShininesR(0.8)),
+                new Plane(new Point(0, -60, 0), new Vector(0, 1, 0)).setEmission(new Color(30, 30, 30))
+                        .setMaterial(new Material().setKD(0.3).setShininesR(0.5)));
+        scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, 100, 500), new Vector(1, -1, -2))
+                .setKL(0.0004).setKQ(0.0000006));
+        RayTracerBasic tracer = new RayTracerBasic(scene) {
+            @Override
+            public Color[] traceRays(Ray[] rays) {
+                groups.add(rays.length);
+                return super.traceRays(rays);
+            }
+        };
+        return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setRayTracer(tracer.setDeferred(deferred));
+    }
+
+    /**
+     * Test method for {@link RayTracerBasic#setDeferred(boolean)} through {@link renderer.Camera#renderImage()}.
+     */
+    @Test
+    void testDeferred() {
+        new RayTracerBasic(null).setImprovement(false); // The glossy grid multiplies the rays of the mirrors
+        try {
+            List<Integer> groups = new ArrayList<>();
+            PixelKeeper expected = new PixelKeeper(40, 40);
+            mirrors(false, groups).setImageWriter(expected).renderImage();
+            assertTrue(groups.isEmpty(), "The recursive mode got groups of rays without packets");
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Without packets the deferred mode gets every tile as one group, and the image is the recursive one
+            List<Integer> tiles = Collections.synchronizedList(new ArrayList<>());
+            PixelKeeper image = new PixelKeeper(40, 40);
+            mirrors(true, tiles).setImageWriter(image).renderImage();
+            assertArrayEquals(expected.pixels, image.pixels, "The deferred image differs from the recursive one");
+            tiles.sort(null);
+            assertEquals(List.of(64, 128, 128, 128, 128, 256, 256, 256, 256), tiles,
+                    "The deferred mode didn't get the tiles as groups");
+
+            // TC02: With packets the deferred mode still gets every tile as one group
+            tiles.clear();
+            image = new PixelKeeper(40, 40);
+            mirrors(true, tiles).setImageWriter(image).setPacketSize(4).renderImage();
+            assertArrayEquals(expected.pixels, image.pixels, "The deferred image with packets differs");
+            assertEquals(9, tiles.size(), "The deferred mode with packets didn't get the tiles as groups");
+
+            // TC03: The passes of a progressive render are deferred too, with the same image
+            tiles.clear();
+            image = new PixelKeeper(40, 40);
+            mirrors(true, tiles).setImageWriter(image).renderProgressive(0, snapshot -> {
+            });
+            assertArrayEquals(expected.pixels, image.pixels, "The deferred progressive image differs");
+            assertFalse(tiles.isEmpty(), "The progressive render didn't give the tiles as groups");
+        } finally {
+            new RayTracerBasic(null).setImprovement(true);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage(Duration)}.
+     */
+    @Test
+    void testRenderImageBudget() {
+        PixelKeeper expected = new PixelKeeper(40, 40);
+        twoSpheres().setImageWriter(expected).renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A budget for extra samples - more rays than pixels, and the render stops soon after the budget
+        long start = System.nanoTime();
+        Camera camera = twoSpheres().setImageWriter(new ImageWriter("budget", 40, 40))
+                .renderImage(Duration.ofMillis(300));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(3).toNanos(), "The render ran far over the budget");
+        assertTrue(camera.getTracedRays() > 40 * 40, "No extra samples in the budget");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No budget - only the base pass, which is the plain image
+        PixelKeeper image = new PixelKeeper(40, 40);
+        camera = twoSpheres().setImageWriter(image).renderImage(Duration.ZERO);
+        assertEquals(40 * 40, camera.getTracedRays(), "Extra samples without a budget");
+        assertArrayEquals(expected.pixels, image.pixels, "The base pass differs from the plain image");
+        // TC12: An empty scene doesn't vary, so it ends long before the budget, after the first extra sample
+        Scene empty = new Scene.SceneBuilder("Empty").setBackground(new Color(30, 60, 90)).build();
+        start = System.nanoTime();
+        camera = new Camera(ZERO_POINT, new Vector(0, 0, -1), new Vector(0, 1, 0)).setVPSize(20, 20)
+                .setVPDistance(10).setRayTracer(new RayTracerBasic(empty))
+                .setImageWriter(new ImageWriter("budget", 20, 20)).renderImage(Duration.ofSeconds(30));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos(), "A flat image used the budget");
+        assertEquals(2 * 20 * 20, camera.getTracedRays(), "Wrong number of samples in a flat image");
+        // TC13: A negative budget
+        Camera negative = twoSpheres().setImageWriter(new ImageWriter("budget", 40, 40));
+        assertThrows(IllegalArgumentException.class, () -> negative.renderImage(Duration.ofMillis(-1)),
+                "A negative budget is accepted");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setThreadPool(Camera.ThreadPool)}.
+     */
+    @Test
+    void testThreadPool() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        PixelKeeper image = new PixelKeeper(40, 40) {
+            @Override
+            public void writePixel(int xIndex, int yIndex, Color color) {
+                if (Thread.currentThread().getName().startsWith("Render worker"))
+                    threads.add(Thread.currentThread());
+                super.writePixel(xIndex, yIndex, color);
+            }
+        };
+        Camera camera = twoSpheres().setImageWriter(image)
+                .setThreadPool(Camera.ThreadPool.PLATFORM).setThreadCount(2).setTileSize(8);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The renders and the passes of a camera share its threads
+        camera.renderImage();
+        camera.renderImage();
+        camera.renderProgressive(1, snapshot -> {
+        });
+        assertFalse(threads.isEmpty(), "No render threads");
+        assertTrue(threads.size() <= 2, "The threads weren't kept between the renders");
+
+        // TC02: A new number of threads makes a new pool
+        Set<Thread> old = Set.copyOf(threads);
+        threads.clear();
+        camera.setThreadCount(3).renderImage();
+        camera.renderImage();
+        assertTrue(threads.size() <= 3, "The threads weren't kept between the renders");
+        assertTrue(threads.stream().noneMatch(old::contains), "The pool of the old number of threads was used");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Virtual threads are refused on a JVM without them, instead of becoming platform threads
+        if (TileScheduler.hasVirtualThreads())
+            assertDoesNotThrow(() -> camera.setThreadPool(Camera.ThreadPool.VIRTUAL), "Virtual threads refused");
+        else
+            assertThrows(UnsupportedOperationException.class, () -> camera.setThreadPool(Camera.ThreadPool.VIRTUAL),
+                    "Virtual threads accepted on a JVM without them");
+    }
+
+    /**
+     * An image writer whose render dies after some pixels
+     */
+    private static class DyingImage extends PixelKeeper {
+        private final int limit;
+        private int written = 0;
+
+        /**
+         * Constructor
+         *
+         * @param nX    the number of the columns
+         * @param nY    the number of the rows
+         * @param limit the number of the pixels that are written before the render dies
+         */
+        DyingImage(int nX, int nY, int limit) {
+            super(nX, nY);
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void writePixel(int xIndex, int yIndex, Color color) {
+            if (++written > limit)
+                throw new IllegalStateException("The render died");
+            super.writePixel(xIndex, yIndex, color);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setCheckpoint(Path, Duration)}.
+     */
+    @Test
+    void testCheckpoint(@TempDir Path directory) {
+        Path file = directory.resolve("twoSpheres.checkpoint");
+        PixelKeeper expected = new PixelKeeper(40, 40);
+        twoSpheres().setImageWriter(expected).renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A render that dies in the middle leaves the tiles that it finished
+        Camera failed = twoSpheres().setImageWriter(new DyingImage(40, 40, 800))
+                .setCheckpoint(file, Duration.ZERO);
+        assertThrows(IllegalStateException.class, failed::renderImage, "The render didn't die");
+        assertTrue(Files.exists(file), "The render left no checkpoint");
+
+        // TC02: The render is resumed from its finished tiles into the same image, and then its file is deleted
+        PixelKeeper image = new PixelKeeper(40, 40);
+        Camera camera = twoSpheres().setImageWriter(image).setCheckpoint(file, Duration.ZERO)
+                .renderImage();
+        assertTrue(camera.getTracedRays() < 40 * 40, "The finished tiles were rendered again");
+        assertArrayEquals(expected.pixels, image.pixels, "The resumed image differs from the plain one");
+        assertFalse(Files.exists(file), "The checkpoint of a finished render wasn't deleted");
+
+        // TC03: A progressive render that dies after a pass goes on after it into the same image
+        PixelKeeper progressive = new PixelKeeper(40, 40);
+        twoSpheres().setImageWriter(progressive).renderProgressive(2, snapshot -> {
+        });
+        Camera stopped = twoSpheres().setImageWriter(new PixelKeeper(40, 40)).setCheckpoint(file, Duration.ofHours(1));
+        assertThrows(IllegalStateException.class, () -> stopped.renderProgressive(2, snapshot -> {
+            if (snapshot.getPass() == 5)
+                throw new IllegalStateException("The render died");
+        }), "The render didn't die");
+        List<Integer> passes = new ArrayList<>();
+        image = new PixelKeeper(40, 40);
+        camera = twoSpheres().setImageWriter(image).setCheckpoint(file, Duration.ofHours(1))
+                .renderProgressive(2, snapshot -> passes.add(snapshot.getPass()));
+        assertEquals(List.of(5, 6), passes, "The resumed render didn't go on after its last pass");
+        assertEquals(40 * 40, camera.getTracedRays(), "The passes in the checkpoint were rendered again");
+        assertArrayEquals(progressive.pixels, image.pixels, "The resumed averages differ from the plain ones");
+        assertFalse(Files.exists(file), "The checkpoint of a finished render wasn't deleted");
+
+        // TC04: A render with a time budget that dies goes on adding samples into the same image (the budget is
+        // long enough for all the samples, so the image doesn't depend on the time)
+        PixelKeeper budget = new PixelKeeper(40, 40);
+        long rays = twoSpheres().setImageWriter(budget).renderImage(Duration.ofHours(1)).getTracedRays();
+        Camera hurried = twoSpheres().setImageWriter(new DyingImage(40, 40, 800)).setCheckpoint(file, Duration.ZERO);
+        assertThrows(IllegalStateException.class, () -> hurried.renderImage(Duration.ofMillis(100)),
+                "The render didn't die");
+        image = new PixelKeeper(40, 40);
+        camera = twoSpheres().setImageWriter(image).setCheckpoint(file, Duration.ZERO)
+                .renderImage(Duration.ofHours(1));
+        assertTrue(camera.getTracedRays() < rays, "The samples in the checkpoint were traced again");
+        assertArrayEquals(budget.pixels, image.pixels, "The resumed averages differ from the plain ones");
+        assertFalse(Files.exists(file), "The checkpoint of a finished render wasn't deleted");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The checkpoint of another camera isn't resumed
+        Camera again = twoSpheres().setImageWriter(new DyingImage(40, 40, 800))
+                .setCheckpoint(file, Duration.ZERO);
+        assertThrows(IllegalStateException.class, again::renderImage, "The render didn't die");
+        camera = twoSpheres().setVPDistance(900)
+                .setImageWriter(new PixelKeeper(40, 40)).setCheckpoint(file, Duration.ZERO)
+                .renderImage();
+        assertEquals(40 * 40, camera.getTracedRays(), "The checkpoint of another camera was resumed");
+        // TC12: The checkpoint of another scene under the same camera isn't resumed
+        Scene empty = new Scene.SceneBuilder("Empty").setBackground(new Color(30, 60, 90)).build();
+        Camera view = new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(150, 150).setVPDistance(1000).setCheckpoint(file, Duration.ZERO);
+        Camera twoSpheres = twoSpheres().setImageWriter(new DyingImage(40, 40, 800))
+                .setCheckpoint(file, Duration.ZERO);
+        assertThrows(IllegalStateException.class, twoSpheres::renderImage, "The render didn't die");
+        view.setRayTracer(new RayTracerBasic(empty)).setImageWriter(new PixelKeeper(40, 40))
+                .renderImage();
+        assertEquals(40 * 40, view.getTracedRays(), "The checkpoint of another scene was resumed");
+        // TC13: The checkpoint of other settings of the ray tracer isn't resumed, and of the same settings is
+        view.setImageWriter(new DyingImage(40, 40, 800));
+        assertThrows(IllegalStateException.class, view::renderImage, "The render didn't die");
+        view.setRayTracer(new RayTracerBasic(empty).setDeferred(true))
+                .setImageWriter(new PixelKeeper(40, 40)).renderImage();
+        assertEquals(40 * 40, view.getTracedRays(), "The checkpoint of other settings was resumed");
+        view.setImageWriter(new DyingImage(40, 40, 800));
+        assertThrows(IllegalStateException.class, view::renderImage, "The render didn't die");
+        view.setRayTracer(new RayTracerBasic(empty).setDeferred(true))
+                .setImageWriter(new PixelKeeper(40, 40)).renderImage();
+        assertTrue(view.getTracedRays() < 40 * 40, "The checkpoint of the same settings wasn't resumed");
+        // TC14: A negative interval
+        assertThrows(IllegalArgumentException.class,
+                () -> twoSpheres().setCheckpoint(file, Duration.ofMillis(-1)),
+                "A negative checkpoint interval is accepted");
+    }
 }
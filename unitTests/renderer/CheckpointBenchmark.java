@@ -0,0 +1,77 @@
+package renderer;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the checkpoints of {@link Camera} on the scenes of {@link ReflectionRefractionTests}: the render time
+ * without checkpoints against the render time with a write every {@value #INTERVAL_MILLIS} ms and with a write
+ * whenever the writer thread is free (the heaviest load that the checkpoints can put on a render - on a single
+ * processor the writer thread takes its share of the processor from the render).
+ * The test fails only if the image with checkpoints differs from the plain one.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CheckpointBenchmark {
+    private static final int RESOLUTION = 600;
+    private static final int ROUNDS = 3;
+    private static final int INTERVAL_MILLIS = 250;
+
+    @TempDir
+    Path directory; // The directory of the checkpoint files
+
+    /**
+     * Measures the renders of one scene
+     *
+     * @param name   the name of the scene
+     * @param camera builds the camera of the scene
+     */
+    private void measure(String name, Supplier<Camera> camera) {
+        Duration[] intervals = {Duration.ofMillis(INTERVAL_MILLIS), Duration.ZERO};
+        long plain = Long.MAX_VALUE;
+        long[] checkpoints = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int round = 0; round < ROUNDS; ++round) {
+            CameraTests.PixelKeeper expected = new CameraTests.PixelKeeper(RESOLUTION, RESOLUTION);
+            Camera renderer = camera.get().setImageWriter(expected);
+            long start = System.nanoTime();
+            renderer.renderImage();
+            plain = Math.min(plain, System.nanoTime() - start);
+
+            for (int i = 0; i < intervals.length; ++i) {
+                CameraTests.PixelKeeper image = new CameraTests.PixelKeeper(RESOLUTION, RESOLUTION);
+                renderer = camera.get().setImageWriter(image)
+                        .setCheckpoint(directory.resolve(name + ".checkpoint"), intervals[i]);
+                start = System.nanoTime();
+                renderer.renderImage();
+                checkpoints[i] = Math.min(checkpoints[i], System.nanoTime() - start);
+                assertArrayEquals(expected.pixels, image.pixels,
+                        "The image with checkpoints differs from the plain one");
+            }
+        }
+        System.out.printf("  %-28s plain %7.1f ms, every %d ms %7.1f ms (%+.1f%%), nonstop %7.1f ms (%+.1f%%)%n",
+                name, plain / 1e6, INTERVAL_MILLIS, checkpoints[0] / 1e6, 100.0 * (checkpoints[0] - plain) / plain,
+                checkpoints[1] / 1e6, 100.0 * (checkpoints[1] - plain) / plain);
+    }
+
+    /**
+     * Compares the renders with and without checkpoints
+     */
+    @Test
+    void benchmarkCheckpoints() {
+        System.out.printf("Checkpoints of %dx%d images (%d processors):%n", RESOLUTION, RESOLUTION,
+                Runtime.getRuntime().availableProcessors());
+        measure("twoSpheres", CameraTests::twoSpheres);
+        measure("trianglesTransparentSphere", ThreadPoolBenchmark::trianglesTransparentSphere);
+    }
+}
@@ -0,0 +1,138 @@
+package renderer;
+
+import geometries.Geometries;
+import geometries.Intersectable;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.*;
+import scene.Scene;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the deferred mode of {@link RayTracerBasic} (the secondary rays of a tile sorted and traced in waves)
+ * against the recursive mode (the secondary rays of every pixel traced one after another), on a hierarchy of
+ * reflective and transparent spheres, for tiles of 8x8 and 16x16 pixels.
+ * The test fails only if the modes disagree.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DeferredTracerBenchmark {
+    private static final int SPHERES = 20000;
+    private static final int RESOLUTION = 128;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Turns the glossy improvement back on (its default) after the benchmark
+     */
+    @AfterEach
+    void restoreImprovement() {
+        new RayTracerBasic(null).setImprovement(true);
+    }
+
+    /**
+     * Builds a scene of random spheres that reflect and refract
+     *
+     * @param random the random generator
+     * @return the scene
+     */
+    private static Scene spheres(Random random) {
+        Intersectable[] spheres = new Intersectable[SPHERES];
+        for (int i = 0; i < SPHERES; ++i)
+            spheres[i] = new Sphere(new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100), 1 + random.nextDouble() * 2)
+                    .setEmission(new Color(random.nextInt(100), random.nextInt(100), random.nextInt(100)))
+                    .setMaterial(new Material().setKD(0.4).setKS(0.3).setNShininess(30)
+                            .setShininesR(random.nextDouble() * 0.6).setKT(random.nextDouble() * 0.4));
+        Scene scene = new Scene.SceneBuilder("Deferred benchmark")
+                .setGeometries(new Geometries(spheres).setAccelerator(Geometries.Accelerator.BVH)).build();
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(0, 0, 300)));
+        return scene;
+    }
+
+    /**
+     * Renders the image in tiles by one of the modes
+     *
+     * @param tracer the ray tracer
+     * @param camera the camera
+     * @param side   the side of the tiles
+     * @return the colors of the pixels
+     */
+    private static Color[] render(RayTracerBasic tracer, Camera camera, int side) {
+        Color[] image = new Color[RESOLUTION * RESOLUTION];
+        Ray[] rays = new Ray[side * side];
+        for (int y0 = 0; y0 < RESOLUTION; y0 += side)
+            for (int x0 = 0; x0 < RESOLUTION; x0 += side) {
+                for (int k = 0; k < rays.length; ++k)
+                    rays[k] = camera.constructRay(RESOLUTION, RESOLUTION, x0 + k % side, y0 + k / side);
+                Color[] colors = tracer.traceRays(rays);
+                for (int k = 0; k < rays.length; ++k)
+                    image[(y0 + k / side) * RESOLUTION + x0 + k % side] = colors[k];
+            }
+        return image;
+    }
+
+    /**
+     * Measures the recursive and the deferred modes
+     *
+     * @param scene  the scene
+     * @param camera the camera
+     * @param side   the side of the tiles
+     */
+    private static void measure(Scene scene, Camera camera, int side) {
+        RayTracerBasic recursive = new RayTracerBasic(scene) {
+            @Override
+            public Color[] traceRays(Ray[] rays) {
+                Color[] colors = new Color[rays.length];
+                for (int i = 0; i < rays.length; ++i)
+                    colors[i] = traceRay(rays[i]);
+                return colors;
+            }
+        };
+        RayTracerBasic deferred = new RayTracerBasic(scene).setDeferred(true);
+
+        Color[] expected = render(recursive, camera, side);
+        Color[] colors = render(deferred, camera, side);
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals(expected[i].toString(), colors[i].toString(), "The deferred mode disagrees");
+
+        long single = Long.MAX_VALUE, waves = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            render(recursive, camera, side);
+            single = Math.min(single, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            render(deferred, camera, side);
+            waves = Math.min(waves, System.nanoTime() - start);
+        }
+        System.out.printf("  %2dx%-2d tiles  recursive %7.1f ms, deferred %7.1f ms (speedup %.2fx)%n", side, side,
+                single / 1e6, waves / 1e6, (double) single / waves);
+    }
+
+    /**
+     * Compares the render times of the recursive and the deferred modes
+     */
+    @Test
+    void benchmarkDeferred() {
+        Scene scene = spheres(new Random(1533));
+        Camera camera = new Camera(new Point(0, 0, 400), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(100, 100).setVPDistance(200);
+        new RayTracerBasic(scene).setImprovement(false);
+
+        System.out.printf("Secondary rays of %dx%d pixels over %d spheres:%n", RESOLUTION, RESOLUTION, SPHERES);
+        measure(scene, camera, 8);
+        measure(scene, camera, 16);
+    }
+}
@@ -0,0 +1,116 @@
+package renderer;
+
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.DeferredTracer class (the deferred mode of {@link RayTracerBasic})
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class DeferredTracerTests {
+    /**
+     * Turns the glossy improvement back on (its default) after every test
+     */
+    @AfterEach
+    void restoreImprovement() {
+        new RayTracerBasic(null).setImprovement(true);
+    }
+
+    /**
+     * Builds a scene of a transparent sphere and two mirrors, where rays are reflected and refracted several times
+     *
+     * @return the scene
+     */
+    private static Scene mirrors() {
+        Scene scene = new Scene.SceneBuilder("Deferred scene").setBackground(new Color(10, 20, 30)).build();
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(
+                new Sphere(new Point(-950, -900, -1000), 400d).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKD(0.25).setKS(0.25).setNShininess(20)
+                                .setKT(new Double3(0.5, 0, 0))),
+                new Sphere(new Point(-950, -900, -1000), 200d).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKD(0.25).setKS(0.25).setNShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setShininesR(1)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setShininesR(new Double3(0.5, 0, 0.4))));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setKL(0.00001).setKQ(0.000005));
+        return scene;
+    }
+
+    /**
+     * Builds the camera rays of a tile of pixels
+     *
+     * @param x0   the first column of the tile
+     * @param y0   the first row of the tile
+     * @param side the side of the tile
+     * @return the rays
+     */
+    private static Ray[] tile(int x0, int y0, int side) {
+        Camera camera = new Camera(new Point(0, 0, 10000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(2500, 2500).setVPDistance(10000);
+        Ray[] rays = new Ray[side * side];
+        for (int y = 0; y < side; ++y)
+            for (int x = 0; x < side; ++x)
+                rays[y * side + x] = camera.constructRay(100, 100, x0 + x, y0 + y);
+        return rays;
+    }
+
+    /**
+     * Checks that the deferred mode gives exactly the colors of the rays traced alone
+     *
+     * @param scene the scene
+     * @param rays  the rays
+     */
+    private static void assertSameColors(Scene scene, Ray[] rays) {
+        RayTracerBasic tracer = new RayTracerBasic(scene);
+        Color[] colors = tracer.setDeferred(true).traceRays(rays);
+        assertEquals(rays.length, colors.length, "Wrong number of colors");
+        for (int i = 0; i < rays.length; ++i)
+            assertEquals(tracer.traceRay(rays[i]).toString(), colors[i].toString(),
+                    "The deferred color differs from the recursive one");
+    }
+
+    /**
+     * Test method for {@link RayTracerBasic#traceRays(Ray[])} in the deferred mode.
+     */
+    @Test
+    void testTraceRays() {
+        Scene scene = mirrors();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Tiles on the spheres and the mirrors with the glossy grid
+        assertSameColors(scene, tile(20, 60, 6));
+        assertSameColors(scene, tile(40, 20, 4));
+
+        // TC02: The same tiles without the glossy grid
+        new RayTracerBasic(scene).setImprovement(false);
+        assertSameColors(scene, tile(20, 60, 6));
+        assertSameColors(scene, tile(40, 20, 4));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No rays
+        assertEquals(0, new RayTracerBasic(scene).setDeferred(true).traceRays(new Ray[0]).length, "Colors of no rays");
+        // TC12: A single ray
+        assertSameColors(scene, tile(30, 70, 1));
+        // TC13: Rays that miss the whole scene get the background
+        Ray[] misses = {new Ray(new Point(0, 0, 10000), new Vector(0, 0, 1)),
+                new Ray(new Point(0, 0, 10000), new Vector(1, 0, 1))};
+        for (Color color : new RayTracerBasic(scene).setDeferred(true).traceRays(misses))
+            assertEquals(scene.background.toString(), color.toString(), "A missed ray isn't the background");
+    }
+}
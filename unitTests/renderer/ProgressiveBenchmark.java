@@ -0,0 +1,65 @@
+package renderer;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the progressive render of {@link Camera} against the plain render on the scenes of
+ * {@link ReflectionRefractionTests}: the time until the first preview and the time of the whole image.
+ * The test fails only if the progressive image differs from the plain one.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProgressiveBenchmark {
+    private static final int RESOLUTION = 600;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Measures the renders of one scene
+     *
+     * @param name   the name of the scene
+     * @param camera builds the camera of the scene
+     */
+    private static void measure(String name, Supplier<Camera> camera) {
+        long plain = Long.MAX_VALUE, progressive = Long.MAX_VALUE, preview = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            CameraTests.PixelKeeper expected = new CameraTests.PixelKeeper(RESOLUTION, RESOLUTION);
+            Camera renderer = camera.get().setImageWriter(expected);
+            long start = System.nanoTime();
+            renderer.renderImage();
+            plain = Math.min(plain, System.nanoTime() - start);
+
+            CameraTests.PixelKeeper image = new CameraTests.PixelKeeper(RESOLUTION, RESOLUTION);
+            renderer = camera.get().setImageWriter(image);
+            long[] first = {0};
+            long progressiveStart = System.nanoTime();
+            renderer.renderProgressive(0, snapshot -> {
+                if (snapshot.getPass() == 1)
+                    first[0] = System.nanoTime() - progressiveStart;
+            });
+            progressive = Math.min(progressive, System.nanoTime() - progressiveStart);
+            preview = Math.min(preview, first[0]);
+            assertArrayEquals(expected.pixels, image.pixels, "The progressive image differs from the plain one");
+        }
+        System.out.printf("  %-28s plain %7.1f ms, progressive %7.1f ms (%+.1f%%), first preview %6.1f ms%n", name,
+                plain / 1e6, progressive / 1e6, 100.0 * (progressive - plain) / plain, preview / 1e6);
+    }
+
+    /**
+     * Compares the progressive and the plain renders
+     */
+    @Test
+    void benchmarkProgressive() {
+        System.out.printf("Progressive render of %dx%d images:%n", RESOLUTION, RESOLUTION);
+        measure("twoSpheres", CameraTests::twoSpheres);
+        measure("trianglesTransparentSphere", ThreadPoolBenchmark::trianglesTransparentSphere);
+    }
+}
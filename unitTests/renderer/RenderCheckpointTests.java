@@ -0,0 +1,281 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Color;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.RenderCheckpoint class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class RenderCheckpointTests {
+    private static final int NX = 40, NY = 30, TILE_SIZE = 16;
+    private static final byte[] KEY = key(15), OTHER_KEY = key(33); // Keys of two renders
+
+    @TempDir
+    Path directory; // A new directory for every test
+
+    /**
+     * Makes the key of a render - a digest whose bytes are all the same but the last
+     *
+     * @param last the last byte
+     * @return the key
+     */
+    private static byte[] key(int last) {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) 15);
+        key[31] = (byte) last;
+        return key;
+    }
+
+    /**
+     * Opens a checkpoint of the test image
+     *
+     * @param file     the checkpoint file
+     * @param interval the time between the writes
+     * @param key      the key of the render
+     * @param mode     the render
+     * @return the checkpoint
+     */
+    private static RenderCheckpoint open(Path file, Duration interval, byte[] key, RenderCheckpoint.Mode mode) {
+        return new RenderCheckpoint(file, interval, key, mode, NX, NY, TILE_SIZE, new TileScheduler(NX, NY, TILE_SIZE));
+    }
+
+    /**
+     * Makes the sums of the colors of a tile - every pixel gets a sum of its own place, which isn't a whole number
+     *
+     * @param tile the tile
+     * @return the sums of the pixels of the tile row after row
+     */
+    private static Color[] colors(TileScheduler.Tile tile) {
+        Color[] colors = new Color[tile.size()];
+        int k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x)
+                colors[k++] = new Color(x * 6.1 + 0.3, y * 8.7 / 3, 100.0 / 7);
+        return colors;
+    }
+
+    /**
+     * Makes other sums of the pixels of a tile
+     *
+     * @param tile  the tile
+     * @param scale the scale of the sums
+     * @return the sums row after row
+     */
+    private static double[] sums(TileScheduler.Tile tile, double scale) {
+        double[] sums = new double[tile.size()];
+        for (int k = 0; k < sums.length; ++k)
+            sums[k] = k * scale / 3;
+        return sums;
+    }
+
+    /**
+     * Makes the numbers of the samples of the pixels of a tile
+     *
+     * @param tile    the tile
+     * @param samples the number of the samples of every pixel
+     * @return the numbers row after row
+     */
+    private static double[] samples(TileScheduler.Tile tile, int samples) {
+        double[] numbers = new double[tile.size()];
+        Arrays.fill(numbers, samples);
+        return numbers;
+    }
+
+    /**
+     * Checks that sums of colors are exactly the expected ones
+     *
+     * @param expected the expected sums, null for a pixel without samples
+     * @param actual   the sums
+     */
+    private static void assertSums(Color[] expected, Color[] actual) {
+        assertEquals(expected.length, actual.length, "Wrong number of sums");
+        double[] e = new double[3], a = new double[3];
+        for (int k = 0; k < expected.length; ++k) {
+            if (expected[k] == null) {
+                assertNull(actual[k], "A pixel without samples got a sum");
+                continue;
+            }
+            expected[k].copyTo(e, 0);
+            actual[k].copyTo(a, 0);
+            assertArrayEquals(e, a, "The sums of the colors were rounded");
+        }
+    }
+
+    /**
+     * Checks that the pixels of a tile of an image got the 8-bit colors of the tile
+     *
+     * @param image the image
+     * @param tile  the tile
+     */
+    private static void assertPixels(CameraTests.PixelKeeper image, TileScheduler.Tile tile) {
+        Color[] expected = colors(tile);
+        int k = 0;
+        for (int y = tile.y0; y < tile.y1; ++y)
+            for (int x = tile.x0; x < tile.x1; ++x)
+                assertEquals(expected[k++].getColor().getRGB(), image.pixels[y * NX + x], "Wrong restored color");
+    }
+
+    /**
+     * Test method for {@link RenderCheckpoint#restore(ImageWriter)} and {@link RenderCheckpoint#restore()}.
+     */
+    @Test
+    void testRestore() throws IOException {
+        Path file = directory.resolve("render.checkpoint");
+        TileScheduler.Tile[] tiles = new TileScheduler(NX, NY, TILE_SIZE).getTiles();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The finished tiles of an image that failed are restored with their 8-bit colors, and only them
+        RenderCheckpoint failed = open(file, Duration.ofHours(1), KEY, RenderCheckpoint.Mode.IMAGE);
+        failed.tileDone(tiles[0], colors(tiles[0]));
+        failed.tileDone(tiles[4], colors(tiles[4]));
+        failed.close(false);
+        assertTrue(Files.exists(file), "The checkpoint of a failed render wasn't written");
+
+        RenderCheckpoint resumed = open(file, Duration.ofHours(1), KEY, RenderCheckpoint.Mode.IMAGE);
+        CameraTests.PixelKeeper image = new CameraTests.PixelKeeper(NX, NY);
+        assertEquals(tiles[0].size() + tiles[4].size(), resumed.restore(image), "Wrong number of restored pixels");
+        for (int i = 0; i < tiles.length; ++i)
+            assertEquals(i == 0 || i == 4, resumed.isDone(i), "Wrong finished tiles");
+        assertPixels(image, tiles[4]);
+
+        // TC02: A finished render deletes its file
+        resumed.close(true);
+        assertFalse(Files.exists(file), "The checkpoint of a finished render wasn't deleted");
+
+        // TC03: A render with a time budget restores its progress, its samples and the other sums of its pixels
+        RenderCheckpoint budget = open(file, Duration.ofHours(1), KEY, RenderCheckpoint.Mode.BUDGET);
+        budget.tileDone(tiles[2], 123456789L, colors(tiles[2]), 5, sums(tiles[2], 1.1), sums(tiles[2], 2.3));
+        // A worker that measured its time before the last one doesn't take the progress back
+        budget.tileDone(tiles[1], 1000L, colors(tiles[1]), 2, sums(tiles[1], 1), sums(tiles[1], 1));
+        budget.close(false);
+        RenderCheckpoint budgetResumed = open(file, Duration.ofHours(1), KEY, RenderCheckpoint.Mode.BUDGET);
+        assertEquals(123456789L, budgetResumed.restore(), "Wrong restored time");
+        assertSums(colors(tiles[2]), budgetResumed.getSums(tiles[2]));
+        assertArrayEquals(samples(tiles[2], 5), budgetResumed.getChannel(tiles[2], 0), "Wrong numbers of samples");
+        assertArrayEquals(sums(tiles[2], 1.1), budgetResumed.getChannel(tiles[2], 1), "Wrong restored brightness");
+        assertArrayEquals(sums(tiles[2], 2.3), budgetResumed.getChannel(tiles[2], 2), "Wrong restored squares");
+        budgetResumed.close(true);
+
+        // TC04: A pass of a progressive render keeps the whole image, and its pixels without samples stay without -
+        // the last of the passes is the one that is restored
+        Color[] pass = new Color[NX * NY];
+        RenderCheckpoint progressive = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.PROGRESSIVE);
+        for (int p = 1; p <= 3; ++p) {
+            for (int y = 0; y < NY; y += 2)
+                for (int x = 0; x < NX; x += 2)
+                    pass[y * NX + x] = new Color(x / 3.0 * p, y / 7.0, 0.1);
+            progressive.passDone(p, pass, p);
+        }
+        progressive.close(false);
+        RenderCheckpoint progressiveResumed = open(file, Duration.ofHours(1), KEY,
+                RenderCheckpoint.Mode.PROGRESSIVE);
+        assertEquals(3, progressiveResumed.restore(), "Wrong restored pass");
+        for (TileScheduler.Tile tile : tiles) {
+            assertTrue(progressiveResumed.isDone(tile.index), "A tile of the pass wasn't restored");
+            Color[] expected = new Color[tile.size()];
+            int k = 0;
+            for (int y = tile.y0; y < tile.y1; ++y)
+                for (int x = tile.x0; x < tile.x1; ++x)
+                    expected[k++] = pass[y * NX + x];
+            assertSums(expected, progressiveResumed.getSums(tile));
+        }
+        progressiveResumed.close(true);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No file
+        assertEquals(0, open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE).restore(image),
+                "An image restored without a file");
+        assertEquals(-1, open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.BUDGET).restore(),
+                "A render restored without a file");
+
+        // TC12: The file of another render (of a key that differs in the last byte) isn't restored
+        RenderCheckpoint other = open(file, Duration.ZERO, OTHER_KEY, RenderCheckpoint.Mode.IMAGE);
+        other.tileDone(tiles[1], colors(tiles[1]));
+        other.close(false);
+        RenderCheckpoint same = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        assertEquals(0, same.restore(image), "The file of another render was restored");
+        assertFalse(same.isDone(1), "A tile of another render was restored");
+
+        // TC13: The file of another kind of render of the same key isn't restored
+        RenderCheckpoint image1 = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        image1.tileDone(tiles[1], colors(tiles[1]));
+        image1.close(false);
+        assertEquals(-1, open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.PROGRESSIVE).restore(),
+                "The file of another kind of render was restored");
+
+        // TC14: A cut file keeps its whole tiles
+        RenderCheckpoint two = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        two.tileDone(tiles[2], colors(tiles[2]));
+        two.tileDone(tiles[3], colors(tiles[3]));
+        two.close(false);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        RenderCheckpoint cut = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        assertEquals(tiles[2].size(), cut.restore(image), "Wrong pixels restored from a cut file");
+        assertTrue(cut.isDone(2), "The whole tile of a cut file wasn't restored");
+        assertFalse(cut.isDone(3), "The cut tile was restored");
+
+        // TC15: The tiles that a resumed image finishes are appended over the cut tile
+        cut.tileDone(tiles[5], colors(tiles[5]));
+        cut.close(false);
+        CameraTests.PixelKeeper appended = new CameraTests.PixelKeeper(NX, NY);
+        RenderCheckpoint again = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        assertEquals(tiles[2].size() + tiles[5].size(), again.restore(appended),
+                "Wrong pixels restored after an append");
+        assertFalse(again.isDone(3), "The cut tile was restored after an append");
+        assertPixels(appended, tiles[2]);
+        assertPixels(appended, tiles[5]);
+
+        // TC16: A key that isn't a SHA-256 digest
+        assertThrows(IllegalArgumentException.class,
+                () -> open(file, Duration.ZERO, new byte[4], RenderCheckpoint.Mode.IMAGE),
+                "A short key is accepted");
+    }
+
+    /**
+     * Test method for {@link RenderCheckpoint#tileDone(TileScheduler.Tile, Color[])}.
+     */
+    @Test
+    void testTileDone() throws InterruptedException, IOException {
+        Path file = directory.resolve("render.checkpoint");
+        TileScheduler.Tile[] tiles = new TileScheduler(NX, NY, TILE_SIZE).getTiles();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: After the interval a finished tile is written by the writer thread
+        RenderCheckpoint checkpoint = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        checkpoint.tileDone(tiles[0], colors(tiles[0]));
+        for (int wait = 0; wait < 100 && !Files.exists(file); ++wait)
+            Thread.sleep(20);
+        assertTrue(Files.exists(file), "The checkpoint wasn't written after the interval");
+        RenderCheckpoint written = open(file, Duration.ZERO, KEY, RenderCheckpoint.Mode.IMAGE);
+        assertTrue(written.restore(new CameraTests.PixelKeeper(NX, NY)) > 0, "The written checkpoint has no tiles");
+
+        // TC02: A tile that is finished after a write is appended - the file grows only by its record
+        long size = Files.size(file);
+        checkpoint.tileDone(tiles[1], colors(tiles[1]));
+        long expected = size + Integer.BYTES * (1 + tiles[1].size());
+        for (int wait = 0; wait < 100 && Files.size(file) != expected; ++wait)
+            Thread.sleep(20);
+        assertEquals(expected, Files.size(file), "The finished tile wasn't appended alone");
+        checkpoint.close(true);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Before the interval nothing is written
+        checkpoint = open(file, Duration.ofHours(1), KEY, RenderCheckpoint.Mode.IMAGE);
+        checkpoint.tileDone(tiles[0], colors(tiles[0]));
+        Thread.sleep(100);
+        assertFalse(Files.exists(file), "The checkpoint was written before the interval");
+        checkpoint.close(true);
+    }
+}
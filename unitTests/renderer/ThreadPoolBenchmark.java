@@ -0,0 +1,95 @@
+package renderer;
+
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import primitives.*;
+import scene.Scene;
+
+import java.util.function.Supplier;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the thread pools of {@link Camera} (a pool of the camera's own, the common fork/join pool and a
+ * virtual thread for every tile) on the scenes of {@link ReflectionRefractionTests}.
+ * The test fails only if the pools render different images.
+ * It is tagged "benchmark" and runs only with {@code -Dbenchmark=true}, not with the unit tests.
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadPoolBenchmark {
+    private static final int RESOLUTION = 300;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Builds the camera of the triangles in the shadow of a transparent sphere
+     *
+     * @return the camera with its ray tracer
+     */
+    static Camera trianglesTransparentSphere() {
+        Scene scene = new Scene.SceneBuilder("Test scene").build();
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(60)),
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(60)),
+                new Sphere(new Point(60, 50, -50), 30d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.2).setKS(0.2).setNShininess(30).setKT(0.6)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(60, 50, 0), new Vector(0, 0, -1))
+                .setKL(4E-5).setKQ(2E-7));
+        return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setRayTracer(new RayTracerBasic(scene));
+    }
+
+    /**
+     * Measures the pools on one scene
+     *
+     * @param name   the name of the scene
+     * @param camera builds the camera of the scene
+     */
+    private static void measure(String name, Supplier<Camera> camera) {
+        int[] expected = null;
+        StringBuilder times = new StringBuilder();
+        for (Camera.ThreadPool pool : Camera.ThreadPool.values()) {
+            if (pool == Camera.ThreadPool.VIRTUAL && !TileScheduler.hasVirtualThreads()) {
+                times.append(" VIRTUAL unavailable");
+                continue;
+            }
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; ++round) {
+                CameraTests.PixelKeeper image = new CameraTests.PixelKeeper(RESOLUTION, RESOLUTION);
+                Camera renderer = camera.get().setImageWriter(image).setThreadPool(pool);
+                long start = System.nanoTime();
+                renderer.renderImage();
+                best = Math.min(best, System.nanoTime() - start);
+                if (expected == null)
+                    expected = image.pixels;
+                else
+                    assertArrayEquals(expected, image.pixels, "The " + pool + " pool rendered another image");
+            }
+            times.append(String.format(" %s %7.1f ms", pool, best / 1e6));
+        }
+        System.out.printf("  %-28s%s%n", name, times);
+    }
+
+    /**
+     * Compares the render times of the thread pools
+     */
+    @Test
+    void benchmarkThreadPools() {
+        System.out.printf("Thread pools on %dx%d images (%d processors, %s):%n", RESOLUTION, RESOLUTION,
+                Runtime.getRuntime().availableProcessors(), TileScheduler.hasVirtualThreads()
+                        ? "virtual threads" : "no virtual threads - the virtual mode isn't measured");
+        measure("twoSpheres", CameraTests::twoSpheres);
+        measure("trianglesTransparentSphere", ThreadPoolBenchmark::trianglesTransparentSphere);
+    }
+}
@@ -0,0 +1,162 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.TileScheduler class
+ *
+ * @author Naomi Reitzer and Leah Golovenziz
+ */
+class TileSchedulerTests {
+    /**
+     * Checks that the tiles cover every pixel of the image exactly once
+     *
+     * @param scheduler the scheduler
+     * @param nX        the columns of the image
+     * @param nY        the rows of the image
+     */
+    private static void assertCover(TileScheduler scheduler, int nX, int nY) {
+        int[] covered = new int[nX * nY];
+        for (TileScheduler.Tile tile : scheduler.getTiles())
+            for (int y = tile.y0; y < tile.y1; ++y)
+                for (int x = tile.x0; x < tile.x1; ++x)
+                    ++covered[y * nX + x];
+        for (int count : covered)
+            assertEquals(1, count, "A pixel isn't covered exactly once");
+    }
+
+    /**
+     * Test method for {@link TileScheduler#TileScheduler(int, int, int)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: An image that the tiles divide exactly
+        TileScheduler scheduler = new TileScheduler(64, 32, 16);
+        assertEquals(8, scheduler.getTiles().length, "Wrong number of tiles");
+        assertCover(scheduler, 64, 32);
+
+        // TC02: An image with partial tiles on the right and at the bottom
+        scheduler = new TileScheduler(50, 37, 16);
+        assertEquals(12, scheduler.getTiles().length, "Wrong number of tiles");
+        assertCover(scheduler, 50, 37);
+        TileScheduler.Tile last = scheduler.getTiles()[11];
+        assertEquals(2 * 5, last.size(), "Wrong size of the corner tile");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Tiles of one pixel
+        scheduler = new TileScheduler(5, 3, 1);
+        assertEquals(15, scheduler.getTiles().length, "Wrong number of one pixel tiles");
+        assertCover(scheduler, 5, 3);
+        // TC12: A tile larger than the image
+        scheduler = new TileScheduler(5, 3, 16);
+        assertEquals(1, scheduler.getTiles().length, "Wrong number of tiles of a small image");
+        assertEquals(15, scheduler.getTiles()[0].size(), "Wrong size of the only tile");
+    }
+
+    /**
+     * Test method for {@link TileScheduler#run(Executor, int, java.util.function.Consumer)}.
+     */
+    @Test
+    void testRun() {
+        ExecutorService pool = TileScheduler.newPlatformPool(4);
+        try {
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Several workers render every tile exactly once
+            TileScheduler scheduler = new TileScheduler(100, 100, 8);
+            AtomicIntegerArray rendered = new AtomicIntegerArray(scheduler.getTiles().length);
+            scheduler.run(pool, 4, tile -> rendered.incrementAndGet(tile.index));
+            for (int i = 0; i < rendered.length(); ++i)
+                assertEquals(1, rendered.get(i), "A tile isn't rendered exactly once");
+
+            // TC02: A failure of a worker reaches the caller
+            TileScheduler failing = new TileScheduler(100, 100, 8);
+            assertThrows(IllegalStateException.class, () -> failing.run(pool, 4, tile -> {
+                if (tile.index == 20)
+                    throw new IllegalStateException("Failed tile");
+            }), "The failure of a worker is lost");
+
+            // TC03: A worker for every tile (more workers than threads)
+            TileScheduler perTile = new TileScheduler(100, 100, 8);
+            AtomicIntegerArray once = new AtomicIntegerArray(perTile.getTiles().length);
+            perTile.run(pool, perTile.getTiles().length, tile -> once.incrementAndGet(tile.index));
+            for (int i = 0; i < once.length(); ++i)
+                assertEquals(1, once.get(i), "A tile isn't rendered exactly once by a worker for every tile");
+        } finally {
+            pool.shutdown();
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single worker on the calling thread
+        TileScheduler single = new TileScheduler(10, 10, 4);
+        int[] count = new int[1];
+        single.run(Runnable::run, 1, tile -> ++count[0]);
+        assertEquals(9, count[0], "Wrong number of rendered tiles");
+        assertNull(single.nextTile(), "A tile is left after the run");
+    }
+
+    /**
+     * Test method for {@link TileScheduler#runWorkers(Executor, int, Runnable, long, Runnable)}.
+     */
+    @Test
+    void testRunWorkers() {
+        ExecutorService pool = TileScheduler.newPlatformPool(2);
+        try {
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Every copy of the worker runs, and the progress is reported while they run only by the caller
+            AtomicInteger runs = new AtomicInteger();
+            Set<Thread> reporters = ConcurrentHashMap.newKeySet();
+            TileScheduler.runWorkers(pool, 3, () -> {
+                runs.incrementAndGet();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignore) {
+                }
+            }, 20, () -> reporters.add(Thread.currentThread()));
+            assertEquals(3, runs.get(), "Wrong number of runs of the worker");
+            assertEquals(Set.of(Thread.currentThread()), reporters, "The progress is reported by another thread");
+        } finally {
+            pool.shutdown();
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Workers that end at once report the progress once, at the end
+        AtomicInteger reports = new AtomicInteger();
+        TileScheduler.runWorkers(Runnable::run, 2, () -> {
+        }, 1000, reports::incrementAndGet);
+        assertEquals(1, reports.get(), "Wrong number of reports");
+    }
+
+    /**
+     * Test method for {@link TileScheduler#newVirtualThreadExecutor()}.
+     */
+    @Test
+    void testNewVirtualThreadExecutor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Virtual threads exist only from Java 21
+        ExecutorService executor = TileScheduler.newVirtualThreadExecutor();
+        assertEquals(Runtime.version().feature() >= 21, executor != null, "Wrong availability of virtual threads");
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * Test method for {@link TileScheduler#hasVirtualThreads()}.
+     */
+    @Test
+    void testHasVirtualThreads() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Virtual threads exist only from Java 21
+        assertEquals(Runtime.version().feature() >= 21, TileScheduler.hasVirtualThreads(),
+                "Wrong availability of virtual threads");
+    }
+}